@@ -33,17 +33,21 @@ import systems.dmx.core.service.accesscontrol.Permissions;
 import systems.dmx.core.service.accesscontrol.PrivilegedAccess;
 import systems.dmx.core.service.accesscontrol.SharingMode;
 import systems.dmx.core.service.event.CheckAssocReadAccess;
+import systems.dmx.core.service.event.CheckAssocsReadAccess;
 import systems.dmx.core.service.event.CheckAssocWriteAccess;
 import systems.dmx.core.service.event.CheckTopicReadAccess;
+import systems.dmx.core.service.event.CheckTopicsReadAccess;
 import systems.dmx.core.service.event.CheckTopicWriteAccess;
 import systems.dmx.core.service.event.PostCreateAssoc;
 import systems.dmx.core.service.event.PostCreateTopic;
 import systems.dmx.core.service.event.PostUpdateAssoc;
 import systems.dmx.core.service.event.PostUpdateTopic;
 import systems.dmx.core.service.event.PreCreateAssoc;
+import systems.dmx.core.service.event.PreDeleteTopic;
 import systems.dmx.core.service.event.PreUpdateTopic;
 import systems.dmx.core.service.event.ServiceRequestFilter;
 import systems.dmx.core.service.event.StaticResourceFilter;
+import systems.dmx.core.storage.spi.DMXTransaction;
 import systems.dmx.core.util.DMXUtils;
 import systems.dmx.core.util.JavaUtils;
 import systems.dmx.files.FilesService;
@@ -69,6 +73,8 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -76,6 +82,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
@@ -85,8 +95,10 @@ import java.util.logging.Logger;
 @Produces("application/json")
 public class AccessControlPlugin extends PluginActivator implements AccessControlService, ConfigCustomizer,
                                                                                           CheckTopicReadAccess,
+                                                                                          CheckTopicsReadAccess,
                                                                                           CheckTopicWriteAccess,
                                                                                           CheckAssocReadAccess,
+                                                                                          CheckAssocsReadAccess,
                                                                                           CheckAssocWriteAccess,
                                                                                           PreCreateAssoc,
                                                                                           PreUpdateTopic,
@@ -94,6 +106,7 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
                                                                                           PostCreateAssoc,
                                                                                           PostUpdateTopic,
                                                                                           PostUpdateAssoc,
+                                                                                          PreDeleteTopic,
                                                                                           ServiceRequestFilter,
                                                                                           StaticResourceFilter,
                                                                                           CheckDiskQuota {
@@ -153,6 +166,12 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
 
     private Map<String, AuthorizationMethod> authorizationMethods = new HashMap();
 
+    private OccupiedSpace occupiedSpaces;
+    private ExecutorService reconciliationExecutor = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, "dmx-disk-quota-reconciliation")
+    );
+    private Future<?> reconciliation;       // the pending or running reconciliation, null if none was requested yet
+
     private static Logger logger = Logger.getLogger(AccessControlPlugin.class.getName());
 
     static {
@@ -444,6 +463,27 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
 
 
 
+    // === Disk Quota ===
+
+    @Override
+    public long getOccupiedSpace(String username) {
+        return occupiedSpaces.get(username);
+    }
+
+    @POST
+    @Path("/disk-quota/reconcile")
+    @Override
+    public synchronized void reconcileOccupiedSpace() {
+        checkAdmin();
+        if (reconciliation != null && !reconciliation.isDone()) {
+            logger.info("### Reconciling occupied disk space SKIPPED -- a reconciliation is pending already");
+            return;
+        }
+        reconciliation = reconciliationExecutor.submit(this::_reconcileOccupiedSpace);
+    }
+
+
+
     // === Authorization Methods ===
 
     @GET
@@ -476,6 +516,11 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
 
 
 
+    @Override
+    public void init() {
+        occupiedSpaces = new OccupiedSpace(dmx);
+    }
+
     @Override
     public void preInstall() {
         cs.registerConfigDefinition(new ConfigDefinition(
@@ -494,6 +539,8 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
         if (cs != null) {
             cs.unregisterConfigDefinition(LOGIN_ENABLED);
         }
+        // Note: a running reconciliation is interrupted. Its transaction is not committed then.
+        reconciliationExecutor.shutdownNow();
     }
 
 
@@ -553,12 +600,46 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
 
     // ---
 
+    @Override
+    public void checkTopicsReadAccess(long[] topicIds, BitSet readables) {
+        checkReadAccess(topicIds, readables);
+    }
+
+    @Override
+    public void checkAssocsReadAccess(long[] assocIds, BitSet readables) {
+        if (!inRequestScope()) {
+            return;     // "System" may READ everything, no need to fetch the players
+        }
+        checkReadAccess(assocIds, readables);
+        //
+        // an association is only READable if both of its players are READable
+        List<Integer> positions = new ArrayList();
+        List<PlayerModel> players = new ArrayList();
+        for (int i = readables.nextSetBit(0); i >= 0; i = readables.nextSetBit(i + 1)) {
+            positions.add(i);
+            players.addAll(dmx.getPlayerModels(assocIds[i]));
+        }
+        BitSet playerReadables = checkReadAccess(players);
+        for (int k = 0; k < positions.size(); k++) {
+            if (!playerReadables.get(2 * k) || !playerReadables.get(2 * k + 1)) {
+                readables.clear(positions.get(k));
+            }
+        }
+    }
+
+    // ---
+
     @Override
     public void postCreateTopic(Topic topic) {
         if (topic.getTypeUri().equals(WORKSPACE)) {
             setWorkspaceOwner(topic);
         }
         setCreatorAndModifier(topic);
+        if (topic.getTypeUri().equals(USERNAME)) {
+            occupiedSpaces.userCreated(topic);
+        } else if (topic.getTypeUri().equals(OccupiedSpace.FILE)) {
+            occupiedSpaces.fileCreated(topic);
+        }
     }
 
     @Override
@@ -602,6 +683,9 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
                 throw new RuntimeException("A Username can't be changed (tried \"" + oldUsername + "\" -> \"" +
                     newUsername + "\")");
             }
+        } else if (topic.getTypeUri().equals(OccupiedSpace.FILE)) {
+            // the new size is added back in postUpdateTopic()
+            occupiedSpaces.fileRemoved(topic);
         }
     }
 
@@ -616,6 +700,8 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
             long workspaceId = getPrivateWorkspace().getId();
             ws.assignToWorkspace(passwordTopic, workspaceId);
             ws.assignToWorkspace(passwordTopic.getRelatingAssoc(), workspaceId);
+        } else if (topic.getTypeUri().equals(OccupiedSpace.FILE)) {
+            occupiedSpaces.fileUpdated(topic);
         }
         //
         setModifier(topic);
@@ -628,6 +714,15 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
 
     // ---
 
+    @Override
+    public void preDeleteTopic(Topic topic) {
+        if (topic.getTypeUri().equals(OccupiedSpace.FILE)) {
+            occupiedSpaces.fileRemoved(topic);
+        }
+    }
+
+    // ---
+
     @Override
     public void serviceRequestFilter(ContainerRequest containerRequest) {
         // Note: HttpServletRequest and HttpServletResponse are injected through JAX-RS.
@@ -681,19 +776,22 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
 
     // --- Disk Quota ---
 
-    private long getOccupiedSpace(String username) {
-        long occupiedSpace = 0;
-        for (Topic fileTopic : dmx.getTopicsByType("dmx.files.file")) {
-            long fileTopicId = fileTopic.getId();
-            if (getCreator(fileTopicId).equals(username)) {
-                try {
-                    occupiedSpace += fs.getFile(fileTopicId).length();
-                } catch (Exception e) {
-                    // Note: file might be deleted meanwhile
-                }
-            }
+    /**
+     * Recalculates and stores the occupied space of all users. Runs in its own transaction.
+     * Executed by the reconciliation executor.
+     */
+    private void _reconcileOccupiedSpace() {
+        logger.info("### Reconciling occupied disk space");
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            int count = occupiedSpaces.reconcile();
+            tx.success();
+            logger.info("### Reconciling occupied disk space of " + count + " users complete");
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Reconciling occupied disk space failed", e);
+        } finally {
+            tx.finish();
         }
-        return occupiedSpace;
     }
 
 
@@ -942,6 +1040,62 @@ public class AccessControlPlugin extends PluginActivator implements AccessContro
         }
     }
 
+    /**
+     * Batch variant of {@link #checkReadAccess(PlayerModel)}.
+     *
+     * @return  a bitset whose bit <i>i</i> is set if <code>players.get(i)</code> is READable.
+     */
+    private BitSet checkReadAccess(List<PlayerModel> players) {
+        int size = players.size();
+        List<Integer> topicPositions = new ArrayList();
+        List<Integer> assocPositions = new ArrayList();
+        for (int i = 0; i < size; i++) {
+            (players.get(i) instanceof AssocPlayerModel ? assocPositions : topicPositions).add(i);
+        }
+        BitSet readables = new BitSet(size);
+        readables.set(0, size);
+        checkReadAccess(players, topicPositions, readables, false);
+        checkReadAccess(players, assocPositions, readables, true);     // recursion
+        return readables;
+    }
+
+    private void checkReadAccess(List<PlayerModel> players, List<Integer> positions, BitSet readables,
+                                 boolean assocPlayers) {
+        int count = positions.size();
+        if (count == 0) {
+            return;
+        }
+        long[] ids = new long[count];
+        for (int k = 0; k < count; k++) {
+            ids[k] = players.get(positions.get(k)).getId();
+        }
+        BitSet _readables = new BitSet(count);
+        _readables.set(0, count);
+        if (assocPlayers) {
+            checkAssocsReadAccess(ids, _readables);
+        } else {
+            checkTopicsReadAccess(ids, _readables);
+        }
+        for (int k = _readables.nextClearBit(0); k < count; k = _readables.nextClearBit(k + 1)) {
+            readables.clear(positions.get(k));
+        }
+    }
+
+    /**
+     * Batch variant of {@link #checkReadAccess(long)}: clears the bits of the objects which are not READable.
+     *
+     * @param   objectIds   topic IDs, or association IDs, or both
+     */
+    private void checkReadAccess(long[] objectIds, BitSet readables) {
+        if (!inRequestScope()) {
+            logger.fine("### " + objectIds.length + " objects are accessed by \"System\" -- READ permission is " +
+                "granted");
+            return;
+        }
+        //
+        readables.and(dmx.getPrivilegedAccess().hasPermission(getUsername(), Operation.READ, objectIds));
+    }
+
     /**
      * @param   objectId    a topic ID, or an association ID
      */
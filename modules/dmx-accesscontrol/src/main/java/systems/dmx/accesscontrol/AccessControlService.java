@@ -229,6 +229,28 @@ public interface AccessControlService {
 
 
 
+    // === Disk Quota ===
+
+    /**
+     * Returns the disk space occupied by the files created by the given user.
+     * <p>
+     * The value is maintained incrementally as File topics are created and deleted. It is stored as a property of the
+     * Username topic. If no value is stored yet it is calculated once.
+     *
+     * @return  The occupied disk space in bytes.
+     */
+    long getOccupiedSpace(String username);
+
+    /**
+     * Recalculates the occupied disk space of all users in a single pass over all File topics. The stored values are
+     * replaced. The work is performed in a background thread; this method returns immediately.
+     * <p>
+     * Only the "admin" user is allowed to start the reconciliation.
+     */
+    void reconcileOccupiedSpace();
+
+
+
     // === Authorization Methods ===
 
     Set<String> getAuthorizationMethods();
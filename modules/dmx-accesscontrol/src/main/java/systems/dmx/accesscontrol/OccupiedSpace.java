@@ -0,0 +1,179 @@
+package systems.dmx.accesscontrol;
+
+import static systems.dmx.accesscontrol.Constants.*;
+import systems.dmx.core.Topic;
+import systems.dmx.core.service.CoreService;
+import systems.dmx.core.service.accesscontrol.PrivilegedAccess;
+import systems.dmx.core.storage.spi.ObjectMeta;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+
+/**
+ * Maintains the disk space occupied per user. The value is stored as a property of the user's Username topic.
+ * <p>
+ * The stored value is updated as File topics are created, updated, and deleted. Only the write paths store a value.
+ * If no value is stored yet (e.g. for a user who existed before) it is calculated from the user's File topics, on a
+ * read without being stored.
+ * <p>
+ * Note: concurrent uploads of the same user may cause the stored value to drift. The reconciliation repairs it.
+ */
+class OccupiedSpace {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    static final String PROP_OCCUPIED_SPACE = "dmx.accesscontrol.occupied_space";     // on Username topic
+
+    // Files plugin type URIs
+    static final String FILE      = "dmx.files.file";
+    static final String FILE_SIZE = "dmx.files.size";
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private CoreService dmx;
+    private PrivilegedAccess pa;
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    OccupiedSpace(CoreService dmx) {
+        this.dmx = dmx;
+        this.pa = dmx.getPrivilegedAccess();
+    }
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * Returns the occupied space of the given user. If no value is stored it is calculated, but not stored.
+     */
+    long get(String username) {
+        Topic usernameTopic = getUsernameTopicOrThrow(username);
+        return usernameTopic.hasProperty(PROP_OCCUPIED_SPACE) ? stored(usernameTopic) : calculate(username, -1);
+    }
+
+    // --- Write paths ---
+
+    /**
+     * Stores the initial value for a just created Username topic. A new user has no files.
+     */
+    void userCreated(Topic usernameTopic) {
+        store(usernameTopic, 0);
+    }
+
+    /**
+     * Adds the size of a just created File topic to its creator's occupied space.
+     * To be called once the creator is set.
+     */
+    void fileCreated(Topic fileTopic) {
+        Topic usernameTopic = creatorTopic(fileTopic);
+        if (usernameTopic != null) {
+            // Note: whether the calculation finds the just created file depends on the index state. So we exclude it.
+            long occupiedSpace = usernameTopic.hasProperty(PROP_OCCUPIED_SPACE) ? stored(usernameTopic) :
+                calculate(usernameTopic.getSimpleValue().toString(), fileTopic.getId());
+            store(usernameTopic, occupiedSpace + fileSize(fileTopic));
+        }
+    }
+
+    /**
+     * Subtracts the size of a File topic from its creator's occupied space. To be called before the File topic is
+     * deleted, resp. before it is updated (see {@link #fileUpdated}).
+     */
+    void fileRemoved(Topic fileTopic) {
+        add(fileTopic, -fileSize(fileTopic));
+    }
+
+    /**
+     * Adds the size of a just updated File topic to its creator's occupied space. The size before the update is
+     * expected to be subtracted already (see {@link #fileRemoved}).
+     */
+    void fileUpdated(Topic fileTopic) {
+        add(fileTopic, fileSize(fileTopic));
+    }
+
+    /**
+     * Recalculates and stores the occupied space of all users, in a single pass over all File topics.
+     * The caller is responsible for the transaction.
+     *
+     * @return  the number of users.
+     */
+    int reconcile() {
+        Map<String, Long> occupiedSpace = new HashMap();
+        for (Topic fileTopic : dmx.getTopicsByType(FILE)) {
+            String username = pa.getCreator(fileTopic.getId());
+            if (username != null) {
+                Long space = occupiedSpace.get(username);
+                occupiedSpace.put(username, (space != null ? space : 0) + fileSize(fileTopic));
+            }
+        }
+        int count = 0;
+        for (Topic usernameTopic : dmx.getTopicsByType(USERNAME)) {
+            Long space = occupiedSpace.get(usernameTopic.getSimpleValue().toString());
+            store(usernameTopic, space != null ? space : 0);
+            count++;
+        }
+        return count;
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private void add(Topic fileTopic, long delta) {
+        Topic usernameTopic = creatorTopic(fileTopic);
+        if (usernameTopic != null) {
+            long occupiedSpace = usernameTopic.hasProperty(PROP_OCCUPIED_SPACE) ? stored(usernameTopic) :
+                calculate(usernameTopic.getSimpleValue().toString(), -1);
+            store(usernameTopic, occupiedSpace + delta);
+        }
+    }
+
+    /**
+     * Calculates the occupied space of the given user from the File topics created by that user. All of them count,
+     * regardless of the current user's read permissions.
+     *
+     * @param   excludeId   ID of a File topic not to be counted, or -1.
+     */
+    private long calculate(String username, long excludeId) {
+        long occupiedSpace = 0;
+        for (Topic topic : pa.getTopicsByPropertyAndType(ObjectMeta.PROP_CREATOR, username, FILE)) {
+            if (topic.getId() != excludeId) {
+                occupiedSpace += fileSize(topic);
+            }
+        }
+        return occupiedSpace;
+    }
+
+    // ---
+
+    private long stored(Topic usernameTopic) {
+        return ((Number) usernameTopic.getProperty(PROP_OCCUPIED_SPACE)).longValue();
+    }
+
+    private void store(Topic usernameTopic, long occupiedSpace) {
+        usernameTopic.setProperty(PROP_OCCUPIED_SPACE, Math.max(occupiedSpace, 0), false);     // addToIndex=false
+    }
+
+    /**
+     * Returns the file size as recorded in the given File topic.
+     */
+    private long fileSize(Topic fileTopic) {
+        return fileTopic.getChildTopics().getLong(FILE_SIZE, 0);
+    }
+
+    // ---
+
+    /**
+     * @return  the Username topic of the given File topic's creator, or <code>null</code> if the creator is unknown.
+     */
+    private Topic creatorTopic(Topic fileTopic) {
+        String username = pa.getCreator(fileTopic.getId());
+        return username != null ? pa.getUsernameTopic(username) : null;
+    }
+
+    private Topic getUsernameTopicOrThrow(String username) {
+        Topic usernameTopic = pa.getUsernameTopic(username);
+        if (usernameTopic == null) {
+            throw new RuntimeException("Unknown user \"" + username + "\"");
+        }
+        return usernameTopic;
+    }
+}
@@ -0,0 +1,110 @@
+package systems.dmx.core.impl;
+
+import static systems.dmx.contacts.Constants.*;
+import systems.dmx.core.Topic;
+import systems.dmx.core.service.TopicResult;
+import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.topicmaps.Topicmap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Benchmarks for the core service hot paths.
+ * <p>
+ * Build and run:
+ * <pre>
+ * mvn clean package -P all,benchmarks
+ * java -jar modules/dmx-benchmarks/target/benchmarks.jar
+ * </pre>
+ * The dataset is controlled by JMH parameters, e.g. <code>-p persons=10000 -p topicmapSize=500</code>
+ * (see {@link CoreServiceBenchmarkEnvironment}). Every benchmark runs in a fresh JVM with a freshly seeded DB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoreServiceBenchmark extends CoreServiceBenchmarkEnvironment {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    // Note: objects are picked round-robin (not randomly) to make runs reproducible
+    private int nextPerson = 0;
+    private int nextTopicmap = 0;
+    private int createdPersons = 0;
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    /**
+     * Creates a Person with all its composite children (the ValueIntegrator path). The transaction is rolled back
+     * in order to keep the dataset stable across invocations.
+     */
+    @Benchmark
+    public Topic createTopicWithComposites() {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            return createPerson(persons + createdPersons++);     // a new Person Name, see createPerson()
+        } finally {
+            tx.finish();    // no tx.success() -- rollback
+        }
+    }
+
+    @Benchmark
+    public Topic getTopicAndLoadChildTopics() {
+        return dmx.getTopic(nextReadablePersonId()).loadChildTopics();
+    }
+
+    /**
+     * Half of the persons are readable. Every person is checked by the read permission listener.
+     */
+    @Benchmark
+    public List<Topic> getTopicsByType() {
+        return dmx.getTopicsByType(PERSON);
+    }
+
+    @Benchmark
+    public TopicResult queryTopicsFulltext() {
+        return dmx.queryTopicsFulltext(nextLastName() + "*", null, false);  // typeUri=null, searchChildTopics=false
+    }
+
+    /**
+     * Finds persons by a child's value (Last Name) and filters for readability.
+     */
+    @Benchmark
+    public List<DMXObjectModelImpl> accessLayerQuery() {
+        return dmx.al.query(nextLastName(), PERSON, true, "", null, false);
+    }
+
+    @Benchmark
+    public Topicmap getTopicmap() {
+        return topicmapsPlugin.getTopicmap(nextTopicmapId(), true);     // includeChildren=true
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private long nextReadablePersonId() {
+        return readablePersonIds[nextPerson++ % readablePersonIds.length];
+    }
+
+    private String nextLastName() {
+        return LAST_NAMES[nextPerson++ % LAST_NAMES.length];
+    }
+
+    private long nextTopicmapId() {
+        return topicmapIds[nextTopicmap++ % topicmapIds.length];
+    }
+}
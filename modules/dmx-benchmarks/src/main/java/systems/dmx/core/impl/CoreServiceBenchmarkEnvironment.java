@@ -0,0 +1,338 @@
+package systems.dmx.core.impl;
+
+import static systems.dmx.contacts.Constants.*;
+import static systems.dmx.core.Constants.*;
+import static systems.dmx.datetime.Constants.*;
+import static systems.dmx.topicmaps.Constants.*;
+import static systems.dmx.workspaces.Constants.*;
+import systems.dmx.core.Topic;
+import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.osgi.CoreActivator;
+import systems.dmx.core.service.event.CheckTopicReadAccess;
+import systems.dmx.core.service.event.CheckTopicsReadAccess;
+import systems.dmx.core.storage.spi.DMXStorage;
+import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.core.storage.spi.ObjectMeta;
+import systems.dmx.core.util.JavaUtils;
+import systems.dmx.topicmaps.TopicmapsPlugin;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.security.AccessControlException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Boots a core service on top of a storage -- like <code>CoreServiceTestEnvironment</code> does -- and seeds it with
+ * a dataset:
+ * <ul>
+ * <li><code>persons</code> Person topics with composite children (name, birthday, email, address, description).
+ * <li><code>workspaces</code> Workspace topics. The persons are assigned to them round-robin.
+ * <li><code>topicmaps</code> Topicmap topics, each revealing <code>topicmapSize</code> persons and the
+ *     associations between consecutive persons.
+ * </ul>
+ * Read permission is simulated by a listener which grants access to the objects of every other workspace, and to
+ * objects not assigned to any workspace. It fetches the object's meta data for every check, as the Access Control
+ * plugin does.
+ * <p>
+ * The storage is Neo4j by default. Another storage can be selected by the system property
+ * <code>dmx.benchmark.database_factory</code>.
+ */
+public class CoreServiceBenchmarkEnvironment {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    private static final String DATABASE_FACTORY = System.getProperty("dmx.benchmark.database_factory",
+        "systems.dmx.storage.neo4j.Neo4jStorageFactory");
+
+    private static final int OBJECTS_PER_TX = 500;     // seeding is split into transactions of this size
+
+    static final String[] FIRST_NAMES = {"Dave", "Anna", "Joerg", "Malte", "Carolin", "Juergen", "Ida", "Konrad"};
+    static final String[] LAST_NAMES  = {"Stauges", "Richter", "Reichelt", "Habling", "Meyer", "Schulz", "Wolf"};
+    static final String[] CITIES      = {"Berlin", "Hamburg", "Leipzig", "Koeln", "Dresden"};
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    @Param({"1000"})
+    public int persons;
+
+    @Param({"10"})
+    public int workspaces;
+
+    @Param({"10"})
+    public int topicmaps;
+
+    @Param({"100"})
+    public int topicmapSize;
+
+    protected CoreServiceImpl dmx;              // accessed by benchmark subclasses
+    protected ModelFactoryImpl mf;              // accessed by benchmark subclasses
+    protected TopicmapsPlugin topicmapsPlugin;  // accessed by benchmark subclasses
+
+    protected long[] readablePersonIds;         // accessed by benchmark subclasses
+    protected long[] topicmapIds;               // accessed by benchmark subclasses
+
+    private DMXStorage db;
+    private Set<Long> readableWorkspaceIds = new HashSet();
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    @Setup(Level.Trial)
+    public void setup() {
+        db = CoreActivator.openDB(DATABASE_FACTORY, JavaUtils.createTempDirectory("dmx-benchmark-").getAbsolutePath());
+        mf = db.getModelFactory();
+        dmx = new CoreServiceImpl(new AccessLayer(db), null);     // bundleContext=null
+        //
+        topicmapsPlugin = new TopicmapsPlugin();
+        topicmapsPlugin.setCoreService(dmx);
+        //
+        seed();
+        //
+        // Note: the listener is registered after seeding. Seeding runs as "System".
+        ReadAccessFilter filter = new ReadAccessFilter();
+        dmx.em.addListener(CoreEvent.CHECK_TOPIC_READ_ACCESS, filter);
+        dmx.em.addListener(CoreEvent.CHECK_TOPICS_READ_ACCESS, filter);
+        // Note: the core logs every request at INFO level. We don't want to measure the console.
+        Logger.getLogger("").setLevel(java.util.logging.Level.WARNING);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        // copy in CoreActivator.stop()
+        if (dmx != null) {
+            dmx.shutdown();
+        }
+        if (db != null) {
+            logger.info("### Shutting down the database");
+            db.shutdown();
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    Topic createPerson(int i) {
+        return dmx.createTopic(mf.newTopicModel(PERSON, mf.newChildTopicsModel()
+            .set(PERSON_NAME, mf.newChildTopicsModel()
+                .set(FIRST_NAME, FIRST_NAMES[i % FIRST_NAMES.length] + " " + i)  // Person Name is identity attr
+                .set(LAST_NAME,  LAST_NAMES[i % LAST_NAMES.length]))
+            .set(DATE + "#" + DATE_OF_BIRTH, mf.newChildTopicsModel()
+                .set(MONTH, i % 12 + 1)
+                .set(DAY,   i % 28 + 1)
+                .set(YEAR,  1940 + i % 70))
+            .add(EMAIL_ADDRESS, "person-" + i + "@example.com")
+            .add(ADDRESS + "#" + ADDRESS_ENTRY, mf.newChildTopicsModel()
+                .set(STREET,      "Parkstr. " + (i % 100 + 1))
+                .set(POSTAL_CODE, String.valueOf(10000 + i % 90000))
+                .set(CITY,        CITIES[i % CITIES.length])
+                .set(COUNTRY,     "Germany"))
+            .set(PERSON_DESCRIPTION, "<p>Person number " + i + "</p>")
+        ));
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private void seed() {
+        long t = System.currentTimeMillis();
+        inTx(() -> {
+            definePersonModel();
+            defineTopicmapModel();
+            dmx.createTopicType(mf.newTopicTypeModel(WORKSPACE, "Workspace", TEXT));
+        });
+        //
+        long[] workspaceIds = new long[workspaces];
+        inTx(() -> {
+            for (int i = 0; i < workspaces; i++) {
+                workspaceIds[i] = dmx.createTopic(mf.newTopicModel(WORKSPACE, new SimpleValue("Workspace " + i)))
+                    .getId();
+                if (isReadable(i)) {
+                    readableWorkspaceIds.add(workspaceIds[i]);
+                }
+            }
+        });
+        //
+        long[] personIds = new long[persons];
+        List<Long> readables = new ArrayList();
+        for (int from = 0; from < persons; from += OBJECTS_PER_TX) {
+            int _from = from;
+            inTx(() -> {
+                for (int i = _from; i < Math.min(_from + OBJECTS_PER_TX, persons); i++) {
+                    Topic person = createPerson(i);
+                    long workspaceId = workspaceIds[i % workspaces];
+                    person.setProperty(ObjectMeta.PROP_WORKSPACE_ID, workspaceId, true);
+                    personIds[i] = person.getId();
+                    if (readableWorkspaceIds.contains(workspaceId)) {
+                        readables.add(person.getId());
+                    }
+                }
+            });
+        }
+        readablePersonIds = readables.stream().mapToLong(Long::longValue).toArray();
+        //
+        // associations between consecutive persons; personAssocIds[i] connects person i-1 and person i
+        long[] personAssocIds = new long[persons];
+        for (int from = 1; from < persons; from += OBJECTS_PER_TX) {
+            int _from = from;
+            inTx(() -> {
+                for (int i = _from; i < Math.min(_from + OBJECTS_PER_TX, persons); i++) {
+                    personAssocIds[i] = dmx.createAssoc(mf.newAssocModel(ASSOCIATION,
+                        mf.newTopicPlayerModel(personIds[i - 1], DEFAULT),
+                        mf.newTopicPlayerModel(personIds[i], DEFAULT)
+                    )).getId();
+                }
+            });
+        }
+        //
+        topicmapIds = new long[topicmaps];
+        for (int k = 0; k < topicmaps; k++) {
+            int _k = k;
+            inTx(() -> topicmapIds[_k] = createTopicmap(_k, personIds, personAssocIds));
+        }
+        logger.info("### Seeding " + persons + " persons, " + workspaces + " workspaces, " + topicmaps +
+            " topicmaps (" + topicmapSize + " persons each) took " + (System.currentTimeMillis() - t) + " ms");
+    }
+
+    private long createTopicmap(int k, long[] personIds, long[] personAssocIds) {
+        Topic topicmap = dmx.createTopic(mf.newTopicModel(TOPICMAP, new SimpleValue("Topicmap " + k)));
+        topicmap.setProperty(PAN_X, 0, false);
+        topicmap.setProperty(PAN_Y, 0, false);
+        topicmap.setProperty(ZOOM, 1.0, false);
+        //
+        long topicmapId = topicmap.getId();
+        int size = Math.min(topicmapSize, persons);
+        for (int j = 0; j < size; j++) {
+            int i = (k * size + j) % persons;
+            mf.newViewProps(j * 20, j * 10, true, false).store(dmx.createAssoc(mf.newAssocModel(TOPICMAP_CONTEXT,
+                mf.newTopicPlayerModel(topicmapId, DEFAULT),
+                mf.newTopicPlayerModel(personIds[i], TOPICMAP_CONTENT)
+            )));
+            // reveal the association to the previous person if that one is contained as well
+            if (j > 0 && i > 0) {
+                mf.newViewProps(true, false).store(dmx.createAssoc(mf.newAssocModel(TOPICMAP_CONTEXT,
+                    mf.newTopicPlayerModel(topicmapId, DEFAULT),
+                    mf.newAssocPlayerModel(personAssocIds[i], TOPICMAP_CONTENT)
+                )));
+            }
+        }
+        return topicmapId;
+    }
+
+    // ---
+
+    /**
+     * Same model as in <code>PersonTest</code>.
+     */
+    private void definePersonModel() {
+        defineDateModel();
+        defineAddressModel();
+        // Person Name
+        dmx.createTopicType(mf.newTopicTypeModel(FIRST_NAME,  "First Name",  TEXT));
+        dmx.createTopicType(mf.newTopicTypeModel(LAST_NAME,   "Last Name",   TEXT));
+        dmx.createTopicType(mf.newTopicTypeModel(PERSON_NAME, "Person Name", VALUE)
+          .addCompDef(mf.newCompDefModel(null, false, true, PERSON_NAME, FIRST_NAME, ONE))
+          .addCompDef(mf.newCompDefModel(null, false, true, PERSON_NAME, LAST_NAME,  ONE))
+        );
+        // Person
+        dmx.createAssocType(mf.newAssocTypeModel(DATE_OF_BIRTH,      "Date of Birth",      TEXT));
+        dmx.createAssocType(mf.newAssocTypeModel(ADDRESS_ENTRY,      "Address Entry",      TEXT));
+        dmx.createTopicType(mf.newTopicTypeModel(EMAIL_ADDRESS,      "Email Address",      TEXT));
+        dmx.createTopicType(mf.newTopicTypeModel(PERSON_DESCRIPTION, "Person Description", HTML));
+        dmx.createTopicType(mf.newTopicTypeModel(PERSON,             "Person",             ENTITY)
+          .addCompDef(mf.newCompDefModel(null, true, false, PERSON, PERSON_NAME, ONE))
+          .addCompDef(mf.newCompDefModel(DATE_OF_BIRTH, false, false,
+                                         PERSON, DATE,               ONE))
+          .addCompDef(mf.newCompDefModel(PERSON, EMAIL_ADDRESS,      MANY))
+          .addCompDef(mf.newCompDefModel(ADDRESS_ENTRY, false, false,
+                                         PERSON, ADDRESS,            MANY))
+          .addCompDef(mf.newCompDefModel(PERSON, PERSON_DESCRIPTION, ONE))
+        );
+    }
+
+    private void defineDateModel() {
+        dmx.createTopicType(mf.newTopicTypeModel(MONTH, "Month",   NUMBER));
+        dmx.createTopicType(mf.newTopicTypeModel(DAY,   "Day",     NUMBER));
+        dmx.createTopicType(mf.newTopicTypeModel(YEAR,  "Year",    NUMBER));
+        dmx.createTopicType(mf.newTopicTypeModel(DATE,  "Date",    VALUE)
+            .addCompDef(mf.newCompDefModel(null, false, true, DATE, MONTH, ONE))
+            .addCompDef(mf.newCompDefModel(null, false, true, DATE, DAY,   ONE))
+            .addCompDef(mf.newCompDefModel(null, false, true, DATE, YEAR,  ONE))
+        );
+    }
+
+    private void defineAddressModel() {
+        dmx.createTopicType(mf.newTopicTypeModel(STREET,      "Street",      TEXT));
+        dmx.createTopicType(mf.newTopicTypeModel(POSTAL_CODE, "Postal Code", TEXT));
+        dmx.createTopicType(mf.newTopicTypeModel(CITY,        "City",        TEXT));
+        dmx.createTopicType(mf.newTopicTypeModel(COUNTRY,     "Country",     TEXT));
+        dmx.createTopicType(mf.newTopicTypeModel(ADDRESS,     "Address",     VALUE)
+            .addCompDef(mf.newCompDefModel(null, false, true, ADDRESS, STREET,      ONE))
+            .addCompDef(mf.newCompDefModel(null, false, true, ADDRESS, POSTAL_CODE, ONE))
+            .addCompDef(mf.newCompDefModel(null, false, true, ADDRESS, CITY,        ONE))
+            .addCompDef(mf.newCompDefModel(null, false, true, ADDRESS, COUNTRY,     ONE))
+        );
+    }
+
+    /**
+     * The subset of the Topicmaps plugin's model which is needed to store and fetch topicmaps.
+     */
+    private void defineTopicmapModel() {
+        dmx.createTopicType(mf.newTopicTypeModel(TOPICMAP, "Topicmap", TEXT));
+        dmx.createAssocType(mf.newAssocTypeModel(TOPICMAP_CONTEXT, "Topicmap Context", TEXT));
+        dmx.createRoleType(mf.newTopicModel(TOPICMAP_CONTENT, ROLE_TYPE, new SimpleValue("Topicmap Content")));
+    }
+
+    // ---
+
+    private void inTx(Runnable seeder) {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            seeder.run();
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    private boolean isReadable(int workspace) {
+        return workspace % 2 == 0;
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Classes
+
+    /**
+     * Grants READ permission for the objects of every other workspace, and for objects not assigned to a workspace.
+     */
+    private class ReadAccessFilter implements CheckTopicReadAccess, CheckTopicsReadAccess {
+
+        @Override
+        public void checkTopicReadAccess(long topicId) {
+            if (!isReadable(topicId)) {
+                throw new AccessControlException("No READ permission for topic " + topicId);
+            }
+        }
+
+        @Override
+        public void checkTopicsReadAccess(long[] topicIds, BitSet readables) {
+            for (int i = 0; i < topicIds.length; i++) {
+                if (!isReadable(topicIds[i])) {
+                    readables.clear(i);
+                }
+            }
+        }
+
+        private boolean isReadable(long objectId) {
+            long workspaceId = db.fetchObjectMeta(objectId).getWorkspaceId();
+            return workspaceId == -1 || readableWorkspaceIds.contains(workspaceId);
+        }
+    }
+}
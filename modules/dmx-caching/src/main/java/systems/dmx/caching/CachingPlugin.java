@@ -18,34 +18,81 @@ import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Path;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 
 import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
 
+/**
+ * Validator-based HTTP caching for the read API.
+ * <p>
+ * Single objects (<code>core/topic/{id}</code>, <code>core/association/{id}</code>) get a strong ETag derived from
+ * the object's modification time plus the overall modification count. The latter is required as the response
+ * contains more than the object itself: its child topics and the enrichments added by the PRE_SEND listeners (e.g.
+ * the workspace assignment), which may change while the object's modification time does not. Collections get a weak
+ * ETag derived from the modification counts maintained by the Timestamps plugin:
+ * <ul>
+ * <li><code>core/topics/type/{uri}</code>: the count of that type</li>
+ * <li><code>workspaces/{id}/topics</code> (and the other workspace content paths): the count of that workspace</li>
+ * <li><code>topicmaps/{id}</code>: the overall count, as a topicmap contains topics of any type and workspace, plus
+ *     a per-topicmap count which is increased by every modifying request to <code>topicmaps/{id}/...</code> (view
+ *     properties are stored without firing events).</li>
+ * </ul>
+ * When child topics are requested (<code>children</code> query parameter) a collection's ETag is based on the overall
+ * count, as the children may be of any type and workspace.
+ * <p>
+ * All ETags include the requester's permission context: the username and a count of the access control relevant
+ * modifications (memberships, workspaces). The ETag is calculated and the request preconditions are evaluated
+ * <i>before</i> the request is processed. So a matching request is answered with 304 (Not Modified) without loading
+ * the requested object(s).
+ */
 @Path("/cache")
 public class CachingPlugin extends PluginActivator implements ServiceRequestFilter, ServiceResponseFilter {
 
     // ------------------------------------------------------------------------------------------------------- Constants
 
     private static String CACHABLE_PATH = "core/(topic|association)/(\\d+)";
+    private static String TYPE_COLLECTION_PATH = "core/topics/type/([^/]+)";
+    private static String WORKSPACE_COLLECTION_PATH = "workspaces/(\\d+)/(topics|assocs)(/[^/]+)?";
+    private static String TOPICMAP_PATH = "topicmaps/(\\d+)(/.*)?";
 
     private static String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static String HEADER_ETAG = "ETag";
+
+    private static String CACHE_CONTROL_VALIDATE = "private, max-age=0";
+    private static String CACHE_CONTROL_NO_STORE = "no-store";
+
+    static String PROP_ETAG = "systems.dmx.caching.etag";     // ContainerRequest property
+
+    // Access control relevant types. Note: the Caching plugin does not depend on the Access Control plugin.
+    private static String MEMBERSHIP = "dmx.accesscontrol.membership";
+    private static String WORKSPACE = "dmx.workspaces.workspace";
 
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     @Inject
-    private TimestampsService timestampsService;
+    TimestampsService timestampsService;
 
     @Context
     HttpServletRequest req;
 
     private Pattern cachablePath = Pattern.compile(CACHABLE_PATH);
+    private Pattern typeCollectionPath = Pattern.compile(TYPE_COLLECTION_PATH);
+    private Pattern workspaceCollectionPath = Pattern.compile(WORKSPACE_COLLECTION_PATH);
+    private Pattern topicmapPath = Pattern.compile(TOPICMAP_PATH);
+
+    private long epoch = System.currentTimeMillis();
+    private Map<Long, AtomicLong> topicmapCounts = new ConcurrentHashMap();     // key: topicmap ID
 
     private Logger logger = Logger.getLogger(getClass().getName());
 
@@ -57,33 +104,106 @@ public class CachingPlugin extends PluginActivator implements ServiceRequestFilt
     public void serviceRequestFilter(ContainerRequest request) {
         long objectId = requestObjectId(request);
         if (objectId != -1) {
-            if (timestampsService == null) {
-                throw new RuntimeException("Time service is not available");
-            }
-            //
+            checkTimestampsService();
             long time = timestampsService.getModificationTime(objectId);
-            Response.ResponseBuilder builder = request.evaluatePreconditions(new Date(time));
-            if (builder != null) {
-                Response response = builder.build();
-                Response.Status status = Response.Status.fromStatusCode(response.getStatus());
-                logger.fine("### Preconditions of request \"" + JavaUtils.requestInfo(req) +
-                    "\" are not met -- Responding with " + JavaUtils.responseInfo(status));
-                throw new WebApplicationException(response);
+            if (isRead(request)) {
+                // Note: the modification time does not cover children and enrichments. So a read is validated only
+                // by the ETag, and not by If-Modified-Since.
+                EntityTag eTag = eTag(request, false, time, timestampsService.getModificationCount());
+                request.getProperties().put(PROP_ETAG, eTag);
+                evaluatePreconditions(request, request.evaluatePreconditions(eTag));
+            } else {
+                evaluatePreconditions(request, request.evaluatePreconditions(new Date(time)));
+            }
+        } else if (isRead(request)) {
+            EntityTag eTag = collectionETag(request);
+            if (eTag != null) {
+                request.getProperties().put(PROP_ETAG, eTag);
+                evaluatePreconditions(request, request.evaluatePreconditions(eTag));
             }
         }
     }
 
     @Override
     public void serviceResponseFilter(ContainerResponse response) {
-        DMXObject object = responseObject(response);
-        if (object != null) {
-            setCacheControlHeader(response, "no-store");
-            // ### FIXME: support browser cache by using "max-age=0" instead (#35)
+        ContainerRequest request = response.getContainerRequest();
+        EntityTag eTag = (EntityTag) request.getProperties().get(PROP_ETAG);
+        if (eTag != null && response.getStatus() == Response.Status.OK.getStatusCode()) {
+            setHeader(response, HEADER_ETAG, eTag.toString());
+            setCacheControlHeader(response, CACHE_CONTROL_VALIDATE);
+        } else if (responseObject(response) != null) {
+            setCacheControlHeader(response, CACHE_CONTROL_NO_STORE);
+        }
+        // Note: counted once the modification is committed, see TimestampsPlugin.countModification()
+        if (!isRead(request)) {
+            long topicmapId = topicmapId(request);
+            if (topicmapId != -1) {
+                topicmapCounts.computeIfAbsent(topicmapId, id -> new AtomicLong()).incrementAndGet();
+            }
         }
     }
 
     // ------------------------------------------------------------------------------------------------- Private Methods
 
+    /**
+     * @return  the ETag for a collection request, or <code>null</code> if the request does not refer to a cachable
+     *          collection.
+     */
+    private EntityTag collectionETag(ContainerRequest request) {
+        String path = request.getPath();
+        Matcher m;
+        boolean children = Boolean.parseBoolean(request.getQueryParameters().getFirst("children"));
+        if ((m = typeCollectionPath.matcher(path)).matches()) {
+            checkTimestampsService();
+            return eTag(request, true, children ? timestampsService.getModificationCount() :
+                timestampsService.getModificationCount(m.group(1)));
+        } else if ((m = workspaceCollectionPath.matcher(path)).matches()) {
+            checkTimestampsService();
+            return eTag(request, true, children ? timestampsService.getModificationCount() :
+                timestampsService.getWorkspaceModificationCount(Long.parseLong(m.group(1))));
+        } else if ((m = topicmapPath.matcher(path)).matches() && m.group(2) == null) {
+            checkTimestampsService();
+            AtomicLong topicmapCount = topicmapCounts.get(Long.parseLong(m.group(1)));
+            return eTag(request, true, timestampsService.getModificationCount(), epoch,
+                topicmapCount != null ? topicmapCount.get() : 0);
+        }
+        return null;
+    }
+
+    /**
+     * Builds an ETag from the given modification values plus the requester's permission context.
+     */
+    private EntityTag eTag(ContainerRequest request, boolean weak, long... values) {
+        StringBuilder value = new StringBuilder(Long.toString(timestampsService.getModificationCountsEpoch()));
+        for (long v : values) {
+            value.append('-').append(v);
+        }
+        long aclCount = timestampsService.getModificationCount(MEMBERSHIP) +
+            timestampsService.getModificationCount(WORKSPACE);
+        String username = dmx.getPrivilegedAccess().getUsername(req);
+        int context = Objects.hash(username, request.getRequestUri().getRawQuery());
+        value.append('-').append(aclCount).append('-').append(Integer.toHexString(context));
+        return new EntityTag(value.toString(), weak);
+    }
+
+    private void evaluatePreconditions(ContainerRequest request, Response.ResponseBuilder builder) {
+        if (builder != null) {
+            Response response = builder.build();
+            Response.Status status = Response.Status.fromStatusCode(response.getStatus());
+            logger.fine("### Preconditions of request \"" + JavaUtils.requestInfo(req) +
+                "\" are not met -- Responding with " + JavaUtils.responseInfo(status));
+            throw new WebApplicationException(response);
+        }
+    }
+
+    private void checkTimestampsService() {
+        if (timestampsService == null) {
+            throw new RuntimeException("Time service is not available");
+        }
+    }
+
+    // ---
+
     private long requestObjectId(ContainerRequest request) {
         // Example URL: "http://localhost:8080/core/topic/2695?children=true"
         //   request.getBaseUri()="http://localhost:8080/"
@@ -105,6 +225,16 @@ public class CachingPlugin extends PluginActivator implements ServiceRequestFilt
         }
     }
 
+    private long topicmapId(ContainerRequest request) {
+        Matcher m = topicmapPath.matcher(request.getPath());
+        return m.matches() ? Long.parseLong(m.group(1)) : -1;
+    }
+
+    private boolean isRead(ContainerRequest request) {
+        String method = request.getMethod();
+        return method.equals("GET") || method.equals("HEAD");
+    }
+
     // ---
 
     // ### FIXME: copy in TimestampsPlugin
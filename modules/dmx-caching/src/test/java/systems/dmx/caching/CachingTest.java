@@ -28,6 +28,19 @@ public class CachingTest {
         assertFalse("core/topic/2695?children=true".matches(CACHABLE_PATH));
     }
 
+    @Test
+    public void collectionRegex() {
+        String WORKSPACE_COLLECTION_PATH = "workspaces/(\\d+)/(topics|assocs)(/[^/]+)?";
+        assertTrue("workspaces/2695/topics".matches(WORKSPACE_COLLECTION_PATH));
+        assertTrue("workspaces/2695/assocs/dmx.core.composition".matches(WORKSPACE_COLLECTION_PATH));
+        assertFalse("workspaces/2695/object/1234".matches(WORKSPACE_COLLECTION_PATH));
+        //
+        String TOPICMAP_PATH = "topicmaps/(\\d+)(/.*)?";
+        assertTrue("topicmaps/2695".matches(TOPICMAP_PATH));
+        assertTrue("topicmaps/2695/topic/1234/x/10/y/20".matches(TOPICMAP_PATH));
+        assertFalse("topicmaps/object/1234".matches(TOPICMAP_PATH));
+    }
+
     @Test
     public void date() {
         logger.info("### Date(0)=" + new Date(0) + "\n          " +
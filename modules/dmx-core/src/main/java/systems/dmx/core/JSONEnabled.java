@@ -1,5 +1,7 @@
 package systems.dmx.core;
 
+import systems.dmx.core.util.JSONGenerator;
+
 import org.codehaus.jettison.json.JSONObject;
 
 
@@ -11,6 +13,25 @@ public interface JSONEnabled {
 
     JSONObject toJSON();
 
+    /**
+     * Writes this entity's JSON representation to a stream. The output is equivalent to {@link #toJSON}.
+     */
+    default void writeJSON(JSONGenerator out) {
+        out.beginObject();
+        writeJSONFields(out);
+        out.endObject();
+    }
+
+    /**
+     * Writes the fields of this entity's JSON representation into the current object of a stream.
+     * <p>
+     * The default implementation builds the <code>JSONObject</code> via {@link #toJSON}. Entities which are
+     * potentially large (topics with their child topics, collections) override this to stream their fields.
+     */
+    default void writeJSONFields(JSONGenerator out) {
+        out.fields(toJSON());
+    }
+
     default public String dump() {
         try {
             return getClass().getSimpleName() + " " + toJSON().toString(4);
@@ -5,12 +5,19 @@ import systems.dmx.core.DMXObject;
 import systems.dmx.core.model.PlayerModel;
 import systems.dmx.core.model.RelatedObjectModel;
 import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.service.DMXEvent;
+import systems.dmx.core.service.CacheStats;
+import systems.dmx.core.service.ResultPage;
+import systems.dmx.core.service.StorageCacheMetrics;
+import systems.dmx.core.service.accesscontrol.AccessControlException;
 import systems.dmx.core.storage.spi.DMXStorage;
 import systems.dmx.core.util.DMXUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -28,6 +35,11 @@ public final class AccessLayer {
     private static final String URI_PREFIX_ASSOCIATION_TYPE = "domain.project.assoc_type_";
     private static final String URI_PREFIX_ROLE_TYPE        = "domain.project.role_type_";
 
+    private static final int MIN_CHUNK_SIZE = 100;      // the minimum number of objects read at once while paging
+
+    // The capacity of the storage cache (per cache). 0 disables the storage cache.
+    private static final int STORAGE_CACHE_SIZE = Integer.getInteger("dmx.storage.cache_size", 0);
+
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     public StorageDecorator sd;     // accessed by storage tests
@@ -36,17 +48,25 @@ public final class AccessLayer {
     TypeStorage typeStorage;
     EventManager em;
     ModelFactoryImpl mf;
+    StorageCacheMetrics cacheMetrics;
 
     private final Logger logger = Logger.getLogger(getClass().getName());
 
     // ---------------------------------------------------------------------------------------------------- Constructors
 
     public AccessLayer(DMXStorage db) {
-        this.db = db;
-        this.sd = new StorageDecorator(db);
+        if (STORAGE_CACHE_SIZE > 0) {
+            StorageCache cache = new StorageCache(db, STORAGE_CACHE_SIZE);
+            this.db = cache;
+            this.cacheMetrics = cache;
+        } else {
+            this.db = db;
+            this.cacheMetrics = new DisabledStorageCacheMetrics();
+        }
+        this.sd = new StorageDecorator(this.db);
         // Note: mf must be initialzed before the type storage is instantiated
         this.em = new EventManager();
-        this.mf = (ModelFactoryImpl) db.getModelFactory();
+        this.mf = (ModelFactoryImpl) this.db.getModelFactory();
         this.typeStorage = new TypeStorage(this);
         //
         // Note: this is a constructor side effect. This is a cyclic dependency.
@@ -83,6 +103,35 @@ public final class AccessLayer {
         return filterReadables(_getTopicsByType(topicTypeUri));
     }
 
+    /**
+     * @param   offset  the number of readable topics to skip. Ignored if a cursor is given.
+     * @param   cursor  a cursor as obtained by a previous page, or <code>null</code>.
+     */
+    ResultPage<TopicModelImpl> getTopicsByType(String topicTypeUri, int offset, String cursor, int limit) {
+        try {
+            TopicTypeModelImpl topicType = _getTopicType(topicTypeUri);
+            return page(topicType::getInstances, offset, cursor, limit);
+        } catch (Exception e) {
+            throw new RuntimeException("Fetching topics by type failed, topicTypeUri=\"" + topicTypeUri +
+                "\", offset=" + offset + ", cursor=\"" + cursor + "\", limit=" + limit, e);
+        }
+    }
+
+    /**
+     * Counts the topics of the given type readable by the current user. No topic is built.
+     */
+    int countTopicsByType(String topicTypeUri) {
+        try {
+            TopicTypeModelImpl topicType = _getTopicType(topicTypeUri);
+            if (topicType.countInstances() == 0) {
+                return 0;
+            }
+            return countReadables(CoreEvent.CHECK_TOPICS_READ_ACCESS, db.fetchTopicIds("typeUri", topicTypeUri));
+        } catch (Exception e) {
+            throw new RuntimeException("Counting topics by type failed, topicTypeUri=\"" + topicTypeUri + "\"", e);
+        }
+    }
+
     TopicModelImpl getTopicByValue(String key, SimpleValue value) {
         try {
             TopicModelImpl topic = sd.fetchTopic(key, value.value());
@@ -249,6 +298,35 @@ public final class AccessLayer {
         return filterReadables(_getAssocsByType(assocTypeUri));
     }
 
+    /**
+     * @param   offset  the number of readable assocs to skip. Ignored if a cursor is given.
+     * @param   cursor  a cursor as obtained by a previous page, or <code>null</code>.
+     */
+    ResultPage<AssocModelImpl> getAssocsByType(String assocTypeUri, int offset, String cursor, int limit) {
+        try {
+            AssocTypeModelImpl assocType = _getAssocType(assocTypeUri);
+            return page(assocType::getInstances, offset, cursor, limit);
+        } catch (Exception e) {
+            throw new RuntimeException("Fetching assocs by type failed, assocTypeUri=\"" + assocTypeUri +
+                "\", offset=" + offset + ", cursor=\"" + cursor + "\", limit=" + limit, e);
+        }
+    }
+
+    /**
+     * Counts the assocs of the given type readable by the current user. No assoc is built.
+     */
+    int countAssocsByType(String assocTypeUri) {
+        try {
+            AssocTypeModelImpl assocType = _getAssocType(assocTypeUri);
+            if (assocType.countInstances() == 0) {
+                return 0;
+            }
+            return countReadables(CoreEvent.CHECK_ASSOCIATIONS_READ_ACCESS, db.fetchAssocIds("typeUri", assocTypeUri));
+        } catch (Exception e) {
+            throw new RuntimeException("Counting assocs by type failed, assocTypeUri=\"" + assocTypeUri + "\"", e);
+        }
+    }
+
     AssocModelImpl getAssocByValue(String key, SimpleValue value) {
         try {
             AssocModelImpl assoc = sd.fetchAssoc(key, value.value());
@@ -376,7 +454,15 @@ public final class AccessLayer {
     void updateAssoc(AssocModelImpl assoc, AssocModelImpl updateModel) {
         try {
             assoc.checkWriteAccess();
-            assoc.update(updateModel);
+            if (assoc instanceof CompDefModelImpl) {
+                // a comp def as held by a type is updated on the type's draft
+                CompDefModelImpl compDef = (CompDefModelImpl) assoc;
+                typeStorage.updateType(compDef.getParentTypeUri(), type ->
+                    type.getCompDef(compDef.getCompDefUri()).update(updateModel)
+                );
+            } else {
+                assoc.update(updateModel);
+            }
         } catch (Exception e) {
             throw new RuntimeException("Updating association " + assoc.getId() + " failed, assoc=" + assoc +
                 ", updateModel=" + updateModel, e);
@@ -539,7 +625,7 @@ public final class AccessLayer {
             // Note: type lookup is by ID. The URI might have changed, the ID does not.
             TopicModelImpl topic = db.fetchTopic(updateModel.getId());
             topic.checkWriteAccess();
-            _getTopicType(topic.getUri()).update(updateModel);
+            typeStorage.updateType(topic.getUri(), type -> type.update(updateModel));
         } catch (Exception e) {
             throw new RuntimeException("Updating topic type failed, updateModel=" + updateModel, e);
         }
@@ -550,7 +636,7 @@ public final class AccessLayer {
             // Note: type lookup is by ID. The URI might have changed, the ID does not.
             TopicModelImpl topic = db.fetchTopic(updateModel.getId());
             topic.checkWriteAccess();
-            _getAssocType(topic.getUri()).update(updateModel);
+            typeStorage.updateType(topic.getUri(), type -> type.update(updateModel));
         } catch (Exception e) {
             throw new RuntimeException("Updating association type failed, updateModel=" + updateModel, e);
         }
@@ -560,9 +646,9 @@ public final class AccessLayer {
 
     void deleteTopicType(String topicTypeUri) {
         try {
-            TypeModelImpl type = _getTopicType(topicTypeUri);
-            type.checkWriteAccess();
-            type.delete();
+            _getTopicType(topicTypeUri).checkWriteAccess();
+            // Note: deleting the comp defs updates the type
+            typeStorage.updateType(topicTypeUri, type -> type.delete());
             // ### TODO: delete view config topics
         } catch (Exception e) {
             throw new RuntimeException("Deleting topic type \"" + topicTypeUri + "\" failed", e);
@@ -571,9 +657,9 @@ public final class AccessLayer {
 
     void deleteAssocType(String assocTypeUri) {
         try {
-            TypeModelImpl type = _getAssocType(assocTypeUri);
-            type.checkWriteAccess();
-            type.delete();
+            _getAssocType(assocTypeUri).checkWriteAccess();
+            // Note: deleting the comp defs updates the type
+            typeStorage.updateType(assocTypeUri, type -> type.delete());
             // ### TODO: delete view config topics
         } catch (Exception e) {
             throw new RuntimeException("Deleting association type \"" + assocTypeUri + "\" failed", e);
@@ -737,6 +823,25 @@ public final class AccessLayer {
         return filterReadables(db.fetchTopicsByProperty(propUri, propValue));
     }
 
+    /**
+     * @param   offset  the number of readable topics to skip. Ignored if a cursor is given.
+     * @param   cursor  a cursor as obtained by a previous page, or <code>null</code>.
+     */
+    ResultPage<TopicModelImpl> getTopicsByProperty(String propUri, Object propValue, int offset, String cursor,
+                                                                                                int limit) {
+        try {
+            return page((_offset, _limit) -> db.fetchTopicsByProperty(propUri, propValue, _offset, _limit), offset,
+                cursor, limit);
+        } catch (Exception e) {
+            throw new RuntimeException("Fetching topics by property failed, propUri=\"" + propUri + "\", propValue=" +
+                propValue + ", offset=" + offset + ", cursor=\"" + cursor + "\", limit=" + limit, e);
+        }
+    }
+
+    List<TopicModelImpl> getTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri) {
+        return filterReadables(db.fetchTopicsByPropertyAndType(propUri, propValue, topicTypeUri));
+    }
+
     List<TopicModelImpl> getTopicsByPropertyRange(String propUri, Number from, Number to) {
         return filterReadables(db.fetchTopicsByPropertyRange(propUri, from, to));
     }
@@ -745,6 +850,10 @@ public final class AccessLayer {
         return filterReadables(db.fetchAssocsByProperty(propUri, propValue));
     }
 
+    List<AssocModelImpl> getAssocsByPropertyAndType(String propUri, Object propValue, String assocTypeUri) {
+        return filterReadables(db.fetchAssocsByPropertyAndType(propUri, propValue, assocTypeUri));
+    }
+
     List<AssocModelImpl> getAssocsByPropertyRange(String propUri, Number from, Number to) {
         return filterReadables(db.fetchAssocsByPropertyRange(propUri, from, to));
     }
@@ -753,14 +862,44 @@ public final class AccessLayer {
 
     // === Access Control ===
 
+    /**
+     * Filters a list of objects for readability by the current user.
+     * <p>
+     * Instead of checking every object individually one batch event is fired for the topics, and one for the
+     * associations. This lets the listener evaluate every involved workspace only once. Listeners which implement
+     * only the single-object check are still asked per object, see {@link #fireReadCheck}.
+     *
+     * @return  the readable objects. If all objects are readable the original list is returned.
+     */
     <M extends DMXObjectModelImpl> List<M> filterReadables(List<M> models) {
-        Iterator<? extends DMXObjectModelImpl> i = models.iterator();
-        while (i.hasNext()) {
-            if (!i.next().isReadable()) {
-                i.remove();
+        int size = models.size();
+        if (size == 0) {
+            return models;
+        }
+        BitSet readables = readables(models);
+        int count = readables.cardinality();
+        if (count == size) {
+            return models;
+        }
+        List<M> result = new ArrayList(count);
+        int i = 0;
+        for (M model : models) {
+            if (readables.get(i++)) {
+                result.add(model);
             }
         }
-        return models;
+        return result;
+    }
+
+    /**
+     * Recursively loads the child topics of the given objects by batch fetching.
+     */
+    void loadChildTopics(Iterable<? extends DMXObject> objects) {
+        List<DMXObjectModelImpl> models = new ArrayList();
+        for (DMXObject object : objects) {
+            models.add(((DMXObjectImpl) object).getModel());
+        }
+        new ChildTopicsFetcher(this).fetch(models, true);      // deep=true
     }
 
     <O extends DMXObject> List<O> instantiate(Iterable<? extends DMXObjectModelImpl> models) {
@@ -807,6 +946,124 @@ public final class AccessLayer {
 
     // ------------------------------------------------------------------------------------------------- Private Methods
 
+    /**
+     * Checks a list of objects for readability by the current user.
+     *
+     * @return  a bitset with the positions of the readable objects set.
+     */
+    private BitSet readables(List<? extends DMXObjectModelImpl> models) {
+        int size = models.size();
+        BitSet readables = new BitSet(size);
+        readables.set(0, size);
+        ReadCheck topics = new ReadCheck(CoreEvent.CHECK_TOPICS_READ_ACCESS, size);
+        ReadCheck assocs = new ReadCheck(CoreEvent.CHECK_ASSOCIATIONS_READ_ACCESS, 2 * size);
+        int i = 0;
+        for (DMXObjectModelImpl model : models) {
+            if (model instanceof CompDefModelImpl) {
+                // comp defs have their own READability rules
+                if (!model.isReadable()) {
+                    readables.clear(i);
+                }
+            } else {
+                // Note: a list of related objects might contain both, topics and associations
+                (model instanceof AssocModelImpl ? assocs : topics).add(model.id, i);
+                // a related object is only READable along with its relating association
+                if (model instanceof RelatedObjectModel) {
+                    assocs.add(((RelatedObjectModel) model).getRelatingAssoc().getId(), i);
+                }
+            }
+            i++;
+        }
+        topics.check(readables);
+        assocs.check(readables);
+        return readables;
+    }
+
+    /**
+     * Counts the readable objects among the given ones by firing a single batch read-check event.
+     */
+    private int countReadables(DMXEvent batchEvent, long[] ids) {
+        BitSet readables = new BitSet(ids.length);
+        readables.set(0, ids.length);
+        if (ids.length > 0) {
+            fireReadCheck(batchEvent, ids, readables);
+        }
+        return readables.cardinality();
+    }
+
+    /**
+     * Fires a batch read-check event. Then, for the listeners which implement only the single-object check (that is
+     * CHECK_TOPIC_READ_ACCESS resp. CHECK_ASSOCIATION_READ_ACCESS), fires the single-object event for every object
+     * still regarded readable.
+     *
+     * @param   batchEvent  CHECK_TOPICS_READ_ACCESS or CHECK_ASSOCIATIONS_READ_ACCESS
+     * @param   readables   bit <i>i</i> refers to <code>ids[i]</code>. The bits of unreadable objects are cleared.
+     */
+    private void fireReadCheck(DMXEvent batchEvent, long[] ids, BitSet readables) {
+        em.fireEvent(batchEvent, ids, readables);
+        //
+        DMXEvent event = batchEvent == CoreEvent.CHECK_TOPICS_READ_ACCESS ? CoreEvent.CHECK_TOPIC_READ_ACCESS :
+            CoreEvent.CHECK_ASSOCIATION_READ_ACCESS;
+        Class batchListener = batchEvent.getListenerInterface();
+        if (em.hasListenersExcept(batchListener, event)) {
+            for (int i = readables.nextSetBit(0); i >= 0 && i < ids.length; i = readables.nextSetBit(i + 1)) {
+                try {
+                    em.fireEventExcept(batchListener, event, ids[i]);
+                } catch (AccessControlException e) {
+                    readables.clear(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches one page of readable objects. The storage is read in chunks, each chunk is filtered for readability
+     * by a single batch check. Reading stops as soon as the page is full.
+     * <p>
+     * The returned cursor encodes the storage position right after the last object of the page. So continuing with
+     * a cursor requires no re-reading of the skipped objects.
+     *
+     * @param   offset  the number of readable objects to skip. Ignored if a cursor is given.
+     * @param   cursor  a cursor as obtained by a previous page, or <code>null</code>.
+     */
+    private <M extends DMXObjectModelImpl> ResultPage<M> page(ChunkFetcher<M> fetcher, int offset, String cursor,
+                                                                                                  int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Illegal limit: " + limit);
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Illegal offset: " + offset);
+        }
+        int position = 0;
+        if (cursor != null) {
+            position = ResultPage.position(cursor);
+            offset = 0;
+        }
+        int chunkSize = Math.max(limit, MIN_CHUNK_SIZE);
+        List<M> items = new ArrayList();
+        while (true) {
+            List<? extends M> chunk = fetcher.fetch(position, chunkSize);
+            int size = chunk.size();
+            boolean exhausted = size < chunkSize;
+            BitSet readables = readables(chunk);
+            for (int i = readables.nextSetBit(0); i >= 0; i = readables.nextSetBit(i + 1)) {
+                if (offset > 0) {
+                    offset--;
+                } else {
+                    items.add(chunk.get(i));
+                    if (items.size() == limit) {
+                        boolean last = exhausted && readables.nextSetBit(i + 1) == -1;
+                        return new ResultPage(items, last ? null : ResultPage.cursor(position + i + 1));
+                    }
+                }
+            }
+            if (exhausted) {
+                return new ResultPage(items, null);
+            }
+            position += size;
+        }
+    }
+
     private List<TopicModelImpl> queryTopics(String topicQuery, String topicTypeUri, boolean searchTopicChildren) {
         List<TopicModelImpl> topics;
         if (!topicQuery.isEmpty()) {
@@ -1036,4 +1293,72 @@ public final class AccessLayer {
         //
         return value;
     }
+
+
+
+    // ------------------------------------------------------------------------------------------------- Nested Classes
+
+    /**
+     * Fetches a chunk of raw (unfiltered) objects from the storage.
+     */
+    private interface ChunkFetcher<M extends DMXObjectModelImpl> {
+        List<? extends M> fetch(int offset, int limit);
+    }
+
+    // ---
+
+    /**
+     * Collects object IDs for a batch read-check event, along with the objects' positions within the filtered list.
+     * One position may occur several times (a related object along with its relating association).
+     */
+    private class ReadCheck {
+
+        private DMXEvent event;
+        private long[] ids;
+        private int[] positions;
+        private int count = 0;
+
+        private ReadCheck(DMXEvent event, int capacity) {
+            this.event = event;
+            this.ids = new long[capacity];
+            this.positions = new int[capacity];
+        }
+
+        private void add(long id, int position) {
+            ids[count] = id;
+            positions[count++] = position;
+        }
+
+        /**
+         * Fires the batch event and clears the positions of the unreadable objects in the given bitset.
+         */
+        private void check(BitSet readables) {
+            if (count == 0) {
+                return;
+            }
+            BitSet _readables = new BitSet(count);
+            _readables.set(0, count);
+            fireReadCheck(event, Arrays.copyOf(ids, count), _readables);
+            for (int i = _readables.nextClearBit(0); i < count; i = _readables.nextClearBit(i + 1)) {
+                readables.clear(positions[i]);
+            }
+        }
+    }
+
+    private static class DisabledStorageCacheMetrics implements StorageCacheMetrics {
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public List<CacheStats> getCacheStats() {
+            return Collections.emptyList();
+        }
+    }
 }
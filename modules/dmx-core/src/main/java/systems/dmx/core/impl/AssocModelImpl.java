@@ -11,6 +11,7 @@ import systems.dmx.core.model.TopicPlayerModel;
 import systems.dmx.core.service.DMXEvent;
 import systems.dmx.core.service.Directive;
 import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -144,6 +145,13 @@ public class AssocModelImpl extends DMXObjectModelImpl implements AssocModel {
         }
     }
 
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        super.writeJSONFields(out);
+        out.field("player1", player1)
+           .field("player2", player2);
+    }
+
 
 
     // === Java API ===
@@ -310,6 +318,8 @@ public class AssocModelImpl extends DMXObjectModelImpl implements AssocModel {
 
     @Override
     void postCreate() {
+        PermissionCache.invalidate(this);
+        //
         if (isCompDef(this)) {
             createCompDef();
         }
@@ -319,6 +329,8 @@ public class AssocModelImpl extends DMXObjectModelImpl implements AssocModel {
     void postUpdate(DMXObjectModel updateModel, DMXObjectModel oldObject) {
         // update assoc specific parts: the 2 players
         updatePlayers((AssocModelImpl) updateModel);
+        PermissionCache.invalidate((AssocModelImpl) oldObject);
+        PermissionCache.invalidate(this);
         //
         duplicateCheck();
         //
@@ -336,6 +348,8 @@ public class AssocModelImpl extends DMXObjectModelImpl implements AssocModel {
 
     @Override
     void preDelete() {
+        PermissionCache.invalidate(this);
+        //
         // Type Editor Support
         if (isCompDef(this)) {
             // Note: we listen to the PRE event here, not the POST event. At POST time the compdef sequence might be
@@ -507,21 +521,21 @@ public class AssocModelImpl extends DMXObjectModelImpl implements AssocModel {
         TypeModelImpl parentType = fetchParentType();
         logger.info("##### Adding comp def " + id + " to type \"" + parentType.getUri() + "\"");
         //
-        parentType._addCompDef(this);
+        al.typeStorage.updateType(parentType.uri, type -> type._addCompDef(this));
     }
 
     private void updateCompDef(AssocModel oldAssoc) {
         TypeModelImpl parentType = fetchParentType();
         logger.info("##### Updating comp def " + id + " of type \"" + parentType.getUri() + "\"");
         //
-        parentType._updateCompDef(this, oldAssoc);
+        al.typeStorage.updateType(parentType.uri, type -> type._updateCompDef(this, oldAssoc));
     }
 
     private void removeCompDef() {
         TypeModelImpl parentType = fetchParentType();
         logger.info("##### Removing comp def " + id + " from type \"" + parentType.getUri() + "\"");
         //
-        parentType._removeCompDefFromMemoryAndRebuildSequence(this);
+        al.typeStorage.updateType(parentType.uri, type -> type._removeCompDefFromMemoryAndRebuildSequence(this));
     }
 
     // ---
@@ -10,8 +10,8 @@ class AssocTypeImpl extends DMXTypeImpl implements AssocType {
 
     // ---------------------------------------------------------------------------------------------------- Constructors
 
-    AssocTypeImpl(AssocTypeModelImpl model, AccessLayer al) {
-        super(model, al);
+    AssocTypeImpl(AssocTypeModelImpl model, AssocTypeModelImpl kernelModel, AccessLayer al) {
+        super(model, kernelModel, al);
     }
 
     // -------------------------------------------------------------------------------------------------- Public Methods
@@ -20,12 +20,13 @@ class AssocTypeImpl extends DMXTypeImpl implements AssocType {
 
     @Override
     public AssocTypeModelImpl getModel() {
-        return (AssocTypeModelImpl) model;
+        return (AssocTypeModelImpl) super.getModel();
     }
 
     @Override
     public void update(AssocTypeModel updateModel) {
-        model.update((AssocTypeModelImpl) updateModel);     // ### FIXME: call through al for access control
+        // ### FIXME: call through al for access control
+        updateType(type -> type.update((AssocTypeModelImpl) updateModel));
     }
 
     // ----------------------------------------------------------------------------------------- Package Private Methods
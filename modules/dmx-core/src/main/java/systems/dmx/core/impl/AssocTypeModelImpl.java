@@ -54,7 +54,7 @@ public class AssocTypeModelImpl extends TypeModelImpl implements AssocTypeModel
 
     @Override
     AssocTypeImpl instantiate() {
-        return new AssocTypeImpl(clone().filterReadableCompDefs(), al);
+        return new AssocTypeImpl(clone().filterReadableCompDefs(), this, al);
     }
 
 
@@ -66,6 +66,16 @@ public class AssocTypeModelImpl extends TypeModelImpl implements AssocTypeModel
         return al.db.queryAssocs("typeUri", uri);
     }
 
+    @Override
+    List<AssocModelImpl> getInstances(int offset, int limit) {
+        return al.db.fetchAssocs("typeUri", uri, offset, limit);
+    }
+
+    @Override
+    int countInstances() {
+        return al.db.countAssocs("typeUri", uri);
+    }
+
     // ---
 
     @Override
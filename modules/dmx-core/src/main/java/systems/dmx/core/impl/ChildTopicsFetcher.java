@@ -5,7 +5,10 @@ import systems.dmx.core.model.ChildTopicsModel;
 import systems.dmx.core.model.CompDefModel;
 import systems.dmx.core.model.DMXObjectModel;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 
@@ -65,8 +68,102 @@ class ChildTopicsFetcher {
         }
     }
 
+    /**
+     * Fetches the child topic models (recursively) of the given object models and updates them in-place.
+     * <p>
+     * Batch variant of {@link #fetch(DMXObjectModel, CompDefModel, boolean)}: per type and comp def the child topics
+     * of all objects are fetched by one storage call. So the number of storage calls depends on the depth of the type
+     * definitions, not on the number of objects. Child topics which are loaded already are not fetched again.
+     */
+    void fetch(Iterable<? extends DMXObjectModelImpl> objects, boolean deep) {
+        for (List<DMXObjectModelImpl> group : groupByType(objects).values()) {
+            TypeModelImpl type = group.get(0).getType();
+            List<RelatedTopicModelImpl> childTopics = new ArrayList();
+            for (CompDefModel compDef : type.getCompDefs()) {
+                childTopics.addAll(fetch(group, compDef));
+            }
+            if (deep && !childTopics.isEmpty()) {
+                fetch(childTopics, deep);    // recursion
+            }
+        }
+    }
+
     // ------------------------------------------------------------------------------------------------- Private Methods
 
+    /**
+     * Fetches the child topic models of the given object models according to the given comp def, and updates the
+     * object models in-place. Object models having these child topics loaded already are skipped.
+     *
+     * @return  the fetched child topic models (of all objects).
+     */
+    private List<RelatedTopicModelImpl> fetch(List<DMXObjectModelImpl> objects, CompDefModel compDef) {
+        String compDefUri = compDef.getCompDefUri();
+        try {
+            List<DMXObjectModelImpl> _objects = new ArrayList();
+            for (DMXObjectModelImpl object : objects) {
+                if (!object.getChildTopics().has(compDefUri)) {
+                    _objects.add(object);
+                }
+            }
+            List<RelatedTopicModelImpl> fetched = new ArrayList();
+            if (_objects.isEmpty()) {
+                return fetched;
+            }
+            long[] objectIds = new long[_objects.size()];
+            for (int i = 0; i < objectIds.length; i++) {
+                objectIds[i] = _objects.get(i).getId();
+            }
+            Map<Long, List<RelatedTopicModelImpl>> childTopics = al.db.fetchRelatedTopics(
+                objectIds,
+                compDef.getInstanceLevelAssocTypeUri(),
+                PARENT, CHILD,
+                compDef.getChildTypeUri()
+            );
+            boolean one = compDef.getChildCardinalityUri().equals(ONE);
+            for (DMXObjectModelImpl object : _objects) {
+                List<RelatedTopicModelImpl> topics = childTopics.get(object.getId());
+                // Note: topics just created have no child topics yet
+                if (topics == null) {
+                    continue;
+                }
+                if (one) {
+                    if (topics.size() > 1) {
+                        throw new RuntimeException("Ambiguity: object " + object.getId() + " has " + topics.size() +
+                            " \"" + compDefUri + "\" child topics");
+                    }
+                    object.getChildTopics().set(compDefUri, topics.get(0));
+                } else {
+                    for (RelatedTopicModelImpl topic : topics) {
+                        object.getChildTopics().add(compDefUri, topic);
+                    }
+                }
+                fetched.addAll(topics);
+            }
+            return fetched;
+        } catch (Exception e) {
+            throw new RuntimeException("Fetching the \"" + compDefUri + "\" child topics of " + objects.size() +
+                " objects failed", e);
+        }
+    }
+
+    /**
+     * Groups the given object models by type. The order of the types and of the objects is preserved.
+     */
+    private Map<String, List<DMXObjectModelImpl>> groupByType(Iterable<? extends DMXObjectModelImpl> objects) {
+        Map<String, List<DMXObjectModelImpl>> groups = new LinkedHashMap();
+        for (DMXObjectModelImpl object : objects) {
+            List<DMXObjectModelImpl> group = groups.get(object.getTypeUri());
+            if (group == null) {
+                group = new ArrayList();
+                groups.put(object.getTypeUri(), group);
+            }
+            group.add(object);
+        }
+        return groups;
+    }
+
+    // ---
+
     /**
      * Fetches the child topic models (recursively) of the given object model and updates it in-place.
      * ### TODO: recursion is required in some cases (e.g. when fetching a topic through REST API) but is possibly
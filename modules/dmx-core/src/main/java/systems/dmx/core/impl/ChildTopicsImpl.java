@@ -12,6 +12,7 @@ import systems.dmx.core.service.ModelFactory;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 
@@ -23,9 +24,10 @@ class ChildTopicsImpl implements ChildTopics {
 
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
-    private ChildTopicsModelImpl model;     // underlying model
-
-    private DMXObjectModelImpl parent;      // the parent object this ChildTopics belongs to
+    // The parent object this ChildTopics belongs to. It is resolved on each access: a type update replaces the comp
+    // def models held by the type (see TypeStorage.updateType()), and a comp def's child topics follow its current
+    // model (see CompDefImpl.getModel()).
+    private Supplier<? extends DMXObjectModelImpl> parent;
 
     private AccessLayer al;
     private ModelFactory mf;
@@ -34,8 +36,7 @@ class ChildTopicsImpl implements ChildTopics {
 
     // ---------------------------------------------------------------------------------------------------- Constructors
 
-    ChildTopicsImpl(ChildTopicsModelImpl model, DMXObjectModelImpl parent, AccessLayer al) {
-        this.model = model;
+    ChildTopicsImpl(Supplier<? extends DMXObjectModelImpl> parent, AccessLayer al) {
         this.parent = parent;
         this.al = al;
         this.mf = al.mf;
@@ -81,7 +82,7 @@ class ChildTopicsImpl implements ChildTopics {
 
     @Override
     public Object get(String compDefUri) {
-        Object value = model.get(compDefUri);
+        Object value = model().get(compDefUri);
         // Note: topics just created have no child topics yet
         if (value == null) {
             return null;
@@ -100,19 +101,19 @@ class ChildTopicsImpl implements ChildTopics {
 
     @Override
     public boolean has(String compDefUri) {
-        return model.has(compDefUri);
+        return model().has(compDefUri);
     }
 
     @Override
     public int size() {
-        return model.size();
+        return model().size();
     }
 
     // ---
 
     @Override
     public ChildTopicsModel getModel() {
-        return model;
+        return model();
     }
 
 
@@ -122,73 +123,73 @@ class ChildTopicsImpl implements ChildTopics {
     @Override
     public String getString(String compDefUri) {
         loadChildTopics(compDefUri);
-        return model.getString(compDefUri);
+        return model().getString(compDefUri);
     }
 
     @Override
     public String getString(String compDefUri, String defaultValue) {
         loadChildTopics(compDefUri);
-        return model.getString(compDefUri, defaultValue);
+        return model().getString(compDefUri, defaultValue);
     }
 
     @Override
     public int getInt(String compDefUri) {
         loadChildTopics(compDefUri);
-        return model.getInt(compDefUri);
+        return model().getInt(compDefUri);
     }
 
     @Override
     public int getInt(String compDefUri, int defaultValue) {
         loadChildTopics(compDefUri);
-        return model.getInt(compDefUri, defaultValue);
+        return model().getInt(compDefUri, defaultValue);
     }
 
     @Override
     public long getLong(String compDefUri) {
         loadChildTopics(compDefUri);
-        return model.getLong(compDefUri);
+        return model().getLong(compDefUri);
     }
 
     @Override
     public long getLong(String compDefUri, long defaultValue) {
         loadChildTopics(compDefUri);
-        return model.getLong(compDefUri, defaultValue);
+        return model().getLong(compDefUri, defaultValue);
     }
 
     @Override
     public double getDouble(String compDefUri) {
         loadChildTopics(compDefUri);
-        return model.getDouble(compDefUri);
+        return model().getDouble(compDefUri);
     }
 
     @Override
     public double getDouble(String compDefUri, double defaultValue) {
         loadChildTopics(compDefUri);
-        return model.getDouble(compDefUri, defaultValue);
+        return model().getDouble(compDefUri, defaultValue);
     }
 
     @Override
     public boolean getBoolean(String compDefUri) {
         loadChildTopics(compDefUri);
-        return model.getBoolean(compDefUri);
+        return model().getBoolean(compDefUri);
     }
 
     @Override
     public boolean getBoolean(String compDefUri, boolean defaultValue) {
         loadChildTopics(compDefUri);
-        return model.getBoolean(compDefUri, defaultValue);
+        return model().getBoolean(compDefUri, defaultValue);
     }
 
     @Override
     public Object getValue(String compDefUri) {
         loadChildTopics(compDefUri);
-        return model.getValue(compDefUri);
+        return model().getValue(compDefUri);
     }
 
     @Override
     public Object getValue(String compDefUri, Object defaultValue) {
         loadChildTopics(compDefUri);
-        return model.getValue(compDefUri, defaultValue);
+        return model().getValue(compDefUri, defaultValue);
     }
 
     // ---
@@ -196,8 +197,8 @@ class ChildTopicsImpl implements ChildTopics {
     @Override
     public ChildTopics getChildTopics(String compDefUri) {
         loadChildTopics(compDefUri);
-        TopicModelImpl topic = model.getTopic(compDefUri);
-        return new ChildTopicsImpl(topic.childTopics, topic, al);
+        TopicModelImpl topic = model().getTopic(compDefUri);
+        return new ChildTopicsImpl(() -> topic, al);
     }
 
     // Note: there are no convenience accessors for a multiple-valued child.
@@ -208,22 +209,29 @@ class ChildTopicsImpl implements ChildTopics {
 
     @Override
     public String toString() {
-        return model.toString();
+        return model().toString();
     }
 
     // Iterable
     @Override
     public Iterator<String> iterator() {
-        return model.iterator();
+        return model().iterator();
     }
 
     // ------------------------------------------------------------------------------------------------- Private Methods
 
+    /**
+     * Returns the underlying model.
+     */
+    private ChildTopicsModelImpl model() {
+        return parent.get().childTopics;
+    }
+
     /**
      * Loads the child topics for the given comp def, provided they are not loaded already.
      */
     private void loadChildTopics(String compDefUri) {
-        parent.loadChildTopics(compDefUri, false);       // deep=false, FIXME?
+        parent.get().loadChildTopics(compDefUri, false);       // deep=false, FIXME?
     }
 
 
@@ -231,22 +239,22 @@ class ChildTopicsImpl implements ChildTopics {
     // === Instantiation ===
 
     private RelatedTopic _getTopic(String compDefUri) {
-        return instantiate(model.getTopic(compDefUri));
+        return instantiate(model().getTopic(compDefUri));
     }
 
     private RelatedTopic _getTopicOrNull(String compDefUri) {
-        RelatedTopicModel topic = model.getTopicOrNull(compDefUri);
+        RelatedTopicModel topic = model().getTopicOrNull(compDefUri);
         return topic != null ? instantiate(topic) : null;
     }
 
     // ---
 
     private List<RelatedTopic> _getTopics(String compDefUri) {
-        return instantiate(model.getTopics(compDefUri));
+        return instantiate(model().getTopics(compDefUri));
     }
 
     private List<RelatedTopic> _getTopicsOrNull(String compDefUri) {
-        List<? extends RelatedTopicModel> topics = model.getTopicsOrNull(compDefUri);
+        List<? extends RelatedTopicModel> topics = model().getTopicsOrNull(compDefUri);
         return topics != null ? instantiate(topics) : null;
     }
 
@@ -7,6 +7,7 @@ import systems.dmx.core.model.SimpleValue;
 import systems.dmx.core.model.TopicModel;
 import systems.dmx.core.service.ModelFactory;
 import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -398,6 +399,20 @@ class ChildTopicsModelImpl implements ChildTopicsModel {
         }
     }
 
+    @Override
+    public final void writeJSONFields(JSONGenerator out) {
+        for (String compDefUri : this) {
+            Object value = get(compDefUri);
+            if (value instanceof RelatedTopicModel) {
+                out.field(compDefUri, value);
+            } else if (value instanceof List) {
+                out.name(compDefUri).array((List<RelatedTopicModel>) value);
+            } else {
+                throw new RuntimeException("Unexpected value in a ChildTopicsModel: " + value);
+            }
+        }
+    }
+
 
 
     // ****************
@@ -418,10 +433,12 @@ class ChildTopicsModelImpl implements ChildTopicsModel {
             Object value = get(compDefUri);
             if (value instanceof RelatedTopicModel) {
                 RelatedTopicModel model = (RelatedTopicModel) value;
-                clone.set(compDefUri, model.clone());
+                // Note: clone() is declared to return a TopicModel. Without the cast the set(TopicModel) overload would
+                // be invoked, which drops the relating assoc.
+                clone.set(compDefUri, (RelatedTopicModel) model.clone());
             } else if (value instanceof List) {
                 for (RelatedTopicModel model : (List<RelatedTopicModel>) value) {
-                    clone.add(compDefUri, model.clone());
+                    clone.add(compDefUri, (RelatedTopicModel) model.clone());
                 }
             } else {
                 throw new RuntimeException("Unexpected value in a ChildTopicsModel: " + value);
@@ -74,20 +74,36 @@ class CompDefImpl extends AssocImpl implements CompDef {
     @Override
     public ViewConfig getViewConfig() {
         PlayerModel configurable = al.typeStorage.newCompDefPlayer(getId());   // ### ID is uninitialized
-        return new ViewConfigImpl(configurable, getModel().getViewConfig(), al);
+        return new ViewConfigImpl(configurable, getModel().getViewConfig(), getModel().getParentTypeUri(),
+            getCompDefUri(), al);
     }
 
     // ---
 
     @Override
     public void update(CompDefModel updateModel) {
-        model.update((CompDefModelImpl) updateModel);     // ### FIXME: call through al for access control
+        // ### FIXME: call through al for access control
+        al.typeStorage.updateType(getModel().getParentTypeUri(), type ->
+            type.getCompDef(getCompDefUri()).update((CompDefModelImpl) updateModel)
+        );
     }
 
     // ---
 
+    /**
+     * Returns the comp def model as currently held by the parent type. A type update replaces the type's comp def
+     * models (see TypeStorage.updateType()), so this comp def follows it.
+     */
     @Override
     public CompDefModelImpl getModel() {
+        CompDefModelImpl compDef = (CompDefModelImpl) model;
+        TypeModelImpl type = al.typeStorage.getTypeIfExists(compDef.getParentTypeUri());
+        if (type != null && type.hasCompDef(compDef.getCompDefUri())) {
+            CompDefModelImpl _compDef = type.getCompDef(compDef.getCompDefUri());
+            if (_compDef.getId() == compDef.getId()) {
+                model = _compDef;
+            }
+        }
         return (CompDefModelImpl) model;
     }
 }
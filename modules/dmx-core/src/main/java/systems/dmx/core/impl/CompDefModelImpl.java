@@ -6,6 +6,7 @@ import systems.dmx.core.model.CompDefModel;
 import systems.dmx.core.model.TopicModel;
 import systems.dmx.core.model.TopicPlayerModel;
 import systems.dmx.core.model.ViewConfigModel;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -100,6 +101,12 @@ class CompDefModelImpl extends AssocModelImpl implements CompDefModel {
         }
     }
 
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        super.writeJSONFields(out);
+        out.field("viewConfigTopics", viewConfig.toJSONArray());
+    }
+
     // ----------------------------------------------------------------------------------------- Package Private Methods
 
 
@@ -121,6 +128,19 @@ class CompDefModelImpl extends AssocModelImpl implements CompDefModel {
 
 
 
+    // === Draft ===
+
+    /**
+     * Returns a copy of this comp def model including its view config. See TypeModelImpl.draft().
+     */
+    final CompDefModelImpl draft() {
+        CompDefModelImpl compDef = (CompDefModelImpl) clone();
+        compDef.viewConfig = viewConfig.clone();
+        return compDef;
+    }
+
+
+
     // === Core Internal Hooks ===
 
     @Override
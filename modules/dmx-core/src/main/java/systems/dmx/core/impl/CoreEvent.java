@@ -20,6 +20,9 @@ import com.sun.jersey.spi.container.ContainerResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.util.BitSet;
+import java.util.List;
+
 
 
 /**
@@ -48,6 +51,24 @@ class CoreEvent {
         }
     };
 
+    static DMXEvent CHECK_TOPICS_READ_ACCESS = new DMXEvent(CheckTopicsReadAccess.class) {
+        @Override
+        public void dispatch(EventListener listener, Object... params) {
+            ((CheckTopicsReadAccess) listener).checkTopicsReadAccess(
+                (long[]) params[0], (BitSet) params[1]
+            );
+        }
+    };
+
+    static DMXEvent CHECK_ASSOCIATIONS_READ_ACCESS = new DMXEvent(CheckAssocsReadAccess.class) {
+        @Override
+        public void dispatch(EventListener listener, Object... params) {
+            ((CheckAssocsReadAccess) listener).checkAssocsReadAccess(
+                (long[]) params[0], (BitSet) params[1]
+            );
+        }
+    };
+
     // ---
 
     static DMXEvent CHECK_TOPIC_WRITE_ACCESS = new DMXEvent(CheckTopicWriteAccess.class) {
@@ -292,6 +313,24 @@ class CoreEvent {
         }
     };
 
+    static DMXEvent PRE_SEND_TOPICS = new DMXEvent(PreSendTopics.class) {
+        @Override
+        public void dispatch(EventListener listener, Object... params) {
+            ((PreSendTopics) listener).preSendTopics(
+                (List<Topic>) params[0]
+            );
+        }
+    };
+
+    static DMXEvent PRE_SEND_ASSOCIATIONS = new DMXEvent(PreSendAssocs.class) {
+        @Override
+        public void dispatch(EventListener listener, Object... params) {
+            ((PreSendAssocs) listener).preSendAssocs(
+                (List<Assoc>) params[0]
+            );
+        }
+    };
+
     static DMXEvent PRE_SEND_TOPIC_TYPE = new DMXEvent(PreSendTopicType.class) {
         @Override
         public void dispatch(EventListener listener, Object... params) {
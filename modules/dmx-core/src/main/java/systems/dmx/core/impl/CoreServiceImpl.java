@@ -14,17 +14,24 @@ import systems.dmx.core.model.TopicModel;
 import systems.dmx.core.model.TopicTypeModel;
 import systems.dmx.core.service.CoreService;
 import systems.dmx.core.service.DMXEvent;
+import systems.dmx.core.service.EventMetrics;
 import systems.dmx.core.service.ModelFactory;
 import systems.dmx.core.service.PluginInfo;
 import systems.dmx.core.service.QueryResult;
+import systems.dmx.core.service.ResultPage;
+import systems.dmx.core.service.StorageCacheMetrics;
 import systems.dmx.core.service.TopicResult;
 import systems.dmx.core.service.accesscontrol.PrivilegedAccess;
+import systems.dmx.core.service.websocket.WebSocketMetrics;
 import systems.dmx.core.storage.spi.DMXTransaction;
 
 import org.osgi.framework.BundleContext;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 
@@ -34,6 +41,10 @@ import java.util.logging.Logger;
  */
 public class CoreServiceImpl implements CoreService {
 
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    private static final int IMPORT_CHUNK_SIZE = Integer.parseInt(System.getProperty("dmx.import.chunk_size", "1000"));
+
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     BundleContext bundleContext;
@@ -95,6 +106,21 @@ public class CoreServiceImpl implements CoreService {
         return al.instantiate(al.getTopicsByType(topicTypeUri));
     }
 
+    @Override
+    public ResultPage<Topic> getTopicsByType(String topicTypeUri, int offset, int limit) {
+        return instantiate(al.getTopicsByType(topicTypeUri, offset, null, limit));
+    }
+
+    @Override
+    public ResultPage<Topic> getTopicsByType(String topicTypeUri, String cursor, int limit) {
+        return instantiate(al.getTopicsByType(topicTypeUri, 0, cursor, limit));
+    }
+
+    @Override
+    public int countTopicsByType(String topicTypeUri) {
+        return al.countTopicsByType(topicTypeUri);
+    }
+
     @Override
     public Iterable<Topic> getAllTopics() {
         return new InstantiationIterable(al.getAllTopics());
@@ -133,6 +159,17 @@ public class CoreServiceImpl implements CoreService {
         return al.createTopic((TopicModelImpl) model).instantiate();
     }
 
+    @Override
+    public int importTopics(Iterable<? extends TopicModel> models) {
+        Iterator<? extends TopicModel> i = models.iterator();
+        int count = 0;
+        while (i.hasNext()) {
+            count += importChunk(i);
+        }
+        logger.fine("Importing topics complete (" + count + " topics)");
+        return count;
+    }
+
     @Override
     public void updateTopic(TopicModel updateModel) {
         al.updateTopic((TopicModelImpl) updateModel);
@@ -162,6 +199,21 @@ public class CoreServiceImpl implements CoreService {
         return al.instantiate(al.getAssocsByType(assocTypeUri));
     }
 
+    @Override
+    public ResultPage<Assoc> getAssocsByType(String assocTypeUri, int offset, int limit) {
+        return instantiate(al.getAssocsByType(assocTypeUri, offset, null, limit));
+    }
+
+    @Override
+    public ResultPage<Assoc> getAssocsByType(String assocTypeUri, String cursor, int limit) {
+        return instantiate(al.getAssocsByType(assocTypeUri, 0, cursor, limit));
+    }
+
+    @Override
+    public int countAssocsByType(String assocTypeUri) {
+        return al.countAssocsByType(assocTypeUri);
+    }
+
     @Override
     public List<Assoc> getAssocs(long topic1Id, long topic2Id) {
         return al.instantiate(al.getAssocs(topic1Id, topic2Id));
@@ -326,6 +378,11 @@ public class CoreServiceImpl implements CoreService {
         );
     }
 
+    @Override
+    public void loadChildTopics(Iterable<? extends DMXObject> objects) {
+        al.loadChildTopics(objects);
+    }
+
 
 
     // === Plugins ===
@@ -368,6 +425,11 @@ public class CoreServiceImpl implements CoreService {
         return al.db.hasProperty(id, propUri);
     }
 
+    @Override
+    public Map<Long, Map<String, Object>> getProperties(Collection<Long> ids, String... propUris) {
+        return al.db.fetchProperties(ids, propUris);
+    }
+
     // ---
 
     @Override
@@ -375,6 +437,21 @@ public class CoreServiceImpl implements CoreService {
         return al.instantiate(al.getTopicsByProperty(propUri, propValue));
     }
 
+    @Override
+    public ResultPage<Topic> getTopicsByProperty(String propUri, Object propValue, int offset, int limit) {
+        return instantiate(al.getTopicsByProperty(propUri, propValue, offset, null, limit));
+    }
+
+    @Override
+    public ResultPage<Topic> getTopicsByProperty(String propUri, Object propValue, String cursor, int limit) {
+        return instantiate(al.getTopicsByProperty(propUri, propValue, 0, cursor, limit));
+    }
+
+    @Override
+    public List<Topic> getTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri) {
+        return al.instantiate(al.getTopicsByPropertyAndType(propUri, propValue, topicTypeUri));
+    }
+
     @Override
     public List<Topic> getTopicsByPropertyRange(String propUri, Number from, Number to) {
         return al.instantiate(al.getTopicsByPropertyRange(propUri, from, to));
@@ -385,6 +462,11 @@ public class CoreServiceImpl implements CoreService {
         return al.instantiate(al.getAssocsByProperty(propUri, propValue));
     }
 
+    @Override
+    public List<Assoc> getAssocsByPropertyAndType(String propUri, Object propValue, String assocTypeUri) {
+        return al.instantiate(al.getAssocsByPropertyAndType(propUri, propValue, assocTypeUri));
+    }
+
     @Override
     public List<Assoc> getAssocsByPropertyRange(String propUri, Number from, Number to) {
         return al.instantiate(al.getAssocsByPropertyRange(propUri, from, to));
@@ -452,6 +534,21 @@ public class CoreServiceImpl implements CoreService {
         return wss;
     }
 
+    @Override
+    public EventMetrics getEventMetrics() {
+        return em.metrics;
+    }
+
+    @Override
+    public StorageCacheMetrics getStorageCacheMetrics() {
+        return al.cacheMetrics;
+    }
+
+    @Override
+    public WebSocketMetrics getWebSocketMetrics() {
+        return wss;
+    }
+
     @Override
     public Object getDatabaseVendorObject() {
         return al.db.getDatabaseVendorObject();
@@ -482,6 +579,45 @@ public class CoreServiceImpl implements CoreService {
 
 
 
+    /**
+     * Creates the next chunk of topics in a transaction of its own.
+     *
+     * @return  the number of topics created.
+     */
+    private int importChunk(Iterator<? extends TopicModel> models) {
+        DMXTransaction tx = beginTx();
+        al.db.beginBulkLoad();
+        boolean flush = false;
+        int count = 0;
+        try {
+            while (models.hasNext() && (IMPORT_CHUNK_SIZE == 0 || count < IMPORT_CHUNK_SIZE)) {
+                al.createTopic((TopicModelImpl) models.next());
+                count++;
+            }
+            flush = true;
+        } catch (Exception e) {
+            throw new RuntimeException("Importing topics failed (" + count + " topics of the current chunk created, " +
+                "chunk rolled back)", e);
+        } finally {
+            try {
+                al.db.endBulkLoad(flush);
+                if (flush) {
+                    tx.success();
+                }
+            } finally {
+                tx.finish();    // even if flushing the bulk load fails
+            }
+        }
+        logger.fine("Importing topics: chunk of " + count + " topics committed");
+        return count;
+    }
+
+    private <O extends DMXObject> ResultPage<O> instantiate(ResultPage<? extends DMXObjectModelImpl> page) {
+        return new ResultPage(al.instantiate(page.items), page.cursor);
+    }
+
+
+
     // === Bootstrap ===
 
     /**
@@ -7,6 +7,7 @@ import systems.dmx.core.RelatedAssoc;
 import systems.dmx.core.RelatedTopic;
 import systems.dmx.core.model.ChildTopicsModel;
 import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -124,7 +125,7 @@ abstract class DMXObjectImpl implements DMXObject {
 
     @Override
     public final ChildTopicsImpl getChildTopics() {
-        return new ChildTopicsImpl(model.childTopics, model, al);
+        return new ChildTopicsImpl(this::getModel, al);
     }
 
     // ---
@@ -264,6 +265,11 @@ abstract class DMXObjectImpl implements DMXObject {
         return model.toJSON();
     }
 
+    @Override
+    public final void writeJSONFields(JSONGenerator out) {
+        model.writeJSONFields(out);
+    }
+
 
 
     // ****************
@@ -12,6 +12,7 @@ import systems.dmx.core.service.DMXEvent;
 import systems.dmx.core.service.Directive;
 import systems.dmx.core.service.Directives;
 import systems.dmx.core.service.accesscontrol.AccessControlException;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -189,6 +190,15 @@ public class DMXObjectModelImpl implements DMXObjectModel {
         }
     }
 
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        out.field("id", id)
+           .field("uri", uri)
+           .field("typeUri", typeUri)
+           .field("value", value != null ? value.value() : null)
+           .field("children", childTopics);
+    }
+
 
 
     // === Java API ===
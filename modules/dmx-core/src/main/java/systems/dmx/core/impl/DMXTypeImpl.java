@@ -10,15 +10,25 @@ import systems.dmx.core.model.TypeModel;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 
 abstract class DMXTypeImpl extends TopicImpl implements DMXType {
 
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    /**
+     * The kernel model this type's (userland) model is projected from. A type update replaces the kernel model (see
+     * TypeStorage.updateType()), then the userland model is projected again, see getModel().
+     */
+    private TypeModelImpl kernelModel;
+
     // ---------------------------------------------------------------------------------------------------- Constructors
 
-    DMXTypeImpl(TypeModelImpl model, AccessLayer al) {
+    DMXTypeImpl(TypeModelImpl model, TypeModelImpl kernelModel, AccessLayer al) {
         super(model, al);
+        this.kernelModel = kernelModel;
     }
 
     // -------------------------------------------------------------------------------------------------- Public Methods
@@ -40,7 +50,8 @@ abstract class DMXTypeImpl extends TopicImpl implements DMXType {
 
     @Override
     public final DMXType setDataTypeUri(String dataTypeUri) {
-        _getModel().updateDataTypeUri(dataTypeUri);     // TODO: should call _updateDataTypeUri()
+        // TODO: should call _updateDataTypeUri()
+        updateType(type -> type.updateDataTypeUri(dataTypeUri));
         return this;
     }
 
@@ -71,14 +82,16 @@ abstract class DMXTypeImpl extends TopicImpl implements DMXType {
     @Override
     public final DMXType addCompDefBefore(CompDefModel compDef, String beforeCompDefUri) {
         CompDefModelImpl _compDef = (CompDefModelImpl) compDef;
-        al.typeStorage.storeCompDef(_compDef);
-        _getModel()._addCompDefBefore(_compDef, beforeCompDefUri);
+        updateType(type -> {
+            al.typeStorage.storeCompDef(_compDef);
+            type._addCompDefBefore(_compDef, beforeCompDefUri);
+        });
         return this;
     }
 
     @Override
     public final DMXType removeCompDef(String compDefUri) {
-        _getModel()._removeCompDef(compDefUri);
+        updateType(type -> type._removeCompDef(compDefUri));
         return this;
     }
 
@@ -89,7 +102,7 @@ abstract class DMXTypeImpl extends TopicImpl implements DMXType {
     @Override
     public final ViewConfig getViewConfig() {
         PlayerModel configurable = al.typeStorage.newTypePlayer(getId());   // ### type ID is uninitialized
-        return new ViewConfigImpl(configurable, getModel().getViewConfig(), al);
+        return new ViewConfigImpl(configurable, getModel().getViewConfig(), getUri(), null, al);
     }
 
     @Override
@@ -103,13 +116,18 @@ abstract class DMXTypeImpl extends TopicImpl implements DMXType {
 
     @Override
     public void update(TypeModel updateModel) {
-        _getModel().update((TypeModelImpl) updateModel);   // ### FIXME: call through al for access control
+        // ### FIXME: call through al for access control
+        updateType(type -> type.update((TypeModelImpl) updateModel));
     }
 
     // ---
 
     @Override
     public TypeModelImpl getModel() {
+        TypeModelImpl type = al.typeStorage.getTypeIfExists(kernelModel.uri);
+        if (type != null && type != kernelModel && type.getId() == model.getId()) {
+            project(type);
+        }
         return (TypeModelImpl) model;
     }
 
@@ -139,10 +157,28 @@ abstract class DMXTypeImpl extends TopicImpl implements DMXType {
      */
     abstract TypeModelImpl _getModel();
 
+    /**
+     * Updates this type on a draft, see TypeStorage.updateType(). From then on this type is projected from the draft.
+     * So it keeps track of the type even if the update changes the type URI.
+     */
+    final void updateType(Consumer<TypeModelImpl> update) {
+        al.typeStorage.updateType(getUri(), type -> {
+            update.accept(type);
+            project(type);
+        });
+    }
+
     // --- Label Configuration ---
 
     // TODO: drop it?
     final List<String> getLabelConfig() {
         return getModel().getLabelConfig();
     }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private void project(TypeModelImpl kernelModel) {
+        this.model = kernelModel.clone().filterReadableCompDefs();
+        this.kernelModel = kernelModel;
+    }
 }
@@ -7,10 +7,7 @@ import systems.dmx.core.service.accesscontrol.AccessControlException;
 
 import javax.ws.rs.WebApplicationException;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 
 
@@ -19,9 +16,15 @@ class EventManager {
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     /**
-     * The registered event listeners (key: event class name, value: event listeners).
+     * The registered event listeners, indexed by event ordinal (see {@link DMXEvent#ordinal}). <code>null</code> if
+     * there are no listeners for an event.
+     * <p>
+     * The table is copy-on-write: neither the table nor a listener array is modified once published. So firing an
+     * event requires no locking. (De)registration, which happens on plugin (de)activation, publishes a new table.
      */
-    private Map<String, List<EventListener>> listenerRegistry = new HashMap();
+    private volatile EventListener[][] listenerRegistry = new EventListener[0][];
+
+    final EventMetricsImpl metrics = new EventMetricsImpl();
 
     // ---------------------------------------------------------------------------------------------------- Constructors
 
@@ -33,27 +36,38 @@ class EventManager {
 
     // ----------------------------------------------------------------------------------------- Package Private Methods
 
-    void addListener(DMXEvent event, EventListener listener) {
-        List<EventListener> listeners = getListeners(event);
-        if (listeners == null) {
-            listeners = new ArrayList();
-            putListeners(event, listeners);
+    synchronized void addListener(DMXEvent event, EventListener listener) {
+        EventListener[] listeners = getListeners(event);
+        int n = listeners != null ? listeners.length : 0;
+        EventListener[] _listeners = new EventListener[n + 1];
+        if (listeners != null) {
+            System.arraycopy(listeners, 0, _listeners, 0, n);
         }
-        listeners.add(listener);
+        _listeners[n] = listener;
+        putListeners(event, _listeners);
     }
 
-    void removeListener(DMXEvent event, EventListener listener) {
-        List<EventListener> listeners = getListeners(event);
-        if (!listeners.remove(listener)) {
+    synchronized void removeListener(DMXEvent event, EventListener listener) {
+        EventListener[] listeners = getListeners(event);
+        int i = listeners != null ? Arrays.asList(listeners).indexOf(listener) : -1;
+        if (i == -1) {
             throw new RuntimeException("Removing " + listener + " from " +
-                event + " event listeners failed: not found in " + listeners);
+                event + " event listeners failed: not found in " + Arrays.toString(listeners));
         }
+        EventListener[] _listeners = null;
+        if (listeners.length > 1) {
+            _listeners = new EventListener[listeners.length - 1];
+            System.arraycopy(listeners, 0, _listeners, 0, i);
+            System.arraycopy(listeners, i + 1, _listeners, i, listeners.length - i - 1);
+        }
+        putListeners(event, _listeners);
+        metrics.listenerRemoved(event, listener);
     }
 
     // ---
 
     void fireEvent(DMXEvent event, Object... params) {
-        List<EventListener> listeners = getListeners(event);
+        EventListener[] listeners = getListeners(event);
         if (listeners != null) {
             for (EventListener listener : listeners) {
                 dispatchEvent(listener, event, params);
@@ -61,6 +75,37 @@ class EventManager {
         }
     }
 
+    /**
+     * Fires an event, but skips the listeners which implement the given listener interface. Used when the skipped
+     * listeners have received the event's batch variant already.
+     */
+    void fireEventExcept(Class listenerInterface, DMXEvent event, Object... params) {
+        EventListener[] listeners = getListeners(event);
+        if (listeners != null) {
+            for (EventListener listener : listeners) {
+                if (!listenerInterface.isInstance(listener)) {
+                    dispatchEvent(listener, event, params);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given event has at least one listener which does not implement the given listener
+     * interface.
+     */
+    boolean hasListenersExcept(Class listenerInterface, DMXEvent event) {
+        EventListener[] listeners = getListeners(event);
+        if (listeners != null) {
+            for (EventListener listener : listeners) {
+                if (!listenerInterface.isInstance(listener)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     // ---
 
     /**
@@ -79,6 +124,19 @@ class EventManager {
     // ------------------------------------------------------------------------------------------------- Private Methods
 
     private void dispatchEvent(EventListener listener, DMXEvent event, Object... params) {
+        if (metrics.enabled) {
+            long start = System.nanoTime();
+            try {
+                _dispatchEvent(listener, event, params);
+            } finally {
+                metrics.record(event, listener, System.nanoTime() - start);
+            }
+        } else {
+            _dispatchEvent(listener, event, params);
+        }
+    }
+
+    private void _dispatchEvent(EventListener listener, DMXEvent event, Object... params) {
         try {
             event.dispatch(listener, params);
         } catch (WebApplicationException e) {
@@ -109,11 +167,22 @@ class EventManager {
 
     // ---
 
-    private List<EventListener> getListeners(DMXEvent event) {
-        return listenerRegistry.get(event.getClass().getName());
+    private EventListener[] getListeners(DMXEvent event) {
+        EventListener[][] registry = listenerRegistry;
+        int ordinal = event.ordinal();
+        return ordinal < registry.length ? registry[ordinal] : null;
     }
 
-    private void putListeners(DMXEvent event, List<EventListener> listeners) {
-        listenerRegistry.put(event.getClass().getName(), listeners);
+    /**
+     * Publishes a new listener table. Called by the synchronized (de)registration methods only.
+     *
+     * @param   listeners   the new listeners of the given event. <code>null</code> if there are none.
+     */
+    private void putListeners(DMXEvent event, EventListener[] listeners) {
+        EventListener[][] registry = listenerRegistry;
+        int ordinal = event.ordinal();
+        EventListener[][] _registry = Arrays.copyOf(registry, Math.max(registry.length, ordinal + 1));
+        _registry[ordinal] = listeners;
+        listenerRegistry = _registry;
     }
 }
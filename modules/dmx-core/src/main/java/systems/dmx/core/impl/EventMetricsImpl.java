@@ -0,0 +1,151 @@
+package systems.dmx.core.impl;
+
+import systems.dmx.core.osgi.PluginContext;
+import systems.dmx.core.service.DMXEvent;
+import systems.dmx.core.service.EventListener;
+import systems.dmx.core.service.EventMetrics;
+import systems.dmx.core.service.ListenerMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Records the event dispatch times reported by the {@link EventManager}.
+ */
+class EventMetricsImpl implements EventMetrics {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    private static final boolean ENABLED = Boolean.getBoolean("dmx.metrics.events");
+
+    private static final long[] BUCKET_BOUNDS = new long[ListenerMetrics.BUCKET_BOUNDS_MICROS.length];   // in nanos
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            BUCKET_BOUNDS[i] = TimeUnit.MICROSECONDS.toNanos(ListenerMetrics.BUCKET_BOUNDS_MICROS[i]);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    /**
+     * Checked by the EventManager before taking the time.
+     */
+    volatile boolean enabled = ENABLED;
+
+    private Map<DMXEvent, Map<EventListener, Stats>> stats = new ConcurrentHashMap();
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        logger.info((enabled ? "Enabling" : "Disabling") + " event metrics");
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        stats.clear();
+    }
+
+    @Override
+    public List<ListenerMetrics> getListenerMetrics() {
+        List<ListenerMetrics> metrics = new ArrayList();
+        for (Map<EventListener, Stats> listenerStats : stats.values()) {
+            for (Stats s : listenerStats.values()) {
+                metrics.add(s.toListenerMetrics());
+            }
+        }
+        metrics.sort((m1, m2) -> Long.compare(m2.getTotalMicros(), m1.getTotalMicros()));
+        return metrics;
+    }
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    void record(DMXEvent event, EventListener listener, long nanos) {
+        Map<EventListener, Stats> listenerStats = stats.get(event);
+        if (listenerStats == null) {
+            listenerStats = stats.computeIfAbsent(event, e -> new ConcurrentHashMap());
+        }
+        Stats s = listenerStats.get(listener);
+        if (s == null) {
+            s = listenerStats.computeIfAbsent(listener, l -> new Stats(event, l));
+        }
+        s.record(nanos);
+    }
+
+    /**
+     * Drops the metrics of a listener which is unregistered (e.g. its plugin is stopped). So its class loader is not
+     * held.
+     */
+    void listenerRemoved(DMXEvent event, EventListener listener) {
+        Map<EventListener, Stats> listenerStats = stats.get(event);
+        if (listenerStats != null) {
+            listenerStats.remove(listener);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Classes
+
+    private static class Stats {
+
+        private String event;
+        private String listener;
+
+        private LongAdder count = new LongAdder();
+        private LongAdder totalNanos = new LongAdder();
+        private AtomicLong maxNanos = new AtomicLong();
+        private LongAdder[] histogram = new LongAdder[BUCKET_BOUNDS.length + 1];
+
+        private Stats(DMXEvent event, EventListener listener) {
+            this.event = event.getListenerInterface().getSimpleName();
+            this.listener = listener instanceof PluginContext ? ((PluginContext) listener).getPluginName() :
+                listener.getClass().getName();
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+            histogram[bucket(nanos)].increment();
+        }
+
+        private int bucket(long nanos) {
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                if (nanos < BUCKET_BOUNDS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_BOUNDS.length;
+        }
+
+        private ListenerMetrics toListenerMetrics() {
+            long[] buckets = new long[histogram.length];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = histogram[i].sum();
+            }
+            return new ListenerMetrics(event, listener, count.sum(), TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()),
+                TimeUnit.NANOSECONDS.toMicros(maxNanos.get()), buckets);
+        }
+    }
+}
@@ -24,7 +24,15 @@ class JerseyRequestFilter implements ContainerRequestFilter {
     @Override
     public ContainerRequest filter(ContainerRequest request) {
         Cookies.set(request);
-        em.fireEvent(CoreEvent.SERVICE_REQUEST_FILTER, request);
-        return request;
+        PermissionCache.begin();
+        try {
+            em.fireEvent(CoreEvent.SERVICE_REQUEST_FILTER, request);
+            return request;
+        } catch (RuntimeException e) {
+            // Note: if a request filter fails the request is not processed. There is no guarantee the response
+            // filter is called then.
+            PermissionCache.remove();
+            throw e;
+        }
     }
 }
@@ -11,7 +11,10 @@ import systems.dmx.core.impl.Messages.Message;
 import systems.dmx.core.service.Directives;
 import systems.dmx.core.service.DirectivesResponse;
 import systems.dmx.core.service.QueryResult;
+import systems.dmx.core.service.ResultPage;
 import systems.dmx.core.service.TopicResult;
+import systems.dmx.core.service.event.PreSendAssocs;
+import systems.dmx.core.service.event.PreSendTopics;
 import systems.dmx.core.service.websocket.WebSocketService;
 
 import com.sun.jersey.spi.container.ContainerRequest;
@@ -26,6 +29,7 @@ import javax.ws.rs.core.Context;
 
 import java.lang.reflect.Type;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -46,6 +50,8 @@ import java.util.logging.Logger;
  *     directives. This let plugins operate on the response on a per-object basis, e.g.
  *     - the Geomaps plugin enriches an Address topic with its geo coordinate
  *     - the Timestamps plugin enriches topics/associations with creation/modification timestamps
+ *     For collection responses the <code>CoreEvent.PRE_SEND_TOPICS/ASSOCIATIONS</code> batch events are fired
+ *     additionally. A plugin implementing a batch listener receives that instead of the per-object events.
  * <li>Broadcast directives.
  * <li>Remove the (thread-local) directives assembled while request processing.
  * </ol>
@@ -54,6 +60,7 @@ class JerseyResponseFilter implements ContainerResponseFilter {
 
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
+    private AccessLayer al;
     private EventManager em;
     private WebSocketServiceImpl wss;
 
@@ -64,8 +71,9 @@ class JerseyResponseFilter implements ContainerResponseFilter {
 
     // ---------------------------------------------------------------------------------------------------- Constructors
 
-    JerseyResponseFilter(EventManager em, WebSocketServiceImpl wss) {
-        this.em = em;
+    JerseyResponseFilter(AccessLayer al, WebSocketServiceImpl wss) {
+        this.al = al;
+        this.em = al.em;
         this.wss = wss;
     }
 
@@ -86,6 +94,8 @@ class JerseyResponseFilter implements ContainerResponseFilter {
                     loadChildTopics((DMXObject) entity, includeChildren, includeAssocChildren);
                 } else if (isIterable(response, DMXObject.class)) {
                     loadChildTopics((Iterable<DMXObject>) entity, includeChildren, includeAssocChildren);
+                } else if (entity instanceof ResultPage) {
+                    loadChildTopics(((ResultPage<DMXObject>) entity).items, includeChildren, includeAssocChildren);
                 }
                 // 2) Firing PRE_SEND events
                 Directives directives = null;
@@ -97,6 +107,8 @@ class JerseyResponseFilter implements ContainerResponseFilter {
                     firePreSend(((TopicResult) entity).topics);
                 } else if (entity instanceof QueryResult) {
                     firePreSend(((QueryResult) entity).objects);
+                } else if (entity instanceof ResultPage) {
+                    firePreSend(((ResultPage<DMXObject>) entity).items);
                 } else if (entity instanceof DirectivesResponse) {
                     firePreSend(((DirectivesResponse) entity).getObject());
                     //
@@ -121,6 +133,9 @@ class JerseyResponseFilter implements ContainerResponseFilter {
             return response;
         } catch (Exception e) {
             throw new RuntimeException("Response filtering failed", e);
+        } finally {
+            // Note: the permission decisions must not leak into the next request served by this (pooled) thread
+            PermissionCache.remove();
         }
     }
 
@@ -140,8 +155,13 @@ class JerseyResponseFilter implements ContainerResponseFilter {
     }
 
     private void loadChildTopics(Iterable<DMXObject> objects, boolean includeChildren, boolean includeAssocChildren) {
-        for (DMXObject object : objects) {
-            loadChildTopics(object, includeChildren, includeChildren);
+        if (includeChildren) {
+            al.loadChildTopics(objects);
+            // Note: for collections the relating assoc child topics are loaded along with the child topics
+            // regardless of "assocChildren". This retains the former behavior.
+            for (DMXObject object : objects) {
+                loadRelatingAssocChildTopics(object);
+            }
         }
     }
 
@@ -171,37 +191,90 @@ class JerseyResponseFilter implements ContainerResponseFilter {
     // === Firing PRE_SEND events ===
 
     private void firePreSend(DMXObject object) {
-        if (object instanceof TopicType) {                  // Note: must take precedence over topic
-            em.fireEvent(CoreEvent.PRE_SEND_TOPIC_TYPE, object);
-        } else if (object instanceof AssocType) {           // Note: must take precedence over topic
-            em.fireEvent(CoreEvent.PRE_SEND_ASSOCIATION_TYPE, object);
-        } else if (object instanceof Topic) {
-            em.fireEvent(CoreEvent.PRE_SEND_TOPIC, object);
-        } else if (object instanceof Assoc) {
-            Assoc assoc = (Assoc) object;
-            em.fireEvent(CoreEvent.PRE_SEND_ASSOCIATION, assoc);
-            firePreSend(assoc.getDMXObject1());
-            firePreSend(assoc.getDMXObject2());
-        }
+        firePreSend(object, false);
     }
 
+    /**
+     * Fires the PRE_SEND_TOPICS/ASSOCIATIONS events once for the whole collection, and then the per-object events
+     * for those listeners which do not implement the batch variant.
+     */
     private void firePreSend(Iterable<? extends DMXObject> objects) {
+        List<Topic> topics = new ArrayList();
+        List<Assoc> assocs = new ArrayList();
         for (DMXObject object : objects) {
-            firePreSend(object);
+            collect(object, topics, assocs);
+        }
+        if (!topics.isEmpty()) {
+            em.fireEvent(CoreEvent.PRE_SEND_TOPICS, topics);
+        }
+        if (!assocs.isEmpty()) {
+            em.fireEvent(CoreEvent.PRE_SEND_ASSOCIATIONS, assocs);
+        }
+        //
+        for (DMXObject object : objects) {
+            firePreSend(object, true);
         }
     }
 
     private void firePreSend(Directives directives) {
+        List<DMXObject> objects = new ArrayList();
         for (Directives.Entry entry : directives) {
             switch (entry.dir) {
             case UPDATE_TOPIC:
             case UPDATE_ASSOCIATION:
             case UPDATE_TOPIC_TYPE:
             case UPDATE_ASSOCIATION_TYPE:
-                firePreSend((DMXObject) entry.arg);
+                objects.add((DMXObject) entry.arg);
                 break;
             }
         }
+        firePreSend(objects);
+    }
+
+    // ---
+
+    /**
+     * @param   batched     true if the batch events are fired already. The per-object events then skip the batch
+     *                      listeners.
+     */
+    private void firePreSend(DMXObject object, boolean batched) {
+        if (object instanceof TopicType) {                  // Note: must take precedence over topic
+            em.fireEvent(CoreEvent.PRE_SEND_TOPIC_TYPE, object);
+        } else if (object instanceof AssocType) {           // Note: must take precedence over topic
+            em.fireEvent(CoreEvent.PRE_SEND_ASSOCIATION_TYPE, object);
+        } else if (object instanceof Topic) {
+            if (batched) {
+                em.fireEventExcept(PreSendTopics.class, CoreEvent.PRE_SEND_TOPIC, object);
+            } else {
+                em.fireEvent(CoreEvent.PRE_SEND_TOPIC, object);
+            }
+        } else if (object instanceof Assoc) {
+            Assoc assoc = (Assoc) object;
+            if (batched) {
+                em.fireEventExcept(PreSendAssocs.class, CoreEvent.PRE_SEND_ASSOCIATION, assoc);
+            } else {
+                em.fireEvent(CoreEvent.PRE_SEND_ASSOCIATION, assoc);
+            }
+            firePreSend(assoc.getDMXObject1(), batched);
+            firePreSend(assoc.getDMXObject2(), batched);
+        }
+    }
+
+    /**
+     * Collects the topics and associations the per-object events are fired for, that is types are not collected.
+     * Association players are collected recursively.
+     */
+    private void collect(DMXObject object, List<Topic> topics, List<Assoc> assocs) {
+        if (object instanceof TopicType || object instanceof AssocType) {
+            // types are not collected
+        } else if (object instanceof Topic) {
+            topics.add((Topic) object);
+        } else if (object instanceof Assoc) {
+            Assoc assoc = (Assoc) object;
+            assocs.add(assoc);
+            collect(assoc.getDMXObject1(), topics, assocs);
+            collect(assoc.getDMXObject2(), topics, assocs);
+        }
     }
 
 
@@ -0,0 +1,268 @@
+package systems.dmx.core.impl;
+
+import systems.dmx.core.service.websocket.ConnectionMetrics;
+import systems.dmx.core.service.websocket.WebSocketConnection;
+
+import org.codehaus.jettison.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * The bounded outbound message queue of a WebSocket connection.
+ * <p>
+ * A queue is drained by a worker of the WebSocket service's worker pool. At most one worker drains a given queue at a
+ * time, so a connection receives its messages in order, while different connections are served in parallel. A slow
+ * connection only blocks the worker draining its own queue.
+ * <p>
+ * The connection filter of a send-to-many message is evaluated by the draining worker, right before sending.
+ */
+class MessageQueue implements Runnable {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    /**
+     * The maximum number of messages sent in one go. Then the worker is released for other connections.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private WebSocketConnectionImpl connection;
+    private Executor executor;
+    private int capacity;
+    private OverflowPolicy overflowPolicy;
+
+    private Deque<Message> messages = new ArrayDeque();     // guarded by "this"
+    private boolean scheduled = false;                      // guarded by "this"; true while a worker is assigned
+    private boolean closed = false;                         // guarded by "this"
+
+    // metrics
+    private int maxDepth = 0;                               // guarded by "this"
+    private LongAdder sent = new LongAdder();
+    private LongAdder dropped = new LongAdder();
+    private LongAdder totalLatencyNanos = new LongAdder();
+    private AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    MessageQueue(WebSocketConnectionImpl connection, Executor executor, int capacity, OverflowPolicy overflowPolicy) {
+        this.connection = connection;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    /**
+     * Drains the queue. Called by a worker.
+     */
+    @Override
+    public void run() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Message message;
+            synchronized (this) {
+                message = messages.pollFirst();
+                if (message == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            send(message);
+        }
+        schedule();     // more messages might be queued
+    }
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * @param   connectionFilter    optional: if given the message is only sent if the filter accepts the connection
+     * @param   coalescingKey       optional: on overflow (policy COALESCE) a queued message with the same key is
+     *                              replaced by this one, at its queue position
+     */
+    void add(String message, Predicate<WebSocketConnection> connectionFilter, String coalescingKey) {
+        boolean schedule = false;
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            Message _message = new Message(message, connectionFilter, coalescingKey);
+            boolean coalesced = false;
+            if (messages.size() >= capacity) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    closed = true;
+                    disconnect = true;
+                    messages.clear();
+                } else {
+                    coalesced = overflowPolicy == OverflowPolicy.COALESCE && coalesce(_message);
+                    if (!coalesced) {
+                        messages.removeFirst();
+                    }
+                    dropped.increment();
+                }
+            }
+            if (!closed && !coalesced) {
+                messages.addLast(_message);
+                maxDepth = Math.max(maxDepth, messages.size());
+                if (!scheduled) {
+                    scheduled = true;
+                    schedule = true;
+                }
+            }
+        }
+        if (disconnect) {
+            logger.warning("Outbound queue of WebSocket connection " + connection.clientId + " (client ID) is full " +
+                "(" + capacity + " messages) -- closing connection");
+            connection.close();
+        } else if (schedule) {
+            schedule();
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        messages.clear();
+    }
+
+    // ---
+
+    synchronized ConnectionMetrics getMetrics() {
+        long count = sent.sum();
+        return new ConnectionMetrics(connection.clientId, connection.getUsername(), messages.size(), maxDepth, count,
+            dropped.sum(), count > 0 ? TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos.sum() / count) : 0,
+            TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get()));
+    }
+
+    synchronized void resetMetrics() {
+        maxDepth = messages.size();
+        sent.reset();
+        dropped.reset();
+        totalLatencyNanos.reset();
+        maxLatencyNanos.set(0);
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private void schedule() {
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            // Note: this happens while shutdown
+            logger.fine("Sending messages via WebSocket connection " + connection.clientId + " (client ID) " +
+                "rejected -- WebSocket service is stopped");
+            close();
+        }
+    }
+
+    private void send(Message message) {
+        try {
+            if (message.connectionFilter == null || message.connectionFilter.test(connection)) {
+                if (connection.sendMessage(message.message)) {
+                    record(System.nanoTime() - message.queued);
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "An error occurred while sending a \"" + message.getMessageType() +
+                "\" message via WebSocket connection " + connection.clientId + " (client ID) (message skipped):", e);
+        }
+    }
+
+    private void record(long latencyNanos) {
+        sent.increment();
+        totalLatencyNanos.add(latencyNanos);
+        long max = maxLatencyNanos.get();
+        while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+            max = maxLatencyNanos.get();
+        }
+    }
+
+    /**
+     * Replaces the most recently queued message with the same coalescing key as the given message. The given message
+     * takes its queue position. So the connection receives it before the messages queued after the replaced one.
+     *
+     * @return  true if a message was replaced.
+     */
+    private boolean coalesce(Message message) {
+        if (message.coalescingKey != null) {
+            Iterator<Message> i = messages.descendingIterator();
+            while (i.hasNext()) {
+                Message queued = i.next();
+                if (message.coalescingKey.equals(queued.coalescingKey)) {
+                    queued.replace(message);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------------------------------- Nested Classes
+
+    /**
+     * What happens when a message is added to a full queue.
+     */
+    enum OverflowPolicy {
+
+        /**
+         * The oldest queued message is dropped.
+         */
+        DROP_OLDEST,
+
+        /**
+         * A queued message with the same coalescing key as the new one is replaced by the new one, at its queue
+         * position. If there is none the oldest queued message is dropped.
+         */
+        COALESCE,
+
+        /**
+         * The connection is closed. The client is supposed to reconnect and reload its state.
+         */
+        DISCONNECT
+    }
+
+    private static class Message {
+
+        private String message;
+        private Predicate<WebSocketConnection> connectionFilter;
+        private String coalescingKey;
+        private long queued = System.nanoTime();
+
+        private Message(String message, Predicate<WebSocketConnection> connectionFilter, String coalescingKey) {
+            this.message = message;
+            this.connectionFilter = connectionFilter;
+            this.coalescingKey = coalescingKey;
+        }
+
+        /**
+         * Takes over the content of the given message. Guarded by the queue.
+         */
+        private void replace(Message message) {
+            this.message = message.message;
+            this.connectionFilter = message.connectionFilter;
+            this.queued = message.queued;
+        }
+
+        private String getMessageType() {
+            try {
+                return new JSONObject(message).getString("type");
+            } catch (Exception e) {
+                return "?";
+            }
+        }
+    }
+}
@@ -34,7 +34,8 @@ class Messages implements Iterable<Messages.Message> {
         ALL_BUT_ORIGIN {
             @Override
             void send(Message message, WebSocketServiceImpl wss) {
-                wss._sendToAllButOrigin(message.message);
+                wss._sendToAllButOrigin(message.message,
+                    message.params.length > 0 ? (String) message.params[0] : null);   // coalescingKey
             }
         },
         READ_ALLOWED {
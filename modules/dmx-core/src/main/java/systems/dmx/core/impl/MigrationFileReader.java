@@ -0,0 +1,360 @@
+package systems.dmx.core.impl;
+
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.codehaus.jettison.json.JSONTokener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+
+
+/**
+ * Reads a declarative migration file incrementally, one entity at a time. At no time more than one entity is held
+ * in memory, regardless of the file size.
+ * <p>
+ * The file content is either a JSON object, or an array of JSON objects. Each object has sections, that are
+ * properties whose value is an array of entities (e.g. <code>"topic_types": [...]</code>). Sections are delivered
+ * in document order. Properties whose value is not an array are skipped.
+ * <p>
+ * Like Jettison's <code>JSONTokener</code> the reader supports <code>//</code>, <code>/* ... *&#47;</code>, and
+ * <code>#</code> comments.
+ * <p>
+ * Usage:
+ * <pre>
+ * String section;
+ * while ((section = reader.nextSection()) != null) {
+ *     JSONObject entity;
+ *     while ((entity = reader.nextEntity()) != null) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+class MigrationFileReader {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private Reader in;
+    private int peeked = -2;            // -2 = nothing peeked
+    private int lineNr = 1;
+
+    private boolean started = false;
+    private boolean done = false;
+    private boolean topLevelArray;      // true if the file content is an array of objects
+    private boolean inObject = false;   // true while reading the properties of an object
+    private boolean firstProperty;      // true if no property of the current object is read yet
+    private boolean inSection = false;  // true while reading the entities of a section
+    private boolean firstEntity;        // true if no entity of the current section is read yet
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    MigrationFileReader(InputStream in) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * Advances to the next section. The remaining entities of the current section (if any) are skipped.
+     *
+     * @return  the section name, e.g. "topic_types", or <code>null</code> if there are no more sections.
+     */
+    String nextSection() throws JSONException {
+        while (inSection) {
+            skipEntity();
+        }
+        if (!started) {
+            start();
+        }
+        while (!done) {
+            if (!inObject) {
+                nextObject();
+                continue;
+            }
+            int c = nextClean();
+            if (c == '}') {
+                inObject = false;
+                continue;
+            }
+            if (!firstProperty) {
+                expect(',', c);
+                c = nextClean();
+            }
+            firstProperty = false;
+            expect('"', c);
+            String name = readString();
+            expect(':', nextClean());
+            c = nextClean();
+            if (c == '[') {
+                inSection = true;
+                firstEntity = true;
+                return name;
+            }
+            readValue(c, null);         // skip non-array property
+        }
+        return null;
+    }
+
+    /**
+     * @return  the next entity of the current section, or <code>null</code> if the section has no more entities.
+     */
+    JSONObject nextEntity() throws JSONException {
+        StringBuilder json = new StringBuilder();
+        if (!nextEntity(json)) {
+            return null;
+        }
+        try {
+            return new JSONObject(json.toString());
+        } catch (JSONException e) {
+            throw new JSONException("Invalid entity before line " + lineNr + " (" + e.getMessage() + ")");
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private void start() throws JSONException {
+        started = true;
+        int c = nextClean();
+        if (c == '[') {
+            topLevelArray = true;
+            c = nextClean();
+            if (c == ']') {
+                done = true;
+                return;
+            }
+            expect('{', c);
+        } else if (c == '{') {
+            topLevelArray = false;
+        } else {
+            throw syntaxError("Invalid file content: expected an object or an array", c);
+        }
+        inObject = true;
+        firstProperty = true;
+    }
+
+    /**
+     * Called when an object is finished. Advances to the next object of the top-level array (if any).
+     */
+    private void nextObject() throws JSONException {
+        if (!topLevelArray) {
+            done = true;
+            return;
+        }
+        int c = nextClean();
+        if (c == ']') {
+            done = true;
+            return;
+        }
+        expect(',', c);
+        expect('{', nextClean());
+        inObject = true;
+        firstProperty = true;
+    }
+
+    // ---
+
+    private void skipEntity() throws JSONException {
+        nextEntity(null);
+    }
+
+    /**
+     * @param   json    the buffer the entity's JSON text is written to. If <code>null</code> the entity is skipped.
+     *
+     * @return  false if the section has no more entities.
+     */
+    private boolean nextEntity(StringBuilder json) throws JSONException {
+        if (!inSection) {
+            return false;
+        }
+        int c = nextClean();
+        if (c == ']') {
+            inSection = false;
+            return false;
+        }
+        if (!firstEntity) {
+            expect(',', c);
+            c = nextClean();
+        }
+        firstEntity = false;
+        readValue(c, json);
+        return true;
+    }
+
+    // ---
+
+    /**
+     * Reads a JSON value (of any kind) whose 1st character is already read. Comments are not copied.
+     *
+     * @param   json    the buffer the value's JSON text is written to. If <code>null</code> the value is skipped.
+     */
+    private void readValue(int c, StringBuilder json) throws JSONException {
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (true) {
+                if (c == '"') {
+                    append(json, c);
+                    copyString(json);
+                } else {
+                    if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                    append(json, c);
+                    if (depth == 0) {
+                        return;
+                    }
+                }
+                c = next(true);
+            }
+        } else if (c == '"') {
+            append(json, c);
+            copyString(json);
+        } else {
+            // a number, boolean, or null
+            while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c) && c != '/' &&
+                                                                                                 c != '#') {
+                append(json, c);
+                c = read();
+            }
+            peeked = c;
+        }
+    }
+
+    /**
+     * Copies the rest of a string literal whose opening quote is already read, including the closing quote.
+     */
+    private void copyString(StringBuilder json) throws JSONException {
+        while (true) {
+            int c = read();
+            if (c == -1 || c == '\n') {
+                throw syntaxError("Unterminated string", c);
+            }
+            append(json, c);
+            if (c == '\\') {
+                append(json, read());
+            } else if (c == '"') {
+                return;
+            }
+        }
+    }
+
+    private String readString() throws JSONException {
+        StringBuilder str = new StringBuilder("\"");
+        copyString(str);
+        try {
+            return (String) new JSONTokener(str.toString()).nextValue();     // let Jettison unescape
+        } catch (JSONException e) {
+            throw new JSONException("Invalid string in line " + lineNr + " (" + e.getMessage() + ")");
+        }
+    }
+
+    // --- Character Level ---
+
+    /**
+     * Returns the next character which is not whitespace and not part of a comment.
+     *
+     * @throws  JSONException   if the end of the file is reached.
+     */
+    private int nextClean() throws JSONException {
+        int c;
+        do {
+            c = next(false);
+        } while (Character.isWhitespace(c));
+        if (c == -1) {
+            throw new JSONException("Unexpected end of file");
+        }
+        return c;
+    }
+
+    /**
+     * Returns the next character which is not part of a comment.
+     *
+     * @param   failAtEnd   if true a JSONException is thrown if the end of the file is reached.
+     */
+    private int next(boolean failAtEnd) throws JSONException {
+        while (true) {
+            int c = read();
+            if (c == '/') {
+                int c2 = read();
+                if (c2 == '/') {
+                    skipLineComment();
+                    continue;
+                } else if (c2 == '*') {
+                    skipBlockComment();
+                    continue;
+                }
+                peeked = c2;
+            } else if (c == '#') {
+                skipLineComment();
+                continue;
+            } else if (c == -1 && failAtEnd) {
+                throw new JSONException("Unexpected end of file");
+            }
+            return c;
+        }
+    }
+
+    private void skipLineComment() throws JSONException {
+        int c;
+        do {
+            c = read();
+        } while (c != '\n' && c != -1);
+    }
+
+    private void skipBlockComment() throws JSONException {
+        int prev = 0;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new JSONException("Unclosed comment");
+            }
+            if (prev == '*' && c == '/') {
+                return;
+            }
+            prev = c;
+        }
+    }
+
+    private int read() throws JSONException {
+        int c;
+        if (peeked != -2) {
+            c = peeked;
+            peeked = -2;
+            return c;
+        }
+        try {
+            c = in.read();
+        } catch (IOException e) {
+            throw new RuntimeException("Reading the migration file failed", e);
+        }
+        if (c == '\n') {
+            lineNr++;
+        }
+        return c;
+    }
+
+    // ---
+
+    private void expect(char expected, int c) throws JSONException {
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "'", c);
+        }
+    }
+
+    private JSONException syntaxError(String message, int c) {
+        return new JSONException(message + " but found " + (c == -1 ? "end of file" : "'" + (char) c + "'") +
+            " in line " + lineNr);
+    }
+
+    private void append(StringBuilder json, int c) {
+        if (json != null) {
+            json.append((char) c);
+        }
+    }
+}
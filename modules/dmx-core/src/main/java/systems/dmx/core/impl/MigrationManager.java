@@ -1,19 +1,19 @@
 package systems.dmx.core.impl;
 
 import static systems.dmx.core.Constants.*;
+import systems.dmx.core.model.TopicModel;
 import systems.dmx.core.service.Migration;
 import systems.dmx.core.service.ModelFactory;
 import systems.dmx.core.service.Plugin;
-import systems.dmx.core.util.JavaUtils;
 
-import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
-import org.codehaus.jettison.json.JSONTokener;
 
 import java.io.InputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.logging.Logger;
 
@@ -183,77 +183,105 @@ class MigrationManager {
 
     /**
      * Creates types and topics from a JSON formatted input stream.
+     * <p>
+     * The stream is read incrementally (see {@link MigrationFileReader}): each entity is created as soon as it is
+     * parsed. So memory consumption is bounded regardless of the file size. The sections ("topic_types",
+     * "assoc_types", "topics", "associations") are processed in document order.
      *
      * @param   migrationFileName   The origin migration file. Used for logging only.
      */
     private void readMigrationFile(InputStream in, String migrationFileName) {
         try {
             logger.info("Reading migration file \"" + migrationFileName + "\"");
-            String fileContent = JavaUtils.readText(in);
-            //
-            Object value = new JSONTokener(fileContent).nextValue();
-            if (value instanceof JSONObject) {
-                readEntities((JSONObject) value);
-            } else if (value instanceof JSONArray) {
-                readEntities((JSONArray) value);
-            } else {
-                throw new RuntimeException("Invalid file content");
+            MigrationFileReader reader = new MigrationFileReader(in);
+            String section;
+            while ((section = reader.nextSection()) != null) {
+                if (section.equals("topic_types")) {
+                    createTopicTypes(reader);
+                } else if (section.equals("assoc_types")) {
+                    createAssocTypes(reader);
+                } else if (section.equals("topics")) {
+                    createTopics(reader);
+                } else if (section.equals("associations")) {
+                    createAssocs(reader);
+                }
             }
         } catch (Exception e) {
             throw new RuntimeException("Reading migration file \"" + migrationFileName + "\" failed", e);
         }
     }
 
-    private void readEntities(JSONArray entities) throws JSONException {
-        for (int i = 0; i < entities.length(); i++) {
-            readEntities(entities.getJSONObject(i));
+    private void createTopicTypes(MigrationFileReader reader) throws JSONException {
+        JSONObject topicType;
+        while ((topicType = reader.nextEntity()) != null) {
+            dmx.createTopicType(mf.newTopicTypeModel(topicType));
         }
     }
 
-    private void readEntities(JSONObject entities) throws JSONException {
-        JSONArray topicTypes = entities.optJSONArray("topic_types");
-        if (topicTypes != null) {
-            createTopicTypes(topicTypes);
-        }
-        JSONArray assocTypes = entities.optJSONArray("assoc_types");
-        if (assocTypes != null) {
-            createAssocTypes(assocTypes);
-        }
-        JSONArray topics = entities.optJSONArray("topics");
-        if (topics != null) {
-            createTopics(topics);
-        }
-        JSONArray assocs = entities.optJSONArray("associations");
-        if (assocs != null) {
-            createAssocs(assocs);
+    private void createAssocTypes(MigrationFileReader reader) throws JSONException {
+        JSONObject assocType;
+        while ((assocType = reader.nextEntity()) != null) {
+            dmx.createAssocType(mf.newAssocTypeModel(assocType));
         }
     }
 
-    private void createTopicTypes(JSONArray topicTypes) throws JSONException {
-        for (int i = 0; i < topicTypes.length(); i++) {
-            dmx.createTopicType(mf.newTopicTypeModel(topicTypes.getJSONObject(i)));
-        }
+    private void createTopics(MigrationFileReader reader) {
+        dmx.importTopics(new TopicModels(reader));
     }
 
-    private void createAssocTypes(JSONArray assocTypes) throws JSONException {
-        for (int i = 0; i < assocTypes.length(); i++) {
-            dmx.createAssocType(mf.newAssocTypeModel(assocTypes.getJSONObject(i)));
+    private void createAssocs(MigrationFileReader reader) throws JSONException {
+        JSONObject assoc;
+        while ((assoc = reader.nextEntity()) != null) {
+            dmx.createAssoc(mf.newAssocModel(assoc));
         }
     }
 
-    private void createTopics(JSONArray topics) throws JSONException {
-        for (int i = 0; i < topics.length(); i++) {
-            dmx.createTopic(mf.newTopicModel(topics.getJSONObject(i)));
+    // ------------------------------------------------------------------------------------------------- Private Classes
+
+    /**
+     * The topics of a migration file section, parsed while iterated. Can be iterated only once.
+     */
+    private class TopicModels implements Iterable<TopicModel> {
+
+        private MigrationFileReader reader;
+        private JSONObject next;
+
+        private TopicModels(MigrationFileReader reader) {
+            this.reader = reader;
         }
-    }
 
-    private void createAssocs(JSONArray assocs) throws JSONException {
-        for (int i = 0; i < assocs.length(); i++) {
-            dmx.createAssoc(mf.newAssocModel(assocs.getJSONObject(i)));
+        @Override
+        public Iterator<TopicModel> iterator() {
+            return new Iterator<TopicModel>() {
+
+                @Override
+                public boolean hasNext() {
+                    return peek() != null;
+                }
+
+                @Override
+                public TopicModel next() {
+                    JSONObject topic = peek();
+                    if (topic == null) {
+                        throw new NoSuchElementException();
+                    }
+                    next = null;
+                    return mf.newTopicModel(topic);
+                }
+            };
         }
-    }
 
-    // ------------------------------------------------------------------------------------------------- Private Classes
+        private JSONObject peek() {
+            try {
+                if (next == null) {
+                    next = reader.nextEntity();
+                }
+                return next;
+            } catch (JSONException e) {
+                throw new RuntimeException("Reading topic failed", e);
+            }
+        }
+    }
 
     /**
      * Collects the info required to run a migration.
@@ -0,0 +1,173 @@
+package systems.dmx.core.impl;
+
+import systems.dmx.core.service.accesscontrol.Operation;
+import systems.dmx.core.service.accesscontrol.SharingMode;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Request-scoped cache for permission decisions and workspace metadata.
+ * <p>
+ * While a list result is filtered a permission check is performed for every object. The objects typically belong to
+ * a few workspaces only. This cache ensures every workspace's sharing mode, owner, and memberships are fetched from
+ * DB only once per request, and every (username, workspace, operation) decision is calculated only once.
+ * <p>
+ * The cache is bound to the request thread. It is created by the {@link JerseyRequestFilter} and removed by the
+ * {@link JerseyResponseFilter}. Outside request scope (e.g. while system startup, or in the WebSocket worker thread)
+ * there is no cache and all permission checks go to the DB.
+ * <p>
+ * Cache entries of a workspace are invalidated when the workspace topic is updated or deleted, when one of its
+ * properties changes (e.g. the owner), and when an association it plays a role in is created or deleted (e.g. a
+ * membership). See the core internal hooks of {@link TopicModelImpl} and {@link AssocModelImpl}.
+ */
+class PermissionCache {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    /**
+     * The cached workspaces (key: workspace ID).
+     */
+    private Map<Long, WorkspaceEntry> workspaces = new HashMap();
+
+    // ------------------------------------------------------------------------------------------------- Class Variables
+
+    private static Logger logger = Logger.getLogger("systems.dmx.core.impl.PermissionCache");
+
+    private static final ThreadLocal<PermissionCache> threadLocalCache = new ThreadLocal();
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * Returns the cache bound to the current thread, or <code>null</code> if the current thread is not in request
+     * scope.
+     */
+    static PermissionCache get() {
+        return threadLocalCache.get();
+    }
+
+    static void begin() {
+        logger.fine("### Creating thread-local permission cache");
+        threadLocalCache.set(new PermissionCache());
+    }
+
+    static void remove() {
+        logger.fine("### Removing thread-local permission cache");
+        threadLocalCache.remove();
+    }
+
+    // --- Invalidation ---
+
+    /**
+     * Drops all cache entries of the given workspace.
+     * If the current thread is not in request scope nothing is performed.
+     */
+    static void invalidate(long workspaceId) {
+        PermissionCache cache = get();
+        if (cache != null) {
+            cache.workspaces.remove(workspaceId);
+        }
+    }
+
+    /**
+     * Called when an association is created or deleted.
+     * Covers membership changes as well as sharing mode reassignments.
+     * <p>
+     * Note: we don't check the players' types. Invalidating a non-workspace ID is a no-op.
+     */
+    static void invalidate(AssocModelImpl assoc) {
+        if (assoc.player1 != null && assoc.player2 != null) {
+            invalidate(assoc.player1.id);
+            invalidate(assoc.player2.id);
+        }
+    }
+
+    // --- Permissions ---
+
+    boolean getPermission(String username, Operation operation, long workspaceId, Supplier<Boolean> calculation) {
+        Map<String, Boolean> permissions = getEntry(workspaceId).permissions(operation);
+        Boolean permission = permissions.get(username);
+        if (permission == null) {
+            permission = calculation.get();
+            permissions.put(username, permission);
+        }
+        return permission;
+    }
+
+    // --- Workspace Metadata ---
+
+    /**
+     * Performs the given check once per workspace. Once passed the check is not performed again.
+     */
+    void checkWorkspaceId(long workspaceId, Runnable check) {
+        WorkspaceEntry entry = getEntry(workspaceId);
+        if (!entry.checked) {
+            check.run();
+            entry.checked = true;
+        }
+    }
+
+    SharingMode getSharingMode(long workspaceId, Supplier<SharingMode> fetcher) {
+        WorkspaceEntry entry = getEntry(workspaceId);
+        if (entry.sharingMode == null) {
+            entry.sharingMode = fetcher.get();
+        }
+        return entry.sharingMode;
+    }
+
+    String getOwner(long workspaceId, Supplier<String> fetcher) {
+        WorkspaceEntry entry = getEntry(workspaceId);
+        if (entry.owner == null) {
+            entry.owner = fetcher.get();
+        }
+        return entry.owner;
+    }
+
+    boolean isMember(String username, long workspaceId, Supplier<Boolean> fetcher) {
+        Map<String, Boolean> members = getEntry(workspaceId).members;
+        Boolean isMember = members.get(username);
+        if (isMember == null) {
+            isMember = fetcher.get();
+            members.put(username, isMember);
+        }
+        return isMember;
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private WorkspaceEntry getEntry(long workspaceId) {
+        WorkspaceEntry entry = workspaces.get(workspaceId);
+        if (entry == null) {
+            entry = new WorkspaceEntry();
+            workspaces.put(workspaceId, entry);
+        }
+        return entry;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Nested Classes
+
+    private static class WorkspaceEntry {
+
+        private boolean checked;                                    // true once the ID is verified to be a workspace
+        private SharingMode sharingMode;                            // null if not yet fetched
+        private String owner;                                       // null if not yet fetched
+        private Map<String, Boolean> members = new HashMap();       // key: username
+
+        // key: username, null for <anonymous>
+        private Map<Operation, Map<String, Boolean>> permissions = new EnumMap(Operation.class);
+
+        private Map<String, Boolean> permissions(Operation operation) {
+            Map<String, Boolean> p = permissions.get(operation);
+            if (p == null) {
+                p = new HashMap();
+                permissions.put(operation, p);
+            }
+            return p;
+        }
+    }
+}
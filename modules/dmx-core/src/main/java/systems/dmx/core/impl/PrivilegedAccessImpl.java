@@ -14,13 +14,17 @@ import systems.dmx.core.service.accesscontrol.Credentials;
 import systems.dmx.core.service.accesscontrol.Operation;
 import systems.dmx.core.service.accesscontrol.PrivilegedAccess;
 import systems.dmx.core.service.accesscontrol.SharingMode;
+import systems.dmx.core.storage.spi.ObjectMeta;
 import systems.dmx.core.util.ContextTracker;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
@@ -51,7 +55,6 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
     private static final String CONFIGURABLE         = "dmx.config.configurable";
 
     // Property URIs
-    private static final String PROP_CREATOR         = "dmx.accesscontrol.creator";
     private static final String PROP_OWNER           = "dmx.accesscontrol.owner";
     private static final String PROP_WORKSPACE_ID    = "dmx.workspaces.workspace_id";
 
@@ -96,16 +99,12 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
     public boolean hasPermission(String username, Operation operation, long objectId) {
         String typeUri = null;
         try {
-            long workspaceId;
-            typeUri = getTypeUri(objectId);
-            if (typeUri.equals(WORKSPACE)) {
-                workspaceId = objectId;
-            } else {
-                workspaceId = getAssignedWorkspaceId(objectId);
-                if (workspaceId == -1) {
-                    // fallback when no workspace is assigned
-                    return permissionIfNoWorkspaceIsAssigned(operation, objectId, typeUri);
-                }
+            ObjectMeta meta = al.db.fetchObjectMeta(objectId);
+            typeUri = meta.getTypeUri();
+            long workspaceId = getRelevantWorkspaceId(objectId, meta);
+            if (workspaceId == -1) {
+                // fallback when no workspace is assigned
+                return permissionIfNoWorkspaceIsAssigned(operation, objectId, typeUri);
             }
             //
             return _hasPermission(username, operation, workspaceId);
@@ -115,6 +114,45 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
         }
     }
 
+    @Override
+    public BitSet hasPermission(String username, Operation operation, long[] objectIds) {
+        try {
+            BitSet permissions = new BitSet(objectIds.length);
+            // group objects by workspace
+            Map<Long, List<Integer>> workspaces = new HashMap();    // key: workspace ID, value: object positions
+            for (int i = 0; i < objectIds.length; i++) {
+                long objectId = objectIds[i];
+                ObjectMeta meta = al.db.fetchObjectMeta(objectId);
+                long workspaceId = getRelevantWorkspaceId(objectId, meta);
+                if (workspaceId == -1) {
+                    // fallback when no workspace is assigned
+                    if (permissionIfNoWorkspaceIsAssigned(operation, objectId, meta.getTypeUri())) {
+                        permissions.set(i);
+                    }
+                } else {
+                    List<Integer> positions = workspaces.get(workspaceId);
+                    if (positions == null) {
+                        positions = new ArrayList();
+                        workspaces.put(workspaceId, positions);
+                    }
+                    positions.add(i);
+                }
+            }
+            // evaluate every workspace once
+            for (Map.Entry<Long, List<Integer>> entry : workspaces.entrySet()) {
+                if (_hasPermission(username, operation, entry.getKey())) {
+                    for (int i : entry.getValue()) {
+                        permissions.set(i);
+                    }
+                }
+            }
+            return permissions;
+        } catch (Exception e) {
+            throw new RuntimeException("Checking permission for " + objectIds.length + " objects failed, " +
+                userInfo(username) + ", operation=" + operation, e);
+        }
+    }
+
     // ---
 
     /**
@@ -226,10 +264,11 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
             if (username == null) {
                 return false;
             }
-            // Note: direct storage access is required here
-            AssocModel membership = al.sd.fetchAssoc(MEMBERSHIP, _getUsernameTopicOrThrow(username).getId(),
-                workspaceId, DEFAULT, DEFAULT);
-            return membership != null;
+            PermissionCache cache = PermissionCache.get();
+            if (cache != null) {
+                return cache.isMember(username, workspaceId, () -> fetchMembership(username, workspaceId));
+            }
+            return fetchMembership(username, workspaceId);
         } catch (Exception e) {
             throw new RuntimeException("Checking membership of user \"" + username + "\" and workspace " +
                 workspaceId + " failed", e);
@@ -238,7 +277,12 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
 
     @Override
     public String getCreator(long objectId) {
-        return al.db.hasProperty(objectId, PROP_CREATOR) ? (String) al.db.fetchProperty(objectId, PROP_CREATOR) : null;
+        return al.db.fetchObjectMeta(objectId).getCreator();
+    }
+
+    @Override
+    public List<Topic> getTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri) {
+        return al.instantiate(al.db.fetchTopicsByPropertyAndType(propUri, propValue, topicTypeUri));
     }
 
 
@@ -313,16 +357,7 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
 
     @Override
     public long getAssignedWorkspaceId(long objectId) {
-        try {
-            long workspaceId = -1;
-            if (al.db.hasProperty(objectId, PROP_WORKSPACE_ID)) {
-                workspaceId = (Long) al.db.fetchProperty(objectId, PROP_WORKSPACE_ID);
-                checkWorkspaceId(workspaceId);
-            }
-            return workspaceId;
-        } catch (Exception e) {
-            throw new RuntimeException("Workspace assignment of object " + objectId + " can't be determined", e);
-        }
+        return getAssignedWorkspaceId(objectId, al.db.fetchObjectMeta(objectId));
     }
 
     @Override
@@ -506,7 +541,29 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
         }
     }
 
+    /**
+     * Returns the ID of the workspace that is relevant for a permission check: for a workspace this is the workspace
+     * itself, for any other object it is the assigned workspace.
+     *
+     * @return  the workspace ID, or -1 if no workspace is assigned.
+     */
+    private long getRelevantWorkspaceId(long objectId, ObjectMeta meta) {
+        if (meta.getTypeUri().equals(WORKSPACE)) {
+            return objectId;
+        }
+        return getAssignedWorkspaceId(objectId, meta);
+    }
+
     private boolean _hasPermission(String username, Operation operation, long workspaceId) {
+        PermissionCache cache = PermissionCache.get();
+        if (cache != null) {
+            return cache.getPermission(username, operation, workspaceId,
+                () -> calculatePermission(username, operation, workspaceId));
+        }
+        return calculatePermission(username, operation, workspaceId);
+    }
+
+    private boolean calculatePermission(String username, Operation operation, long workspaceId) {
         switch (operation) {
         case READ:
             return hasReadPermission(username, workspaceId);
@@ -539,6 +596,14 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
     }
 
     private SharingMode getSharingMode(long workspaceId) {
+        PermissionCache cache = PermissionCache.get();
+        if (cache != null) {
+            return cache.getSharingMode(workspaceId, () -> fetchSharingMode(workspaceId));
+        }
+        return fetchSharingMode(workspaceId);
+    }
+
+    private SharingMode fetchSharingMode(long workspaceId) {
         // Note: direct storage access is required here
         TopicModel sharingMode = al.sd.fetchTopicRelatedTopic(workspaceId, COMPOSITION, PARENT, CHILD, SHARING_MODE);
         if (sharingMode == null) {
@@ -547,7 +612,28 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
         return SharingMode.fromString(sharingMode.getUri());
     }
 
+    private long getAssignedWorkspaceId(long objectId, ObjectMeta meta) {
+        try {
+            long workspaceId = meta.getWorkspaceId();
+            if (workspaceId != -1) {
+                checkWorkspaceId(workspaceId);
+            }
+            return workspaceId;
+        } catch (Exception e) {
+            throw new RuntimeException("Workspace assignment of object " + objectId + " can't be determined", e);
+        }
+    }
+
     private void checkWorkspaceId(long workspaceId) {
+        PermissionCache cache = PermissionCache.get();
+        if (cache != null) {
+            cache.checkWorkspaceId(workspaceId, () -> _checkWorkspaceId(workspaceId));
+        } else {
+            _checkWorkspaceId(workspaceId);
+        }
+    }
+
+    private void _checkWorkspaceId(long workspaceId) {
         String typeUri = getTypeUri(workspaceId);
         if (!typeUri.equals(WORKSPACE)) {
             throw new RuntimeException("Object " + workspaceId + " is not a workspace, but a \"" + typeUri + "\"");
@@ -557,6 +643,14 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
     // ---
 
     private String getOwner(long workspaceId) {
+        PermissionCache cache = PermissionCache.get();
+        if (cache != null) {
+            return cache.getOwner(workspaceId, () -> fetchOwner(workspaceId));
+        }
+        return fetchOwner(workspaceId);
+    }
+
+    private String fetchOwner(long workspaceId) {
         // Note: direct storage access is required here
         if (!al.db.hasProperty(workspaceId, PROP_OWNER)) {
             throw new RuntimeException("No owner is assigned to workspace " + workspaceId);
@@ -564,6 +658,13 @@ class PrivilegedAccessImpl implements PrivilegedAccess {
         return (String) al.db.fetchProperty(workspaceId, PROP_OWNER);
     }
 
+    private boolean fetchMembership(String username, long workspaceId) {
+        // Note: direct storage access is required here
+        AssocModel membership = al.sd.fetchAssoc(MEMBERSHIP, _getUsernameTopicOrThrow(username).getId(),
+            workspaceId, DEFAULT, DEFAULT);
+        return membership != null;
+    }
+
     private String getTypeUri(long objectId) {
         // Note: direct storage access is required here
         return (String) al.db.fetchProperty(objectId, "typeUri");
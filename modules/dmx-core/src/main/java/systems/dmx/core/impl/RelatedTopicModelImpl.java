@@ -4,6 +4,7 @@ import systems.dmx.core.RelatedTopic;
 import systems.dmx.core.model.AssocModel;
 import systems.dmx.core.model.RelatedTopicModel;
 import systems.dmx.core.model.TopicModel;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -55,6 +56,15 @@ public class RelatedTopicModelImpl extends TopicModelImpl implements RelatedTopi
         }
     }
 
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        super.writeJSONFields(out);
+        // Note: the relating association might be uninitialized and thus not serializable. See toJSON().
+        if (relatingAssoc.getPlayer1() != null) {
+            out.field("assoc", relatingAssoc);
+        }
+    }
+
 
 
     // === Java API ===
@@ -0,0 +1,939 @@
+package systems.dmx.core.impl;
+
+import systems.dmx.core.model.PlayerModel;
+import systems.dmx.core.model.RelatedObjectModel;
+import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.model.TopicPlayerModel;
+import systems.dmx.core.service.CacheStats;
+import systems.dmx.core.service.StorageCacheMetrics;
+import systems.dmx.core.storage.spi.DMXStorage;
+import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.core.storage.spi.ObjectMeta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+
+
+/**
+ * A size-bounded LRU cache in front of a storage. Caches:
+ * <ul>
+ * <li>topic and assoc models by ID (<code>fetchTopic()</code>, <code>fetchAssoc()</code>, <code>fetchObject()</code>)
+ * <li>related topic lists by object ID and filter (<code>fetchRelatedTopics()</code> and variants). Only the IDs of
+ *     the related topics and relating assocs are cached. The models are taken from the object cache.
+ * </ul>
+ * The cached models are never handed out. Callers get clones.
+ * <p>
+ * Every <code>store*</code>/<code>delete*</code> call invalidates the affected entries. Invalidation is transaction
+ * aware:
+ * <ul>
+ * <li>While a transaction is running its writing thread bypasses the cache for the objects it has written. So
+ *     uncommitted data is never cached, and rolled-back writes do not leak.
+ * <li>The written objects are invalidated (again) once the transaction is finished. Other threads may have cached
+ *     the former data meanwhile.
+ * <li>A reader only caches what it has fetched if no transaction was finished in between (generation check). This
+ *     prevents a reader from caching data it fetched right before a commit.
+ * </ul>
+ * Writes performed via the database vendor object bypass the cache and are not seen.
+ */
+class StorageCache implements DMXStorage, StorageCacheMetrics {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private final DMXStorage db;
+    private final ModelFactoryImpl mf;
+    private final int capacity;
+
+    private final Object lock = new Object();
+    private final ObjectCache objects;                  // guarded by lock
+    private final RelatedTopicsCache relatedTopics;     // guarded by lock
+
+    /**
+     * Increased whenever a transaction with writes is finished. Guarded by lock.
+     */
+    private long generation = 0;
+
+    /**
+     * The state of the current thread's transaction. <code>null</code> if no transaction is running.
+     */
+    private final ThreadLocal<TxState> txState = new ThreadLocal();
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    StorageCache(DMXStorage db, int capacity) {
+        this.db = db;
+        this.mf = db.getModelFactory();
+        this.capacity = capacity;
+        this.objects = new ObjectCache();
+        this.relatedTopics = new RelatedTopicsCache();
+        logger.info("Storage cache enabled, capacity=" + capacity);
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+
+
+    // === Topics ===
+
+    @Override
+    public TopicModelImpl fetchTopic(long topicId) {
+        DMXObjectModelImpl object = getObject(topicId);
+        if (object instanceof TopicModelImpl) {
+            return (TopicModelImpl) object;
+        }
+        // Note: if the object is not cached or is an assoc the storage is called, which throws in the latter case
+        long gen = generation();
+        TopicModelImpl topic = db.fetchTopic(topicId);
+        putObject(gen, topic);
+        return topic;
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopics(String key, Object value) {
+        return db.fetchTopics(key, value);
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopics(String key, Object value, int offset, int limit) {
+        return db.fetchTopics(key, value, offset, limit);
+    }
+
+    @Override
+    public int countTopics(String key, Object value) {
+        return db.countTopics(key, value);
+    }
+
+    @Override
+    public long[] fetchTopicIds(String key, Object value) {
+        return db.fetchTopicIds(key, value);
+    }
+
+    @Override
+    public List<TopicModelImpl> queryTopics(String key, Object value) {
+        return db.queryTopics(key, value);
+    }
+
+    @Override
+    public List<TopicModelImpl> queryTopicsFulltext(String key, Object value) {
+        return db.queryTopicsFulltext(key, value);
+    }
+
+    @Override
+    public Iterable<TopicModelImpl> fetchAllTopics() {
+        return db.fetchAllTopics();
+    }
+
+    // ---
+
+    @Override
+    public void storeTopic(TopicModelImpl topicModel) {
+        db.storeTopic(topicModel);
+        written(false, topicModel.getId());
+    }
+
+    @Override
+    public void storeTopicUri(long topicId, String uri) {
+        db.storeTopicUri(topicId, uri);
+        written(false, topicId);
+    }
+
+    @Override
+    public void storeTopicTypeUri(long topicId, String topicTypeUri) {
+        db.storeTopicTypeUri(topicId, topicTypeUri);
+        // the related topic lists of the topic's neighbors might be filtered by topic type
+        written(true, topicId);
+    }
+
+    @Override
+    public void storeTopicValue(long topicId, SimpleValue value, String indexKey, boolean isHtmlValue) {
+        db.storeTopicValue(topicId, value, indexKey, isHtmlValue);
+        written(false, topicId);
+    }
+
+    // ---
+
+    @Override
+    public void deleteTopic(long topicId) {
+        db.deleteTopic(topicId);
+        written(false, topicId);
+    }
+
+
+
+    // === Associations ===
+
+    @Override
+    public AssocModelImpl fetchAssoc(long assocId) {
+        DMXObjectModelImpl object = getObject(assocId);
+        if (object instanceof AssocModelImpl) {
+            return (AssocModelImpl) object;
+        }
+        long gen = generation();
+        AssocModelImpl assoc = db.fetchAssoc(assocId);
+        putObject(gen, assoc);
+        return assoc;
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocs(String key, Object value) {
+        return db.fetchAssocs(key, value);
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocs(String key, Object value, int offset, int limit) {
+        return db.fetchAssocs(key, value, offset, limit);
+    }
+
+    @Override
+    public int countAssocs(String key, Object value) {
+        return db.countAssocs(key, value);
+    }
+
+    @Override
+    public long[] fetchAssocIds(String key, Object value) {
+        return db.fetchAssocIds(key, value);
+    }
+
+    @Override
+    public List<AssocModelImpl> queryAssocs(String key, Object value) {
+        return db.queryAssocs(key, value);
+    }
+
+    @Override
+    public List<AssocModelImpl> queryAssocsFulltext(String key, Object value) {
+        return db.queryAssocsFulltext(key, value);
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocs(String assocTypeUri, long topicId1, long topicId2, String roleTypeUri1,
+                                                                                               String roleTypeUri2) {
+        return db.fetchAssocs(assocTypeUri, topicId1, topicId2, roleTypeUri1, roleTypeUri2);
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocsBetweenTopicAndAssoc(String assocTypeUri, long topicId, long assocId,
+                                                                String topicRoleTypeUri, String assocRoleTypeUri) {
+        return db.fetchAssocsBetweenTopicAndAssoc(assocTypeUri, topicId, assocId, topicRoleTypeUri,
+            assocRoleTypeUri);
+    }
+
+    @Override
+    public Iterable<AssocModelImpl> fetchAllAssocs() {
+        return db.fetchAllAssocs();
+    }
+
+    @Override
+    public List<PlayerModel> fetchPlayerModels(long assocId) {
+        return db.fetchPlayerModels(assocId);
+    }
+
+    // ---
+
+    @Override
+    public void storeAssoc(AssocModelImpl assocModel) {
+        db.storeAssoc(assocModel);
+        long assocId = assocModel.getId();
+        if (isIdentifiedByUri(assocModel.getPlayer1()) || isIdentifiedByUri(assocModel.getPlayer2())) {
+            written(false, assocId, db.fetchPlayerModels(assocId));
+        } else {
+            written(false, assocId, assocModel.getPlayer1().getId(), assocModel.getPlayer2().getId());
+        }
+    }
+
+    @Override
+    public void storeAssocUri(long assocId, String uri) {
+        db.storeAssocUri(assocId, uri);
+        written(false, assocId);
+    }
+
+    @Override
+    public void storeAssocTypeUri(long assocId, String assocTypeUri) {
+        db.storeAssocTypeUri(assocId, assocTypeUri);
+        // the related topic lists of the players might be filtered by assoc type
+        written(false, assocId, db.fetchPlayerModels(assocId));
+    }
+
+    @Override
+    public void storeAssocValue(long assocId, SimpleValue value, String indexKey, boolean isHtmlValue) {
+        db.storeAssocValue(assocId, value, indexKey, isHtmlValue);
+        written(false, assocId);
+    }
+
+    @Override
+    public void storeRoleTypeUri(long assocId, long playerId, String roleTypeUri) {
+        db.storeRoleTypeUri(assocId, playerId, roleTypeUri);
+        written(false, assocId, db.fetchPlayerModels(assocId));
+    }
+
+    // ---
+
+    @Override
+    public void deleteAssoc(long assocId) {
+        List<PlayerModel> players = db.fetchPlayerModels(assocId);
+        db.deleteAssoc(assocId);
+        written(false, assocId, players);
+    }
+
+
+
+    // === Generic Object ===
+
+    @Override
+    public DMXObjectModelImpl fetchObject(long id) {
+        DMXObjectModelImpl object = getObject(id);
+        if (object != null) {
+            return object;
+        }
+        long gen = generation();
+        object = db.fetchObject(id);
+        putObject(gen, object);
+        return object;
+    }
+
+
+
+    // === Traversal ===
+
+    @Override
+    public List<AssocModelImpl> fetchTopicAssocs(long topicId) {
+        return db.fetchTopicAssocs(topicId);
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocAssocs(long assocId) {
+        return db.fetchAssocAssocs(assocId);
+    }
+
+    // ---
+
+    @Override
+    public List<RelatedTopicModelImpl> fetchTopicRelatedTopics(long topicId, String assocTypeUri,
+                                             String myRoleTypeUri, String othersRoleTypeUri, String othersTopicTypeUri) {
+        RelatedTopicsKey key = new RelatedTopicsKey(RelatedTopicsKey.TOPIC, topicId, assocTypeUri, myRoleTypeUri,
+            othersRoleTypeUri, othersTopicTypeUri);
+        List<RelatedTopicModelImpl> topics = getRelatedTopics(key);
+        if (topics == null) {
+            long gen = generation();
+            topics = db.fetchTopicRelatedTopics(topicId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri,
+                othersTopicTypeUri);
+            putRelatedTopics(gen, key, topics);
+        }
+        return topics;
+    }
+
+    @Override
+    public List<RelatedAssocModelImpl> fetchTopicRelatedAssocs(long topicId, String assocTypeUri,
+                                             String myRoleTypeUri, String othersRoleTypeUri, String othersAssocTypeUri) {
+        return db.fetchTopicRelatedAssocs(topicId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri,
+            othersAssocTypeUri);
+    }
+
+    // ---
+
+    @Override
+    public List<RelatedTopicModelImpl> fetchAssocRelatedTopics(long assocId, String assocTypeUri,
+                                             String myRoleTypeUri, String othersRoleTypeUri, String othersTopicTypeUri) {
+        RelatedTopicsKey key = new RelatedTopicsKey(RelatedTopicsKey.ASSOC, assocId, assocTypeUri, myRoleTypeUri,
+            othersRoleTypeUri, othersTopicTypeUri);
+        List<RelatedTopicModelImpl> topics = getRelatedTopics(key);
+        if (topics == null) {
+            long gen = generation();
+            topics = db.fetchAssocRelatedTopics(assocId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri,
+                othersTopicTypeUri);
+            putRelatedTopics(gen, key, topics);
+        }
+        return topics;
+    }
+
+    @Override
+    public List<RelatedAssocModelImpl> fetchAssocRelatedAssocs(long assocId, String assocTypeUri,
+                                             String myRoleTypeUri, String othersRoleTypeUri, String othersAssocTypeUri) {
+        return db.fetchAssocRelatedAssocs(assocId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri,
+            othersAssocTypeUri);
+    }
+
+    // ---
+
+    @Override
+    public <M extends RelatedObjectModel> List<M> fetchTopicRelatedObjects(long topicId, String assocTypeUri,
+                                                String myRoleTypeUri, String othersRoleTypeUri, String othersTypeUri) {
+        return db.fetchTopicRelatedObjects(topicId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri, othersTypeUri);
+    }
+
+    @Override
+    public <M extends RelatedObjectModel> List<M> fetchAssocRelatedObjects(long assocId, String assocTypeUri,
+                                                String myRoleTypeUri, String othersRoleTypeUri, String othersTypeUri) {
+        return db.fetchAssocRelatedObjects(assocId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri, othersTypeUri);
+    }
+
+    // ---
+
+    @Override
+    public List<RelatedTopicModelImpl> fetchRelatedTopics(long objectId, String assocTypeUri, String myRoleTypeUri,
+                                                          String othersRoleTypeUri, String othersTopicTypeUri) {
+        RelatedTopicsKey key = new RelatedTopicsKey(RelatedTopicsKey.OBJECT, objectId, assocTypeUri, myRoleTypeUri,
+            othersRoleTypeUri, othersTopicTypeUri);
+        List<RelatedTopicModelImpl> topics = getRelatedTopics(key);
+        if (topics == null) {
+            long gen = generation();
+            topics = db.fetchRelatedTopics(objectId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri,
+                othersTopicTypeUri);
+            putRelatedTopics(gen, key, topics);
+        }
+        return topics;
+    }
+
+    @Override
+    public Map<Long, List<RelatedTopicModelImpl>> fetchRelatedTopics(long[] objectIds, String assocTypeUri,
+                                            String myRoleTypeUri, String othersRoleTypeUri, String othersTopicTypeUri) {
+        Map<Long, List<RelatedTopicModelImpl>> result = new HashMap();
+        long[] missed = new long[objectIds.length];
+        int n = 0;
+        for (long objectId : objectIds) {
+            List<RelatedTopicModelImpl> topics = getRelatedTopics(new RelatedTopicsKey(RelatedTopicsKey.OBJECT,
+                objectId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri, othersTopicTypeUri));
+            if (topics == null) {
+                missed[n++] = objectId;
+            } else if (!topics.isEmpty()) {
+                result.put(objectId, topics);
+            }
+        }
+        if (n > 0) {
+            missed = Arrays.copyOf(missed, n);
+            long gen = generation();
+            Map<Long, List<RelatedTopicModelImpl>> fetched = db.fetchRelatedTopics(missed, assocTypeUri,
+                myRoleTypeUri, othersRoleTypeUri, othersTopicTypeUri);
+            for (long objectId : missed) {
+                List<RelatedTopicModelImpl> topics = fetched.get(objectId);
+                putRelatedTopics(gen, new RelatedTopicsKey(RelatedTopicsKey.OBJECT, objectId, assocTypeUri,
+                    myRoleTypeUri, othersRoleTypeUri, othersTopicTypeUri), topics != null ? topics : new ArrayList());
+                if (topics != null) {
+                    result.put(objectId, topics);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<RelatedAssocModelImpl> fetchRelatedAssocs(long objectId, String assocTypeUri, String myRoleTypeUri,
+                                                          String othersRoleTypeUri, String othersAssocTypeUri) {
+        return db.fetchRelatedAssocs(objectId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri, othersAssocTypeUri);
+    }
+
+
+
+    // === Properties ===
+
+    @Override
+    public Object fetchProperty(long id, String propUri) {
+        return db.fetchProperty(id, propUri);
+    }
+
+    @Override
+    public boolean hasProperty(long id, String propUri) {
+        return db.hasProperty(id, propUri);
+    }
+
+    @Override
+    public Map<Long, Map<String, Object>> fetchProperties(Collection<Long> ids, String... propUris) {
+        return db.fetchProperties(ids, propUris);
+    }
+
+    @Override
+    public ObjectMeta fetchObjectMeta(long id) {
+        return db.fetchObjectMeta(id);
+    }
+
+    // ---
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByProperty(String propUri, Object propValue) {
+        return db.fetchTopicsByProperty(propUri, propValue);
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByProperty(String propUri, Object propValue, int offset, int limit) {
+        return db.fetchTopicsByProperty(propUri, propValue, offset, limit);
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri) {
+        return db.fetchTopicsByPropertyAndType(propUri, propValue, topicTypeUri);
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByPropertyRange(String propUri, Number from, Number to) {
+        return db.fetchTopicsByPropertyRange(propUri, from, to);
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocsByProperty(String propUri, Object propValue) {
+        return db.fetchAssocsByProperty(propUri, propValue);
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocsByPropertyAndType(String propUri, Object propValue, String assocTypeUri) {
+        return db.fetchAssocsByPropertyAndType(propUri, propValue, assocTypeUri);
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocsByPropertyRange(String propUri, Number from, Number to) {
+        return db.fetchAssocsByPropertyRange(propUri, from, to);
+    }
+
+    // ---
+
+    // Note: properties are not part of the cached models. The written objects are invalidated nevertheless. So every
+    // store*/delete* call invalidates, and the cache does not rely on the model/property distinction.
+
+    @Override
+    public void storeTopicProperty(long topicId, String propUri, Object propValue, boolean addToIndex) {
+        db.storeTopicProperty(topicId, propUri, propValue, addToIndex);
+        written(false, topicId);
+    }
+
+    @Override
+    public void storeAssocProperty(long assocId, String propUri, Object propValue, boolean addToIndex) {
+        db.storeAssocProperty(assocId, propUri, propValue, addToIndex);
+        written(false, assocId);
+    }
+
+    // ---
+
+    @Override
+    public void indexTopicProperty(long topicId, String propUri, Object propValue) {
+        db.indexTopicProperty(topicId, propUri, propValue);
+    }
+
+    @Override
+    public void indexAssocProperty(long assocId, String propUri, Object propValue) {
+        db.indexAssocProperty(assocId, propUri, propValue);
+    }
+
+    // ---
+
+    @Override
+    public void deleteTopicProperty(long topicId, String propUri) {
+        db.deleteTopicProperty(topicId, propUri);
+        written(false, topicId);
+    }
+
+    @Override
+    public void deleteAssocProperty(long assocId, String propUri) {
+        db.deleteAssocProperty(assocId, propUri);
+        written(false, assocId);
+    }
+
+
+
+    // === DB ===
+
+    @Override
+    public DMXTransaction beginTx() {
+        TxState state = txState.get();
+        if (state == null) {
+            state = new TxState();
+            txState.set(state);
+        }
+        state.depth++;
+        return new CacheTransaction(db.beginTx(), state);
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        db.beginBulkLoad();
+    }
+
+    @Override
+    public void endBulkLoad(boolean flush) {
+        db.endBulkLoad(flush);
+    }
+
+    @Override
+    public boolean setupRootNode() {
+        return db.setupRootNode();
+    }
+
+    @Override
+    public void shutdown() {
+        db.shutdown();
+    }
+
+    // ---
+
+    @Override
+    public Object getDatabaseVendorObject() {
+        return db.getDatabaseVendorObject();
+    }
+
+    @Override
+    public Object getDatabaseVendorObject(long objectId) {
+        return db.getDatabaseVendorObject(objectId);
+    }
+
+    // ---
+
+    @Override
+    public ModelFactoryImpl getModelFactory() {
+        return mf;
+    }
+
+
+
+    // === StorageCacheMetrics ===
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        objects.stats.reset();
+        relatedTopics.stats.reset();
+    }
+
+    @Override
+    public List<CacheStats> getCacheStats() {
+        synchronized (lock) {
+            return Arrays.asList(
+                objects.stats.toCacheStats("objects", capacity, objects.size()),
+                relatedTopics.stats.toCacheStats("relatedTopics", capacity, relatedTopics.size())
+            );
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    // === Object Cache ===
+
+    /**
+     * @return  a clone of the cached model, or <code>null</code> if not cached (or bypassed).
+     */
+    private DMXObjectModelImpl getObject(long id) {
+        if (isWritten(id)) {
+            return null;
+        }
+        DMXObjectModelImpl object;
+        synchronized (lock) {
+            object = objects.get(id);
+        }
+        if (object == null) {
+            objects.stats.misses.increment();
+            return null;
+        }
+        objects.stats.hits.increment();
+        return (DMXObjectModelImpl) object.clone();
+    }
+
+    /**
+     * Caches a clone of the given model, unless a transaction was finished since the given generation.
+     */
+    private void putObject(long gen, DMXObjectModelImpl object) {
+        if (isWritten(object.getId())) {
+            return;
+        }
+        DMXObjectModelImpl clone = (DMXObjectModelImpl) object.clone();
+        synchronized (lock) {
+            if (gen == generation) {
+                objects.put(object.getId(), clone);
+            }
+        }
+    }
+
+    // === Related Topics Cache ===
+
+    /**
+     * @return  the related topics, built from the cached IDs, or <code>null</code> if not cached (or bypassed).
+     */
+    private List<RelatedTopicModelImpl> getRelatedTopics(RelatedTopicsKey key) {
+        if (isRelatedTopicsWritten(key.objectId)) {
+            return null;
+        }
+        long[] ids;
+        synchronized (lock) {
+            ids = relatedTopics.get(key);
+        }
+        if (ids == null) {
+            relatedTopics.stats.misses.increment();
+            return null;
+        }
+        relatedTopics.stats.hits.increment();
+        List<RelatedTopicModelImpl> topics = new ArrayList();
+        for (int i = 0; i < ids.length; i += 2) {
+            topics.add(mf.newRelatedTopicModel(fetchTopic(ids[i]), fetchAssoc(ids[i + 1])));
+        }
+        return topics;
+    }
+
+    private void putRelatedTopics(long gen, RelatedTopicsKey key, List<RelatedTopicModelImpl> topics) {
+        if (isRelatedTopicsWritten(key.objectId)) {
+            return;
+        }
+        long[] ids = new long[2 * topics.size()];
+        int i = 0;
+        for (RelatedTopicModelImpl topic : topics) {
+            ids[i++] = topic.getId();
+            ids[i++] = topic.getRelatingAssoc().getId();
+            // Note: the topic itself is not put in the object cache. A RelatedTopicModelImpl must not be returned by
+            // fetchTopic().
+            putObject(gen, topic.getRelatingAssoc());
+        }
+        synchronized (lock) {
+            if (gen == generation) {
+                relatedTopics.put(key, ids);
+            }
+        }
+    }
+
+    // === Invalidation ===
+
+    /**
+     * Registers a write.
+     *
+     * @param   typeChange  true if a topic's type is changed. All related topic lists are invalidated then, as they
+     *                      might be filtered by topic type.
+     * @param   ids         the IDs of the written objects. For an assoc: the assoc ID and the player IDs.
+     */
+    private void written(boolean typeChange, long... ids) {
+        TxState state = txState.get();
+        if (state != null) {
+            for (long id : ids) {
+                state.writtenIds.add(id);
+            }
+            state.typeChange |= typeChange;
+        } else {
+            // Note: outside a transaction the write is visible to others already
+            List<Long> _ids = new ArrayList();
+            for (long id : ids) {
+                _ids.add(id);
+            }
+            invalidate(typeChange, _ids);
+        }
+    }
+
+    private void written(boolean typeChange, long assocId, List<PlayerModel> players) {
+        written(typeChange, assocId, players.get(0).getId(), players.get(1).getId());
+    }
+
+    private void invalidate(boolean typeChange, Collection<Long> ids) {
+        synchronized (lock) {
+            generation++;
+            for (long id : ids) {
+                objects.remove(id);
+                relatedTopics.removeAll(id);
+            }
+            if (typeChange) {
+                relatedTopics.clear();
+            }
+        }
+    }
+
+    // ---
+
+    /**
+     * Returns true if the current thread's transaction has written the given object. The cache is bypassed then.
+     */
+    private boolean isWritten(long id) {
+        TxState state = txState.get();
+        return state != null && state.writtenIds.contains(id);
+    }
+
+    private boolean isRelatedTopicsWritten(long id) {
+        TxState state = txState.get();
+        return state != null && (state.typeChange || state.writtenIds.contains(id));
+    }
+
+    private long generation() {
+        synchronized (lock) {
+            return generation;
+        }
+    }
+
+    private boolean isIdentifiedByUri(PlayerModel player) {
+        return player instanceof TopicPlayerModel && ((TopicPlayerModel) player).topicIdentifiedByUri();
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Classes
+
+    private static class TxState {
+
+        private int depth = 0;
+        private Set<Long> writtenIds = new HashSet();
+        private boolean typeChange = false;
+    }
+
+    private class CacheTransaction implements DMXTransaction {
+
+        private DMXTransaction tx;
+        private TxState state;
+
+        private CacheTransaction(DMXTransaction tx, TxState state) {
+            this.tx = tx;
+            this.state = state;
+        }
+
+        @Override
+        public void success() {
+            tx.success();
+        }
+
+        @Override
+        public void failure() {
+            tx.failure();
+        }
+
+        @Override
+        public void finish() {
+            try {
+                tx.finish();
+            } finally {
+                if (--state.depth == 0) {
+                    txState.remove();
+                    if (!state.writtenIds.isEmpty() || state.typeChange) {
+                        invalidate(state.typeChange, state.writtenIds);
+                    }
+                }
+            }
+        }
+    }
+
+    // ---
+
+    private static class Stats {
+
+        private LongAdder hits = new LongAdder();
+        private LongAdder misses = new LongAdder();
+        private LongAdder evictions = new LongAdder();
+
+        private void reset() {
+            hits.reset();
+            misses.reset();
+            evictions.reset();
+        }
+
+        private CacheStats toCacheStats(String name, int capacity, int size) {
+            return new CacheStats(name, capacity, size, hits.sum(), misses.sum(), evictions.sum());
+        }
+    }
+
+    private class ObjectCache extends LinkedHashMap<Long, DMXObjectModelImpl> {
+
+        private Stats stats = new Stats();
+
+        private ObjectCache() {
+            super(16, 0.75f, true);     // accessOrder=true
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, DMXObjectModelImpl> eldest) {
+            if (size() > capacity) {
+                stats.evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Value: the related topic IDs and relating assoc IDs, alternating.
+     */
+    private class RelatedTopicsCache extends LinkedHashMap<RelatedTopicsKey, long[]> {
+
+        private Stats stats = new Stats();
+        private Map<Long, Set<RelatedTopicsKey>> keys = new HashMap();     // object ID -> its keys
+
+        private RelatedTopicsCache() {
+            super(16, 0.75f, true);     // accessOrder=true
+        }
+
+        @Override
+        public long[] put(RelatedTopicsKey key, long[] ids) {
+            keys.computeIfAbsent(key.objectId, id -> new HashSet()).add(key);
+            return super.put(key, ids);
+        }
+
+        private void removeAll(long objectId) {
+            Set<RelatedTopicsKey> _keys = keys.remove(objectId);
+            if (_keys != null) {
+                for (RelatedTopicsKey key : _keys) {
+                    super.remove(key);
+                }
+            }
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            keys.clear();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RelatedTopicsKey, long[]> eldest) {
+            if (size() > capacity) {
+                RelatedTopicsKey key = eldest.getKey();
+                Set<RelatedTopicsKey> _keys = keys.get(key.objectId);
+                if (_keys != null && _keys.remove(key) && _keys.isEmpty()) {
+                    keys.remove(key.objectId);
+                }
+                stats.evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class RelatedTopicsKey {
+
+        private static final int TOPIC = 0;     // fetchTopicRelatedTopics()
+        private static final int ASSOC = 1;     // fetchAssocRelatedTopics()
+        private static final int OBJECT = 2;    // fetchRelatedTopics()
+
+        private int kind;
+        private long objectId;
+        private String assocTypeUri;
+        private String myRoleTypeUri;
+        private String othersRoleTypeUri;
+        private String othersTopicTypeUri;
+
+        private RelatedTopicsKey(int kind, long objectId, String assocTypeUri, String myRoleTypeUri,
+                                                          String othersRoleTypeUri, String othersTopicTypeUri) {
+            this.kind = kind;
+            this.objectId = objectId;
+            this.assocTypeUri = assocTypeUri;
+            this.myRoleTypeUri = myRoleTypeUri;
+            this.othersRoleTypeUri = othersRoleTypeUri;
+            this.othersTopicTypeUri = othersTopicTypeUri;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RelatedTopicsKey)) {
+                return false;
+            }
+            RelatedTopicsKey key = (RelatedTopicsKey) o;
+            return kind == key.kind && objectId == key.objectId && Objects.equals(assocTypeUri, key.assocTypeUri) &&
+                Objects.equals(myRoleTypeUri, key.myRoleTypeUri) &&
+                Objects.equals(othersRoleTypeUri, key.othersRoleTypeUri) &&
+                Objects.equals(othersTopicTypeUri, key.othersTopicTypeUri);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, objectId, assocTypeUri, myRoleTypeUri, othersRoleTypeUri, othersTopicTypeUri);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package systems.dmx.core.impl;
 import static systems.dmx.core.Constants.*;
 import systems.dmx.core.model.ChildTopicsModel;
 import systems.dmx.core.model.CompDefModel;
+import systems.dmx.core.model.DMXObjectModel;
 import systems.dmx.core.model.PlayerModel;
 import systems.dmx.core.model.RelatedObjectModel;
 import systems.dmx.core.model.TopicModel;
@@ -116,11 +117,13 @@ public class TopicModelImpl extends DMXObjectModelImpl implements TopicModel {
     @Override
     final void storeProperty(String propUri, Object propValue, boolean addToIndex) {
         al.db.storeTopicProperty(id, propUri, propValue, addToIndex);
+        PermissionCache.invalidate(id);
     }
 
     @Override
     final void removeProperty(String propUri) {
         al.db.deleteTopicProperty(id, propUri);
+        PermissionCache.invalidate(id);
     }
 
     // ---
@@ -181,8 +184,15 @@ public class TopicModelImpl extends DMXObjectModelImpl implements TopicModel {
 
     // === Core Internal Hooks ===
 
+    @Override
+    void postUpdate(DMXObjectModel updateModel, DMXObjectModel oldObject) {
+        PermissionCache.invalidate(id);
+    }
+
     @Override
     void preDelete() {
+        PermissionCache.invalidate(id);
+        //
         if (typeUri.equals(TOPIC_TYPE) || typeUri.equals(ASSOC_TYPE)) {
             throw new RuntimeException("Tried to delete a type with a generic delete-topic call. " +
                 "Use a delete-type call instead.");
@@ -12,8 +12,8 @@ class TopicTypeImpl extends DMXTypeImpl implements TopicType {
 
     // ---------------------------------------------------------------------------------------------------- Constructors
 
-    TopicTypeImpl(TopicTypeModelImpl model, AccessLayer al) {
-        super(model, al);
+    TopicTypeImpl(TopicTypeModelImpl model, TopicTypeModelImpl kernelModel, AccessLayer al) {
+        super(model, kernelModel, al);
     }
 
     // -------------------------------------------------------------------------------------------------- Public Methods
@@ -28,12 +28,13 @@ class TopicTypeImpl extends DMXTypeImpl implements TopicType {
 
     @Override
     public TopicTypeModelImpl getModel() {
-        return (TopicTypeModelImpl) model;
+        return (TopicTypeModelImpl) super.getModel();
     }
 
     @Override
     public void update(TopicTypeModel updateModel) {
-        model.update((TopicTypeModelImpl) updateModel);     // ### FIXME: call through al for access control
+        // ### FIXME: call through al for access control
+        updateType(type -> type.update((TopicTypeModelImpl) updateModel));
     }
 
 
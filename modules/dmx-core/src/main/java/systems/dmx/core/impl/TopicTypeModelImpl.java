@@ -54,7 +54,7 @@ class TopicTypeModelImpl extends TypeModelImpl implements TopicTypeModel {
 
     @Override
     TopicTypeImpl instantiate() {
-        return new TopicTypeImpl(clone().filterReadableCompDefs(), al);
+        return new TopicTypeImpl(clone().filterReadableCompDefs(), this, al);
     }
 
 
@@ -66,6 +66,16 @@ class TopicTypeModelImpl extends TypeModelImpl implements TopicTypeModel {
         return al.db.fetchTopics("typeUri", uri);
     }
 
+    @Override
+    List<TopicModelImpl> getInstances(int offset, int limit) {
+        return al.db.fetchTopics("typeUri", uri, offset, limit);
+    }
+
+    @Override
+    int countInstances() {
+        return al.db.countTopics("typeUri", uri);
+    }
+
     // ---
 
     @Override
@@ -10,14 +10,17 @@ import systems.dmx.core.model.ViewConfigModel;
 import systems.dmx.core.service.Directive;
 import systems.dmx.core.service.Directives;
 import systems.dmx.core.util.SequencedHashMap;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 
@@ -26,9 +29,14 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
 
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
-    String dataTypeUri;     // may be null in models used for an update operation
-    SequencedHashMap<String, CompDefModelImpl> compDefs;        // is never null, may be empty
-    ViewConfigModelImpl viewConfig;                             // is never null
+    volatile String dataTypeUri;     // may be null in models used for an update operation
+    volatile SequencedHashMap<String, CompDefModelImpl> compDefs;   // is never null, may be empty
+    volatile ViewConfigModelImpl viewConfig;                        // is never null
+
+    // Note: compDefs is copy-on-write. A published map is never modified. Every change builds a new map and
+    // publishes it by a single volatile write. So, a type model is safe to read while another thread updates it
+    // (e.g. the cached one, see TypeStorage): a reader always sees a complete comp def sequence. And clones can
+    // share the map.
 
     private Logger logger = Logger.getLogger(getClass().getName());
 
@@ -71,7 +79,7 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
 
     @Override
     public Collection<CompDefModelImpl> getCompDefs() {
-        return compDefs.values();
+        return Collections.unmodifiableCollection(compDefs.values());
     }
 
     @Override
@@ -109,7 +117,9 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
                 throw new RuntimeException("Type \"" + uri + "\" has a \"" + compDefUri + "\" comp def already");
             }
             //
-            compDefs.putBefore(compDefUri, (CompDefModelImpl) compDef, beforeCompDefUri);
+            SequencedHashMap<String, CompDefModelImpl> _compDefs = copyCompDefs();
+            _compDefs.putBefore(compDefUri, (CompDefModelImpl) compDef, beforeCompDefUri);
+            compDefs = _compDefs;
             return this;
         } catch (Exception e) {
             throw new RuntimeException("Adding comp def \"" + compDef.getCompDefUri() + "\" to type \"" + uri +
@@ -120,10 +130,12 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
     @Override
     public CompDefModel removeCompDef(String compDefUri) {
         try {
-            CompDefModel compDef = compDefs.remove(compDefUri);
+            SequencedHashMap<String, CompDefModelImpl> _compDefs = copyCompDefs();
+            CompDefModel compDef = _compDefs.remove(compDefUri);
             if (compDef == null) {
                 throw new RuntimeException("Comp def \"" + compDefUri + "\" not found in " + compDefs.keySet());
             }
+            compDefs = _compDefs;
             return compDef;
         } catch (Exception e) {
             throw new RuntimeException("Removing comp def \"" + compDefUri + "\" from type \"" + uri + "\" failed", e);
@@ -158,7 +170,7 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
      */
     @Override
     public Iterator<String> iterator() {
-        return compDefs.keySet().iterator();
+        return Collections.unmodifiableSet(compDefs.keySet()).iterator();
     }
 
 
@@ -181,6 +193,14 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
         }
     }
 
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        super.writeJSONFields(out);
+        out.field("dataTypeUri", dataTypeUri)
+           .name("compDefs").array(compDefs.values())
+           .field("viewConfigTopics", viewConfig.toJSONArray());
+    }
+
 
 
     // ****************
@@ -192,9 +212,8 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
     @Override
     public TypeModelImpl clone() {
         try {
-            TypeModelImpl model = (TypeModelImpl) super.clone();
-            model.compDefs = (SequencedHashMap) model.compDefs.clone();
-            return model;
+            // Note: the comp defs map is shared, it is copy-on-write
+            return (TypeModelImpl) super.clone();
         } catch (Exception e) {
             throw new RuntimeException("Cloning a TypeModel failed", e);
         }
@@ -214,6 +233,20 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns one page of the instances. The skipped instances are not built.
+     */
+    List<? extends DMXObjectModelImpl> getInstances(int offset, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Counts the instances. No instance is built.
+     */
+    int countInstances() {
+        throw new UnsupportedOperationException();
+    }
+
     // ---
 
     Directive getUpdateTypeDirective() {
@@ -226,20 +259,39 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
 
 
 
+    // === Draft ===
+
+    /**
+     * Returns a copy of this type model to be updated without affecting this one. In contrast to clone() the comp
+     * defs and view configs are copied as well. See TypeStorage.updateType().
+     */
+    final TypeModelImpl draft() {
+        TypeModelImpl type = clone();
+        SequencedHashMap<String, CompDefModelImpl> _compDefs = new SequencedHashMap();
+        for (Map.Entry<String, CompDefModelImpl> entry : compDefs.entrySet()) {
+            _compDefs.put(entry.getKey(), entry.getValue().draft());
+        }
+        type.compDefs = _compDefs;
+        type.viewConfig = viewConfig.clone();
+        return type;
+    }
+
+
+
     // === Core Internal Hooks ===
 
     @Override
     void preUpdate(DMXObjectModel updateModel) {
-        // ### TODO: is it sufficient if we rehash (remove + add) at post-time?
         if (uriChange(updateModel.getUri(), uri)) {
-            removeFromTypeCache();
+            addDeleteTypeDirective();
         }
     }
 
     @Override
     void postUpdate(DMXObjectModel updateModel, DMXObjectModel oldObject) {
+        // Note: this is a draft (see TypeStorage.updateType()). It is rehashed in type cache once it is published.
         if (uriChange(updateModel.getUri(), oldObject.getUri())) {
-            putInTypeCache();
+            al.typeStorage.rehashDraft(oldObject.getUri(), this);
         }
         //
         updateType((TypeModelImpl) updateModel);
@@ -255,7 +307,7 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
     @Override
     void preDelete() {
         // 1) check pre-condition
-        int size = getAllInstances().size();
+        int size = countInstances();
         if (size > 0) {
             throw new RuntimeException(size + " \"" + value + "\" instances still exist");
         }
@@ -455,13 +507,13 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
 
     final <M extends TypeModelImpl> M filterReadableCompDefs() {
         try {
-            Iterator<String> i = iterator();
-            while (i.hasNext()) {
-                String compDefUri = i.next();
-                if (!_getCompDef(compDefUri).isReadable()) {
-                    i.remove();
+            SequencedHashMap<String, CompDefModelImpl> _compDefs = new SequencedHashMap();
+            for (Map.Entry<String, CompDefModelImpl> entry : compDefs.entrySet()) {
+                if (entry.getValue().isReadable()) {
+                    _compDefs.put(entry.getKey(), entry.getValue());
                 }
             }
+            compDefs = _compDefs;
             return (M) this;
         } catch (Exception e) {
             throw new RuntimeException("Filtering readable comp defs of type \"" + uri + "\" failed", e);
@@ -591,17 +643,35 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
 
     // ---
 
+    /**
+     * The whole new sequence is published at once.
+     */
     private void rehashCompDefs(Collection<CompDefModelImpl> newCompDefs) {
+        SequencedHashMap<String, CompDefModelImpl> _compDefs = copyCompDefs();
         for (CompDefModel compDef : newCompDefs) {
-            rehashCompDef(compDef.getCompDefUri(), null);
+            rehashCompDef(_compDefs, compDef.getCompDefUri(), null);
         }
+        compDefs = _compDefs;
     }
 
     private void rehashCompDef(String compDefUri, String beforeCompDefUri) {
-        CompDefModel compDef = removeCompDef(compDefUri);
+        SequencedHashMap<String, CompDefModelImpl> _compDefs = copyCompDefs();
+        rehashCompDef(_compDefs, compDefUri, beforeCompDefUri);
+        compDefs = _compDefs;
+    }
+
+    /**
+     * Rehashes a comp def within the given (unpublished) comp defs map.
+     */
+    private void rehashCompDef(SequencedHashMap<String, CompDefModelImpl> compDefs, String compDefUri,
+                                                                                      String beforeCompDefUri) {
+        CompDefModelImpl compDef = compDefs.remove(compDefUri);
+        if (compDef == null) {
+            throw new RuntimeException("Comp def \"" + compDefUri + "\" not found in " + compDefs.keySet());
+        }
         logger.info("Rehashing comp def \"" + compDefUri + "\" -> \"" + compDef.getCompDefUri() + "\" (put " +
             (beforeCompDefUri != null ? "before \"" + beforeCompDefUri + "\"" : "at end") + ")");
-        addCompDefBefore(compDef, beforeCompDefUri);
+        compDefs.putBefore(compDef.getCompDefUri(), compDef, beforeCompDefUri);
     }
 
     // ---
@@ -652,6 +722,14 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
 
     // ---
 
+    /**
+     * Returns a modifiable copy of the current comp defs map. Once modified it is published by assigning it to
+     * <code>compDefs</code>.
+     */
+    private SequencedHashMap<String, CompDefModelImpl> copyCompDefs() {
+        return (SequencedHashMap) compDefs.clone();
+    }
+
     private SequencedHashMap<String, CompDefModelImpl> toMap(Collection<? extends CompDefModel> compDefs) {
         SequencedHashMap<String, CompDefModelImpl> _compDefs = new SequencedHashMap();
         for (CompDefModel compDef : compDefs) {
@@ -664,16 +742,15 @@ class TypeModelImpl extends TopicModelImpl implements TypeModel {
 
     // === Type Cache (memory access) ===
 
-    private void putInTypeCache() {
-        al.typeStorage.putInTypeCache(this);
-    }
-
     /**
      * Removes this type from type cache and adds a DELETE TYPE directive to the given set of directives.
      */
     private void removeFromTypeCache() {
         al.typeStorage.removeFromTypeCache(uri);
-        //
+        addDeleteTypeDirective();
+    }
+
+    private void addDeleteTypeDirective() {
         Directive dir = getDeleteTypeDirective();   // abstract
         Directives.get().add(dir, new JSONWrapper("uri", uri));
     }
@@ -16,6 +16,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 
@@ -27,7 +28,14 @@ class TypeStorage {
 
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
-    private Map<String, TypeModelImpl> typeCache = new HashMap();
+    // Note: the type cache is copy-on-write. A published map is never modified. Readers access it lock-free, writers
+    // are serialized (see updateTypeCache()) and publish a new map by a single volatile write.
+    private volatile Map<String, TypeModelImpl> typeCache = new HashMap();
+
+    // Note: a cached type model is never modified either. A type is updated on a draft which replaces the cached type
+    // model once the update is complete (see updateType()). While updating, the draft is visible to the updating thread
+    // only.
+    private ThreadLocal<Map<String, TypeModelImpl>> drafts = ThreadLocal.withInitial(HashMap::new);
 
     private EndlessRecursionDetection endlessRecursionDetection = new EndlessRecursionDetection();
 
@@ -62,14 +70,61 @@ class TypeStorage {
     // ---
 
     void putInTypeCache(TypeModelImpl type) {
-        typeCache.put(type.uri, type);
+        updateTypeCache(null, type);
     }
 
     void removeFromTypeCache(String typeUri) {
         logger.info("### Removing type \"" + typeUri + "\" from type cache");
-        if (typeCache.remove(typeUri) == null) {
-            throw new RuntimeException("Type \"" + typeUri + "\" not found in type cache");
+        // a type deleted while being updated is not published
+        drafts.get().remove(typeUri);
+        updateTypeCache(typeUri, null);
+    }
+
+    // ---
+
+    /**
+     * Updates a type. The update is performed on a draft of the cached type model. Once the update is complete the
+     * draft replaces the cached type model in one step. So, concurrent readers see either the old or the new type,
+     * never a partially updated one. If the update fails the draft is discarded.
+     * <p>
+     * Nested updates of the same type (e.g. a type update updates its comp defs) operate on the same draft.
+     *
+     * @param   typeUri     the URI of the type to update.
+     * @param   update      performs the update on the given draft.
+     */
+    void updateType(String typeUri, Consumer<TypeModelImpl> update) {
+        Map<String, TypeModelImpl> drafts = this.drafts.get();
+        TypeModelImpl draft = drafts.get(typeUri);
+        if (draft != null) {
+            update.accept(draft);
+            return;
+        }
+        TypeModelImpl type = getType(typeUri);
+        draft = type.draft();
+        drafts.put(typeUri, draft);
+        try {
+            update.accept(draft);
+        } finally {
+            // Note: the draft is keyed by its current URI, see rehashDraft()
+            if (drafts.remove(draft.uri) != draft) {
+                draft = null;       // the type has been deleted meanwhile
+            }
+        }
+        if (draft != null) {
+            replaceInTypeCache(type, draft);
+        }
+    }
+
+    /**
+     * Re-keys the draft of a type whose URI has changed while being updated.
+     */
+    void rehashDraft(String oldTypeUri, TypeModelImpl draft) {
+        Map<String, TypeModelImpl> drafts = this.drafts.get();
+        if (drafts.get(oldTypeUri) != draft) {
+            throw new RuntimeException("Type \"" + oldTypeUri + "\" is not being updated");
         }
+        drafts.remove(oldTypeUri);
+        drafts.put(draft.uri, draft);
     }
 
     // ---
@@ -82,8 +137,41 @@ class TypeStorage {
         return type;
     }
 
-    private TypeModelImpl getTypeIfExists(String typeUri) {
-        return typeCache.get(typeUri);
+    TypeModelImpl getTypeIfExists(String typeUri) {
+        TypeModelImpl draft = drafts.get().get(typeUri);
+        return draft != null ? draft : typeCache.get(typeUri);
+    }
+
+    /**
+     * Publishes an updated type. Fails if the cached type has been replaced by another thread in the meantime.
+     * The type's URI might have changed. Readers see the type either under its old or under its new URI, but never
+     * not at all.
+     */
+    private synchronized void replaceInTypeCache(TypeModelImpl type, TypeModelImpl updatedType) {
+        if (typeCache.get(type.uri) != type) {
+            throw new RuntimeException("Type \"" + type.uri + "\" has been updated concurrently");
+        }
+        if (!type.uri.equals(updatedType.uri)) {
+            logger.info("### Rehashing type \"" + type.uri + "\" -> \"" + updatedType.uri + "\" in type cache");
+        }
+        updateTypeCache(type.uri, updatedType);
+    }
+
+    /**
+     * Publishes a new version of the type cache.
+     *
+     * @param   removeTypeUri   the URI of the type to remove. If <code>null</code> nothing is removed.
+     * @param   putType         the type to put. If <code>null</code> nothing is put.
+     */
+    private synchronized void updateTypeCache(String removeTypeUri, TypeModelImpl putType) {
+        Map<String, TypeModelImpl> _typeCache = new HashMap(typeCache);
+        if (removeTypeUri != null && _typeCache.remove(removeTypeUri) == null) {
+            throw new RuntimeException("Type \"" + removeTypeUri + "\" not found in type cache");
+        }
+        if (putType != null) {
+            _typeCache.put(putType.uri, putType);
+        }
+        typeCache = _typeCache;
     }
 
 
@@ -750,19 +838,22 @@ class TypeStorage {
 
     // ------------------------------------------------------------------------------------------------- Private Classes
 
+    /**
+     * Per thread: 2 threads loading the same type concurrently is not a recursion.
+     */
     private static final class EndlessRecursionDetection {
 
-        private Map<String, Boolean> loadInProgress = new HashMap();
+        private ThreadLocal<Map<String, Boolean>> loadInProgress = ThreadLocal.withInitial(HashMap::new);
 
         private void check(String typeUri) {
-            if (loadInProgress.get(typeUri) != null) {
+            if (loadInProgress.get().get(typeUri) != null) {
                 throw new RuntimeException("Endless recursion detected while loading type \"" + typeUri + "\"");
             }
-            loadInProgress.put(typeUri, true);
+            loadInProgress.get().put(typeUri, true);
         }
 
         private void reset(String typeUri) {
-            loadInProgress.remove(typeUri);
+            loadInProgress.get().remove(typeUri);
         }
     }
 }
@@ -2,6 +2,7 @@ package systems.dmx.core.impl;
 
 import systems.dmx.core.model.topicmaps.ViewAssoc;
 import systems.dmx.core.model.topicmaps.ViewProps;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -32,4 +33,10 @@ class ViewAssocImpl extends AssocModelImpl implements ViewAssoc {
             throw new RuntimeException("Serialization failed", e);
         }
     }
+
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        super.writeJSONFields(out);
+        out.field("viewProps", viewProps);
+    }
 }
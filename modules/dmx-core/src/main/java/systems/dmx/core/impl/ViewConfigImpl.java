@@ -27,14 +27,24 @@ class ViewConfigImpl implements ViewConfig {
      */
     private PlayerModel configurable;
 
+    /**
+     * The URI of the type this view configuration belongs to (directly or via a comp def), and the URI of the comp
+     * def, if any. Updates are performed on the type's draft, see TypeStorage.updateType().
+     */
+    private String typeUri;
+    private String compDefUri;      // null for a type's view configuration
+
     private AccessLayer al;
     private ModelFactoryImpl mf;
 
     // ---------------------------------------------------------------------------------------------------- Constructors
 
-    ViewConfigImpl(PlayerModel configurable, ViewConfigModelImpl model, AccessLayer al) {
+    ViewConfigImpl(PlayerModel configurable, ViewConfigModelImpl model, String typeUri, String compDefUri,
+                                                                                                   AccessLayer al) {
         this.configurable = configurable;
         this.model = model;
+        this.typeUri = typeUri;
+        this.compDefUri = compDefUri;
         this.al = al;
         this.mf = al.mf;
     }
@@ -87,17 +97,32 @@ class ViewConfigImpl implements ViewConfig {
     // ------------------------------------------------------------------------------------------------- Private Methods
 
     private void _setConfigValue(String configTypeUri, ChildTopicsModel children) {
-        TopicModelImpl configTopic = model.getConfigTopic(configTypeUri);
-        if (configTopic == null) {
-            configTopic = mf.newTopicModel(configTypeUri, children);
-            _addConfigTopic(configTopic);       // update memory + DB
-        } else {
-            configTopic.update(children);       // update memory + DB
-        }
+        updateType(() -> {
+            TopicModelImpl configTopic = model.getConfigTopic(configTypeUri);
+            if (configTopic == null) {
+                configTopic = mf.newTopicModel(configTypeUri, children);
+                model.addConfigTopic(configTopic);                                  // update memory
+                al.typeStorage.storeViewConfigTopic(configurable, configTopic);     // update DB
+            } else {
+                configTopic.update(children);                                       // update memory + DB
+            }
+        });
     }
 
     private void _addConfigTopic(TopicModelImpl configTopic) {
-        model.addConfigTopic(configTopic);                                  // update memory
-        al.typeStorage.storeViewConfigTopic(configurable, configTopic);     // update DB
+        updateType(() -> {
+            model.addConfigTopic(configTopic);                                  // update memory
+            al.typeStorage.storeViewConfigTopic(configurable, configTopic);     // update DB
+        });
+    }
+
+    /**
+     * Performs a view config update on the type's draft. From then on this view configuration refers to the draft's.
+     */
+    private void updateType(Runnable update) {
+        al.typeStorage.updateType(typeUri, type -> {
+            model = compDefUri == null ? type.viewConfig : type.getCompDef(compDefUri).viewConfig;
+            update.run();
+        });
     }
 }
@@ -6,6 +6,8 @@ import systems.dmx.core.model.ViewConfigModel;
 
 import org.codehaus.jettison.json.JSONArray;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -127,6 +129,18 @@ class ViewConfigModelImpl implements ViewConfigModel {
         return "view configuration " + configTopics;
     }
 
+    /**
+     * Returns a copy of this view config model. The config topics are copied as well.
+     */
+    @Override
+    public ViewConfigModelImpl clone() {
+        List<TopicModel> configTopics = new ArrayList();
+        for (TopicModelImpl configTopic : this.configTopics.values()) {
+            configTopics.add(configTopic.clone());
+        }
+        return mf.newViewConfigModel(configTopics);
+    }
+
     // ------------------------------------------------------------------------------------------------- Private Methods
 
     public void putConfigTopic(TopicModel configTopic) {
@@ -3,6 +3,7 @@ package systems.dmx.core.impl;
 import systems.dmx.core.model.TopicModel;
 import systems.dmx.core.model.topicmaps.ViewTopic;
 import systems.dmx.core.model.topicmaps.ViewProps;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -53,4 +54,10 @@ class ViewTopicImpl extends TopicModelImpl implements ViewTopic {
             throw new RuntimeException("Serialization failed", e);
         }
     }
+
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        super.writeJSONFields(out);
+        out.field("viewProps", viewProps);
+    }
 }
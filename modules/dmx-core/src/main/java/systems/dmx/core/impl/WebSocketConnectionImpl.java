@@ -8,6 +8,7 @@ import org.eclipse.jetty.websocket.WebSocket.Connection;
 
 import javax.servlet.http.HttpSession;
 
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +36,8 @@ class WebSocketConnectionImpl implements WebSocketConnection, WebSocket, WebSock
      */
     private Connection connection;
 
+    private MessageQueue queue;
+
     private Logger logger = Logger.getLogger(getClass().getName());
 
     // ----------------------------------------------------------------------------------------------------- Constructor
@@ -49,6 +52,7 @@ class WebSocketConnectionImpl implements WebSocketConnection, WebSocket, WebSock
         this.session = session;
         this.pool = pool;
         this.dmx = dmx;
+        this.queue = pool.newMessageQueue(this);
         // Note: info(session) relies on "dmx"
         logger.info("### Associating WebSocket connection " + clientId + " (client ID) with " + info(session));
     }
@@ -79,6 +83,7 @@ class WebSocketConnectionImpl implements WebSocketConnection, WebSocket, WebSock
     @Override
     public void onClose(int code, String message) {
         logger.info("Closing WebSocket connection " + clientId + " (client ID)");
+        queue.close();
         pool.removeConnection(this);
     }
 
@@ -105,12 +110,34 @@ class WebSocketConnectionImpl implements WebSocketConnection, WebSocket, WebSock
 
     // ----------------------------------------------------------------------------------------- Package Private Methods
 
-    void sendMessage(String message) {
+    /**
+     * Queues a message for sending. Called by the WebSocket service.
+     *
+     * @param   connectionFilter    optional
+     * @param   coalescingKey       optional
+     */
+    void queueMessage(String message, Predicate<WebSocketConnection> connectionFilter, String coalescingKey) {
+        queue.add(message, connectionFilter, coalescingKey);
+    }
+
+    MessageQueue getMessageQueue() {
+        return queue;
+    }
+
+    /**
+     * Sends a message right away. Called by the worker draining this connection's queue.
+     *
+     * @return  false if sending failed. The connection is removed from the pool then.
+     */
+    boolean sendMessage(String message) {
         try {
             connection.sendMessage(message);
+            return true;
         } catch (Exception e) {
+            queue.close();
             pool.removeConnection(this);
             logger.log(Level.SEVERE, "Sending message via " + this + " failed -- connection removed from pool", e);
+            return false;
         }
     }
 
@@ -1,8 +1,14 @@
 package systems.dmx.core.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 
@@ -16,11 +22,35 @@ class WebSocketConnectionPool {
      */
     private Map<String, WebSocketConnectionImpl> pool = new ConcurrentHashMap();
 
+    /**
+     * The connections grouped by username. key: username (null for anonymous). Guarded by "this".
+     * <p>
+     * Note: a connection's username changes when the user logs in/out. So a group might be outdated, see
+     * {@link #regroup}.
+     */
+    private Map<String, Set<WebSocketConnectionImpl>> groups = new HashMap();
+
+    /**
+     * The username a connection is grouped under. key: client ID. Guarded by "this".
+     */
+    private Map<String, String> groupedUnder = new HashMap();
+
+    // the settings of the connections' outbound queues
+    private Executor executor;
+    private int queueSize;
+    private MessageQueue.OverflowPolicy overflowPolicy;
+
     private Logger logger = Logger.getLogger(getClass().getName());
 
     // ----------------------------------------------------------------------------------------------------- Constructor
 
-    WebSocketConnectionPool() {
+    /**
+     * @param   executor    drains the connections' outbound queues
+     */
+    WebSocketConnectionPool(Executor executor, int queueSize, MessageQueue.OverflowPolicy overflowPolicy) {
+        this.executor = executor;
+        this.queueSize = queueSize;
+        this.overflowPolicy = overflowPolicy;
     }
 
     // ----------------------------------------------------------------------------------------- Package Private Methods
@@ -37,20 +67,70 @@ class WebSocketConnectionPool {
         return pool.values();
     }
 
+    /**
+     * Returns the connections grouped by username (a snapshot). key: username (null for anonymous).
+     */
+    synchronized Map<String, List<WebSocketConnectionImpl>> getConnectionsByUsername() {
+        Map<String, List<WebSocketConnectionImpl>> connections = new HashMap();
+        groups.forEach((username, group) -> connections.put(username, new ArrayList(group)));
+        return connections;
+    }
+
     void addConnection(WebSocketConnectionImpl connection) {
         pool.put(connection.clientId, connection);
+        synchronized (this) {
+            group(connection, connection.getUsername());
+        }
     }
 
     void removeConnection(WebSocketConnectionImpl connection) {
         boolean removed = pool.remove(connection.clientId) != null;
+        synchronized (this) {
+            ungroup(connection);
+        }
         if (!removed) {
             throw new RuntimeException("Can't remove WebSocket connection " + connection.clientId +
                 " (client ID) from pool");
         }
     }
 
+    /**
+     * Groups the given connection under its current username. To be called once a connection's username turned out
+     * to differ from the one it is grouped under.
+     */
+    synchronized void regroup(WebSocketConnectionImpl connection) {
+        if (groupedUnder.containsKey(connection.clientId)) {
+            ungroup(connection);
+            group(connection, connection.getUsername());
+        }
+    }
+
+    MessageQueue newMessageQueue(WebSocketConnectionImpl connection) {
+        return new MessageQueue(connection, executor, queueSize, overflowPolicy);
+    }
+
     void close() {
         logger.info("Closing " + pool.size() + " WebSocket connections");
         getAllConnections().forEach(WebSocketConnectionImpl::close);
     }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    // Note: the caller must hold the lock
+
+    private void group(WebSocketConnectionImpl connection, String username) {
+        groups.computeIfAbsent(username, u -> new HashSet()).add(connection);
+        groupedUnder.put(connection.clientId, username);
+    }
+
+    private void ungroup(WebSocketConnectionImpl connection) {
+        if (groupedUnder.containsKey(connection.clientId)) {
+            String username = groupedUnder.remove(connection.clientId);
+            Set<WebSocketConnectionImpl> group = groups.get(username);
+            group.remove(connection);
+            if (group.isEmpty()) {
+                groups.remove(username);
+            }
+        }
+    }
 }
@@ -5,20 +5,30 @@ import systems.dmx.core.osgi.CoreActivator;
 import systems.dmx.core.service.Cookies;
 import systems.dmx.core.service.CoreService;
 import systems.dmx.core.service.accesscontrol.Operation;
+import systems.dmx.core.service.websocket.ConnectionMetrics;
 import systems.dmx.core.service.websocket.WebSocketConnection;
+import systems.dmx.core.service.websocket.WebSocketMetrics;
 import systems.dmx.core.service.websocket.WebSocketService;
 
-import org.codehaus.jettison.json.JSONObject;
-
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
 
-public class WebSocketServiceImpl implements WebSocketService {
+/**
+ * Sends messages to the WebSocket connections. Every connection has a bounded outbound queue (see
+ * {@link MessageQueue}). The queues are drained by a small pool of workers.
+ */
+public class WebSocketServiceImpl implements WebSocketService, WebSocketMetrics {
 
     // ------------------------------------------------------------------------------------------------------- Constants
 
@@ -27,10 +37,15 @@ public class WebSocketServiceImpl implements WebSocketService {
     // Note: the default value is required in case no config file is in effect. This applies when DM is started
     // via feature:install from Karaf. The default value must match the value defined in project POM.
 
+    private static final int QUEUE_SIZE = Integer.getInteger("dmx.websockets.queue_size", 1000);
+    private static final MessageQueue.OverflowPolicy OVERFLOW_POLICY = MessageQueue.OverflowPolicy.valueOf(
+        System.getProperty("dmx.websockets.overflow_policy", "drop_oldest").toUpperCase());
+    private static final int WORKER_THREADS = Integer.getInteger("dmx.websockets.worker_threads", 4);
+
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     private WebSocketConnectionPool pool;       // instantiated in start()
-    private SendMessageWorker worker;           // instantiated in start()
+    private ExecutorService workers;            // instantiated in start()
     private CoreService dmx;
 
     private Logger logger = Logger.getLogger(getClass().getName());
@@ -41,6 +56,14 @@ public class WebSocketServiceImpl implements WebSocketService {
         this.dmx = dmx;
     }
 
+    /**
+     * For testing: the connections are held by the given pool. start() must not be called then.
+     */
+    WebSocketServiceImpl(CoreService dmx, WebSocketConnectionPool pool) {
+        this(dmx);
+        this.pool = pool;
+    }
+
     // -------------------------------------------------------------------------------------------------- Public Methods
 
     // *** WebSocketService ***
@@ -60,6 +83,11 @@ public class WebSocketServiceImpl implements WebSocketService {
         Messages.get().add(Dest.ALL_BUT_ORIGIN, message);
     }
 
+    @Override
+    public void sendToAllButOrigin(String message, String coalescingKey) {
+        Messages.get().add(Dest.ALL_BUT_ORIGIN, message, coalescingKey);
+    }
+
     @Override
     public void sendToReadAllowed(String message, long objectId) {
         Messages.get().add(Dest.READ_ALLOWED, message, objectId);
@@ -77,14 +105,42 @@ public class WebSocketServiceImpl implements WebSocketService {
         return WEBSOCKETS_URL;
     }
 
+    // *** WebSocketMetrics ***
+
+    @Override
+    public int getQueueSize() {
+        return QUEUE_SIZE;
+    }
+
+    @Override
+    public String getOverflowPolicy() {
+        return OVERFLOW_POLICY.name();
+    }
+
+    @Override
+    public void reset() {
+        if (pool != null) {
+            pool.getAllConnections().forEach(conn -> conn.getMessageQueue().resetMetrics());
+        }
+    }
+
+    @Override
+    public List<ConnectionMetrics> getConnectionMetrics() {
+        List<ConnectionMetrics> metrics = new ArrayList();
+        if (pool != null) {
+            pool.getAllConnections().forEach(conn -> metrics.add(conn.getMessageQueue().getMetrics()));
+        }
+        return metrics;
+    }
+
     // ---
 
     public void start() {
         try {
-            logger.info("##### Starting WebSocket service");
-            pool = new WebSocketConnectionPool();
-            worker = new SendMessageWorker();
-            worker.start();
+            logger.info("##### Starting WebSocket service (queueSize=" + QUEUE_SIZE + ", overflowPolicy=" +
+                OVERFLOW_POLICY + ", workerThreads=" + WORKER_THREADS + ")");
+            workers = Executors.newFixedThreadPool(WORKER_THREADS, new WorkerThreadFactory());
+            pool = new WebSocketConnectionPool(workers, QUEUE_SIZE, OVERFLOW_POLICY);
             CoreActivator.getHttpService().registerServlet("/websocket", new WebSocketServlet(pool, dmx), null, null);
             logger.info("WebSocket service started successfully");
         } catch (Exception e) {
@@ -106,13 +162,28 @@ public class WebSocketServiceImpl implements WebSocketService {
     }
 
     void _sendToAllButOrigin(String message) {
-        queueMessage(message, isOrigin().negate());
+        _sendToAllButOrigin(message, null);
+    }
+
+    void _sendToAllButOrigin(String message, String coalescingKey) {
+        queueMessage(message, isOrigin().negate(), coalescingKey);
     }
 
+    /**
+     * Permission is evaluated once per username (resp. once for anonymous), not once per connection. That is a
+     * user's connections (browser tabs) share the result.
+     */
     void _sendToReadAllowed(String message, long objectId) {
         // don't send back to origin
         // only send if receiver has READ permission for object
-        queueMessage(message, isOrigin().negate().and(isReadAllowed(objectId)));
+        Predicate<WebSocketConnection> isNotOrigin = isOrigin().negate();
+        for (Map.Entry<String, List<WebSocketConnectionImpl>> group : pool.getConnectionsByUsername().entrySet()) {
+            Predicate<WebSocketConnection> connectionFilter = isNotOrigin.and(
+                isReadAllowed(group.getKey(), objectId));
+            for (WebSocketConnectionImpl conn : group.getValue()) {
+                conn.queueMessage(message, connectionFilter, null);
+            }
+        }
     }
 
     void _sendToSome(String message, Predicate<WebSocketConnection> connectionFilter) {
@@ -126,7 +197,7 @@ public class WebSocketServiceImpl implements WebSocketService {
             if (pool != null) {
                 logger.info("### Stopping WebSocket service");
                 // CoreActivator.getHttpService().unregister("/websocket");     // HTTP service already gone
-                worker.interrupt();
+                workers.shutdownNow();
                 pool.close();
             } else {
                 logger.info("Stopping WebSocket service SKIPPED -- it was not successfully started");
@@ -139,17 +210,27 @@ public class WebSocketServiceImpl implements WebSocketService {
     // ------------------------------------------------------------------------------------------------- Private Methods
 
     private void queueMessage(String message, WebSocketConnectionImpl connection) {
-        worker.queueMessage(message, connection);
+        connection.queueMessage(message, null, null);
     }
 
     private void queueMessage(String message, Predicate<WebSocketConnection> connectionFilter) {
-        worker.queueMessage(message, connectionFilter);
+        queueMessage(message, connectionFilter, null);
+    }
+
+    /**
+     * Queues the message for every connection. The filter is evaluated later on, by the worker draining the
+     * respective connection's queue.
+     */
+    private void queueMessage(String message, Predicate<WebSocketConnection> connectionFilter, String coalescingKey) {
+        for (WebSocketConnectionImpl conn : pool.getAllConnections()) {
+            conn.queueMessage(message, connectionFilter, coalescingKey);
+        }
     }
 
     // ---
 
     private Predicate<WebSocketConnection> isOrigin() {
-        // Note: the returned predicate is evaluated in another thread (SendMessageWorker). So to read out the client-id
+        // Note: the returned predicate is evaluated in another thread (a worker). So to read out the client-id
         // cookie -- which is stored thread-locally -- we call clientId() from *this* thread (instead from predicate)
         // and hold the result in the predicate's closure.
         String clientId = clientId();
@@ -160,15 +241,35 @@ public class WebSocketServiceImpl implements WebSocketService {
         };
     }
 
-    private Predicate<WebSocketConnection> isReadAllowed(long objectId) {
+    /**
+     * Returns a predicate for the connections grouped under the given username. The permission is evaluated once,
+     * by the first worker testing a connection of the group. The other connections get the cached result.
+     * <p>
+     * A connection whose username has changed meanwhile (login/logout) gets a permission check of its own, and is
+     * regrouped.
+     *
+     * @param   username    the username the group is keyed by; null for anonymous.
+     */
+    private Predicate<WebSocketConnection> isReadAllowed(String username, long objectId) {
+        Permission permission = new Permission(username, objectId);
         return conn -> {
-            boolean isReadAllowed = dmx.getPrivilegedAccess().hasPermission(conn.getUsername(), Operation.READ,
-                objectId);
-            logger.fine(conn.getClientId() + " " + conn.getUsername() + " (isReadAllowed) -> " + isReadAllowed);
+            boolean isReadAllowed;
+            String _username = conn.getUsername();
+            if (Objects.equals(_username, username)) {
+                isReadAllowed = permission.get();
+            } else {
+                isReadAllowed = hasReadPermission(_username, objectId);
+                pool.regroup((WebSocketConnectionImpl) conn);
+            }
+            logger.fine(conn.getClientId() + " " + _username + " (isReadAllowed) -> " + isReadAllowed);
             return isReadAllowed;
         };
     }
 
+    private boolean hasReadPermission(String username, long objectId) {
+        return dmx.getPrivilegedAccess().hasPermission(username, Operation.READ, objectId);
+    }
+
     // ---
 
     /**
@@ -187,95 +288,37 @@ public class WebSocketServiceImpl implements WebSocketService {
 
     // ------------------------------------------------------------------------------------------------- Private Classes
 
-    private class SendMessageWorker extends Thread {
-
-        private BlockingQueue<MessageTask> messageQueue = new LinkedBlockingQueue();
-
-        private SendMessageWorker() {
-            setPriority(Thread.MIN_PRIORITY);
-        }
+    /**
+     * A READ permission which is evaluated lazily, at most once.
+     */
+    private class Permission {
 
-        @Override
-        public void run() {
-            boolean stopped = false;
-            while (!stopped) {
-                MessageTask task = null;
-                try {
-                    task = messageQueue.take();
-                    task.sendMessage();
-                    yield();
-                } catch (InterruptedException e) {
-                    stopped = true;
-                } catch (Exception e) {
-                    logger.log(Level.SEVERE, "An error occurred in the SendMessageWorker while processing a \"" +
-                        task.getMessageType() + "\" task (aborting this task):", e);
-                }
-            }
-            logger.info("### Terminating SendMessageWorker");
-        }
+        private String username;
+        private long objectId;
+        private Boolean value;      // guarded by "this"
 
-        private void queueMessage(String message, WebSocketConnectionImpl connection) {
-            try {
-                messageQueue.put(new MessageTask(message, connection));
-            } catch (InterruptedException e) {
-                logger.log(Level.WARNING, "Queueing a message failed:", e);
-            }
+        private Permission(String username, long objectId) {
+            this.username = username;
+            this.objectId = objectId;
         }
 
-        private void queueMessage(String message, Predicate<WebSocketConnection> connectionFilter) {
-            try {
-                messageQueue.put(new MessageTask(message, connectionFilter));
-            } catch (InterruptedException e) {
-                logger.log(Level.WARNING, "Queueing a message failed:", e);
+        private synchronized boolean get() {
+            if (value == null) {
+                value = hasReadPermission(username, objectId);
             }
+            return value;
         }
     }
 
-    private class MessageTask {
-
-        private String message;
-
-        private WebSocketConnectionImpl connection;
-        private Predicate<WebSocketConnection> connectionFilter;
-
-        /**
-         * A send-to-one task.
-         */
-        private MessageTask(String message, WebSocketConnectionImpl connection) {
-            this.message = message;
-            this.connection = connection;
-        }
-
-        /**
-         * A send-to-many task.
-         */
-        private MessageTask(String message, Predicate<WebSocketConnection> connectionFilter) {
-            this.message = message;
-            this.connectionFilter = connectionFilter;
-        }
-
-        // ---
+    private static class WorkerThreadFactory implements ThreadFactory {
 
-        private void sendMessage() {
-            if (connection != null) {
-                _sendMessage(connection);
-            } else {
-                pool.getAllConnections().stream().filter(connectionFilter).forEach(conn -> _sendMessage(conn));
-            }
-        }
-
-        private void _sendMessage(WebSocketConnectionImpl conn) {
-            conn.sendMessage(message);
-        }
-
-        // ---
+        private AtomicInteger count = new AtomicInteger();
 
-        private String getMessageType() {
-            try {
-                return new JSONObject(message).getString("type");
-            } catch (Exception e) {
-                throw new RuntimeException("JSON parsing error", e);
-            }
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "WebSocket-Worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
@@ -14,6 +14,10 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.service.http.HttpService;
 import org.osgi.util.tracker.ServiceTracker;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,13 +27,17 @@ public class CoreActivator implements BundleActivator {
 
     // ------------------------------------------------------------------------------------------------------- Constants
 
-    // TODO: make it a config prop
-    private static final String DATABASE_FACTORY = "systems.dmx.storage.neo4j.Neo4jStorageFactory";
+    private static final String DATABASE_FACTORY = System.getProperty("dmx.database.factory",
+        "systems.dmx.storage.neo4j.Neo4jStorageFactory");
 
     private static final String DATABASE_PATH = System.getProperty("dmx.database.path", "dmx-db");
     // Note: the default value is required in case no config file is in effect. This applies when DM is started
     // via feature:install from Karaf. The default value must match the value defined in project POM.
 
+    private static final String EVENT_METRICS_MBEAN = "systems.dmx:type=EventMetrics";
+    private static final String STORAGE_CACHE_METRICS_MBEAN = "systems.dmx:type=StorageCacheMetrics";
+    private static final String WEBSOCKET_METRICS_MBEAN = "systems.dmx:type=WebSocketMetrics";
+
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     private static BundleContext bundleContext;
@@ -82,6 +90,9 @@ public class CoreActivator implements BundleActivator {
             }
             // copy in CoreServiceTestEnvironment.shutdown()
             if (dmx != null) {
+                unregisterMBean(EVENT_METRICS_MBEAN);
+                unregisterMBean(STORAGE_CACHE_METRICS_MBEAN);
+                unregisterMBean(WEBSOCKET_METRICS_MBEAN);
                 dmx.shutdown();
             }
             if (db != null) {
@@ -199,6 +210,33 @@ public class CoreActivator implements BundleActivator {
             //
             logger.info("Registering DMX core service at OSGi framework");
             bundleContext.registerService(CoreService.class.getName(), dmx, null);
+            //
+            registerMBean(dmx.getEventMetrics(), EVENT_METRICS_MBEAN);
+            registerMBean(dmx.getStorageCacheMetrics(), STORAGE_CACHE_METRICS_MBEAN);
+            registerMBean(dmx.getWebSocketMetrics(), WEBSOCKET_METRICS_MBEAN);
+        }
+    }
+
+    // ---
+
+    private void registerMBean(Object mbean, String name) {
+        try {
+            logger.info("Registering MBean \"" + name + "\"");
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(name));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Registering MBean \"" + name + "\" failed", e);
+        }
+    }
+
+    private void unregisterMBean(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Unregistering MBean \"" + name + "\" failed", e);
         }
     }
 }
@@ -0,0 +1,81 @@
+package systems.dmx.core.service;
+
+import systems.dmx.core.JSONEnabled;
+
+import org.codehaus.jettison.json.JSONObject;
+
+import java.beans.ConstructorProperties;
+
+
+
+/**
+ * The metrics of one cache, see {@link StorageCacheMetrics}.
+ */
+public class CacheStats implements JSONEnabled {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private String name;
+    private int capacity;
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    @ConstructorProperties({"name", "capacity", "size", "hits", "misses", "evictions"})
+    public CacheStats(String name, int capacity, int size, long hits, long misses, long evictions) {
+        this.name = name;
+        this.capacity = capacity;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // ---
+
+    @Override
+    public JSONObject toJSON() {
+        try {
+            long lookups = hits + misses;
+            return new JSONObject()
+                .put("name", name)
+                .put("capacity", capacity)
+                .put("size", size)
+                .put("hits", hits)
+                .put("misses", misses)
+                .put("hitRatio", lookups > 0 ? (double) hits / lookups : 0)
+                .put("evictions", evictions);
+        } catch (Exception e) {
+            throw new RuntimeException("Serialization failed", e);
+        }
+    }
+}
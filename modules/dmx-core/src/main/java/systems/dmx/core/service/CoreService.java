@@ -13,10 +13,13 @@ import systems.dmx.core.model.TopicModel;
 import systems.dmx.core.model.TopicTypeModel;
 import systems.dmx.core.service.TopicResult;
 import systems.dmx.core.service.accesscontrol.PrivilegedAccess;
+import systems.dmx.core.service.websocket.WebSocketMetrics;
 import systems.dmx.core.service.websocket.WebSocketService;
 import systems.dmx.core.storage.spi.DMXTransaction;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 
 
@@ -51,6 +54,33 @@ public interface CoreService {
 
     List<Topic> getTopicsByType(String topicTypeUri);
 
+    /**
+     * Retrieves one page of the topics of the given type. Only the topics readable by the current user are counted.
+     *
+     * @param   offset  the number of (readable) topics to skip.
+     * @param   limit   the maximum number of topics to return.
+     *
+     * @return  the page. Its cursor can be used to fetch the next page via
+     *          {@link #getTopicsByType(String, String, int)}.
+     */
+    ResultPage<Topic> getTopicsByType(String topicTypeUri, int offset, int limit);
+
+    /**
+     * Retrieves one page of the topics of the given type, continuing at the given cursor.
+     * <p>
+     * In contrast to the offset-based variant the already delivered topics are not read again.
+     *
+     * @param   cursor  the cursor of the previous page, or <code>null</code> to start with the first page.
+     * @param   limit   the maximum number of topics to return.
+     */
+    ResultPage<Topic> getTopicsByType(String topicTypeUri, String cursor, int limit);
+
+    /**
+     * Counts the topics of the given type readable by the current user. In contrast to
+     * <code>getTopicsByType(topicTypeUri).size()</code> no topic is built.
+     */
+    int countTopicsByType(String topicTypeUri);
+
     Iterable<Topic> getAllTopics();
 
     // ---
@@ -141,6 +171,24 @@ public interface CoreService {
 
     Topic createTopic(TopicModel model);
 
+    /**
+     * Creates many topics at once, e.g. for a data import. Each topic is created like by {@link #createTopic},
+     * including value integration and events.
+     * <p>
+     * The topics are created in chunks, one transaction per chunk. The chunk size is configured by the
+     * <code>dmx.import.chunk_size</code> system property (default 1000; 0 creates all topics in a single
+     * transaction). If a chunk fails it is rolled back and the import stops; the chunks created so far remain.
+     * If called within a transaction the chunks join that transaction.
+     * <p>
+     * While a chunk is created the storage may defer fulltext index updates until the chunk's commit. So, a fulltext
+     * query issued within the chunk (e.g. by an event listener) might not find the topics created in the same chunk.
+     *
+     * @param   models  the topics to create. Iterated only once, so it may be backed by a stream.
+     *
+     * @return  the number of topics created.
+     */
+    int importTopics(Iterable<? extends TopicModel> models);
+
     void updateTopic(TopicModel updateModel);
 
     void deleteTopic(long topicId);
@@ -155,6 +203,28 @@ public interface CoreService {
 
     List<Assoc> getAssocsByType(String assocTypeUri);
 
+    /**
+     * Retrieves one page of the associations of the given type. Only the associations readable by the current user
+     * are counted.
+     *
+     * @param   offset  the number of (readable) associations to skip.
+     * @param   limit   the maximum number of associations to return.
+     */
+    ResultPage<Assoc> getAssocsByType(String assocTypeUri, int offset, int limit);
+
+    /**
+     * Retrieves one page of the associations of the given type, continuing at the given cursor.
+     *
+     * @param   cursor  the cursor of the previous page, or <code>null</code> to start with the first page.
+     * @param   limit   the maximum number of associations to return.
+     */
+    ResultPage<Assoc> getAssocsByType(String assocTypeUri, String cursor, int limit);
+
+    /**
+     * Counts the associations of the given type readable by the current user. No association is built.
+     */
+    int countAssocsByType(String assocTypeUri);
+
     /**
      * Returns all associations between two topics. If no such association exists an empty list is returned.
      */
@@ -291,6 +361,13 @@ public interface CoreService {
     QueryResult query(String topicQuery, String topicTypeUri, boolean searchTopicChildren,
                       String assocQuery, String assocTypeUri, boolean searchAssocChildren);
 
+    /**
+     * Recursively loads the child topics of the given objects. Equivalent to calling
+     * {@link DMXObject#loadChildTopics()} for each object, but the child topics of all objects are fetched by
+     * one storage call per comp def level (per type) instead of one per object.
+     */
+    void loadChildTopics(Iterable<? extends DMXObject> objects);
+
 
 
     // === Plugins ===
@@ -326,6 +403,18 @@ public interface CoreService {
      */
     boolean hasProperty(long id, String propUri);
 
+    /**
+     * Returns the given properties of many topics and/or associations with one call. Compared to calling
+     * {@link #getProperty} per object and property each object is looked up once, not once per property.
+     * Note: it is not a single storage access. The storage looks up the objects one by one.
+     *
+     * @param   ids     topic IDs and/or association IDs
+     *
+     * @return  a map: object ID -> (property URI -> value). Contains an entry for every given ID. A property the
+     *          object does not have is not contained in its map.
+     */
+    Map<Long, Map<String, Object>> getProperties(Collection<Long> ids, String... propUris);
+
     // Note: there is no setter here. If we want one we actually need 2 setters: one for topics, one for assocs.
     // This is because the storage layer maintains separate indexes for topics and assocs.
 
@@ -333,10 +422,28 @@ public interface CoreService {
 
     List<Topic> getTopicsByProperty(String propUri, Object propValue);
 
+    ResultPage<Topic> getTopicsByProperty(String propUri, Object propValue, int offset, int limit);
+
+    ResultPage<Topic> getTopicsByProperty(String propUri, Object propValue, String cursor, int limit);
+
+    /**
+     * Retrieves the topics of the given type which have the given property value.
+     * <p>
+     * The cost scales with the number of matching topics, not with the number of the type's instances.
+     * The property must be indexed.
+     */
+    List<Topic> getTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri);
+
     List<Topic> getTopicsByPropertyRange(String propUri, Number from, Number to);
 
     List<Assoc> getAssocsByProperty(String propUri, Object propValue);
 
+    /**
+     * Retrieves the associations of the given type which have the given property value.
+     * See {@link #getTopicsByPropertyAndType}.
+     */
+    List<Assoc> getAssocsByPropertyAndType(String propUri, Object propValue, String assocTypeUri);
+
     List<Assoc> getAssocsByPropertyRange(String propUri, Number from, Number to);
 
     // ---
@@ -359,5 +466,11 @@ public interface CoreService {
 
     WebSocketService getWebSocketService();
 
+    EventMetrics getEventMetrics();
+
+    StorageCacheMetrics getStorageCacheMetrics();
+
+    WebSocketMetrics getWebSocketMetrics();
+
     Object getDatabaseVendorObject();
 }
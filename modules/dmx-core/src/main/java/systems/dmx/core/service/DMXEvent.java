@@ -19,6 +19,12 @@ public abstract class DMXEvent {
      */
     private static Map<String, DMXEvent> events = new HashMap();
 
+    /**
+     * The ordinals assigned so far (key: listener interface name).
+     * An event that is re-instantiated (e.g. when its plugin is redeployed) keeps its ordinal.
+     */
+    private static Map<String, Integer> ordinals = new HashMap();
+
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     /**
@@ -26,11 +32,16 @@ public abstract class DMXEvent {
      */
     private final Class listenerInterface;
 
+    /**
+     * A dense index, unique per listener interface. Used by the core to look up the event's listeners.
+     */
+    private final int ordinal;
+
     // ---------------------------------------------------------------------------------------------------- Constructors
 
     public DMXEvent(Class listenerInterface) {
         this.listenerInterface = listenerInterface;
-        putEvent(this, listenerInterface);
+        this.ordinal = putEvent(this, listenerInterface);
     }
 
     // -------------------------------------------------------------------------------------------------- Public Methods
@@ -47,10 +58,17 @@ public abstract class DMXEvent {
         return listenerInterface;
     }
 
+    /**
+     * Returns the ordinal of this event: a dense index (starting at 0), unique per listener interface.
+     */
+    public int ordinal() {
+        return ordinal;
+    }
+
     /**
      * Returns the event that corresponds to the given listener interface.
      */
-    public static DMXEvent getEvent(Class listenerInterface) {
+    public static synchronized DMXEvent getEvent(Class listenerInterface) {
         DMXEvent event = events.get(listenerInterface.getName());
         //
         if (event == null) {
@@ -62,7 +80,17 @@ public abstract class DMXEvent {
 
     // ------------------------------------------------------------------------------------------------- Private Methods
 
-    private void putEvent(DMXEvent event, Class listenerInterface) {
-        events.put(listenerInterface.getName(), event);
+    /**
+     * @return  the ordinal for the given event.
+     */
+    private static synchronized int putEvent(DMXEvent event, Class listenerInterface) {
+        String name = listenerInterface.getName();
+        events.put(name, event);
+        Integer ordinal = ordinals.get(name);
+        if (ordinal == null) {
+            ordinal = ordinals.size();
+            ordinals.put(name, ordinal);
+        }
+        return ordinal;
     }
 }
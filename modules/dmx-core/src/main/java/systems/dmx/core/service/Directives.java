@@ -2,6 +2,7 @@ package systems.dmx.core.service;
 
 import systems.dmx.core.JSONEnabled;
 import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
@@ -86,6 +87,12 @@ public class Directives implements Iterable<Directives.Entry> {
             }
         }
 
+        @Override
+        public void writeJSONFields(JSONGenerator out) {
+            out.field("type", dir)
+               .field("arg", arg);
+        }
+
         @Override
         public String toString() {
             return dir + ": " + arg;
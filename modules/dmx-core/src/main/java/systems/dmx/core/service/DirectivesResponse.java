@@ -2,6 +2,7 @@ package systems.dmx.core.service;
 
 import systems.dmx.core.DMXObject;
 import systems.dmx.core.JSONEnabled;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -54,6 +55,14 @@ public class DirectivesResponse implements JSONEnabled {
         }
     }
 
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        if (object != null) {
+            object.writeJSONFields(out);
+        }
+        out.name("directives").array(directives);
+    }
+
     // ------------------------------------------------------------------------------------------------- Private Methods
 
     private void initDirectives() {
@@ -0,0 +1,34 @@
+package systems.dmx.core.service;
+
+import javax.management.MXBean;
+
+import java.util.List;
+
+
+
+/**
+ * Per-listener event timing: invocation count and latency histogram per (event, listener).
+ * <p>
+ * Disabled by default (see system property <code>dmx.metrics.events</code>). Can be toggled at runtime, via the
+ * Core Service, the REST API (<code>/core/metrics/events</code>), or JMX (<code>systems.dmx:type=EventMetrics</code>).
+ * When disabled the cost per event dispatch is a single volatile read.
+ * <p>
+ * A listener's time includes the time spent in events it fires itself.
+ */
+@MXBean
+public interface EventMetrics {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Discards all recorded metrics.
+     */
+    void reset();
+
+    /**
+     * Returns the recorded metrics, the most time consuming listener first.
+     */
+    List<ListenerMetrics> getListenerMetrics();
+}
@@ -0,0 +1,97 @@
+package systems.dmx.core.service;
+
+import systems.dmx.core.JSONEnabled;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.beans.ConstructorProperties;
+
+
+
+/**
+ * The metrics recorded for one (event, listener) pair, see {@link EventMetrics}.
+ */
+public class ListenerMetrics implements JSONEnabled {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    /**
+     * The upper bounds (exclusive) of the histogram buckets, in microseconds. The last bucket counts the
+     * invocations which took 1 second or longer.
+     */
+    public static final long[] BUCKET_BOUNDS_MICROS = {10, 100, 1000, 10000, 100000, 1000000};
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private String event;           // the listener interface's simple name, e.g. "PreSendTopic"
+    private String listener;        // the plugin name, or the listener's class name if not a plugin
+    private long count;
+    private long totalMicros;
+    private long maxMicros;
+    private long[] histogram;       // BUCKET_BOUNDS_MICROS.length + 1 buckets
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    @ConstructorProperties({"event", "listener", "count", "totalMicros", "maxMicros", "histogram"})
+    public ListenerMetrics(String event, String listener, long count, long totalMicros, long maxMicros,
+                                                                                       long[] histogram) {
+        this.event = event;
+        this.listener = listener;
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.maxMicros = maxMicros;
+        this.histogram = histogram;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    public String getEvent() {
+        return event;
+    }
+
+    public String getListener() {
+        return listener;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    // ---
+
+    @Override
+    public JSONObject toJSON() {
+        try {
+            JSONArray buckets = new JSONArray();
+            for (int i = 0; i < histogram.length; i++) {
+                buckets.put(new JSONObject()
+                    .put("lessThanMicros", i < BUCKET_BOUNDS_MICROS.length ? BUCKET_BOUNDS_MICROS[i] : null)
+                    .put("count", histogram[i])
+                );
+            }
+            return new JSONObject()
+                .put("event", event)
+                .put("listener", listener)
+                .put("count", count)
+                .put("totalMicros", totalMicros)
+                .put("meanMicros", count > 0 ? totalMicros / count : 0)
+                .put("maxMicros", maxMicros)
+                .put("histogram", buckets);
+        } catch (Exception e) {
+            throw new RuntimeException("Serialization failed", e);
+        }
+    }
+}
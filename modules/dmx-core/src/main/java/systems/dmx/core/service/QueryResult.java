@@ -3,6 +3,7 @@ package systems.dmx.core.service;
 import systems.dmx.core.DMXObject;
 import systems.dmx.core.JSONEnabled;
 import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.util.JSONGenerator;
 import org.codehaus.jettison.json.JSONObject;
 import java.util.List;
 
@@ -49,4 +50,15 @@ public class QueryResult implements JSONEnabled {
             throw new RuntimeException("Serialization failed", e);
         }
     }
+
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        out.field("topicQuery", topicQuery)
+           .field("topicTypeUri", topicTypeUri)
+           .field("searchTopicChildren", searchTopicChildren)
+           .field("assocQuery", assocQuery)
+           .field("assocTypeUri", assocTypeUri)
+           .field("searchAssocChildren", searchAssocChildren)
+           .name("objects").array(objects);
+    }
 }
@@ -0,0 +1,77 @@
+package systems.dmx.core.service;
+
+import systems.dmx.core.JSONEnabled;
+import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.util.JSONGenerator;
+import org.codehaus.jettison.json.JSONObject;
+import java.util.List;
+
+
+
+/**
+ * One page of a paginated listing, along with an opaque cursor to continue with.
+ * <p>
+ * The cursor refers to the position right after the last object of this page. Pass it to the respective
+ * cursor-based Core Service call to fetch the next page. It is <code>null</code> if there are no more objects.
+ * <p>
+ * A cursor is only valid as long as the underlying index is not changed. It is not meant to be stored.
+ */
+public class ResultPage<O extends JSONEnabled> implements JSONEnabled {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    public List<O> items;
+    public String cursor;       // null if there are no more objects
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    public ResultPage(List<O> items, String cursor) {
+        this.items = items;
+        this.cursor = cursor;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    @Override
+    public JSONObject toJSON() {
+        try {
+            return new JSONObject()
+                .put("items", DMXUtils.toJSONArray(items))
+                .put("cursor", cursor);
+        } catch (Exception e) {
+            throw new RuntimeException("Serialization failed", e);
+        }
+    }
+
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        out.name("items").array(items)
+           .field("cursor", cursor);
+    }
+
+    // ---
+
+    /**
+     * Encodes a storage position as a cursor.
+     *
+     * @param   position    the position, or -1 if there are no more objects.
+     *
+     * @return  the cursor, or <code>null</code> if position is -1.
+     */
+    public static String cursor(int position) {
+        return position != -1 ? Integer.toString(position, Character.MAX_RADIX) : null;
+    }
+
+    /**
+     * Decodes a cursor as obtained by {@link #cursor} into a storage position.
+     *
+     * @param   cursor  the cursor, or <code>null</code> to start at the beginning.
+     */
+    public static int position(String cursor) {
+        try {
+            return cursor != null && !cursor.isEmpty() ? Integer.parseInt(cursor, Character.MAX_RADIX) : 0;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: \"" + cursor + "\"", e);
+        }
+    }
+}
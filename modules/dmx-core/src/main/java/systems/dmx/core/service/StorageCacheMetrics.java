@@ -0,0 +1,31 @@
+package systems.dmx.core.service;
+
+import javax.management.MXBean;
+
+import java.util.List;
+
+
+
+/**
+ * Hit/miss metrics of the storage cache, an optional LRU cache of topic/assoc models and related topic lists in front
+ * of the storage.
+ * <p>
+ * The cache is disabled by default (see system property <code>dmx.storage.cache_size</code>). The metrics are
+ * accessible via the Core Service, the REST API (<code>/core/metrics/storage-cache</code>), and JMX
+ * (<code>systems.dmx:type=StorageCacheMetrics</code>).
+ */
+@MXBean
+public interface StorageCacheMetrics {
+
+    boolean isEnabled();
+
+    /**
+     * Resets the hit/miss/eviction counters. The cache content is retained.
+     */
+    void reset();
+
+    /**
+     * Returns the metrics of the object cache and the related topics cache. Empty if the cache is disabled.
+     */
+    List<CacheStats> getCacheStats();
+}
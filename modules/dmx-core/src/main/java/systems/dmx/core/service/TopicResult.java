@@ -3,6 +3,7 @@ package systems.dmx.core.service;
 import systems.dmx.core.JSONEnabled;
 import systems.dmx.core.Topic;
 import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.util.JSONGenerator;
 import org.codehaus.jettison.json.JSONObject;
 import java.util.List;
 
@@ -40,4 +41,12 @@ public class TopicResult implements JSONEnabled {
             throw new RuntimeException("Serialization failed", e);
         }
     }
+
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        out.field("query", query)
+           .field("topicTypeUri", topicTypeUri)
+           .field("searchChildTopics", searchChildTopics)
+           .name("topics").array(topics);
+    }
 }
@@ -8,6 +8,8 @@ import systems.dmx.core.Topic;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 
@@ -28,6 +30,18 @@ public interface PrivilegedAccess {
      */
     boolean hasPermission(String username, Operation operation, long objectId);
 
+    /**
+     * Checks if a user is permitted to perform an operation on a number of objects (topics or associations).
+     * <p>
+     * The objects are grouped by their assigned workspace, and every workspace is evaluated only once.
+     *
+     * @param   username    the logged in user, or <code>null</code> if no user is logged in.
+     * @param   objectIds   topic IDs, or association IDs, or both.
+     *
+     * @return  a bitset whose bit <i>i</i> is set if permission is granted for <code>objectIds[i]</code>.
+     */
+    BitSet hasPermission(String username, Operation operation, long[] objectIds);
+
     // ---
 
     boolean hasReadPermission(String username, long workspaceId);
@@ -99,6 +113,14 @@ public interface PrivilegedAccess {
      */
     String getCreator(long objectId);
 
+    /**
+     * Returns the topics of the given type that have the given property value. E.g. the File topics created by a
+     * given user (property "dmx.accesscontrol.creator"). The property must be indexed.
+     * <p>
+     * Access control is bypassed.
+     */
+    List<Topic> getTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri);
+
 
 
     // === Session ===
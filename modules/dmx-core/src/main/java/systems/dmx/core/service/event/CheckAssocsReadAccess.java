@@ -0,0 +1,20 @@
+package systems.dmx.core.service.event;
+
+import systems.dmx.core.service.EventListener;
+
+import java.util.BitSet;
+
+
+
+/**
+ * Batch variant of {@link CheckAssocReadAccess}. Fired once when a list of associations is filtered for readability.
+ * <p>
+ * The listener clears the bits of those associations the current user has no READ permission for.
+ *
+ * @param   assocIds    the IDs of the associations to check.
+ * @param   readables   bit <i>i</i> refers to <code>assocIds[i]</code>. Initially all bits are set.
+ */
+public interface CheckAssocsReadAccess extends EventListener {
+
+    void checkAssocsReadAccess(long[] assocIds, BitSet readables);
+}
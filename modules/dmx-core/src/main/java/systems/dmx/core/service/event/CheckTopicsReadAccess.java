@@ -0,0 +1,20 @@
+package systems.dmx.core.service.event;
+
+import systems.dmx.core.service.EventListener;
+
+import java.util.BitSet;
+
+
+
+/**
+ * Batch variant of {@link CheckTopicReadAccess}. Fired once when a list of topics is filtered for readability.
+ * <p>
+ * The listener clears the bits of those topics the current user has no READ permission for.
+ *
+ * @param   topicIds    the IDs of the topics to check.
+ * @param   readables   bit <i>i</i> refers to <code>topicIds[i]</code>. Initially all bits are set.
+ */
+public interface CheckTopicsReadAccess extends EventListener {
+
+    void checkTopicsReadAccess(long[] topicIds, BitSet readables);
+}
@@ -0,0 +1,19 @@
+package systems.dmx.core.service.event;
+
+import systems.dmx.core.Assoc;
+import systems.dmx.core.service.EventListener;
+
+import java.util.List;
+
+
+
+/**
+ * Batch variant of {@link PreSendAssoc}. Fired once for a collection response, with all the associations it
+ * contains (including the players of contained associations).
+ * <p>
+ * A plugin that implements both interfaces receives {@link PreSendAssoc} for single-object responses only.
+ */
+public interface PreSendAssocs extends EventListener {
+
+    void preSendAssocs(List<Assoc> assocs);
+}
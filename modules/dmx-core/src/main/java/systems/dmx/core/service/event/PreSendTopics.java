@@ -0,0 +1,19 @@
+package systems.dmx.core.service.event;
+
+import systems.dmx.core.Topic;
+import systems.dmx.core.service.EventListener;
+
+import java.util.List;
+
+
+
+/**
+ * Batch variant of {@link PreSendTopic}. Fired once for a collection response, with all the topics it contains
+ * (including the players of contained associations).
+ * <p>
+ * A plugin that implements both interfaces receives {@link PreSendTopic} for single-object responses only.
+ */
+public interface PreSendTopics extends EventListener {
+
+    void preSendTopics(List<Topic> topics);
+}
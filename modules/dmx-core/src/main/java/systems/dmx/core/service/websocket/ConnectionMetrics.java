@@ -0,0 +1,104 @@
+package systems.dmx.core.service.websocket;
+
+import systems.dmx.core.JSONEnabled;
+
+import org.codehaus.jettison.json.JSONObject;
+
+import java.beans.ConstructorProperties;
+
+
+
+/**
+ * The metrics of one WebSocket connection, see {@link WebSocketMetrics}.
+ */
+public class ConnectionMetrics implements JSONEnabled {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private String clientId;
+    private String username;
+    private int queueDepth;
+    private int maxQueueDepth;
+    private long sent;
+    private long dropped;
+    private long avgLatencyMicros;
+    private long maxLatencyMicros;
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    @ConstructorProperties({"clientId", "username", "queueDepth", "maxQueueDepth", "sent", "dropped",
+                            "avgLatencyMicros", "maxLatencyMicros"})
+    public ConnectionMetrics(String clientId, String username, int queueDepth, int maxQueueDepth, long sent,
+                             long dropped, long avgLatencyMicros, long maxLatencyMicros) {
+        this.clientId = clientId;
+        this.username = username;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.sent = sent;
+        this.dropped = dropped;
+        this.avgLatencyMicros = avgLatencyMicros;
+        this.maxLatencyMicros = maxLatencyMicros;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @return  the username associated with the connection, or null if no one is logged in.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return  the number of messages currently queued.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * @return  the number of messages dropped due to queue overflow.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getAvgLatencyMicros() {
+        return avgLatencyMicros;
+    }
+
+    public long getMaxLatencyMicros() {
+        return maxLatencyMicros;
+    }
+
+    // ---
+
+    @Override
+    public JSONObject toJSON() {
+        try {
+            return new JSONObject()
+                .put("clientId", clientId)
+                .put("username", username)
+                .put("queueDepth", queueDepth)
+                .put("maxQueueDepth", maxQueueDepth)
+                .put("sent", sent)
+                .put("dropped", dropped)
+                .put("avgLatencyMicros", avgLatencyMicros)
+                .put("maxLatencyMicros", maxLatencyMicros);
+        } catch (Exception e) {
+            throw new RuntimeException("Serialization failed", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package systems.dmx.core.service.websocket;
+
+import javax.management.MXBean;
+
+import java.util.List;
+
+
+
+/**
+ * Per-connection metrics of the WebSocket service: outbound queue depth, sent/dropped message counts, and send
+ * latency (the time from queueing a message until it is sent).
+ * <p>
+ * The metrics are accessible via the Core Service, the REST API (<code>/core/metrics/websockets</code>), and JMX
+ * (<code>systems.dmx:type=WebSocketMetrics</code>).
+ */
+@MXBean
+public interface WebSocketMetrics {
+
+    /**
+     * @return  the capacity of a connection's outbound queue (see system property
+     *          <code>dmx.websockets.queue_size</code>).
+     */
+    int getQueueSize();
+
+    /**
+     * @return  what happens when a connection's outbound queue is full (see system property
+     *          <code>dmx.websockets.overflow_policy</code>): "DROP_OLDEST", "COALESCE", or "DISCONNECT".
+     */
+    String getOverflowPolicy();
+
+    /**
+     * Resets the counters of all open connections.
+     */
+    void reset();
+
+    /**
+     * Returns the metrics of all open connections.
+     */
+    List<ConnectionMetrics> getConnectionMetrics();
+}
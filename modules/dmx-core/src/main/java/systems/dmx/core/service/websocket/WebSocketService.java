@@ -12,6 +12,13 @@ public interface WebSocketService {
 
     void sendToAllButOrigin(String message);
 
+    /**
+     * Like {@link #sendToAllButOrigin(String)}, for a message which carries a state that is superseded by a later
+     * message with the same coalescing key, e.g. the position of a topic. If a receiver's outbound queue is full and
+     * the overflow policy is "coalesce" the queued message with the same key is dropped.
+     */
+    void sendToAllButOrigin(String message, String coalescingKey);
+
     void sendToReadAllowed(String message, long objectId);
 
     void sendToSome(String message, Predicate<WebSocketConnection> connectionFilter);
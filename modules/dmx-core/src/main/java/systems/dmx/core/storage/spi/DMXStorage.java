@@ -10,7 +10,9 @@ import systems.dmx.core.model.PlayerModel;
 import systems.dmx.core.model.RelatedObjectModel;
 import systems.dmx.core.model.SimpleValue;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 
 
@@ -32,6 +34,25 @@ public interface DMXStorage {
      */
     List<TopicModelImpl> fetchTopics(String key, Object value);
 
+    /**
+     * Fetches one page of topics by exact value. Storages are expected to skip the first <code>offset</code> hits
+     * without building them.
+     *
+     * @param   offset  the number of hits to skip.
+     * @param   limit   the maximum number of topics to return.
+     */
+    List<TopicModelImpl> fetchTopics(String key, Object value, int offset, int limit);
+
+    /**
+     * Counts the topics by exact value. No topic is built.
+     */
+    int countTopics(String key, Object value);
+
+    /**
+     * Fetches the IDs of the topics by exact value. No topic is built.
+     */
+    long[] fetchTopicIds(String key, Object value);
+
     List<TopicModelImpl> queryTopics(String key, Object value);
 
     /**
@@ -100,6 +121,25 @@ public interface DMXStorage {
      */
     List<AssocModelImpl> fetchAssocs(String key, Object value);
 
+    /**
+     * Fetches one page of assocs by exact value. Storages are expected to skip the first <code>offset</code> hits
+     * without building them.
+     *
+     * @param   offset  the number of hits to skip.
+     * @param   limit   the maximum number of assocs to return.
+     */
+    List<AssocModelImpl> fetchAssocs(String key, Object value, int offset, int limit);
+
+    /**
+     * Counts the assocs by exact value. No assoc is built.
+     */
+    int countAssocs(String key, Object value);
+
+    /**
+     * Fetches the IDs of the assocs by exact value. No assoc is built.
+     */
+    long[] fetchAssocIds(String key, Object value);
+
     List<AssocModelImpl> queryAssocs(String key, Object value);
 
     /**
@@ -233,6 +273,20 @@ public interface DMXStorage {
     List<RelatedTopicModelImpl> fetchRelatedTopics(long objectId, String assocTypeUri, String myRoleTypeUri,
                                                    String othersRoleTypeUri, String othersTopicTypeUri);
 
+    /**
+     * Batch variant of {@link #fetchRelatedTopics(long, String, String, String, String)}: fetches the related topics
+     * of several objects at once. Storages are expected to resolve the whole batch by one (or a few) index queries.
+     *
+     * @param   objectIds           ids of topics or associations
+     * @param   myRoleTypeUri       must not be null
+     *
+     * @return  The fetched topics, grouped by object ID. An object without related topics has no entry.
+     *          Per object the topics appear in the same order as {@link #fetchRelatedTopics(long, String, String,
+     *          String, String)} would return them.
+     */
+    Map<Long, List<RelatedTopicModelImpl>> fetchRelatedTopics(long[] objectIds, String assocTypeUri,
+                                              String myRoleTypeUri, String othersRoleTypeUri, String othersTopicTypeUri);
+
     /**
      * @param   objectId            id of a topic or an association
      * @param   assocTypeUri        may be null
@@ -259,14 +313,55 @@ public interface DMXStorage {
      */
     boolean hasProperty(long id, String propUri);
 
+    /**
+     * Fetches the given properties of many objects. Each object is looked up once, regardless of the number of
+     * properties. Whether the objects are looked up in bulk is up to the implementation.
+     *
+     * @param   ids                 ids of topics and/or associations
+     *
+     * @return  a map: object id -> (property URI -> value). Contains an entry for every given id. A property the
+     *          object does not have is not contained in its map.
+     */
+    Map<Long, Map<String, Object>> fetchProperties(Collection<Long> ids, String... propUris);
+
+    /**
+     * Fetches the access control relevant metadata of an object: its node type, type URI, workspace assignment, and
+     * creator. Storages are expected to perform this with a single object access.
+     *
+     * @param   id                  id of a topic or an association
+     */
+    ObjectMeta fetchObjectMeta(long id);
+
     // ---
 
     List<TopicModelImpl> fetchTopicsByProperty(String propUri, Object propValue);
 
+    /**
+     * Fetches one page of topics by property value.
+     *
+     * @param   offset  the number of hits to skip.
+     * @param   limit   the maximum number of topics to return.
+     */
+    List<TopicModelImpl> fetchTopicsByProperty(String propUri, Object propValue, int offset, int limit);
+
+    /**
+     * Fetches the topics of the given type which have the given property value.
+     * <p>
+     * Storages are expected to perform this with a single index lookup whose cost scales with the number of matching
+     * topics, not with the number of the type's instances.
+     */
+    List<TopicModelImpl> fetchTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri);
+
     List<TopicModelImpl> fetchTopicsByPropertyRange(String propUri, Number from, Number to);
 
     List<AssocModelImpl> fetchAssocsByProperty(String propUri, Object propValue);
 
+    /**
+     * Fetches the associations of the given type which have the given property value.
+     * See {@link #fetchTopicsByPropertyAndType}.
+     */
+    List<AssocModelImpl> fetchAssocsByPropertyAndType(String propUri, Object propValue, String assocTypeUri);
+
     List<AssocModelImpl> fetchAssocsByPropertyRange(String propUri, Number from, Number to);
 
     // ---
@@ -293,6 +388,23 @@ public interface DMXStorage {
 
     DMXTransaction beginTx();
 
+    /**
+     * Puts the current thread in bulk load mode. Until {@link #endBulkLoad} the storage may defer and coalesce index
+     * updates which are not required for reading back the written data (e.g. fulltext indexing).
+     * <p>
+     * Must be called within a transaction. Calls may be nested; only the outermost {@link #endBulkLoad} call ends
+     * bulk load mode.
+     */
+    void beginBulkLoad();
+
+    /**
+     * Ends the current thread's bulk load mode.
+     *
+     * @param   flush   if true the deferred index updates are written (into the current transaction). If false they
+     *                  are discarded, e.g. because the transaction is about to be rolled back.
+     */
+    void endBulkLoad(boolean flush);
+
     boolean setupRootNode();
 
     void shutdown();
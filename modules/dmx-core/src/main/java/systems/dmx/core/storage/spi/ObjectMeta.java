@@ -0,0 +1,71 @@
+package systems.dmx.core.storage.spi;
+
+
+
+/**
+ * The access control relevant metadata of a topic or an association, as fetched by
+ * {@link DMXStorage#fetchObjectMeta}.
+ */
+public final class ObjectMeta {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    // ### TODO: copies in Constants.java of various plugins
+    public static final String PROP_WORKSPACE_ID = "dmx.workspaces.workspace_id";
+    public static final String PROP_CREATOR      = "dmx.accesscontrol.creator";
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private boolean isTopic;
+    private String typeUri;
+    private long workspaceId;
+    private String creator;
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    /**
+     * @param   workspaceId     the assigned workspace, or -1 if no workspace is assigned.
+     * @param   creator         the creator's username, or <code>null</code> if no creator is known.
+     */
+    public ObjectMeta(boolean isTopic, String typeUri, long workspaceId, String creator) {
+        this.isTopic = isTopic;
+        this.typeUri = typeUri;
+        this.workspaceId = workspaceId;
+        this.creator = creator;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    /**
+     * @return  <code>true</code> if the object is a topic, <code>false</code> if it is an association.
+     */
+    public boolean isTopic() {
+        return isTopic;
+    }
+
+    public String getTypeUri() {
+        return typeUri;
+    }
+
+    /**
+     * @return  the ID of the assigned workspace, or -1 if no workspace is assigned.
+     */
+    public long getWorkspaceId() {
+        return workspaceId;
+    }
+
+    /**
+     * @return  the username of the creator, or <code>null</code> if no creator is known.
+     */
+    public String getCreator() {
+        return creator;
+    }
+
+    // ---
+
+    @Override
+    public String toString() {
+        return "object meta (isTopic=" + isTopic + ", typeUri=\"" + typeUri + "\", workspaceId=" + workspaceId +
+            ", creator=\"" + creator + "\")";
+    }
+}
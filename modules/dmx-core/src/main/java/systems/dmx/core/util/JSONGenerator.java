@@ -0,0 +1,205 @@
+package systems.dmx.core.util;
+
+import systems.dmx.core.JSONEnabled;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+
+
+/**
+ * Writes JSON to a character stream without building an in-memory <code>JSONObject</code> tree first.
+ * <p>
+ * The output is equivalent to the one produced by Jettison: a <code>null</code> object field is omitted (like
+ * <code>JSONObject.put(key, null)</code> does), strings and numbers are formatted by Jettison's own routines.
+ * <p>
+ * A {@link JSONEnabled} value is written via its {@link JSONEnabled#writeJSON} method. So an entity that
+ * overrides {@link JSONEnabled#writeJSONFields} is streamed all the way down.
+ * <p>
+ * An <code>IOException</code> thrown by the underlying writer is rethrown as a <code>RuntimeException</code>.
+ * <p>
+ * Not thread-safe.
+ */
+public class JSONGenerator {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private Writer writer;
+
+    private boolean[] hasElements = new boolean[16];    // per nesting level: true once a value/field is written
+    private int depth = 0;
+    private boolean afterName = false;                  // true if a field name is written but its value is not yet
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    public JSONGenerator(Writer writer) {
+        this.writer = writer;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    public JSONGenerator beginObject() {
+        return begin('{');
+    }
+
+    public JSONGenerator endObject() {
+        return end('}');
+    }
+
+    public JSONGenerator beginArray() {
+        return begin('[');
+    }
+
+    public JSONGenerator endArray() {
+        return end(']');
+    }
+
+    // ---
+
+    /**
+     * Writes a field name. Must be followed by a value.
+     */
+    public JSONGenerator name(String name) {
+        separate();
+        write(JSONObject.quote(name));
+        write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a value: a string, number, boolean, <code>null</code>, <code>JSONObject</code>, <code>JSONArray</code>,
+     * or a {@link JSONEnabled}. Any other object is written as its quoted <code>toString()</code> representation.
+     */
+    public JSONGenerator value(Object value) {
+        try {
+            if (value instanceof JSONEnabled) {
+                ((JSONEnabled) value).writeJSON(this);
+                return this;
+            }
+            separate();
+            if (value == null || value == JSONObject.NULL) {
+                write("null");
+            } else if (value instanceof String) {
+                write(JSONObject.quote((String) value));
+            } else if (value instanceof Number) {
+                write(JSONObject.numberToString((Number) value));
+            } else if (value instanceof Boolean) {
+                write(value.toString());
+            } else if (value instanceof JSONObject) {
+                ((JSONObject) value).write(writer);
+            } else if (value instanceof JSONArray) {
+                ((JSONArray) value).write(writer);
+            } else {
+                write(JSONObject.quote(value.toString()));
+            }
+            return this;
+        } catch (Exception e) {
+            throw new RuntimeException("Writing JSON value failed", e);
+        }
+    }
+
+    /**
+     * Writes a field. If the value is <code>null</code> nothing is written.
+     */
+    public JSONGenerator field(String name, Object value) {
+        if (value != null) {
+            name(name);
+            value(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes all fields of the given JSON object into the current object.
+     */
+    public JSONGenerator fields(JSONObject object) {
+        try {
+            Iterator<String> i = object.keys();
+            while (i.hasNext()) {
+                String name = i.next();
+                field(name, object.get(name));
+            }
+            return this;
+        } catch (Exception e) {
+            throw new RuntimeException("Writing JSON fields failed", e);
+        }
+    }
+
+    /**
+     * Writes the given items as an array.
+     */
+    public JSONGenerator array(Iterable<? extends JSONEnabled> items) {
+        beginArray();
+        for (JSONEnabled item : items) {
+            value(item);
+        }
+        return endArray();
+    }
+
+    // ---
+
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Flushing JSON writer failed", e);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private JSONGenerator begin(char c) {
+        separate();
+        write(c);
+        if (++depth == hasElements.length) {
+            hasElements = Arrays.copyOf(hasElements, 2 * depth);
+        }
+        hasElements[depth] = false;
+        return this;
+    }
+
+    private JSONGenerator end(char c) {
+        if (depth == 0) {
+            throw new IllegalStateException("Unbalanced \"" + c + "\"");
+        }
+        depth--;
+        write(c);
+        return this;
+    }
+
+    /**
+     * Writes a comma if the current object/array already has an element.
+     */
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasElements[depth]) {
+            write(',');
+        }
+        hasElements[depth] = true;
+    }
+
+    private void write(String s) {
+        try {
+            writer.write(s);
+        } catch (IOException e) {
+            throw new RuntimeException("Writing JSON failed", e);
+        }
+    }
+
+    private void write(char c) {
+        try {
+            writer.write(c);
+        } catch (IOException e) {
+            throw new RuntimeException("Writing JSON failed", e);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package systems.dmx.storage.memory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+
+/**
+ * An in-memory exact index: per key a hash map from indexed value to node IDs.
+ * <p>
+ * Like a Neo4j exact index a node has at most one value per key here; adding a value replaces the previous one.
+ * Numbers are indexed as such (see {@link MemoryStorage}), everything else by its string representation.
+ * <p>
+ * Not thread-safe.
+ */
+class ExactIndex {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private Map<String, Map<Object, LongHashSet>> index = new HashMap();    // key -> indexed value -> node IDs
+    private LongHashMap<Map<String, Object>> entries = new LongHashMap();   // node ID -> key -> indexed value
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * @return  the value previously indexed for the node under the key, or <code>null</code>.
+     */
+    Object add(long id, String key, Object value) {
+        Object old = remove(id, key);
+        Map<Object, LongHashSet> values = index.get(key);
+        if (values == null) {
+            values = new HashMap();
+            index.put(key, values);
+        }
+        LongHashSet ids = values.get(value);
+        if (ids == null) {
+            ids = new LongHashSet();
+            values.put(value, ids);
+        }
+        ids.add(id);
+        //
+        Map<String, Object> nodeEntries = entries.get(id);
+        if (nodeEntries == null) {
+            nodeEntries = new HashMap();
+            entries.put(id, nodeEntries);
+        }
+        nodeEntries.put(key, value);
+        return old;
+    }
+
+    /**
+     * @return  the removed value, or <code>null</code> if nothing was indexed for the node under the key.
+     */
+    Object remove(long id, String key) {
+        Map<String, Object> nodeEntries = entries.get(id);
+        if (nodeEntries == null) {
+            return null;
+        }
+        Object value = nodeEntries.remove(key);
+        if (value == null) {
+            return null;
+        }
+        if (nodeEntries.isEmpty()) {
+            entries.remove(id);
+        }
+        Map<Object, LongHashSet> values = index.get(key);
+        LongHashSet ids = values.get(value);
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            values.remove(value);
+        }
+        return value;
+    }
+
+    /**
+     * @return  the removed entries (key -> value), possibly empty.
+     */
+    Map<String, Object> removeAll(long id) {
+        Map<String, Object> nodeEntries = entries.get(id);
+        if (nodeEntries == null) {
+            return new HashMap();
+        }
+        nodeEntries = new HashMap(nodeEntries);
+        for (String key : nodeEntries.keySet()) {
+            remove(id, key);
+        }
+        return nodeEntries;
+    }
+
+    // ---
+
+    /**
+     * @return  the IDs of the nodes indexed with exactly the given value, in ascending order.
+     */
+    long[] get(String key, Object value) {
+        LongHashSet ids = ids(key, value);
+        return ids != null ? ids.sortedKeys() : new long[0];
+    }
+
+    /**
+     * @return  the IDs of the nodes indexed with both values, in ascending order. The cost scales with the smaller
+     *          of the two posting lists.
+     */
+    long[] get(String key1, Object value1, String key2, Object value2) {
+        LongHashSet ids1 = ids(key1, value1);
+        LongHashSet ids2 = ids(key2, value2);
+        if (ids1 == null || ids2 == null) {
+            return new long[0];
+        }
+        if (ids1.size() > ids2.size()) {
+            LongHashSet ids = ids1;
+            ids1 = ids2;
+            ids2 = ids;
+        }
+        LongHashSet result = new LongHashSet();
+        for (long id : ids1.sortedKeys()) {
+            if (ids2.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result.sortedKeys();
+    }
+
+    int count(String key, Object value) {
+        LongHashSet ids = ids(key, value);
+        return ids != null ? ids.size() : 0;
+    }
+
+    /**
+     * Matches the string values indexed under the key against a query. Like a Lucene query on a keyword-analyzed
+     * field the query consists of terms which are combined by OR. Every term is matched against the whole value.
+     * A term may contain the wildcards <code>*</code> and <code>?</code>. Whitespace and wildcards are taken
+     * literally if escaped by a backslash, or within a phrase (<code>"..."</code>).
+     */
+    long[] query(String key, String query) {
+        checkKey(key);
+        LongHashSet result = new LongHashSet();
+        Map<Object, LongHashSet> values = index.get(key);
+        if (values == null) {
+            return new long[0];
+        }
+        for (Object term : parseTerms(query)) {
+            if (term instanceof String) {
+                LongHashSet ids = values.get(term);
+                if (ids != null) {
+                    addAll(result, ids);
+                }
+            } else {
+                Pattern regex = (Pattern) term;
+                for (Map.Entry<Object, LongHashSet> entry : values.entrySet()) {
+                    if (entry.getKey() instanceof String && regex.matcher((String) entry.getKey()).matches()) {
+                        addAll(result, entry.getValue());
+                    }
+                }
+            }
+        }
+        return result.sortedKeys();
+    }
+
+    /**
+     * Finds the numbers indexed under the key within the given range (inclusive). Like a Lucene numeric range query
+     * only numbers of the same class as the bounds are regarded.
+     *
+     * @param   from    the lower bound, or <code>null</code> for no lower bound.
+     * @param   to      the upper bound, or <code>null</code> for no upper bound.
+     */
+    long[] range(String key, Number from, Number to) {
+        Class numberClass = (from != null ? from : to).getClass();
+        LongHashSet result = new LongHashSet();
+        Map<Object, LongHashSet> values = index.get(key);
+        if (values != null) {
+            for (Map.Entry<Object, LongHashSet> entry : values.entrySet()) {
+                Object value = entry.getKey();
+                if (value.getClass() == numberClass) {
+                    double v = ((Number) value).doubleValue();
+                    if ((from == null || v >= from.doubleValue()) && (to == null || v <= to.doubleValue())) {
+                        addAll(result, entry.getValue());
+                    }
+                }
+            }
+        }
+        return result.sortedKeys();
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    /**
+     * Splits a query into terms. A term without (unescaped) wildcards is returned as literal String, a term with
+     * wildcards as Pattern.
+     */
+    private List<Object> parseTerms(String query) {
+        List<Object> terms = new ArrayList();
+        StringBuilder literal = new StringBuilder();
+        StringBuilder regex = new StringBuilder();
+        boolean wildcard = false;
+        boolean inPhrase = false;
+        int n = query.length();
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? query.charAt(i) : ' ';
+            if (i == n || !inPhrase && Character.isWhitespace(c)) {
+                if (literal.length() > 0 || wildcard) {
+                    terms.add(wildcard ? Pattern.compile(regex.toString(), Pattern.DOTALL) : literal.toString());
+                }
+                literal.setLength(0);
+                regex.setLength(0);
+                wildcard = false;
+            } else if (c == '"') {
+                inPhrase = !inPhrase;
+            } else if (!inPhrase && (c == '*' || c == '?')) {
+                regex.append(c == '*' ? ".*" : ".");
+                wildcard = true;
+            } else {
+                if (c == '\\' && !inPhrase && i + 1 < n) {
+                    c = query.charAt(++i);
+                }
+                literal.append(c);
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return terms;
+    }
+
+    private LongHashSet ids(String key, Object value) {
+        checkKey(key);
+        Map<Object, LongHashSet> values = index.get(key);
+        return values != null ? values.get(value) : null;
+    }
+
+    private void checkKey(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Index key is null");
+        }
+    }
+
+    private void addAll(LongHashSet result, LongHashSet ids) {
+        for (long id : ids.sortedKeys()) {
+            result.add(id);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package systems.dmx.storage.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+
+/**
+ * An in-memory fulltext index: per key an inverted index from token to node IDs.
+ * <p>
+ * Text is analyzed like by the whitespace analyzer of a Neo4j "fulltext" index: it is lower-cased and split at
+ * whitespace. Markup and punctuation remain part of the tokens.
+ * <p>
+ * The supported query syntax is a subset of Lucene's: terms, wildcards (<code>*</code>, <code>?</code>),
+ * phrases (<code>"..."</code>), backslash escaping, field prefixes (<code>key:term</code>), the operators <code>AND</code>,
+ * <code>OR</code>, <code>NOT</code>, and the prefixes <code>+</code> and <code>-</code>. The default operator is OR.
+ * Grouping by parentheses is not supported.
+ * <p>
+ * Not thread-safe.
+ */
+class FulltextIndex {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private Map<String, Map<String, LongHashSet>> index = new HashMap();    // key -> token -> node IDs
+    private LongHashMap<Map<String, String>> entries = new LongHashMap();   // node ID -> key -> indexed text
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * @return  the text previously indexed for the node under the key, or <code>null</code>.
+     */
+    String add(long id, String key, String text) {
+        String old = remove(id, key);
+        Map<String, LongHashSet> tokens = index.get(key);
+        if (tokens == null) {
+            tokens = new HashMap();
+            index.put(key, tokens);
+        }
+        for (String token : tokenize(text)) {
+            LongHashSet ids = tokens.get(token);
+            if (ids == null) {
+                ids = new LongHashSet();
+                tokens.put(token, ids);
+            }
+            ids.add(id);
+        }
+        //
+        Map<String, String> nodeEntries = entries.get(id);
+        if (nodeEntries == null) {
+            nodeEntries = new HashMap();
+            entries.put(id, nodeEntries);
+        }
+        nodeEntries.put(key, text);
+        return old;
+    }
+
+    /**
+     * @return  the removed text, or <code>null</code> if nothing was indexed for the node under the key.
+     */
+    String remove(long id, String key) {
+        Map<String, String> nodeEntries = entries.get(id);
+        if (nodeEntries == null) {
+            return null;
+        }
+        String text = nodeEntries.remove(key);
+        if (text == null) {
+            return null;
+        }
+        if (nodeEntries.isEmpty()) {
+            entries.remove(id);
+        }
+        Map<String, LongHashSet> tokens = index.get(key);
+        for (String token : tokenize(text)) {
+            LongHashSet ids = tokens.get(token);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    tokens.remove(token);
+                }
+            }
+        }
+        return text;
+    }
+
+    /**
+     * @return  the removed entries (key -> text), possibly empty.
+     */
+    Map<String, String> removeAll(long id) {
+        Map<String, String> nodeEntries = entries.get(id);
+        if (nodeEntries == null) {
+            return new HashMap();
+        }
+        nodeEntries = new HashMap(nodeEntries);
+        for (String key : nodeEntries.keySet()) {
+            remove(id, key);
+        }
+        return nodeEntries;
+    }
+
+    // ---
+
+    /**
+     * @param   key     the key to search if a clause has no field prefix.
+     *
+     * @return  the IDs of the matching nodes, in ascending order.
+     */
+    long[] query(String key, String query) {
+        LongHashSet must = null;        // null if there is no MUST clause
+        LongHashSet should = new LongHashSet();
+        LongHashSet mustNot = new LongHashSet();
+        boolean hasPositive = false;
+        List<Clause> clauses = parse(query);
+        for (Clause clause : clauses) {
+            LongHashSet ids = search(clause.key != null ? clause.key : key, clause);
+            switch (clause.occur) {
+            case MUST:
+                must = must == null ? ids : intersect(must, ids);
+                hasPositive = true;
+                break;
+            case SHOULD:
+                addAll(should, ids);
+                hasPositive = true;
+                break;
+            case MUST_NOT:
+                addAll(mustNot, ids);
+                break;
+            }
+        }
+        if (!hasPositive) {
+            return new long[0];     // like Lucene a purely negative query matches nothing
+        }
+        LongHashSet result = must != null ? must : should;
+        List<Long> ids = new ArrayList();
+        for (long id : result.sortedKeys()) {
+            if (!mustNot.contains(id)) {
+                ids.add(id);
+            }
+        }
+        long[] r = new long[ids.size()];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = ids.get(i);
+        }
+        return r;
+    }
+
+    // ---
+
+    static Pattern wildcardPattern(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (String part : pattern.split("(?=[*?])|(?<=[*?])")) {
+            if (part.equals("*")) {
+                regex.append(".*");
+            } else if (part.equals("?")) {
+                regex.append('.');
+            } else if (!part.isEmpty()) {
+                regex.append(Pattern.quote(part));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private LongHashSet search(String key, Clause clause) {
+        LongHashSet result = new LongHashSet();
+        Map<String, LongHashSet> tokens = index.get(key);
+        if (tokens == null || clause.terms.isEmpty()) {
+            return result;
+        }
+        if (clause.terms.size() > 1) {
+            return searchPhrase(key, tokens, clause.terms);
+        }
+        String term = clause.terms.get(0);
+        if (term.indexOf('*') == -1 && term.indexOf('?') == -1) {
+            LongHashSet ids = tokens.get(term);
+            if (ids != null) {
+                addAll(result, ids);
+            }
+        } else {
+            Pattern regex = wildcardPattern(term);
+            for (Map.Entry<String, LongHashSet> entry : tokens.entrySet()) {
+                if (regex.matcher(entry.getKey()).matches()) {
+                    addAll(result, entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Candidates must contain all the phrase's terms. The order is verified against the indexed text.
+     * Within phrases wildcards are taken literally.
+     */
+    private LongHashSet searchPhrase(String key, Map<String, LongHashSet> tokens, List<String> terms) {
+        LongHashSet candidates = null;
+        for (String term : terms) {
+            LongHashSet ids = tokens.get(term);
+            if (ids == null) {
+                return new LongHashSet();
+            }
+            candidates = candidates == null ? copy(ids) : intersect(candidates, ids);
+        }
+        LongHashSet result = new LongHashSet();
+        for (long id : candidates.sortedKeys()) {
+            List<String> text = Arrays.asList(tokenize(entries.get(id).get(key)));
+            if (indexOfSequence(text, terms) != -1) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private int indexOfSequence(List<String> text, List<String> terms) {
+        for (int i = 0; i + terms.size() <= text.size(); i++) {
+            if (text.subList(i, i + terms.size()).equals(terms)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // --- Query Parsing ---
+
+    private enum Occur {
+        MUST, SHOULD, MUST_NOT
+    }
+
+    private static class Clause {
+        private String key;             // null if the clause has no field prefix
+        private List<String> terms;     // one term, or the terms of a phrase
+        private Occur occur = Occur.SHOULD;
+    }
+
+    private List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList();
+        boolean and = false;            // true if the previous token was "AND"
+        boolean not = false;            // true if the previous token was "NOT"
+        int i = 0;
+        int n = query.length();
+        while (i < n) {
+            if (Character.isWhitespace(query.charAt(i))) {
+                i++;
+                continue;
+            }
+            // read one token; a phrase may contain whitespace
+            int start = i;
+            boolean inPhrase = false;
+            while (i < n && (inPhrase || !Character.isWhitespace(query.charAt(i)))) {
+                char c = query.charAt(i);
+                if (c == '\\') {
+                    i++;                // an escaped character (e.g. whitespace) is part of the token
+                } else if (c == '"') {
+                    inPhrase = !inPhrase;
+                }
+                i++;
+            }
+            String token = query.substring(start, Math.min(i, n));
+            if (token.equals("AND") || token.equals("&&")) {
+                and = true;
+                if (!clauses.isEmpty() && clauses.get(clauses.size() - 1).occur == Occur.SHOULD) {
+                    clauses.get(clauses.size() - 1).occur = Occur.MUST;
+                }
+                continue;
+            } else if (token.equals("OR") || token.equals("||")) {
+                continue;
+            } else if (token.equals("NOT") || token.equals("!")) {
+                not = true;
+                continue;
+            }
+            Clause clause = new Clause();
+            if (token.startsWith("+")) {
+                clause.occur = Occur.MUST;
+                token = token.substring(1);
+            } else if (token.startsWith("-")) {
+                clause.occur = Occur.MUST_NOT;
+                token = token.substring(1);
+            } else if (not) {
+                clause.occur = Occur.MUST_NOT;
+            } else if (and) {
+                clause.occur = Occur.MUST;
+            }
+            and = false;
+            not = false;
+            // field prefix
+            int colon = token.indexOf(':');
+            if (colon > 0 && !token.startsWith("\"")) {
+                clause.key = token.substring(0, colon);
+                token = token.substring(colon + 1);
+            }
+            if (token.startsWith("\"")) {
+                clause.terms = Arrays.asList(tokenize(unescape(token.replace("\"", ""))));
+            } else {
+                // Note: a term containing escaped whitespace is analyzed into a phrase
+                clause.terms = Arrays.asList(tokenize(unescape(token)));
+            }
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    // --- Helper ---
+
+    static String unescape(String text) {
+        return text.replaceAll("\\\\(.)", "$1");
+    }
+
+    private static String[] tokenize(String text) {
+        String t = text.toLowerCase(Locale.ROOT).trim();
+        return t.isEmpty() ? new String[0] : t.split("\\s+");
+    }
+
+    private static LongHashSet intersect(LongHashSet ids1, LongHashSet ids2) {
+        LongHashSet result = new LongHashSet();
+        for (long id : ids1.sortedKeys()) {
+            if (ids2.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static LongHashSet copy(LongHashSet ids) {
+        LongHashSet result = new LongHashSet();
+        addAll(result, ids);
+        return result;
+    }
+
+    private static void addAll(LongHashSet result, LongHashSet ids) {
+        for (long id : ids.sortedKeys()) {
+            result.add(id);
+        }
+    }
+}
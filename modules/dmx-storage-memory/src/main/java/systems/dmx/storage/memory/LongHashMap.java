@@ -0,0 +1,151 @@
+package systems.dmx.storage.memory;
+
+import java.util.Arrays;
+
+
+
+/**
+ * A hash map with primitive <code>long</code> keys. Keys are not boxed, there is no entry object per mapping.
+ * <p>
+ * Open addressing with linear probing. Removal shifts subsequent entries back, so no tombstones accumulate.
+ * <code>null</code> values are not supported.
+ * <p>
+ * Not thread-safe.
+ */
+class LongHashMap<V> {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    private static final int INITIAL_CAPACITY = 16;     // must be a power of 2
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];     // a null value marks a free slot
+    private int size = 0;
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    V get(long key) {
+        int i = indexOf(key);
+        return i != -1 ? (V) values[i] : null;
+    }
+
+    boolean containsKey(long key) {
+        return indexOf(key) != -1;
+    }
+
+    /**
+     * @return  the previous value, or <code>null</code> if there was no mapping for the key.
+     */
+    V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported (key=" + key + ")");
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * 3 / 4) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return  the removed value, or <code>null</code> if there was no mapping for the key.
+     */
+    V remove(long key) {
+        int i = indexOf(key);
+        if (i == -1) {
+            return null;
+        }
+        V old = (V) values[i];
+        shiftBack(i);
+        size--;
+        return old;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return  the keys in ascending order.
+     */
+    long[] sortedKeys() {
+        long[] k = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                k[n++] = keys[i];
+            }
+        }
+        Arrays.sort(k);
+        return k;
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Frees slot <code>i</code> and moves back the entries of the following probe sequence that would otherwise
+     * become unreachable.
+     */
+    private void shiftBack(int i) {
+        int mask = keys.length - 1;
+        int free = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int home = hash(keys[j]) & mask;
+            // move entry j to the free slot unless its home lies cyclically within (free, j]
+            if (free <= j ? (home <= free || home > j) : (home <= free && home > j)) {
+                keys[free] = keys[j];
+                values[free] = values[j];
+                free = j;
+            }
+        }
+        values[free] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
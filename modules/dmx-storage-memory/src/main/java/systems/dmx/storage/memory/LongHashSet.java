@@ -0,0 +1,127 @@
+package systems.dmx.storage.memory;
+
+import java.util.Arrays;
+
+
+
+/**
+ * A hash set of primitive <code>long</code> values. Same layout as {@link LongHashMap}, without the values.
+ * <p>
+ * Not thread-safe.
+ */
+class LongHashSet {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    private static final int INITIAL_CAPACITY = 4;      // must be a power of 2; most sets are small
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private boolean[] used = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    boolean contains(long key) {
+        return indexOf(key) != -1;
+    }
+
+    /**
+     * @return  <code>true</code> if the key was not yet contained.
+     */
+    boolean add(long key) {
+        int mask = keys.length - 1;
+        int i = LongHashMap.hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        used[i] = true;
+        if (++size > keys.length * 3 / 4) {
+            resize(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @return  <code>true</code> if the key was contained.
+     */
+    boolean remove(long key) {
+        int i = indexOf(key);
+        if (i == -1) {
+            return false;
+        }
+        // shift back the following entries of the probe sequence, see LongHashMap
+        int mask = keys.length - 1;
+        int free = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j]) {
+                break;
+            }
+            int home = LongHashMap.hash(keys[j]) & mask;
+            if (free <= j ? (home <= free || home > j) : (home <= free && home > j)) {
+                keys[free] = keys[j];
+                free = j;
+            }
+        }
+        used[free] = false;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return  the keys in ascending order.
+     */
+    long[] sortedKeys() {
+        long[] k = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                k[n++] = keys[i];
+            }
+        }
+        Arrays.sort(k);
+        return k;
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = LongHashMap.hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                add(oldKeys[i]);
+            }
+        }
+    }
+}
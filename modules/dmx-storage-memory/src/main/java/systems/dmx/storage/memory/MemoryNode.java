@@ -0,0 +1,48 @@
+package systems.dmx.storage.memory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+
+/**
+ * A topic or an association as stored by the {@link MemoryStorage}.
+ * <p>
+ * Like a Neo4j node the URI, the type URI, and the value are stored as properties, along with the application's
+ * properties.
+ */
+class MemoryNode {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    final long id;
+    final NodeType nodeType;
+
+    final Map<String, Object> properties = new HashMap();
+
+    /**
+     * The associations this node is a player of (the "incoming relationships").
+     */
+    final LongHashSet assocIds = new LongHashSet();
+
+    // Association nodes only: the 2 players. Index 0 is player 1, index 1 is player 2.
+    final long[] playerIds;
+    final String[] roleTypeUris;
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    MemoryNode(long id, NodeType nodeType) {
+        this.id = id;
+        this.nodeType = nodeType;
+        boolean isAssoc = nodeType == NodeType.ASSOC;
+        this.playerIds = isAssoc ? new long[2] : null;
+        this.roleTypeUris = isAssoc ? new String[2] : null;
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    @Override
+    public String toString() {
+        return "node " + id + " (" + nodeType + ", " + properties + ")";
+    }
+}
@@ -0,0 +1,1210 @@
+package systems.dmx.storage.memory;
+
+import static systems.dmx.core.Constants.*;
+import systems.dmx.core.impl.AssocModelImpl;
+import systems.dmx.core.impl.DMXObjectModelImpl;
+import systems.dmx.core.impl.ModelFactoryImpl;
+import systems.dmx.core.impl.RelatedAssocModelImpl;
+import systems.dmx.core.impl.RelatedTopicModelImpl;
+import systems.dmx.core.impl.TopicModelImpl;
+import systems.dmx.core.model.AssocPlayerModel;
+import systems.dmx.core.model.DMXObjectModel;
+import systems.dmx.core.model.PlayerModel;
+import systems.dmx.core.model.RelatedObjectModel;
+import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.model.TopicPlayerModel;
+import systems.dmx.core.storage.spi.DMXStorage;
+import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.core.storage.spi.ObjectMeta;
+import systems.dmx.core.util.JavaUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+
+
+/**
+ * A DMX storage which holds all data in memory. Nothing is persisted.
+ * <p>
+ * Nodes are kept in a map with primitive <code>long</code> keys. Every node knows the associations it is a player
+ * of, so traversal walks these directly. Exact and fulltext values are indexed in hash-based and inverted indexes
+ * which mirror the semantics of the Neo4j storage's Lucene indexes (see {@link ExactIndex}, {@link FulltextIndex}).
+ * <p>
+ * Transactions: writes require a transaction. Rollback is supported (see {@link MemoryTransaction}). Write
+ * transactions are serialized: a transaction acquires the storage's write lock with its first write and holds it
+ * until it is finished. Reads are not isolated: a reader sees the changes of a running transaction.
+ * <p>
+ * Intended for tests, small installations, and as a zero-I/O baseline to measure core overhead against.
+ */
+class MemoryStorage implements DMXStorage {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    // --- Node Property Keys ---
+    private static final String KEY_VALUE    = "value";
+
+    // --- Content Index Keys ---
+    private static final String KEY_URI      = "uri";                       // used as property key as well
+    private static final String KEY_TPYE_URI = "typeUri";                   // used as property key as well
+    private static final String KEY_FULLTEXT = "fulltext";
+
+    private static final long ROOT_NODE_ID = 0;
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private LongHashMap<MemoryNode> nodes = new LongHashMap();
+    private long nextId = ROOT_NODE_ID + 1;
+
+    private ExactIndex topicIndex = new ExactIndex();                   // topic URI, type URI, value, properties
+    private FulltextIndex topicFulltextIndex = new FulltextIndex();     // topic value
+    private ExactIndex assocIndex = new ExactIndex();                   // assoc URI, type URI, value, properties
+    private FulltextIndex assocFulltextIndex = new FulltextIndex();     // assoc value
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();  // guards the data structures
+    private final ReentrantLock txLock = new ReentrantLock();                  // serializes write transactions
+    private final ThreadLocal<MemoryTransaction> currentTx = new ThreadLocal();
+
+    private ModelFactoryImpl mf;
+
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    MemoryStorage(ModelFactoryImpl mf) {
+        this.mf = mf;
+        logger.info("Using in-memory storage -- nothing will be persisted");
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+
+
+    // ******************
+    // *** DMXStorage ***
+    // ******************
+
+
+
+    // === Topics ===
+
+    @Override
+    public TopicModelImpl fetchTopic(long topicId) {
+        return read(() -> buildTopic(fetchTopicNode(topicId)));
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopics(String key, Object value) {
+        return read(() -> buildTopics(topicIndex.get(key, value.toString())));
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopics(String key, Object value, int offset, int limit) {
+        return read(() -> buildTopics(page(topicIndex.get(key, value.toString()), offset, limit)));
+    }
+
+    @Override
+    public int countTopics(String key, Object value) {
+        return read(() -> topicIndex.count(key, value.toString()));
+    }
+
+    @Override
+    public long[] fetchTopicIds(String key, Object value) {
+        return read(() -> topicIndex.get(key, value.toString()));
+    }
+
+    @Override
+    public List<TopicModelImpl> queryTopics(String key, Object value) {
+        return read(() -> buildTopics(topicIndex.query(key, value.toString())));
+    }
+
+    @Override
+    public List<TopicModelImpl> queryTopicsFulltext(String key, Object value) {
+        if (key == null) {
+            key = KEY_FULLTEXT;
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Tried to call queryTopicsFulltext() with a null value Object (key=\"" +
+                key + "\")");
+        }
+        //
+        String _key = key;
+        return read(() -> buildTopics(topicFulltextIndex.query(_key, value.toString())));
+    }
+
+    @Override
+    public Iterable<TopicModelImpl> fetchAllTopics() {
+        return new ModelIterable(NodeType.TOPIC);
+    }
+
+    // ---
+
+    @Override
+    public void storeTopic(TopicModelImpl topicModel) {
+        write(() -> {
+            setDefaults(topicModel);
+            //
+            MemoryNode topicNode = createNode(nextId++, NodeType.TOPIC);
+            storeAndIndexUri(topicNode, topicModel.getUri());
+            storeAndIndexTypeUri(topicNode, topicModel.getTypeUri());
+            //
+            topicModel.setId(topicNode.id);
+        });
+    }
+
+    @Override
+    public void storeTopicUri(long topicId, String uri) {
+        write(() -> storeAndIndexUri(fetchTopicNode(topicId), uri));
+    }
+
+    // Note: a storage implementation is not responsible for maintaining the "Instantiation" associations.
+    // This is performed at the application layer.
+    @Override
+    public void storeTopicTypeUri(long topicId, String topicTypeUri) {
+        write(() -> storeAndIndexTypeUri(fetchTopicNode(topicId), topicTypeUri));
+    }
+
+    @Override
+    public void storeTopicValue(long topicId, SimpleValue value, String indexKey, boolean isHtmlValue) {
+        if (indexKey == null) {
+            throw new IllegalArgumentException("indexKey must be not null (value=\"" + value + "\")");
+        }
+        write(() -> storeAndIndexValue(fetchTopicNode(topicId), value, indexKey, isHtmlValue));
+    }
+
+    // ---
+
+    @Override
+    public void deleteTopic(long topicId) {
+        write(() -> deleteNode(fetchTopicNode(topicId)));
+    }
+
+
+
+    // === Associations ===
+
+    @Override
+    public AssocModelImpl fetchAssoc(long assocId) {
+        return read(() -> buildAssoc(fetchAssocNode(assocId)));
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocs(String key, Object value) {
+        return read(() -> buildAssocs(assocIndex.get(key, value.toString())));
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocs(String key, Object value, int offset, int limit) {
+        return read(() -> buildAssocs(page(assocIndex.get(key, value.toString()), offset, limit)));
+    }
+
+    @Override
+    public int countAssocs(String key, Object value) {
+        return read(() -> assocIndex.count(key, value.toString()));
+    }
+
+    @Override
+    public long[] fetchAssocIds(String key, Object value) {
+        return read(() -> assocIndex.get(key, value.toString()));
+    }
+
+    @Override
+    public List<AssocModelImpl> queryAssocs(String key, Object value) {
+        return read(() -> buildAssocs(assocIndex.query(key, value.toString())));
+    }
+
+    @Override
+    public List<AssocModelImpl> queryAssocsFulltext(String key, Object value) {
+        if (key == null) {
+            key = KEY_FULLTEXT;
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Tried to call queryAssocsFulltext() with a null value Object (key=\"" +
+                key + "\")");
+        }
+        //
+        String _key = key;
+        return read(() -> buildAssocs(assocFulltextIndex.query(_key, value.toString())));
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocs(String assocTypeUri, long topicId1, long topicId2, String roleTypeUri1,
+                                                                                               String roleTypeUri2) {
+        return read(() -> traverseAssocs(assocTypeUri,
+            roleTypeUri1, NodeType.TOPIC, topicId1, null,
+            roleTypeUri2, NodeType.TOPIC, topicId2, null
+        ));
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocsBetweenTopicAndAssoc(String assocTypeUri, long topicId, long assocId,
+                                                                String topicRoleTypeUri, String assocRoleTypeUri) {
+        return read(() -> traverseAssocs(assocTypeUri,
+            topicRoleTypeUri, NodeType.TOPIC, topicId, null,
+            assocRoleTypeUri, NodeType.ASSOC, assocId, null
+        ));
+    }
+
+    @Override
+    public Iterable<AssocModelImpl> fetchAllAssocs() {
+        return new ModelIterable(NodeType.ASSOC);
+    }
+
+    @Override
+    public List<PlayerModel> fetchPlayerModels(long assocId) {
+        return read(() -> buildPlayerModels(fetchAssocNode(assocId)));
+    }
+
+    // ---
+
+    @Override
+    public void storeAssoc(AssocModelImpl assocModel) {
+        write(() -> {
+            setDefaults(assocModel);
+            //
+            MemoryNode assocNode = createNode(nextId++, NodeType.ASSOC);
+            storeAndIndexUri(assocNode, assocModel.getUri());
+            storeAndIndexTypeUri(assocNode, assocModel.getTypeUri());
+            //
+            PlayerModel player1 = assocModel.getPlayer1();
+            PlayerModel player2 = assocModel.getPlayer2();
+            storePlayer(assocNode, 0, fetchPlayerNode(player1), player1.getRoleTypeUri());
+            storePlayer(assocNode, 1, fetchPlayerNode(player2), player2.getRoleTypeUri());
+            //
+            assocModel.setId(assocNode.id);
+        });
+    }
+
+    @Override
+    public void storeAssocUri(long assocId, String uri) {
+        write(() -> storeAndIndexUri(fetchAssocNode(assocId), uri));
+    }
+
+    // Note: a storage implementation is not responsible for maintaining the "Instantiation" associations.
+    // This is performed at the application layer.
+    @Override
+    public void storeAssocTypeUri(long assocId, String assocTypeUri) {
+        write(() -> storeAndIndexTypeUri(fetchAssocNode(assocId), assocTypeUri));
+    }
+
+    @Override
+    public void storeAssocValue(long assocId, SimpleValue value, String indexKey, boolean isHtmlValue) {
+        if (indexKey == null) {
+            throw new IllegalArgumentException("indexKey must be not null (value=\"" + value + "\")");
+        }
+        write(() -> storeAndIndexValue(fetchAssocNode(assocId), value, indexKey, isHtmlValue));
+    }
+
+    @Override
+    public void storeRoleTypeUri(long assocId, long playerId, String roleTypeUri) {
+        write(() -> {
+            MemoryNode assocNode = fetchAssocNode(assocId);
+            int pos = playerPosition(assocNode, playerId);
+            String oldRoleTypeUri = assocNode.roleTypeUris[pos];
+            assocNode.roleTypeUris[pos] = roleTypeUri;
+            log(() -> assocNode.roleTypeUris[pos] = oldRoleTypeUri);
+        });
+    }
+
+    // ---
+
+    @Override
+    public void deleteAssoc(long assocId) {
+        write(() -> deleteNode(fetchAssocNode(assocId)));
+    }
+
+
+
+    // === Generic Object ===
+
+    @Override
+    public DMXObjectModelImpl fetchObject(long id) {
+        return read(() -> buildObject(fetchNode(id)));
+    }
+
+
+
+    // === Traversal ===
+
+    @Override
+    public List<AssocModelImpl> fetchTopicAssocs(long topicId) {
+        return read(() -> buildAssocs(fetchTopicNode(topicId).assocIds.sortedKeys()));
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocAssocs(long assocId) {
+        return read(() -> buildAssocs(fetchAssocNode(assocId).assocIds.sortedKeys()));
+    }
+
+    // ---
+
+    @Override
+    public List<RelatedTopicModelImpl> fetchTopicRelatedTopics(long topicId, String assocTypeUri, String myRoleTypeUri,
+                                                               String othersRoleTypeUri, String othersTopicTypeUri) {
+        return read(() -> buildRelatedTopics(traverseAssocs(assocTypeUri,
+            myRoleTypeUri,     NodeType.TOPIC, topicId, null,
+            othersRoleTypeUri, NodeType.TOPIC, -1,      othersTopicTypeUri
+        ), topicId));
+    }
+
+    @Override
+    public List<RelatedAssocModelImpl> fetchTopicRelatedAssocs(long topicId, String assocTypeUri, String myRoleTypeUri,
+                                                               String othersRoleTypeUri, String othersAssocTypeUri) {
+        return read(() -> buildRelatedAssocs(traverseAssocs(assocTypeUri,
+            myRoleTypeUri,     NodeType.TOPIC, topicId, null,
+            othersRoleTypeUri, NodeType.ASSOC, -1,      othersAssocTypeUri
+        ), topicId));
+    }
+
+    // ---
+
+    @Override
+    public List<RelatedTopicModelImpl> fetchAssocRelatedTopics(long assocId, String assocTypeUri, String myRoleTypeUri,
+                                                               String othersRoleTypeUri, String othersTopicTypeUri) {
+        return read(() -> buildRelatedTopics(traverseAssocs(assocTypeUri,
+            myRoleTypeUri,     NodeType.ASSOC, assocId, null,
+            othersRoleTypeUri, NodeType.TOPIC, -1,      othersTopicTypeUri
+        ), assocId));
+    }
+
+    @Override
+    public List<RelatedAssocModelImpl> fetchAssocRelatedAssocs(long assocId, String assocTypeUri, String myRoleTypeUri,
+                                                               String othersRoleTypeUri, String othersAssocTypeUri) {
+        return read(() -> buildRelatedAssocs(traverseAssocs(assocTypeUri,
+            myRoleTypeUri,     NodeType.ASSOC, assocId, null,
+            othersRoleTypeUri, NodeType.ASSOC, -1,      othersAssocTypeUri
+        ), assocId));
+    }
+
+    // ---
+
+    @Override
+    public <M extends RelatedObjectModel> List<M> fetchTopicRelatedObjects(
+                                                          long topicId, String assocTypeUri, String myRoleTypeUri,
+                                                          String othersRoleTypeUri, String othersTypeUri) {
+        return read(() -> buildRelatedObjects(traverseAssocs(assocTypeUri,
+            myRoleTypeUri,     NodeType.TOPIC, topicId, null,
+            othersRoleTypeUri, null,           -1,      othersTypeUri
+        ), topicId));
+    }
+
+    @Override
+    public <M extends RelatedObjectModel> List<M> fetchAssocRelatedObjects(
+                                                          long assocId, String assocTypeUri, String myRoleTypeUri,
+                                                          String othersRoleTypeUri, String othersTypeUri) {
+        return read(() -> buildRelatedObjects(traverseAssocs(assocTypeUri,
+            myRoleTypeUri,     NodeType.ASSOC, assocId, null,
+            othersRoleTypeUri, null,           -1,      othersTypeUri
+        ), assocId));
+    }
+
+    // ---
+
+    @Override
+    public List<RelatedTopicModelImpl> fetchRelatedTopics(long id, String assocTypeUri, String myRoleTypeUri,
+                                                          String othersRoleTypeUri, String othersTopicTypeUri) {
+        return read(() -> buildRelatedTopics(traverseAssocs(assocTypeUri,
+            myRoleTypeUri,     null,           id, null,
+            othersRoleTypeUri, NodeType.TOPIC, -1, othersTopicTypeUri
+        ), id));
+    }
+
+    @Override
+    public Map<Long, List<RelatedTopicModelImpl>> fetchRelatedTopics(long[] ids, String assocTypeUri,
+                                              String myRoleTypeUri, String othersRoleTypeUri, String othersTopicTypeUri) {
+        // Note: traversal is cheap here, so the batch is resolved object by object
+        return read(() -> {
+            Map<Long, List<RelatedTopicModelImpl>> relTopics = new HashMap();
+            for (long id : ids) {
+                List<RelatedTopicModelImpl> topics = buildRelatedTopics(traverseAssocs(assocTypeUri,
+                    myRoleTypeUri,     null,           id, null,
+                    othersRoleTypeUri, NodeType.TOPIC, -1, othersTopicTypeUri
+                ), id);
+                if (!topics.isEmpty()) {
+                    relTopics.put(id, topics);
+                }
+            }
+            return relTopics;
+        });
+    }
+
+    @Override
+    public List<RelatedAssocModelImpl> fetchRelatedAssocs(long id, String assocTypeUri, String myRoleTypeUri,
+                                                          String othersRoleTypeUri, String othersAssocTypeUri) {
+        return read(() -> buildRelatedAssocs(traverseAssocs(assocTypeUri,
+            myRoleTypeUri,     null,           id, null,
+            othersRoleTypeUri, NodeType.ASSOC, -1, othersAssocTypeUri
+        ), id));
+    }
+
+
+
+    // === Properties ===
+
+    @Override
+    public Object fetchProperty(long id, String propUri) {
+        return read(() -> {
+            Object value = fetchNode(id).properties.get(propUri);
+            if (value == null) {
+                throw new RuntimeException("Property \"" + propUri + "\" not found for node " + id);
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public boolean hasProperty(long id, String propUri) {
+        return read(() -> fetchNode(id).properties.containsKey(propUri));
+    }
+
+    @Override
+    public Map<Long, Map<String, Object>> fetchProperties(Collection<Long> ids, String... propUris) {
+        return read(() -> {
+            Map<Long, Map<String, Object>> properties = new HashMap();
+            for (long id : ids) {
+                MemoryNode node = fetchNode(id);
+                Map<String, Object> props = new HashMap();
+                for (String propUri : propUris) {
+                    Object value = node.properties.get(propUri);
+                    if (value != null) {
+                        props.put(propUri, value);
+                    }
+                }
+                properties.put(id, props);
+            }
+            return properties;
+        });
+    }
+
+    @Override
+    public ObjectMeta fetchObjectMeta(long id) {
+        return read(() -> {
+            MemoryNode node = fetchNode(id);
+            Long workspaceId = (Long) node.properties.get(ObjectMeta.PROP_WORKSPACE_ID);
+            return new ObjectMeta(
+                node.nodeType == NodeType.TOPIC,
+                typeUri(node),
+                workspaceId != null ? workspaceId : -1,
+                (String) node.properties.get(ObjectMeta.PROP_CREATOR)
+            );
+        });
+    }
+
+    // ---
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByProperty(String propUri, Object propValue) {
+        return read(() -> buildTopics(topicIndex.get(propUri, exactValue(propValue))));
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByProperty(String propUri, Object propValue, int offset, int limit) {
+        return read(() -> buildTopics(page(topicIndex.get(propUri, exactValue(propValue)), offset, limit)));
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri) {
+        return read(() -> buildTopics(topicIndex.get(propUri, exactValue(propValue), KEY_TPYE_URI, topicTypeUri)));
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByPropertyRange(String propUri, Number from, Number to) {
+        return read(() -> buildTopics(topicIndex.range(propUri, from, to)));
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocsByProperty(String propUri, Object propValue) {
+        return read(() -> buildAssocs(assocIndex.get(propUri, exactValue(propValue))));
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocsByPropertyAndType(String propUri, Object propValue, String assocTypeUri) {
+        return read(() -> buildAssocs(assocIndex.get(propUri, exactValue(propValue), KEY_TPYE_URI, assocTypeUri)));
+    }
+
+    @Override
+    public List<AssocModelImpl> fetchAssocsByPropertyRange(String propUri, Number from, Number to) {
+        return read(() -> buildAssocs(assocIndex.range(propUri, from, to)));
+    }
+
+    // ---
+
+    @Override
+    public void storeTopicProperty(long topicId, String propUri, Object propValue, boolean addToIndex) {
+        write(() -> storeAndIndexExactValue(fetchTopicNode(topicId), propUri, propValue, addToIndex));
+    }
+
+    @Override
+    public void storeAssocProperty(long assocId, String propUri, Object propValue, boolean addToIndex) {
+        write(() -> storeAndIndexExactValue(fetchAssocNode(assocId), propUri, propValue, addToIndex));
+    }
+
+    // ---
+
+    @Override
+    public void indexTopicProperty(long topicId, String propUri, Object propValue) {
+        write(() -> index(topicIndex, fetchTopicNode(topicId).id, propUri, exactValue(propValue)));
+    }
+
+    @Override
+    public void indexAssocProperty(long assocId, String propUri, Object propValue) {
+        write(() -> index(assocIndex, fetchAssocNode(assocId).id, propUri, exactValue(propValue)));
+    }
+
+    // ---
+
+    @Override
+    public void deleteTopicProperty(long topicId, String propUri) {
+        write(() -> deleteProperty(fetchTopicNode(topicId), propUri));
+    }
+
+    @Override
+    public void deleteAssocProperty(long assocId, String propUri) {
+        write(() -> deleteProperty(fetchAssocNode(assocId), propUri));
+    }
+
+
+
+    // === DB ===
+
+    @Override
+    public DMXTransaction beginTx() {
+        MemoryTransaction tx = currentTx.get();
+        if (tx != null) {
+            return new MemoryTransaction(this, tx);     // nested transaction
+        }
+        tx = new MemoryTransaction(this, null);
+        currentTx.set(tx);
+        return tx;
+    }
+
+    // Note: the in-memory indexes are updated in place at no extra cost, so there is nothing to defer
+
+    @Override
+    public void beginBulkLoad() {
+    }
+
+    @Override
+    public void endBulkLoad(boolean flush) {
+    }
+
+    @Override
+    public boolean setupRootNode() {
+        try {
+            if (read(() -> nodes.containsKey(ROOT_NODE_ID))) {
+                return false;
+            }
+            //
+            write(() -> {
+                MemoryNode rootNode = createNode(ROOT_NODE_ID, NodeType.TOPIC);
+                setProperty(rootNode, KEY_VALUE, "Meta Type");
+                storeAndIndexUri(rootNode, META_TYPE);
+                storeAndIndexTypeUri(rootNode, "dmx.core.meta_meta_type");
+            });
+            //
+            return true;
+        } catch (Exception e) {
+            throw new RuntimeException("Setting up the root node (0) failed", e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("Shutting down the in-memory storage -- " + nodes.size() + " nodes are discarded");
+    }
+
+    // ---
+
+    @Override
+    public Object getDatabaseVendorObject() {
+        return this;
+    }
+
+    @Override
+    public Object getDatabaseVendorObject(long objectId) {
+        return read(() -> fetchNode(objectId));
+    }
+
+    // ---
+
+    @Override
+    public ModelFactoryImpl getModelFactory() {
+        return mf;
+    }
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * Called by a top-level transaction when it is finished.
+     */
+    void finish(MemoryTransaction tx, boolean commit) {
+        try {
+            if (!commit) {
+                lock.writeLock().lock();
+                try {
+                    tx.rollback();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            currentTx.remove();
+            if (tx.writeLocked) {
+                txLock.unlock();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+
+
+    // === Locking ===
+
+    private <T> T read(Supplier<T> operation) {
+        lock.readLock().lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable operation) {
+        MemoryTransaction tx = currentTx.get();
+        if (tx == null) {
+            throw new RuntimeException("Writing to the in-memory storage requires a transaction");
+        }
+        tx = tx.topLevel();
+        if (!tx.writeLocked) {
+            txLock.lock();
+            tx.writeLocked = true;
+        }
+        lock.writeLock().lock();
+        try {
+            operation.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registers the inverse of a write operation in the current transaction's undo log.
+     */
+    private void log(Runnable undo) {
+        currentTx.get().log(undo);
+    }
+
+
+
+    // === Journaled Writes ===
+
+    private MemoryNode createNode(long id, NodeType nodeType) {
+        MemoryNode node = new MemoryNode(id, nodeType);
+        nodes.put(id, node);
+        log(() -> nodes.remove(id));
+        return node;
+    }
+
+    private void setProperty(MemoryNode node, String key, Object value) {
+        Object oldValue = node.properties.put(key, value);
+        log(() -> restore(node.properties, key, oldValue));
+    }
+
+    private void removeProperty(MemoryNode node, String key) {
+        Object oldValue = node.properties.remove(key);
+        if (oldValue != null) {
+            log(() -> node.properties.put(key, oldValue));
+        }
+    }
+
+    private void index(ExactIndex index, long id, String key, Object value) {
+        Object oldValue = index.add(id, key, value);
+        log(() -> {
+            if (oldValue != null) {
+                index.add(id, key, oldValue);
+            } else {
+                index.remove(id, key);
+            }
+        });
+    }
+
+    private void unindex(ExactIndex index, long id, String key) {
+        Object oldValue = index.remove(id, key);
+        if (oldValue != null) {
+            log(() -> index.add(id, key, oldValue));
+        }
+    }
+
+    private void index(FulltextIndex index, long id, String key, String text) {
+        String oldText = index.add(id, key, text);
+        log(() -> {
+            if (oldText != null) {
+                index.add(id, key, oldText);
+            } else {
+                index.remove(id, key);
+            }
+        });
+    }
+
+    private void storePlayer(MemoryNode assocNode, int pos, MemoryNode playerNode, String roleTypeUri) {
+        assocNode.playerIds[pos] = playerNode.id;
+        assocNode.roleTypeUris[pos] = roleTypeUri;
+        // Note: an association connecting a node with itself is registered at that node only once
+        if (playerNode.assocIds.add(assocNode.id)) {
+            log(() -> playerNode.assocIds.remove(assocNode.id));
+        }
+    }
+
+    /**
+     * Deletes a node along with its index entries and its player registrations.
+     * <p>
+     * Prerequisite: the node is not a player of any association. Like Neo4j refuses to delete a node which still
+     * has relationships.
+     */
+    private void deleteNode(MemoryNode node) {
+        long id = node.id;
+        if (!node.assocIds.isEmpty()) {
+            throw new RuntimeException("Node " + id + " can't be deleted -- it is still a player of " +
+                node.assocIds.size() + " associations");
+        }
+        ExactIndex exactIndex = exactIndex(node);
+        FulltextIndex fulltextIndex = fulltextIndex(node);
+        Map<String, Object> exactEntries = exactIndex.removeAll(id);
+        Map<String, String> fulltextEntries = fulltextIndex.removeAll(id);
+        List<MemoryNode> players = new ArrayList();
+        if (node.nodeType == NodeType.ASSOC) {
+            for (long playerId : node.playerIds) {
+                MemoryNode playerNode = nodes.get(playerId);
+                if (playerNode.assocIds.remove(id)) {
+                    players.add(playerNode);
+                }
+            }
+        }
+        nodes.remove(id);
+        currentTx.get().nodeDeleted(id);
+        //
+        log(() -> {
+            nodes.put(id, node);
+            for (Map.Entry<String, Object> entry : exactEntries.entrySet()) {
+                exactIndex.add(id, entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, String> entry : fulltextEntries.entrySet()) {
+                fulltextIndex.add(id, entry.getKey(), entry.getValue());
+            }
+            for (MemoryNode playerNode : players) {
+                playerNode.assocIds.add(id);
+            }
+        });
+    }
+
+    // ---
+
+    private void storeAndIndexUri(MemoryNode node, String uri) {
+        checkUriUniqueness(uri);
+        storeAndIndexExactValue(node, KEY_URI, uri, true);
+    }
+
+    private void storeAndIndexTypeUri(MemoryNode node, String typeUri) {
+        storeAndIndexExactValue(node, KEY_TPYE_URI, typeUri, true);
+    }
+
+    /**
+     * Used for URIs, type URIs, and properties.
+     * Note: for URIs and type URIs indexing is mandatory, for properties indexing is optional.
+     */
+    private void storeAndIndexExactValue(MemoryNode node, String key, Object value, boolean addToIndex) {
+        setProperty(node, key, value);
+        if (addToIndex) {
+            index(exactIndex(node), node.id, key, exactValue(value));
+        }
+    }
+
+    /**
+     * Stores a topic/assoc value and indexes it in the exact index (under the index key) as well as in the
+     * fulltext index (under both, the generic "fulltext" key and the index key).
+     */
+    private void storeAndIndexValue(MemoryNode node, SimpleValue value, String indexKey, boolean isHtmlValue) {
+        Object v = value.value();
+        setProperty(node, KEY_VALUE, v);
+        // Note: like in a Lucene index values are indexed by their string representation (also numbers/booleans)
+        index(exactIndex(node), node.id, indexKey, v.toString());
+        String text = isHtmlValue ? JavaUtils.stripHTML((String) v) : v.toString();
+        index(fulltextIndex(node), node.id, KEY_FULLTEXT, text);
+        index(fulltextIndex(node), node.id, indexKey, text);
+    }
+
+    private void deleteProperty(MemoryNode node, String propUri) {
+        removeProperty(node, propUri);
+        unindex(exactIndex(node), node.id, propUri);
+    }
+
+
+
+    // === Traversal ===
+
+    /**
+     * Finds the associations matching the given criteria by walking the associations player 1 is involved in.
+     * Any criterion may be <code>null</code> (or -1 for IDs), meaning "any". Player 1's ID is required.
+     * <p>
+     * The associations are returned in ID order.
+     */
+    private List<AssocModelImpl> traverseAssocs(String assocTypeUri,
+                                     String roleTypeUri1, NodeType playerType1, long playerId1, String playerTypeUri1,
+                                     String roleTypeUri2, NodeType playerType2, long playerId2, String playerTypeUri2) {
+        List<AssocModelImpl> assocs = new ArrayList();
+        MemoryNode playerNode = fetchNode(playerId1);
+        if (!matches(playerNode, playerType1, playerTypeUri1)) {
+            return assocs;
+        }
+        for (long assocId : playerNode.assocIds.sortedKeys()) {
+            MemoryNode assocNode = nodes.get(assocId);
+            if (assocTypeUri != null && !assocTypeUri.equals(typeUri(assocNode))) {
+                continue;
+            }
+            // Note: "my" player may be at either position
+            for (int pos = 0; pos < 2; pos++) {
+                if (matches(assocNode, pos, roleTypeUri1, playerId1,
+                                            roleTypeUri2, playerType2, playerId2, playerTypeUri2)) {
+                    assocs.add(buildAssoc(assocNode));
+                    break;
+                }
+            }
+        }
+        return assocs;
+    }
+
+    private boolean matches(MemoryNode assocNode, int pos, String roleTypeUri1, long playerId1,
+                            String roleTypeUri2, NodeType playerType2, long playerId2, String playerTypeUri2) {
+        int other = 1 - pos;
+        return assocNode.playerIds[pos] == playerId1 &&
+            (roleTypeUri1 == null || roleTypeUri1.equals(assocNode.roleTypeUris[pos])) &&
+            (roleTypeUri2 == null || roleTypeUri2.equals(assocNode.roleTypeUris[other])) &&
+            (playerId2 == -1 || assocNode.playerIds[other] == playerId2) &&
+            matches(nodes.get(assocNode.playerIds[other]), playerType2, playerTypeUri2);
+    }
+
+    private boolean matches(MemoryNode node, NodeType nodeType, String typeUri) {
+        return (nodeType == null || node.nodeType == nodeType) && (typeUri == null || typeUri.equals(typeUri(node)));
+    }
+
+    private int playerPosition(MemoryNode assocNode, long playerId) {
+        boolean match1 = assocNode.playerIds[0] == playerId;
+        boolean match2 = assocNode.playerIds[1] == playerId;
+        if (match1 && match2) {
+            throw new RuntimeException("Ambiguity: both players have ID " + playerId + " in association " +
+                assocNode.id);
+        } else if (match1) {
+            return 0;
+        } else if (match2) {
+            return 1;
+        } else {
+            throw new IllegalArgumentException("ID " + playerId + " is not a player in association " + assocNode.id);
+        }
+    }
+
+
+
+    // === Helper ===
+
+    // --- Memory -> DMX Bridge ---
+
+    private TopicModelImpl buildTopic(MemoryNode topicNode) {
+        try {
+            return mf.newTopicModel(
+                topicNode.id,
+                uri(topicNode),
+                typeUri(topicNode),
+                simpleValue(topicNode),
+                null    // childTopics=null
+            );
+        } catch (Exception e) {
+            throw new RuntimeException("Building a TopicModel failed, id=" + topicNode.id + ", typeUri=" +
+                typeUri(topicNode), e);
+        }
+    }
+
+    private List<TopicModelImpl> buildTopics(long[] topicIds) {
+        List<TopicModelImpl> topics = new ArrayList();
+        for (long topicId : topicIds) {
+            topics.add(buildTopic(nodes.get(topicId)));
+        }
+        return topics;
+    }
+
+    private AssocModelImpl buildAssoc(MemoryNode assocNode) {
+        try {
+            List<PlayerModel> playerModels = buildPlayerModels(assocNode);
+            return mf.newAssocModel(
+                assocNode.id,
+                uri(assocNode),
+                typeUri(assocNode),
+                playerModels.get(0), playerModels.get(1),
+                simpleValue(assocNode),
+                null    // childTopics=null
+            );
+        } catch (Exception e) {
+            throw new RuntimeException("Building an AssocModel failed, id=" + assocNode.id + ", typeUri=" +
+                typeUri(assocNode), e);
+        }
+    }
+
+    private List<AssocModelImpl> buildAssocs(long[] assocIds) {
+        List<AssocModelImpl> assocs = new ArrayList();
+        for (long assocId : assocIds) {
+            assocs.add(buildAssoc(nodes.get(assocId)));
+        }
+        return assocs;
+    }
+
+    private DMXObjectModelImpl buildObject(MemoryNode node) {
+        switch (node.nodeType) {
+        case TOPIC:
+            return buildTopic(node);
+        case ASSOC:
+            return buildAssoc(node);
+        default:
+            throw new RuntimeException("Unexpected node type: " + node.nodeType);
+        }
+    }
+
+    private List<PlayerModel> buildPlayerModels(MemoryNode assocNode) {
+        List<PlayerModel> playerModels = new ArrayList();
+        for (int pos = 0; pos < 2; pos++) {
+            MemoryNode playerNode = nodes.get(assocNode.playerIds[pos]);
+            playerModels.add(playerNode.nodeType.createPlayerModel(playerNode.id, assocNode.roleTypeUris[pos], mf));
+        }
+        return playerModels;
+    }
+
+    // ---
+
+    private <M extends RelatedObjectModel> List<M> buildRelatedObjects(List<AssocModelImpl> assocs, long playerId) {
+        if (!assocs.isEmpty()) {
+            NodeType nodeType = fetchNode(assocs.get(0).getOtherPlayerId(playerId)).nodeType;
+            switch (nodeType) {
+            case TOPIC:
+                return (List<M>) buildRelatedTopics(assocs, playerId);
+            case ASSOC:
+                return (List<M>) buildRelatedAssocs(assocs, playerId);
+            default:
+                throw new RuntimeException("Unexpected node type: " + nodeType);
+            }
+        } else {
+            return new ArrayList();
+        }
+    }
+
+    private List<RelatedTopicModelImpl> buildRelatedTopics(List<AssocModelImpl> assocs, long playerId) {
+        List<RelatedTopicModelImpl> relTopics = new ArrayList();
+        for (AssocModelImpl assoc : assocs) {
+            relTopics.add(mf.newRelatedTopicModel(
+                buildTopic(fetchTopicNode(assoc.getOtherPlayerId(playerId))),
+                assoc
+            ));
+        }
+        return relTopics;
+    }
+
+    private List<RelatedAssocModelImpl> buildRelatedAssocs(List<AssocModelImpl> assocs, long playerId) {
+        List<RelatedAssocModelImpl> relAssocs = new ArrayList();
+        for (AssocModelImpl assoc : assocs) {
+            relAssocs.add(mf.newRelatedAssocModel(
+                buildAssoc(fetchAssocNode(assoc.getOtherPlayerId(playerId))),
+                assoc
+            ));
+        }
+        return relAssocs;
+    }
+
+    // --- DMX -> Memory Bridge ---
+
+    private MemoryNode fetchPlayerNode(PlayerModel playerModel) {
+        if (playerModel instanceof TopicPlayerModel) {
+            TopicPlayerModel topicPlayer = (TopicPlayerModel) playerModel;
+            if (topicPlayer.topicIdentifiedByUri()) {
+                return fetchTopicNodeByUri(topicPlayer.getTopicUri());
+            } else {
+                return fetchTopicNode(playerModel.getId());
+            }
+        } else if (playerModel instanceof AssocPlayerModel) {
+            return fetchAssocNode(playerModel.getId());
+        } else {
+            throw new RuntimeException("Unexpected player model: " + playerModel);
+        }
+    }
+
+    // --- Node Access ---
+
+    private MemoryNode fetchTopicNode(long topicId) {
+        return checkNodeType(fetchNode(topicId), NodeType.TOPIC);
+    }
+
+    private MemoryNode fetchAssocNode(long assocId) {
+        return checkNodeType(fetchNode(assocId), NodeType.ASSOC);
+    }
+
+    /**
+     * Mimics Neo4j's exceptions. Note: the core relies on the "deleted in this tx" message.
+     */
+    private MemoryNode fetchNode(long id) {
+        MemoryNode node = nodes.get(id);
+        if (node == null) {
+            MemoryTransaction tx = currentTx.get();
+            if (tx != null && tx.isDeleted(id)) {
+                throw new IllegalStateException("Node[" + id + "] has been deleted in this tx");
+            }
+            throw new RuntimeException("Node[" + id + "] not found");
+        }
+        return node;
+    }
+
+    private MemoryNode fetchTopicNodeByUri(String uri) {
+        long[] ids = topicIndex.get(KEY_URI, uri);
+        if (ids.length == 0) {
+            throw new RuntimeException("Topic with URI \"" + uri + "\" not found in DB");
+        }
+        return checkNodeType(nodes.get(ids[0]), NodeType.TOPIC);
+    }
+
+    private MemoryNode checkNodeType(MemoryNode node, NodeType type) {
+        if (node.nodeType != type) {
+            throw new IllegalArgumentException(type.error(node.id));
+        }
+        return node;
+    }
+
+    // ---
+
+    private ExactIndex exactIndex(MemoryNode node) {
+        return node.nodeType == NodeType.TOPIC ? topicIndex : assocIndex;
+    }
+
+    private FulltextIndex fulltextIndex(MemoryNode node) {
+        return node.nodeType == NodeType.TOPIC ? topicFulltextIndex : assocFulltextIndex;
+    }
+
+    /**
+     * Numbers are indexed as such to allow range queries. Everything else is indexed by its string representation.
+     */
+    private Object exactValue(Object value) {
+        return value instanceof Number ? value : value.toString();
+    }
+
+    private long[] page(long[] ids, int offset, int limit) {
+        int from = Math.min(offset, ids.length);
+        return Arrays.copyOfRange(ids, from, (int) Math.min((long) from + limit, ids.length));
+    }
+
+    // ---
+
+    private String uri(MemoryNode node) {
+        return (String) node.properties.get(KEY_URI);
+    }
+
+    private String typeUri(MemoryNode node) {
+        return (String) node.properties.get(KEY_TPYE_URI);
+    }
+
+    private SimpleValue simpleValue(MemoryNode node) {
+        return new SimpleValue(node.properties.get(KEY_VALUE));
+    }
+
+    private void restore(Map<String, Object> properties, String key, Object oldValue) {
+        if (oldValue != null) {
+            properties.put(key, oldValue);
+        } else {
+            properties.remove(key);
+        }
+    }
+
+    // ---
+
+    // ### TODO: a principal copy exists in DMXObjectModel
+    private void setDefaults(DMXObjectModelImpl model) {
+        if (model.getUri() == null) {
+            model.setUri("");
+        }
+        if (model.getSimpleValue() == null) {
+            model.setSimpleValue("");
+        }
+    }
+
+    /**
+     * Checks if a topic or an association with the given URI exists in the DB, and
+     * throws an exception if so. If an empty URI ("") is given no check is performed.
+     *
+     * @param   uri     The URI to check. Must not be null.
+     */
+    private void checkUriUniqueness(String uri) {
+        if (uri.equals("")) {
+            return;
+        }
+        if (topicIndex.count(KEY_URI, uri) > 0 || assocIndex.count(KEY_URI, uri) > 0) {
+            throw new RuntimeException("URI \"" + uri + "\" is not unique");
+        }
+    }
+
+
+
+    // === Nested Classes ===
+
+    /**
+     * Iterates all topics or all associations. The IDs are captured when the iteration starts, the objects are
+     * built while iterating. Objects deleted meanwhile are skipped.
+     */
+    private class ModelIterable<M extends DMXObjectModel> implements Iterable<M> {
+
+        private NodeType nodeType;
+
+        private ModelIterable(NodeType nodeType) {
+            this.nodeType = nodeType;
+        }
+
+        @Override
+        public Iterator<M> iterator() {
+            long[] ids = read(() -> nodes.sortedKeys());
+            return new Iterator<M>() {
+
+                private int i = 0;
+                private M next = fetchNext();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public M next() {
+                    if (next == null) {
+                        throw new NoSuchElementException("next() called when there is no next node");
+                    }
+                    M model = next;
+                    next = fetchNext();
+                    return model;
+                }
+
+                private M fetchNext() {
+                    return read(() -> {
+                        while (i < ids.length) {
+                            MemoryNode node = nodes.get(ids[i++]);
+                            if (node != null && node.nodeType == nodeType) {
+                                return (M) buildObject(node);
+                            }
+                        }
+                        return null;
+                    });
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package systems.dmx.storage.memory;
+
+import systems.dmx.core.impl.ModelFactoryImpl;
+import systems.dmx.core.storage.spi.DMXStorage;
+import systems.dmx.core.storage.spi.DMXStorageFactory;
+
+
+
+/**
+ * A factory for obtaining a DMX storage which holds all data in memory.
+ * <p>
+ * Nothing is persisted. The database path is ignored.
+ */
+public class MemoryStorageFactory implements DMXStorageFactory {
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    @Override
+    public DMXStorage newDMXStorage(String databasePath, ModelFactoryImpl mf) {
+        return new MemoryStorage(mf);
+    }
+}
@@ -0,0 +1,101 @@
+package systems.dmx.storage.memory;
+
+import systems.dmx.core.storage.spi.DMXTransaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+/**
+ * A transaction of the {@link MemoryStorage}.
+ * <p>
+ * Every write registers its inverse operation in the undo log of the top-level transaction. Rollback replays the
+ * log backwards. Like in Neo4j a nested transaction which is finished without success marks the top-level
+ * transaction for rollback.
+ */
+class MemoryTransaction implements DMXTransaction {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private MemoryStorage storage;
+    private MemoryTransaction topLevel;     // this, for a top-level transaction
+
+    private boolean success = false;
+    private boolean failure = false;
+
+    // top-level transaction only
+    private List<Runnable> undoLog;
+    private LongHashSet deletedIds;         // IDs of the nodes deleted in this transaction
+    private boolean rollbackOnly = false;
+    boolean writeLocked = false;            // true once the storage's write lock is acquired
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    MemoryTransaction(MemoryStorage storage, MemoryTransaction topLevel) {
+        this.storage = storage;
+        if (topLevel != null) {
+            this.topLevel = topLevel;
+        } else {
+            this.topLevel = this;
+            this.undoLog = new ArrayList();
+            this.deletedIds = new LongHashSet();
+        }
+    }
+
+    // -------------------------------------------------------------------------------------------------- Public Methods
+
+    @Override
+    public void success() {
+        success = true;
+    }
+
+    @Override
+    public void failure() {
+        failure = true;
+    }
+
+    @Override
+    public void finish() {
+        if (!isTopLevel()) {
+            if (!success || failure) {
+                topLevel.rollbackOnly = true;
+            }
+            return;
+        }
+        boolean commit = success && !failure && !rollbackOnly;
+        storage.finish(this, commit);
+        if (success && !failure && rollbackOnly) {
+            throw new RuntimeException("Transaction was marked for rollback by a nested transaction, rolled back");
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    boolean isTopLevel() {
+        return topLevel == this;
+    }
+
+    MemoryTransaction topLevel() {
+        return topLevel;
+    }
+
+    void log(Runnable undo) {
+        topLevel.undoLog.add(undo);
+    }
+
+    void rollback() {
+        for (int i = undoLog.size() - 1; i >= 0; i--) {
+            undoLog.get(i).run();
+        }
+        undoLog.clear();
+    }
+
+    void nodeDeleted(long id) {
+        topLevel.deletedIds.add(id);
+    }
+
+    boolean isDeleted(long id) {
+        return topLevel.deletedIds.contains(id);
+    }
+}
@@ -0,0 +1,93 @@
+package systems.dmx.storage.neo4j;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.index.Index;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+
+
+/**
+ * The index bookkeeping of one thread's bulk load (see {@link Neo4jStorage#beginBulkLoad}).
+ * <p>
+ * Two savings:
+ * <ul>
+ * <li>Fulltext index updates are deferred until {@link #flush}. Repeated updates of the same node/key are coalesced
+ *     (last one wins). Exact index updates are not deferred as value integration relies on exact lookups.</li>
+ * <li>For nodes created during the bulk load there are no old index entries, so the "remove old" step is skipped
+ *     (for both, the exact and the fulltext index).</li>
+ * </ul>
+ */
+class BulkLoad {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    int depth = 1;
+
+    private Map<Long, Set<String>> createdNodes = new HashMap();                 // node ID -> exact index keys added
+    private Map<Long, FulltextEntries> fulltextEntries = new LinkedHashMap();   // node ID -> deferred entries
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    void nodeCreated(Node node) {
+        createdNodes.put(node.getId(), new HashSet());
+    }
+
+    void nodeDeleted(Node node) {
+        createdNodes.remove(node.getId());
+        fulltextEntries.remove(node.getId());
+    }
+
+    /**
+     * Registers an exact index entry about to be added.
+     *
+     * @return  true if an old entry for that node/key might exist and must be removed first.
+     */
+    boolean exactEntryAdded(Node node, String key) {
+        Set<String> keys = createdNodes.get(node.getId());
+        return keys == null || !keys.add(key);
+    }
+
+    void deferFulltextEntry(Node node, Index<Node> fulltextIndex, String key, Object value) {
+        FulltextEntries entries = fulltextEntries.get(node.getId());
+        if (entries == null) {
+            entries = new FulltextEntries(node, fulltextIndex);
+            fulltextEntries.put(node.getId(), entries);
+        }
+        entries.values.put(key, value);
+    }
+
+    /**
+     * Writes the deferred fulltext index entries.
+     */
+    void flush() {
+        for (FulltextEntries entries : fulltextEntries.values()) {
+            boolean created = createdNodes.containsKey(entries.node.getId());
+            for (Map.Entry<String, Object> entry : entries.values.entrySet()) {
+                if (!created) {
+                    entries.index.remove(entries.node, entry.getKey());     // remove old
+                }
+                entries.index.add(entries.node, entry.getKey(), entry.getValue());
+            }
+        }
+        fulltextEntries.clear();
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Classes
+
+    private static class FulltextEntries {
+
+        private Node node;
+        private Index<Node> index;
+        private Map<String, Object> values = new LinkedHashMap();     // index key -> value
+
+        private FulltextEntries(Node node, Index<Node> index) {
+            this.node = node;
+            this.index = index;
+        }
+    }
+}
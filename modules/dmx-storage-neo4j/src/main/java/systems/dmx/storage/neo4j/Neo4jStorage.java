@@ -14,6 +14,7 @@ import systems.dmx.core.model.SimpleValue;
 import systems.dmx.core.model.TopicPlayerModel;
 import systems.dmx.core.storage.spi.DMXStorage;
 import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.core.storage.spi.ObjectMeta;
 import systems.dmx.core.util.JavaUtils;
 
 import org.neo4j.graphdb.Direction;
@@ -36,8 +37,15 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 
@@ -64,6 +72,16 @@ public class Neo4jStorage implements DMXStorage {
     private static final String KEY_PLAYER_ID       = "playerId";           // "1" or "2" is appended programatically
     private static final String KEY_PLAYER_TYPE_URI = "playerTypeUri";      // "1" or "2" is appended programatically
 
+    private static final Comparator<Node> NODE_ID_ORDER = new Comparator<Node>() {
+        @Override
+        public int compare(Node n1, Node n2) {
+            return Long.compare(n1.getId(), n2.getId());
+        }
+    };
+
+    // Lucene limits a boolean query to 1024 clauses
+    private static final int MAX_BATCH_SIZE = 500;
+
     // Note: URIs, type URIs, and properties are only KEY indexed.
     // Topic/assoc values are indexed using all 3 modes.
 
@@ -71,6 +89,29 @@ public class Neo4jStorage implements DMXStorage {
         KEY, FULLTEXT, FULLTEXT_KEY;
     }
 
+    // --- Traversal ---
+
+    /**
+     * How associations are found when traversing from a player.
+     * <p>
+     * NATIVE walks the player node's relationships and checks roles and types in memory. For a player with more
+     * than {@link #MAX_TRAVERSAL_DEGREE} relationships (of the relevant role type) it falls back to INDEX.
+     * <p>
+     * INDEX queries the "assoc-metadata" Lucene index.
+     * <p>
+     * On committed data both find the same associations in the same order. Within a transaction the relationships
+     * reflect the transaction's own changes while the index lags behind. To keep the in-transaction semantics
+     * independent of the chosen traversal and of the player's degree, NATIVE is only used as long as the running
+     * transaction has not changed the association graph (see {@link TxState}).
+     */
+    enum Traversal {
+        NATIVE, INDEX;
+    }
+
+    private static final Traversal TRAVERSAL = Traversal.valueOf(
+        System.getProperty("dmx.storage.traversal", "native").toUpperCase());
+    private static final int MAX_TRAVERSAL_DEGREE = Integer.getInteger("dmx.storage.traversal.max_degree", 1000);
+
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
             GraphDatabaseService neo4j = null;
@@ -82,6 +123,9 @@ public class Neo4jStorage implements DMXStorage {
     private Index<Node> assocFulltextIndex;     // assoc value (index modes FULLTEXT or FULLTEXT_KEY)
     private Index<Node> assocPlayerIndex;
 
+    private ThreadLocal<BulkLoad> bulkLoad = new ThreadLocal();
+    private ThreadLocal<TxState> txState = new ThreadLocal();
+
     private ModelFactoryImpl mf;
 
     private final Logger logger = Logger.getLogger(getClass().getName());
@@ -131,6 +175,21 @@ public class Neo4jStorage implements DMXStorage {
         return buildTopics(topicIndex.get(key, value));
     }
 
+    @Override
+    public List<TopicModelImpl> fetchTopics(String key, Object value, int offset, int limit) {
+        return buildTopics(page(topicIndex.get(key, value), offset, limit));
+    }
+
+    @Override
+    public int countTopics(String key, Object value) {
+        return count(topicIndex.get(key, value));
+    }
+
+    @Override
+    public long[] fetchTopicIds(String key, Object value) {
+        return ids(topicIndex.get(key, value));
+    }
+
     @Override
     public List<TopicModelImpl> queryTopics(String key, Object value) {
         return buildTopics(topicIndex.query(key, value));
@@ -162,6 +221,7 @@ public class Neo4jStorage implements DMXStorage {
         //
         // 1) update DB
         Node topicNode = neo4j.createNode();
+        nodeCreated(topicNode);
         topicNode.setProperty(KEY_NODE_TYPE, "topic");
         //
         storeAndIndexTopicUri(topicNode, topicModel.getUri());
@@ -181,6 +241,7 @@ public class Neo4jStorage implements DMXStorage {
     @Override
     public void storeTopicTypeUri(long topicId, String topicTypeUri) {
         Node topicNode = fetchTopicNode(topicId);
+        graphChanged();
         //
         // 1) update DB and content index
         storeAndIndexTopicTypeUri(topicNode, topicTypeUri);
@@ -208,6 +269,7 @@ public class Neo4jStorage implements DMXStorage {
     public void deleteTopic(long topicId) {
         // 1) update DB
         Node topicNode = fetchTopicNode(topicId);
+        graphChanged();
         topicNode.delete();
         //
         // 2) update index
@@ -228,6 +290,21 @@ public class Neo4jStorage implements DMXStorage {
         return buildAssocs(assocIndex.get(key, value));
     }
 
+    @Override
+    public List<AssocModelImpl> fetchAssocs(String key, Object value, int offset, int limit) {
+        return buildAssocs(page(assocIndex.get(key, value), offset, limit));
+    }
+
+    @Override
+    public int countAssocs(String key, Object value) {
+        return count(assocIndex.get(key, value));
+    }
+
+    @Override
+    public long[] fetchAssocIds(String key, Object value) {
+        return ids(assocIndex.get(key, value));
+    }
+
     @Override
     public List<AssocModelImpl> queryAssocs(String key, Object value) {
         return buildAssocs(assocIndex.query(key, value));
@@ -282,6 +359,8 @@ public class Neo4jStorage implements DMXStorage {
         //
         // 1) update DB
         Node assocNode = neo4j.createNode();
+        nodeCreated(assocNode);
+        graphChanged();
         assocNode.setProperty(KEY_NODE_TYPE, "assoc");
         //
         storeAndIndexAssocUri(assocNode, assocModel.getUri());
@@ -309,6 +388,7 @@ public class Neo4jStorage implements DMXStorage {
     @Override
     public void storeAssocTypeUri(long assocId, String assocTypeUri) {
         Node assocNode = fetchAssocNode(assocId);
+        graphChanged();
         //
         // 1) update DB and content index
         storeAndIndexAssocTypeUri(assocNode, assocTypeUri);
@@ -334,6 +414,7 @@ public class Neo4jStorage implements DMXStorage {
     @Override
     public void storeRoleTypeUri(long assocId, long playerId, String roleTypeUri) {
         Node assocNode = fetchAssocNode(assocId);
+        graphChanged();
         //
         // 1) update DB
         fetchRelationship(assocNode, playerId).delete();                                        // delete relationship
@@ -349,6 +430,7 @@ public class Neo4jStorage implements DMXStorage {
     public void deleteAssoc(long assocId) {
         // 1) update DB
         Node assocNode = fetchAssocNode(assocId);
+        graphChanged();
         // delete the 2 player relationships
         for (Relationship rel : fetchRelationships(assocNode)) {
             rel.delete();
@@ -465,6 +547,31 @@ public class Neo4jStorage implements DMXStorage {
         ), id);
     }
 
+    @Override
+    public Map<Long, List<RelatedTopicModelImpl>> fetchRelatedTopics(long[] ids, String assocTypeUri,
+                                              String myRoleTypeUri, String othersRoleTypeUri, String othersTopicTypeUri) {
+        Map<Long, List<RelatedTopicModelImpl>> relTopics = new HashMap();
+        for (int from = 0; from < ids.length; from += MAX_BATCH_SIZE) {
+            long[] batch = Arrays.copyOfRange(ids, from, Math.min(from + MAX_BATCH_SIZE, ids.length));
+            Set<Long> batchIds = new HashSet();
+            for (long id : batch) {
+                batchIds.add(id);
+            }
+            List<AssocModelImpl> assocs = buildAssocs(assocPlayerIndex.query(buildAssocQuery(assocTypeUri,
+                myRoleTypeUri,     batch,
+                othersRoleTypeUri, NodeType.TOPIC, othersTopicTypeUri
+            )));
+            for (AssocModelImpl assoc : assocs) {
+                // Note: if both players are in the batch the assoc may relate 2 of them (e.g. a recursive composite)
+                addRelatedTopic(relTopics, batchIds, assoc, assoc.getPlayer1(), assoc.getPlayer2(), myRoleTypeUri,
+                    othersRoleTypeUri, othersTopicTypeUri);
+                addRelatedTopic(relTopics, batchIds, assoc, assoc.getPlayer2(), assoc.getPlayer1(), myRoleTypeUri,
+                    othersRoleTypeUri, othersTopicTypeUri);
+            }
+        }
+        return relTopics;
+    }
+
     @Override
     public List<RelatedAssocModelImpl> fetchRelatedAssocs(long id, String assocTypeUri, String myRoleTypeUri,
                                                           String othersRoleTypeUri, String othersAssocTypeUri) {
@@ -488,6 +595,35 @@ public class Neo4jStorage implements DMXStorage {
         return fetchNode(id).hasProperty(propUri);
     }
 
+    @Override
+    public Map<Long, Map<String, Object>> fetchProperties(Collection<Long> ids, String... propUris) {
+        Map<Long, Map<String, Object>> properties = new HashMap();
+        // Note: the embedded Neo4j API has no bulk node lookup. So there is one lookup per node.
+        for (long id : ids) {
+            Node node = fetchNode(id);
+            Map<String, Object> props = new HashMap();
+            for (String propUri : propUris) {
+                Object value = node.getProperty(propUri, null);
+                if (value != null) {
+                    props.put(propUri, value);
+                }
+            }
+            properties.put(id, props);
+        }
+        return properties;
+    }
+
+    @Override
+    public ObjectMeta fetchObjectMeta(long id) {
+        Node node = fetchNode(id);
+        return new ObjectMeta(
+            NodeType.of(node) == NodeType.TOPIC,
+            (String) node.getProperty(KEY_TPYE_URI),
+            (Long) node.getProperty(ObjectMeta.PROP_WORKSPACE_ID, -1L),
+            (String) node.getProperty(ObjectMeta.PROP_CREATOR, null)
+        );
+    }
+
     // ---
 
     @Override
@@ -495,6 +631,16 @@ public class Neo4jStorage implements DMXStorage {
         return buildTopics(queryIndexByProperty(topicIndex, propUri, propValue));
     }
 
+    @Override
+    public List<TopicModelImpl> fetchTopicsByProperty(String propUri, Object propValue, int offset, int limit) {
+        return buildTopics(page(queryIndexByProperty(topicIndex, propUri, propValue), offset, limit));
+    }
+
+    @Override
+    public List<TopicModelImpl> fetchTopicsByPropertyAndType(String propUri, Object propValue, String topicTypeUri) {
+        return buildTopics(queryIndexByPropertyAndType(topicIndex, propUri, propValue, topicTypeUri));
+    }
+
     @Override
     public List<TopicModelImpl> fetchTopicsByPropertyRange(String propUri, Number from, Number to) {
         return buildTopics(queryIndexByPropertyRange(topicIndex, propUri, from, to));
@@ -505,6 +651,11 @@ public class Neo4jStorage implements DMXStorage {
         return buildAssocs(queryIndexByProperty(assocIndex, propUri, propValue));
     }
 
+    @Override
+    public List<AssocModelImpl> fetchAssocsByPropertyAndType(String propUri, Object propValue, String assocTypeUri) {
+        return buildAssocs(queryIndexByPropertyAndType(assocIndex, propUri, propValue, assocTypeUri));
+    }
+
     @Override
     public List<AssocModelImpl> fetchAssocsByPropertyRange(String propUri, Number from, Number to) {
         return buildAssocs(queryIndexByPropertyRange(assocIndex, propUri, from, to));
@@ -558,7 +709,39 @@ public class Neo4jStorage implements DMXStorage {
 
     @Override
     public DMXTransaction beginTx() {
-        return new Neo4jTransactionAdapter(neo4j);
+        Neo4jTransactionAdapter tx = new Neo4jTransactionAdapter(neo4j, this);
+        TxState state = txState.get();
+        if (state != null) {
+            state.depth++;
+        } else {
+            txState.set(new TxState());
+        }
+        return tx;
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        BulkLoad bl = bulkLoad.get();
+        if (bl != null) {
+            bl.depth++;
+        } else {
+            bulkLoad.set(new BulkLoad());
+        }
+    }
+
+    @Override
+    public void endBulkLoad(boolean flush) {
+        BulkLoad bl = bulkLoad.get();
+        if (bl == null) {
+            throw new IllegalStateException("No bulk load in progress");
+        }
+        if (--bl.depth > 0) {
+            return;
+        }
+        bulkLoad.remove();
+        if (flush) {
+            bl.flush();
+        }
     }
 
     @Override
@@ -605,6 +788,44 @@ public class Neo4jStorage implements DMXStorage {
         return mf;
     }
 
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * Called by {@link Neo4jTransactionAdapter#finish}.
+     */
+    void txFinished() {
+        TxState state = txState.get();
+        if (state != null && --state.depth == 0) {
+            txState.remove();
+        }
+    }
+
+    // ---
+
+    /**
+     * Finds the associations matching the given criteria, using the given traversal.
+     * Player 1 is the one traversed from. The criteria have the same semantics as in {@link #buildAssocQuery}.
+     * <p>
+     * Package-private for the storage tests, which compare the traversals.
+     */
+    List<AssocModelImpl> queryAssocIndex(Traversal traversal, String assocTypeUri,
+                                     String roleTypeUri1, NodeType playerType1, long playerId1, String playerTypeUri1,
+                                     String roleTypeUri2, NodeType playerType2, long playerId2, String playerTypeUri2) {
+        if (traversal == Traversal.NATIVE && playerId1 != -1) {
+            List<AssocModelImpl> assocs = traverseAssocs(assocTypeUri,
+                roleTypeUri1, playerType1, playerId1, playerTypeUri1,
+                roleTypeUri2, playerType2, playerId2, playerTypeUri2
+            );
+            if (assocs != null) {
+                return assocs;
+            }
+        }
+        return buildAssocs(assocPlayerIndex.query(buildAssocQuery(assocTypeUri,
+            roleTypeUri1, playerType1, playerId1, playerTypeUri1,
+            roleTypeUri2, playerType2, playerId2, playerTypeUri2
+        )));
+    }
+
     // ------------------------------------------------------------------------------------------------- Private Methods
 
 
@@ -702,19 +923,33 @@ public class Neo4jStorage implements DMXStorage {
     private void indexNodeValue(Node node, Object value, IndexMode indexMode, String indexKey,
                                                          Index<Node> exactIndex, Index<Node> fulltextIndex) {
         if (indexMode == IndexMode.KEY) {
-            exactIndex.remove(node, indexKey);              // remove old
+            BulkLoad bl = bulkLoad.get();
+            if (bl == null || bl.exactEntryAdded(node, indexKey)) {
+                exactIndex.remove(node, indexKey);          // remove old
+            }
             exactIndex.add(node, indexKey, value);          // index new
         } else if (indexMode == IndexMode.FULLTEXT) {
-            fulltextIndex.remove(node, KEY_FULLTEXT);       // remove old
-            fulltextIndex.add(node, KEY_FULLTEXT, value);   // index new
+            indexFulltextValue(node, KEY_FULLTEXT, value, fulltextIndex);
         } else if (indexMode == IndexMode.FULLTEXT_KEY) {
-            fulltextIndex.remove(node, indexKey);           // remove old
-            fulltextIndex.add(node, indexKey, value);       // index new
+            indexFulltextValue(node, indexKey, value, fulltextIndex);
         } else {
             throw new RuntimeException("Unexpected index mode: \"" + indexMode + "\"");
         }
     }
 
+    /**
+     * Within a bulk load the update is deferred until the bulk load ends.
+     */
+    private void indexFulltextValue(Node node, String key, Object value, Index<Node> fulltextIndex) {
+        BulkLoad bl = bulkLoad.get();
+        if (bl != null) {
+            bl.deferFulltextEntry(node, fulltextIndex, key, value);
+        } else {
+            fulltextIndex.remove(node, key);                // remove old
+            fulltextIndex.add(node, key, value);            // index new
+        }
+    }
+
     // ---
 
     private void indexAssoc(Node assocNode, String roleTypeUri1, Node playerNode1,
@@ -814,19 +1049,166 @@ public class Neo4jStorage implements DMXStorage {
         return index.get(propUri, propValue);
     }
 
+    /**
+     * Queries the property and the type URI in conjunction. Both are indexed in the same (exact) index document, so
+     * Lucene intersects the two posting lists; the type's other instances are never touched.
+     */
+    private IndexHits<Node> queryIndexByPropertyAndType(Index<Node> index, String propUri, Object propValue,
+                                                                                          String typeUri) {
+        BooleanQuery query = new BooleanQuery();
+        query.add(buildPropertyQuery(propUri, propValue), Occur.MUST);
+        addTermQuery(KEY_TPYE_URI, typeUri, query);
+        return index.query(query);
+    }
+
     private IndexHits<Node> queryIndexByPropertyRange(Index<Node> index, String propUri, Number from, Number to) {
         return index.query(buildNumericRangeQuery(propUri, from, to));
     }
 
+    /**
+     * Cuts a page out of the given index hits. The skipped hits are not touched, the hits are closed afterwards.
+     */
+    private List<Node> page(IndexHits<Node> hits, int offset, int limit) {
+        try {
+            List<Node> nodes = new ArrayList();
+            int i = 0;
+            while (hits.hasNext() && nodes.size() < limit) {
+                Node node = hits.next();
+                if (i++ >= offset) {
+                    nodes.add(node);
+                }
+            }
+            return nodes;
+        } finally {
+            hits.close();
+        }
+    }
+
+    /**
+     * Counts the given index hits without iterating them. The hits are closed afterwards.
+     * <p>
+     * Note: if the index has uncommitted changes in the current transaction the size is unknown (-1). Then the hits
+     * are iterated.
+     */
+    private int count(IndexHits<Node> hits) {
+        try {
+            int size = hits.size();
+            if (size == -1) {
+                size = 0;
+                while (hits.hasNext()) {
+                    hits.next();
+                    size++;
+                }
+            }
+            return size;
+        } finally {
+            hits.close();
+        }
+    }
+
+    /**
+     * Returns the node IDs of the given index hits. No node properties are read. The hits are closed afterwards.
+     */
+    private long[] ids(IndexHits<Node> hits) {
+        try {
+            int size = hits.size();                             // -1 if unknown, see count()
+            long[] ids = new long[size != -1 ? size : 16];
+            int i = 0;
+            for (Node node : hits) {
+                if (i == ids.length) {
+                    ids = Arrays.copyOf(ids, 2 * i);
+                }
+                ids[i++] = node.getId();
+            }
+            return i == ids.length ? ids : Arrays.copyOf(ids, i);
+        } finally {
+            hits.close();
+        }
+    }
+
     // ---
 
+    /**
+     * Finds the associations matching the given criteria, using the traversal appropriate for the running
+     * transaction (see {@link Traversal}). Player 1 is the one traversed from.
+     */
     private List<AssocModelImpl> queryAssocIndex(String assocTypeUri,
                                      String roleTypeUri1, NodeType playerType1, long playerId1, String playerTypeUri1,
                                      String roleTypeUri2, NodeType playerType2, long playerId2, String playerTypeUri2) {
-        return buildAssocs(assocPlayerIndex.query(buildAssocQuery(assocTypeUri,
+        return queryAssocIndex(traversal(), assocTypeUri,
             roleTypeUri1, playerType1, playerId1, playerTypeUri1,
             roleTypeUri2, playerType2, playerId2, playerTypeUri2
-        )));
+        );
+    }
+
+    private Traversal traversal() {
+        TxState state = txState.get();
+        return state != null && state.graphChanged ? Traversal.INDEX : TRAVERSAL;
+    }
+
+    // --- Native traversal ---
+
+    /**
+     * Finds the associations matching the given criteria by walking the relationships of player 1's node.
+     * The criteria have the same semantics as in {@link #buildAssocQuery}.
+     * <p>
+     * The associations are returned in ID order, which resembles the index order.
+     *
+     * @return  the matching associations, or <code>null</code> if player 1 has more than
+     *          {@link #MAX_TRAVERSAL_DEGREE} relationships to be examined. The caller is expected to query the index
+     *          then.
+     */
+    private List<AssocModelImpl> traverseAssocs(String assocTypeUri,
+                                     String roleTypeUri1, NodeType playerType1, long playerId1, String playerTypeUri1,
+                                     String roleTypeUri2, NodeType playerType2, long playerId2, String playerTypeUri2) {
+        Node playerNode = fetchNode(playerId1);
+        if (!matches(playerNode, playerType1, playerTypeUri1)) {
+            return new ArrayList();
+        }
+        Iterable<Relationship> rels = roleTypeUri1 != null ?
+            playerNode.getRelationships(Direction.INCOMING, getRelationshipType(roleTypeUri1)) :
+            playerNode.getRelationships(Direction.INCOMING);
+        List<Node> assocNodes = new ArrayList();
+        Set<Long> assocIds = new HashSet();
+        int degree = 0;
+        for (Relationship rel : rels) {
+            if (++degree > MAX_TRAVERSAL_DEGREE) {
+                logger.fine("Node " + playerId1 + " has more than " + MAX_TRAVERSAL_DEGREE + " relationships " +
+                    "(roleTypeUri=\"" + roleTypeUri1 + "\") -- falling back to index query");
+                return null;
+            }
+            Node assocNode = rel.getStartNode();
+            // skip non-DM nodes stored by 3rd-party components (e.g. Neo4j Spatial)
+            if (!NodeType.ASSOC.isTypeOf(assocNode)) {
+                continue;
+            }
+            if (assocTypeUri != null && !assocTypeUri.equals(typeUri(assocNode))) {
+                continue;
+            }
+            Relationship otherRel = otherRelationship(assocNode, rel);
+            if (roleTypeUri2 != null && !roleTypeUri2.equals(otherRel.getType().name())) {
+                continue;
+            }
+            Node otherNode = otherRel.getEndNode();
+            if (playerId2 != -1 && otherNode.getId() != playerId2 || !matches(otherNode, playerType2, playerTypeUri2)) {
+                continue;
+            }
+            // Note: an association connecting a node with itself is reached twice
+            if (assocIds.add(assocNode.getId())) {
+                assocNodes.add(assocNode);
+            }
+        }
+        Collections.sort(assocNodes, NODE_ID_ORDER);
+        return buildAssocs(assocNodes);
+    }
+
+    private boolean matches(Node node, NodeType nodeType, String typeUri) {
+        return (nodeType == null || nodeType.isTypeOf(node)) && (typeUri == null || typeUri.equals(typeUri(node)));
+    }
+
+    private Relationship otherRelationship(Node assocNode, Relationship rel) {
+        List<Relationship> rels = fetchRelationships(assocNode);
+        return rels.get(0).getId() == rel.getId() ? rels.get(1) : rels.get(0);
     }
 
     // --- Build index queries ---
@@ -835,6 +1217,15 @@ public class Neo4jStorage implements DMXStorage {
         return QueryContext.numericRange(propUri, from, to);
     }
 
+    private Query buildPropertyQuery(String propUri, Object propValue) {
+        // Note: numbers must be queried as numeric value as they are indexed numerically.
+        if (propValue instanceof Number) {
+            Number value = (Number) propValue;
+            return (Query) buildNumericRangeQuery(propUri, value, value).getQueryOrQueryObject();
+        }
+        return new TermQuery(new Term(propUri, propValue.toString()));
+    }
+
     // ---
 
     private Query buildAssocQuery(String assocTypeUri,
@@ -861,6 +1252,40 @@ public class Neo4jStorage implements DMXStorage {
         return query;
     }
 
+    /**
+     * Builds a bidirectional assoc query whose "my" player is any of the given ones.
+     */
+    private Query buildAssocQuery(String assocTypeUri, String myRoleTypeUri, long[] myPlayerIds,
+                                  String othersRoleTypeUri, NodeType othersPlayerType, String othersPlayerTypeUri) {
+        BooleanQuery direction1 = new BooleanQuery();
+        addRole(direction1, 1, myRoleTypeUri, myPlayerIds);
+        addRole(direction1, 2, othersRoleTypeUri, othersPlayerType, -1, othersPlayerTypeUri);
+        BooleanQuery direction2 = new BooleanQuery();
+        addRole(direction2, 1, othersRoleTypeUri, othersPlayerType, -1, othersPlayerTypeUri);
+        addRole(direction2, 2, myRoleTypeUri, myPlayerIds);
+        //
+        BooleanQuery roleQuery = new BooleanQuery();
+        roleQuery.add(direction1, Occur.SHOULD);
+        roleQuery.add(direction2, Occur.SHOULD);
+        //
+        BooleanQuery query = new BooleanQuery();
+        if (assocTypeUri != null) {
+            addTermQuery(KEY_ASSOC_TPYE_URI, assocTypeUri, query);
+        }
+        query.add(roleQuery, Occur.MUST);
+        //
+        return query;
+    }
+
+    private void addRole(BooleanQuery query, int pos, String roleTypeUri, long[] playerIds) {
+        addTermQuery(KEY_ROLE_TPYE_URI + pos, roleTypeUri, query);
+        BooleanQuery playerIdQuery = new BooleanQuery();
+        for (long playerId : playerIds) {
+            playerIdQuery.add(new TermQuery(new Term(KEY_PLAYER_ID + pos, Long.toString(playerId))), Occur.SHOULD);
+        }
+        query.add(playerIdQuery, Occur.MUST);
+    }
+
     private void addRole(BooleanQuery query, int pos, String roleTypeUri, NodeType playerType, long playerId,
                                                                                                String playerTypeUri) {
         if (roleTypeUri != null)   addTermQuery(KEY_ROLE_TPYE_URI + pos,   roleTypeUri,   query);
@@ -886,11 +1311,13 @@ public class Neo4jStorage implements DMXStorage {
     // --- Remove index entries ---
 
     private void removeTopicFromIndex(Node topicNode) {
+        nodeDeleted(topicNode);
         topicIndex.remove(topicNode);
         topicFulltextIndex.remove(topicNode);
     }
 
     private void removeAssocFromIndex(Node assocNode) {
+        nodeDeleted(assocNode);
         assocIndex.remove(assocNode);
         assocFulltextIndex.remove(assocNode);
         //
@@ -907,6 +1334,31 @@ public class Neo4jStorage implements DMXStorage {
         assocIndex.remove(assocNode, propUri);
     }
 
+    // --- Transaction bookkeeping ---
+
+    private void graphChanged() {
+        TxState state = txState.get();
+        if (state != null) {
+            state.graphChanged = true;
+        }
+    }
+
+    // --- Bulk load bookkeeping ---
+
+    private void nodeCreated(Node node) {
+        BulkLoad bl = bulkLoad.get();
+        if (bl != null) {
+            bl.nodeCreated(node);
+        }
+    }
+
+    private void nodeDeleted(Node node) {
+        BulkLoad bl = bulkLoad.get();
+        if (bl != null) {
+            bl.nodeDeleted(node);
+        }
+    }
+
     // --- Open indexes ---
 
     /**
@@ -1175,6 +1627,29 @@ public class Neo4jStorage implements DMXStorage {
         return relTopics;
     }
 
+    /**
+     * Adds the topic played by <code>other</code> to the related topics of the object played by <code>me</code>,
+     * provided the players' roles and the topic's type match.
+     */
+    private void addRelatedTopic(Map<Long, List<RelatedTopicModelImpl>> relTopics, Set<Long> ids,
+                                 AssocModelImpl assoc, PlayerModel me, PlayerModel other, String myRoleTypeUri,
+                                 String othersRoleTypeUri, String othersTopicTypeUri) {
+        if (!ids.contains(me.getId()) || !me.getRoleTypeUri().equals(myRoleTypeUri) ||
+                othersRoleTypeUri != null && !other.getRoleTypeUri().equals(othersRoleTypeUri)) {
+            return;
+        }
+        TopicModelImpl topic = fetchTopic(other.getId());
+        if (othersTopicTypeUri != null && !topic.getTypeUri().equals(othersTopicTypeUri)) {
+            return;
+        }
+        List<RelatedTopicModelImpl> topics = relTopics.get(me.getId());
+        if (topics == null) {
+            topics = new ArrayList();
+            relTopics.put(me.getId(), topics);
+        }
+        topics.add(mf.newRelatedTopicModel(topic, assoc));
+    }
+
     // ### TODO: this is a DB agnostic helper method. It could be moved e.g. to a common base class.
     private List<RelatedAssocModelImpl> buildRelatedAssocs(List<AssocModelImpl> assocs, long playerId) {
         List<RelatedAssocModelImpl> relAssocs = new ArrayList();
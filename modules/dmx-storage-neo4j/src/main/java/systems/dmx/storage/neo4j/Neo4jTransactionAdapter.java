@@ -15,11 +15,13 @@ class Neo4jTransactionAdapter implements DMXTransaction {
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     private Transaction tx;
+    private Neo4jStorage storage;
 
     // ---------------------------------------------------------------------------------------------------- Constructors
 
-    Neo4jTransactionAdapter(GraphDatabaseService neo4j) {
-        tx = neo4j.beginTx();
+    Neo4jTransactionAdapter(GraphDatabaseService neo4j, Neo4jStorage storage) {
+        this.tx = neo4j.beginTx();
+        this.storage = storage;
     }
 
     // -------------------------------------------------------------------------------------------------- Public Methods
@@ -36,6 +38,10 @@ class Neo4jTransactionAdapter implements DMXTransaction {
 
     @Override
     public void finish() {
-        tx.finish();
+        try {
+            tx.finish();
+        } finally {
+            storage.txFinished();
+        }
     }
 }
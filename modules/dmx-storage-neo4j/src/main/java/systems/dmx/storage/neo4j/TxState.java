@@ -0,0 +1,22 @@
+package systems.dmx.storage.neo4j;
+
+
+
+/**
+ * The traversal bookkeeping of one thread's transaction (see {@link Neo4jStorage#beginTx}).
+ * <p>
+ * Within a transaction the "assoc-metadata" Lucene index does not reflect the transaction's own changes, while the
+ * player relationships do. So once a transaction changed the association graph the two traversals would disagree,
+ * and the storage sticks to the index for the rest of that transaction.
+ */
+class TxState {
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    int depth = 1;
+
+    /**
+     * True if the transaction created, retyped, or deleted associations or player roles, or retyped a topic.
+     */
+    boolean graphChanged;
+}
@@ -10,8 +10,10 @@ import systems.dmx.core.model.PlayerModel;
 import systems.dmx.core.model.SimpleValue;
 import systems.dmx.core.storage.spi.DMXStorage;
 import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.core.storage.spi.ObjectMeta;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -22,7 +24,9 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
 import static java.util.Arrays.asList;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -69,6 +73,30 @@ public class Neo4jStorageTest {
         assertNotNull(player2);
     }
 
+    @Test
+    public void fetchObjectMeta() {
+        TopicModelImpl topic = al.sd.fetchTopic("uri", DATA_TYPE);
+        ObjectMeta meta = db.fetchObjectMeta(topic.getId());
+        assertTrue(meta.isTopic());
+        assertEquals(TOPIC_TYPE, meta.getTypeUri());
+        assertEquals(-1, meta.getWorkspaceId());
+        assertNull(meta.getCreator());
+        //
+        DMXTransaction tx = db.beginTx();
+        try {
+            db.storeAssocProperty(assocId, ObjectMeta.PROP_WORKSPACE_ID, 1234L, false);
+            db.storeAssocProperty(assocId, ObjectMeta.PROP_CREATOR, "karl", false);
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        meta = db.fetchObjectMeta(assocId);
+        assertFalse(meta.isTopic());
+        assertEquals(INSTANTIATION, meta.getTypeUri());
+        assertEquals(1234, meta.getWorkspaceId());
+        assertEquals("karl", meta.getCreator());
+    }
+
     @Test
     public void traverse() {
         TopicModelImpl topic = al.sd.fetchTopic("uri", DATA_TYPE);
@@ -106,6 +134,67 @@ public class Neo4jStorageTest {
         assertEquals(1, topics.size());
     }
 
+    @Test
+    public void nativeTraversalMatchesIndex() {
+        long[] ids = setupGraph();
+        Neo4jStorage storage = (Neo4jStorage) db;
+        String[] assocTypeUris = {null, "dmx.test.link", "dmx.test.tag"};
+        String[] roleTypeUris = {null, DEFAULT, PARENT, CHILD};
+        NodeType[] playerTypes = {null, NodeType.TOPIC, NodeType.ASSOC};
+        String[] typeUris = {null, "dmx.notes.note", "dmx.test.link"};
+        int found = 0;
+        for (long id : ids) {
+            for (String assocTypeUri : assocTypeUris) {
+                for (String roleTypeUri1 : roleTypeUris) {
+                    for (String roleTypeUri2 : roleTypeUris) {
+                        for (NodeType playerType2 : playerTypes) {
+                            for (String playerTypeUri2 : typeUris) {
+                                List<Long> indexed = assocIds(storage.queryAssocIndex(Neo4jStorage.Traversal.INDEX,
+                                    assocTypeUri, roleTypeUri1, null, id, null,
+                                    roleTypeUri2, playerType2, -1, playerTypeUri2));
+                                List<Long> traversed = assocIds(storage.queryAssocIndex(Neo4jStorage.Traversal.NATIVE,
+                                    assocTypeUri, roleTypeUri1, null, id, null,
+                                    roleTypeUri2, playerType2, -1, playerTypeUri2));
+                                assertEquals(indexed, traversed);
+                                found += indexed.size();
+                            }
+                        }
+                    }
+                }
+            }
+            // player 2 given
+            for (long id2 : ids) {
+                assertEquals(
+                    assocIds(storage.queryAssocIndex(Neo4jStorage.Traversal.INDEX, null,
+                        null, NodeType.TOPIC, id, null, null, null, id2, null)),
+                    assocIds(storage.queryAssocIndex(Neo4jStorage.Traversal.NATIVE, null,
+                        null, NodeType.TOPIC, id, null, null, null, id2, null)));
+            }
+        }
+        assertTrue(found > 0);
+    }
+
+    @Test
+    public void traversalWithinChangingTransaction() {
+        long[] ids = setupGraph();
+        DMXTransaction tx = db.beginTx();
+        try {
+            List<RelatedTopicModelImpl> topics = db.fetchTopicRelatedTopics(ids[0], "dmx.test.link", DEFAULT, DEFAULT,
+                null);
+            assertEquals(1, topics.size());
+            db.storeRoleTypeUri(topics.get(0).getRelatingAssoc().getId(), ids[0], PARENT);
+            // ### Note: the Lucene index update is not visible within the transaction! Once the transaction changed
+            // the association graph the storage keeps querying the index, regardless of the player's degree.
+            topics = db.fetchTopicRelatedTopics(ids[0], "dmx.test.link", DEFAULT, DEFAULT, null);
+            assertEquals(1, topics.size());
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        assertEquals(0, db.fetchTopicRelatedTopics(ids[0], "dmx.test.link", DEFAULT, DEFAULT, null).size());
+        assertEquals(1, db.fetchTopicRelatedTopics(ids[0], "dmx.test.link", PARENT, DEFAULT, null).size());
+    }
+
     @Test
     public void deleteAssoc() {
         DMXTransaction tx = db.beginTx();
@@ -261,6 +350,14 @@ public class Neo4jStorageTest {
         topics = db.fetchTopicsByPropertyRange("score", 23L, 1234L); assertEquals(4, topics.size());
     }
 
+    @Test
+    public void propertyIndexAndType() {
+        List<TopicModelImpl> topics;
+        topics = db.fetchTopicsByPropertyAndType("score", 23L, "dmx.notes.note"); assertEquals(2, topics.size());
+        topics = db.fetchTopicsByPropertyAndType("score", 23L, TOPIC_TYPE);       assertEquals(0, topics.size());
+        topics = db.fetchTopicsByPropertyAndType("score", 12L, "dmx.notes.note"); assertEquals(0, topics.size());
+    }
+
 
 
     // ------------------------------------------------------------------------------------------------- Private Methods
@@ -300,6 +397,63 @@ public class Neo4jStorageTest {
         }
     }
 
+    /**
+     * Links the 4 notes with associations of 2 types: links between notes (including a note linked with itself),
+     * and tags between a note and a link. Then retypes an association and a role, so the index holds reindexed
+     * entries. Everything is committed.
+     *
+     * @return  the IDs of the notes and the first link.
+     */
+    private long[] setupGraph() {
+        long[] ids = new long[5];
+        long assocId;
+        DMXTransaction tx = db.beginTx();
+        try {
+            for (int i = 0; i < 4; i++) {
+                ids[i] = al.sd.fetchTopic("uri", "note-" + (i + 1)).getId();
+            }
+            ids[4] = storeAssoc("dmx.test.link", topicPlayer(ids[0], DEFAULT), topicPlayer(ids[1], DEFAULT));
+            storeAssoc("dmx.test.link", topicPlayer(ids[0], PARENT), topicPlayer(ids[2], CHILD));
+            storeAssoc("dmx.test.link", topicPlayer(ids[3], PARENT), topicPlayer(ids[0], CHILD));
+            storeAssoc("dmx.test.link", topicPlayer(ids[2], DEFAULT), topicPlayer(ids[2], DEFAULT));
+            storeAssoc("dmx.test.tag", topicPlayer(ids[1], PARENT), mf.newAssocPlayerModel(ids[4], CHILD));
+            assocId = storeAssoc("dmx.test.tag", topicPlayer(ids[3], DEFAULT), topicPlayer(ids[1], DEFAULT));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        //
+        tx = db.beginTx();
+        try {
+            db.storeAssocTypeUri(assocId, "dmx.test.link");
+            db.storeRoleTypeUri(assocId, ids[1], CHILD);
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        return ids;
+    }
+
+    private PlayerModel topicPlayer(long topicId, String roleTypeUri) {
+        return mf.newTopicPlayerModel(topicId, roleTypeUri);
+    }
+
+    private long storeAssoc(String typeUri, PlayerModel player1, PlayerModel player2) {
+        AssocModelImpl assoc = mf.newAssocModel(typeUri, player1, player2);
+        db.storeAssoc(assoc);
+        db.storeAssocValue(assoc.getId(), new SimpleValue(""), typeUri, false);
+        return assoc.getId();
+    }
+
+    private List<Long> assocIds(List<AssocModelImpl> assocs) {
+        List<Long> ids = new ArrayList();
+        for (AssocModelImpl assoc : assocs) {
+            ids.add(assoc.getId());
+        }
+        Collections.sort(ids);      // the index order depends on reindexing
+        return ids;
+    }
+
     // ---
 
     private long createTopic(String uri, String typeUri, String value) {
@@ -0,0 +1,133 @@
+package systems.dmx.accesscontrol;
+
+import static systems.dmx.accesscontrol.Constants.*;
+import static systems.dmx.core.Constants.*;
+import systems.dmx.core.Topic;
+import systems.dmx.core.impl.CoreServiceTestEnvironment;
+import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.service.ModelFactory;
+import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.core.storage.spi.ObjectMeta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+
+public class OccupiedSpaceTest extends CoreServiceTestEnvironment {
+
+    private OccupiedSpace occupiedSpace;
+    private ModelFactory mf;    // the impl classes are not accessible from this package
+
+    @Before
+    public void setupModel() {
+        occupiedSpace = new OccupiedSpace(dmx);
+        mf = dmx.getModelFactory();
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            dmx.createTopicType(mf.newTopicTypeModel(USERNAME, "Username", TEXT));
+            dmx.createTopicType(mf.newTopicTypeModel(OccupiedSpace.FILE_SIZE, "Size", NUMBER));
+            dmx.createTopicType(mf.newTopicTypeModel(OccupiedSpace.FILE, "File", ENTITY)
+                .addCompDef(mf.newCompDefModel(OccupiedSpace.FILE, OccupiedSpace.FILE_SIZE, ONE))
+            );
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void incrementalAccounting() {
+        Topic file1, file2;
+        // create
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            Topic alice = dmx.createTopic(mf.newTopicModel(USERNAME, new SimpleValue("alice")));
+            occupiedSpace.userCreated(alice);
+            assertEquals(0, occupiedSpace.get("alice"));
+            //
+            file1 = createFile("alice", 100);
+            occupiedSpace.fileCreated(file1);
+            file2 = createFile("alice", 50);
+            occupiedSpace.fileCreated(file2);
+            assertEquals(150, occupiedSpace.get("alice"));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        // update
+        tx = dmx.beginTx();
+        try {
+            occupiedSpace.fileRemoved(file1);
+            file1.update(mf.newChildTopicsModel().set(OccupiedSpace.FILE_SIZE, 30L));
+            occupiedSpace.fileUpdated(file1);
+            assertEquals(80, occupiedSpace.get("alice"));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        // delete
+        tx = dmx.beginTx();
+        try {
+            occupiedSpace.fileRemoved(file2);
+            file2.delete();
+            assertEquals(30, occupiedSpace.get("alice"));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        // the stored value matches a full recalculation
+        tx = dmx.beginTx();
+        try {
+            occupiedSpace.reconcile();
+            assertEquals(30, occupiedSpace.get("alice"));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void readDoesNotStore() {
+        Topic bob;
+        // a user whose occupied space is not stored yet, e.g. created before the accounting was introduced
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            bob = dmx.createTopic(mf.newTopicModel(USERNAME, new SimpleValue("bob")));
+            createFile("bob", 70);
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        //
+        assertEquals(70, occupiedSpace.get("bob"));
+        assertFalse(bob.hasProperty(OccupiedSpace.PROP_OCCUPIED_SPACE));
+        // the first write stores the calculated value
+        tx = dmx.beginTx();
+        try {
+            occupiedSpace.fileCreated(createFile("bob", 5));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        assertTrue(bob.hasProperty(OccupiedSpace.PROP_OCCUPIED_SPACE));
+        assertEquals(75, occupiedSpace.get("bob"));
+    }
+
+    // ---
+
+    /**
+     * Creates a File topic and sets its creator, as the Access Control plugin does.
+     */
+    private Topic createFile(String creator, long size) {
+        Topic file = dmx.createTopic(mf.newTopicModel(OccupiedSpace.FILE, mf.newChildTopicsModel()
+            .set(OccupiedSpace.FILE_SIZE, size)
+        ));
+        file.setProperty(ObjectMeta.PROP_CREATOR, creator, true);      // addToIndex=true
+        return file;
+    }
+}
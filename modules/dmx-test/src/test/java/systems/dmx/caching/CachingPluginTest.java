@@ -0,0 +1,182 @@
+package systems.dmx.caching;
+
+import static systems.dmx.core.Constants.*;
+import systems.dmx.core.Assoc;
+import systems.dmx.core.Topic;
+import systems.dmx.core.impl.CoreServiceTestEnvironment;
+import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.service.ModelFactory;
+import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.core.storage.spi.ObjectMeta;
+import systems.dmx.timestamps.TimestampsPlugin;
+
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.WebApplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+
+
+
+public class CachingPluginTest extends CoreServiceTestEnvironment {
+
+    private static final String NOTE = "dmx.test.note";
+    private static final String TAG = "dmx.test.tag";
+
+    private static final String WORKSPACE = "dmx.workspaces.workspace";
+    private static final String WORKSPACE_ASSIGNMENT = "dmx.workspaces.workspace_assignment";
+
+    private static final URI BASE_URI = URI.create("http://localhost:8080/");
+
+    private TimestampsPlugin timestamps;
+    private CachingPlugin caching;
+    private ModelFactory mf;    // the impl classes are not accessible from this package
+
+    @Before
+    public void setupPlugins() {
+        mf = dmx.getModelFactory();
+        timestamps = new TimestampsPlugin();
+        timestamps.setCoreService(dmx);
+        caching = new CachingPlugin();
+        caching.setCoreService(dmx);
+        caching.timestampsService = timestamps;
+        caching.req = stub(HttpServletRequest.class);     // no session -> anonymous
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            dmx.createTopicType(mf.newTopicTypeModel(NOTE, "Note", TEXT));
+            dmx.createTopicType(mf.newTopicTypeModel(TAG, "Tag", TEXT));
+            dmx.createTopicType(mf.newTopicTypeModel(WORKSPACE, "Workspace", TEXT));
+            dmx.createAssocType(mf.newAssocTypeModel(WORKSPACE_ASSIGNMENT, "Workspace Assignment", TEXT));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void objectETag() {
+        Topic note = createTopic(NOTE, "note 1");
+        String path = "core/topic/" + note.getId();
+        EntityTag eTag = eTag(path);
+        assertFalse(eTag.isWeak());
+        assertEquals(304, preconditionsStatus(path, eTag));
+        // a modification of another object (e.g. a child topic) might be contained in the response
+        createTopic(TAG, "tag 1");
+        assertEquals(200, preconditionsStatus(path, eTag));
+        assertNotEquals(eTag, eTag(path));
+    }
+
+    @Test
+    public void typeCollectionETag() {
+        Topic note = createTopic(NOTE, "note 1");
+        String path = "core/topics/type/" + NOTE;
+        EntityTag eTag = eTag(path);
+        assertTrue(eTag.isWeak());
+        assertEquals(304, preconditionsStatus(path, eTag));
+        // modifying another type does not invalidate the ETag
+        createTopic(TAG, "tag 1");
+        assertEquals(304, preconditionsStatus(path, eTag));
+        // creating a topic of that type does
+        createTopic(NOTE, "note 2");
+        assertEquals(200, preconditionsStatus(path, eTag));
+        // reassigning a topic of that type to another workspace does
+        eTag = eTag(path);
+        assignToWorkspace(note);
+        assertEquals(200, preconditionsStatus(path, eTag));
+    }
+
+    // ---
+
+    /**
+     * Creates a topic and notifies the Timestamps plugin, as the event dispatch would.
+     */
+    private Topic createTopic(String typeUri, String value) {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            Topic topic = dmx.createTopic(mf.newTopicModel(typeUri, new SimpleValue(value)));
+            timestamps.postCreateTopic(topic);
+            tx.success();
+            return topic;
+        } finally {
+            tx.finish();
+        }
+    }
+
+    /**
+     * Assigns a topic to a new workspace the way the Workspaces plugin does: an assignment association plus the
+     * workspace ID property, the latter being stored without firing an event.
+     */
+    private void assignToWorkspace(Topic topic) {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            // Note: the Timestamps plugin is not notified about the workspace creation. Workspace modifications are
+            // part of every ETag's permission context.
+            Topic workspace = dmx.createTopic(mf.newTopicModel(WORKSPACE, new SimpleValue("workspace")));
+            Assoc assignment = dmx.createAssoc(mf.newAssocModel(WORKSPACE_ASSIGNMENT,
+                mf.newTopicPlayerModel(topic.getId(), PARENT),
+                mf.newTopicPlayerModel(workspace.getId(), CHILD)
+            ));
+            timestamps.postCreateAssoc(assignment);
+            topic.setProperty(ObjectMeta.PROP_WORKSPACE_ID, workspace.getId(), true);      // addToIndex=true
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    // ---
+
+    /**
+     * Runs the request filter for an unconditional GET request and returns the calculated ETag.
+     */
+    private EntityTag eTag(String path) {
+        ContainerRequest request = request(path, null);
+        caching.serviceRequestFilter(request);
+        return (EntityTag) request.getProperties().get(CachingPlugin.PROP_ETAG);
+    }
+
+    /**
+     * Runs the request filter for a conditional GET request.
+     *
+     * @return  the status of the response the filter aborts the request with, or 200 if the request proceeds.
+     */
+    private int preconditionsStatus(String path, EntityTag ifNoneMatch) {
+        try {
+            caching.serviceRequestFilter(request(path, ifNoneMatch));
+            return 200;
+        } catch (WebApplicationException e) {
+            return e.getResponse().getStatus();
+        }
+    }
+
+    private ContainerRequest request(String path, EntityTag ifNoneMatch) {
+        InBoundHeaders headers = new InBoundHeaders();
+        if (ifNoneMatch != null) {
+            headers.putSingle("If-None-Match", ifNoneMatch.toString());
+        }
+        return new ContainerRequest(stub(WebApplication.class), "GET", BASE_URI, BASE_URI.resolve(path), headers,
+            null);
+    }
+
+    /**
+     * Returns an implementation of the given interface whose methods do nothing but return false resp. null.
+     */
+    private <T> T stub(Class<T> iface) {
+        return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class[] {iface},
+            (proxy, method, args) -> method.getReturnType() == boolean.class ? false : null
+        ));
+    }
+}
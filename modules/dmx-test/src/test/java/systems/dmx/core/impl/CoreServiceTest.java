@@ -8,13 +8,16 @@ import systems.dmx.core.ChildTopics;
 import systems.dmx.core.CompDef;
 import systems.dmx.core.DMXObject;
 import systems.dmx.core.DMXType;
+import systems.dmx.core.JSONEnabled;
 import systems.dmx.core.RelatedAssoc;
 import systems.dmx.core.RelatedTopic;
 import systems.dmx.core.Topic;
 import systems.dmx.core.TopicType;
 import systems.dmx.core.model.ChildTopicsModel;
 import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.service.ResultPage;
 import systems.dmx.core.storage.spi.DMXTransaction;
+import systems.dmx.core.util.JSONGenerator;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -27,10 +30,16 @@ import static org.junit.Assert.fail;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.StringWriter;
 import static java.util.Arrays.asList;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -442,6 +451,30 @@ public class CoreServiceTest extends CoreServiceTestEnvironment {
         }
     }
 
+    @Test
+    public void typeHandleFollowsUpdates() {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            dmx.createTopicType(mf.newTopicTypeModel("dmx.test.name", "Name", TEXT));
+            TopicTypeImpl tt = dmx.createTopicType(mf.newTopicTypeModel("dmx.test.item", "Item", ENTITY));
+            TopicTypeImpl tt2 = dmx.getTopicType("dmx.test.item");
+            // Note: a type update replaces the cached type model. Handles obtained before follow it.
+            tt.addCompDef(mf.newCompDefModel("dmx.test.item", "dmx.test.name", ONE));
+            assertEquals("dmx.test.name", tt.getCompDef("dmx.test.name").getChildTypeUri());
+            assertTrue(tt2.hasCompDef("dmx.test.name"));
+            //
+            tt2.getCompDef("dmx.test.name").update(mf.newChildTopicsModel().set(INCLUDE_IN_LABEL, true));
+            assertEquals(asList("dmx.test.name"), tt.getLabelConfig());
+            //
+            tt.removeCompDef("dmx.test.name");
+            assertFalse(tt2.hasCompDef("dmx.test.name"));
+            //
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
     @Test
     public void setIncludeInLabelWhenCustomAssocTypeIsSet() {
         DMXTransaction tx = dmx.beginTx();
@@ -1299,8 +1332,231 @@ public class CoreServiceTest extends CoreServiceTestEnvironment {
         }
     }
 
+    // ---
+
+    @Test
+    public void streamingSerialization() {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            Topic topic = dmx.createTopic(mf.newTopicModel("systems.dmx.notes", PLUGIN,
+                mf.newChildTopicsModel().set(PLUGIN_MIGRATION_NR, 23)
+            ));
+            topic.loadChildTopics();
+            assertEquals(topic.toJSON().toString(), stream(topic));
+            //
+            RelatedTopic child = topic.getChildTopics().getTopic(PLUGIN_MIGRATION_NR);
+            assertEquals(child.toJSON().toString(), stream(child));
+            //
+            TopicType type = dmx.getTopicType(PLUGIN);
+            assertEquals(type.toJSON().toString(), stream(type));
+            //
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void pagedTopicsByType() {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            for (int i = 0; i < 25; i++) {
+                dmx.createTopic(mf.newTopicModel(PLUGIN_MIGRATION_NR, new SimpleValue(i)));
+            }
+            List<Topic> topics = dmx.getTopicsByType(PLUGIN_MIGRATION_NR);
+            int size = topics.size();
+            assertTrue(size >= 25);
+            // offset
+            ResultPage<Topic> page = dmx.getTopicsByType(PLUGIN_MIGRATION_NR, 3, 5);
+            assertEquals(5, page.items.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(topics.get(3 + i).getId(), page.items.get(i).getId());
+            }
+            assertNotNull(page.cursor);
+            // cursor
+            int count = 0;
+            String cursor = null;
+            do {
+                page = dmx.getTopicsByType(PLUGIN_MIGRATION_NR, cursor, 7);
+                for (Topic topic : page.items) {
+                    assertEquals(topics.get(count++).getId(), topic.getId());
+                }
+                cursor = page.cursor;
+            } while (cursor != null);
+            assertEquals(size, count);
+            // beyond the end
+            page = dmx.getTopicsByType(PLUGIN_MIGRATION_NR, size, 5);
+            assertEquals(0, page.items.size());
+            assertNull(page.cursor);
+            //
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void countByType() {
+        assertEquals(dmx.getTopicsByType(TOPIC_TYPE).size(), dmx.countTopicsByType(TOPIC_TYPE));
+        assertEquals(dmx.getAssocsByType(COMPOSITION_DEF).size(), dmx.countAssocsByType(COMPOSITION_DEF));
+        try {
+            dmx.countTopicsByType("dmx.test.unknown");
+            fail("\"Counting topics by type failed\" exception not thrown");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().startsWith("Counting topics by type failed"));
+        }
+    }
+
+    @Test
+    public void batchLoadChildTopics() {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            for (int i = 0; i < 3; i++) {
+                dmx.createTopic(mf.newTopicModel(PLUGIN,
+                    mf.newChildTopicsModel().set(PLUGIN_NAME, "Plugin " + i).set(PLUGIN_MIGRATION_NR, i)
+                ));
+            }
+            List<Topic> topics = dmx.getTopicsByType(PLUGIN);
+            dmx.loadChildTopics(topics);
+            List<Topic> expected = dmx.getTopicsByType(PLUGIN);
+            assertEquals(expected.size(), topics.size());
+            for (int i = 0; i < topics.size(); i++) {
+                assertEquals(expected.get(i).loadChildTopics().toJSON().toString(), topics.get(i).toJSON().toString());
+            }
+            //
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void getProperties() {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            Topic t1 = dmx.createTopic(mf.newTopicModel(PLUGIN_NAME, new SimpleValue("Plugin X")));
+            Topic t2 = dmx.createTopic(mf.newTopicModel(PLUGIN_NAME, new SimpleValue("Plugin Y")));
+            t1.setProperty("dmx.test.a", 1L, false);
+            t1.setProperty("dmx.test.b", "b", false);
+            t2.setProperty("dmx.test.b", "c", false);
+            //
+            Map<Long, Map<String, Object>> props = dmx.getProperties(asList(t1.getId(), t2.getId()),
+                "dmx.test.a", "dmx.test.b");
+            assertEquals(2, props.size());
+            assertEquals(2, props.get(t1.getId()).size());
+            assertEquals(1L, props.get(t1.getId()).get("dmx.test.a"));
+            assertEquals("b", props.get(t1.getId()).get("dmx.test.b"));
+            assertEquals(1, props.get(t2.getId()).size());
+            assertEquals("c", props.get(t2.getId()).get("dmx.test.b"));
+            //
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void importTopics() {
+        int count = dmx.importTopics(asList(
+            mf.newTopicModel(PLUGIN, mf.newChildTopicsModel().set(PLUGIN_NAME, "Imported Plugin A")),
+            mf.newTopicModel(PLUGIN, mf.newChildTopicsModel().set(PLUGIN_NAME, "Imported Plugin B")),
+            mf.newTopicModel(PLUGIN_NAME, new SimpleValue("Imported Plugin A"))     // dedups with the 1st child
+        ));
+        assertEquals(3, count);
+        // the deferred fulltext index entries are committed
+        assertEquals(2, dmx.queryTopicsFulltext("Imported", PLUGIN_NAME, false).topics.size());
+        assertEquals(2, dmx.queryTopicsFulltext("Imported", PLUGIN, true).topics.size());
+        assertNotNull(dmx.getTopicByValue(PLUGIN_NAME, new SimpleValue("Imported Plugin B")));
+    }
+
+    @Test
+    public void importTopicsRollsBackFailedChunk() {
+        try {
+            dmx.importTopics(asList(
+                mf.newTopicModel(PLUGIN_NAME, new SimpleValue("Imported Plugin C")),
+                mf.newTopicModel("dmx.test.unknown", new SimpleValue("Imported Plugin D"))
+            ));
+            fail("\"Importing topics failed\" exception not thrown");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().startsWith("Importing topics failed"));
+        }
+        assertNull(dmx.getTopicByValue(PLUGIN_NAME, new SimpleValue("Imported Plugin C")));
+        assertEquals(0, dmx.queryTopicsFulltext("Imported", PLUGIN_NAME, false).topics.size());
+    }
+
+    @Test
+    public void readTypeWhileEditingIt() throws Exception {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            dmx.createTopicType(mf.newTopicTypeModel("dmx.test.date", "Date", TEXT));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        // readers
+        final List<Throwable> errors = new CopyOnWriteArrayList();
+        final AtomicBoolean editing = new AtomicBoolean(true);
+        final AtomicInteger reads = new AtomicInteger();
+        List<Thread> readers = new ArrayList();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (editing.get()) {
+                        List<String> compDefUris = new ArrayList();
+                        for (CompDef compDef : dmx.getTopicType(PLUGIN).getCompDefs()) {
+                            compDefUris.add(compDef.getCompDefUri());
+                        }
+                        List<String> expected = asList(PLUGIN_NAME, PLUGIN_SYMBOLIC_NAME, PLUGIN_MIGRATION_NR);
+                        if (!compDefUris.equals(expected) && !compDefUris.equals(
+                                asList(PLUGIN_NAME, PLUGIN_SYMBOLIC_NAME, PLUGIN_MIGRATION_NR, "dmx.test.date"))) {
+                            throw new AssertionError("Inconsistent comp def sequence " + compDefUris);
+                        }
+                        reads.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        // writer
+        try {
+            for (int i = 0; i < 20; i++) {
+                tx = dmx.beginTx();
+                try {
+                    dmx.getTopicType(PLUGIN).addCompDef(mf.newCompDefModel(PLUGIN, "dmx.test.date", ONE));
+                    tx.success();
+                } finally {
+                    tx.finish();
+                }
+                tx = dmx.beginTx();
+                try {
+                    dmx.getTopicType(PLUGIN).removeCompDef("dmx.test.date");
+                    tx.success();
+                } finally {
+                    tx.finish();
+                }
+            }
+        } finally {
+            editing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        assertEquals("[]", errors.toString());
+        assertTrue(reads.get() > 0);
+        assertEquals(3, dmx.getTopicType(PLUGIN).getCompDefs().size());
+    }
+
     // ------------------------------------------------------------------------------------------------- Private Methods
 
+    private String stream(JSONEnabled object) {
+        StringWriter writer = new StringWriter();
+        new JSONGenerator(writer).value(object);
+        return writer.toString();
+    }
+
     private List<Topic> getTopicInstances(String topicTypeUri) {
         return dmx.getTopicsByValue("typeUri", new SimpleValue(topicTypeUri));
     }
@@ -15,7 +15,8 @@ public class CoreServiceTestEnvironment {
 
     // ------------------------------------------------------------------------------------------------------- Constants
 
-    private static final String DATABASE_FACTORY = "systems.dmx.storage.neo4j.Neo4jStorageFactory";
+    private static final String DATABASE_FACTORY = System.getProperty("dmx.test.database_factory",
+        "systems.dmx.storage.neo4j.Neo4jStorageFactory");
 
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
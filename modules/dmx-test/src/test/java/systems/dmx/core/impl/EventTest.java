@@ -13,6 +13,12 @@ import systems.dmx.core.TopicType;
 import systems.dmx.core.model.ChildTopicsModel;
 import systems.dmx.core.model.SimpleValue;
 import systems.dmx.core.model.TopicModel;
+import systems.dmx.core.service.DMXEvent;
+import systems.dmx.core.service.EventListener;
+import systems.dmx.core.service.EventMetrics;
+import systems.dmx.core.service.ListenerMetrics;
+import systems.dmx.core.service.accesscontrol.AccessControlException;
+import systems.dmx.core.service.event.CheckTopicReadAccess;
 import systems.dmx.core.storage.spi.DMXTransaction;
 
 import static org.junit.Assert.assertEquals;
@@ -27,7 +33,13 @@ import static org.junit.Assert.fail;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
 import static java.util.Arrays.asList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -39,6 +51,15 @@ import java.util.stream.Collectors;
 
 public class EventTest extends CoreServiceTestEnvironment {
 
+    // ------------------------------------------------------------------------------------------------- Class Variables
+
+    private static final DMXEvent TEST_EVENT = new DMXEvent(TestListener.class) {
+        @Override
+        public void dispatch(EventListener listener, Object... params) {
+            ((TestListener) listener).fired((List<String>) params[0]);
+        }
+    };
+
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
     private Logger logger = Logger.getLogger(getClass().getName());
@@ -70,8 +91,103 @@ public class EventTest extends CoreServiceTestEnvironment {
         }
     }
 
+    @Test
+    public void addAndRemoveListeners() {
+        TestListener l1 = calls -> calls.add("l1");
+        TestListener l2 = calls -> calls.add("l2");
+        dmx.em.addListener(TEST_EVENT, l1);
+        dmx.em.addListener(TEST_EVENT, l2);
+        assertEquals(asList("l1", "l2"), fireTestEvent());
+        dmx.em.removeListener(TEST_EVENT, l1);
+        assertEquals(asList("l2"), fireTestEvent());
+        dmx.em.removeListener(TEST_EVENT, l2);
+        assertEquals(asList(), fireTestEvent());
+        try {
+            dmx.em.removeListener(TEST_EVENT, l2);
+            fail("\"Removing ... failed\" exception not thrown");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Removing"));
+        }
+    }
+
+    @Test
+    public void eventMetrics() throws Exception {
+        TestListener listener = calls -> calls.add("l");
+        dmx.em.addListener(TEST_EVENT, listener);
+        try {
+            EventMetrics metrics = dmx.getEventMetrics();
+            fireTestEvent();
+            assertEquals(0, metrics.getListenerMetrics().size());      // disabled by default
+            //
+            metrics.setEnabled(true);
+            fireTestEvent();
+            fireTestEvent();
+            metrics.setEnabled(false);
+            fireTestEvent();
+            //
+            List<ListenerMetrics> listenerMetrics = metrics.getListenerMetrics();
+            assertEquals(1, listenerMetrics.size());
+            ListenerMetrics m = listenerMetrics.get(0);
+            assertEquals("TestListener", m.getEvent());
+            assertEquals(2, m.getCount());
+            assertEquals(2, Arrays.stream(m.getHistogram()).sum());
+            assertEquals(2, m.toJSON().getLong("count"));
+            // JMX
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("systems.dmx.test:type=EventMetrics");
+            server.registerMBean(metrics, name);
+            try {
+                assertEquals(false, server.getAttribute(name, "Enabled"));
+                assertEquals(1, ((Object[]) server.getAttribute(name, "ListenerMetrics")).length);
+            } finally {
+                server.unregisterMBean(name);
+            }
+            //
+            metrics.reset();
+            assertEquals(0, metrics.getListenerMetrics().size());
+        } finally {
+            dmx.em.removeListener(TEST_EVENT, listener);
+        }
+    }
+
+    @Test
+    public void singleObjectReadCheckFiltersLists() {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            dmx.createTopicType(mf.newTopicTypeModel("dmx.test.name", "Name", TEXT));
+            long id1 = dmx.createTopic(mf.newTopicModel("dmx.test.name", new SimpleValue("A"))).getId();
+            long id2 = dmx.createTopic(mf.newTopicModel("dmx.test.name", new SimpleValue("B"))).getId();
+            // a listener which implements only the single-object check, not the batch variant
+            CheckTopicReadAccess listener = topicId -> {
+                if (topicId == id2) {
+                    throw new AccessControlException("No READ permission for topic " + topicId);
+                }
+            };
+            dmx.em.addListener(CoreEvent.CHECK_TOPIC_READ_ACCESS, listener);
+            try {
+                List<Topic> topics = dmx.getTopicsByType("dmx.test.name");
+                assertEquals(1, topics.size());
+                assertEquals(id1, topics.get(0).getId());
+                assertEquals(1, dmx.countTopicsByType("dmx.test.name"));
+                assertEquals(1, dmx.getTopicsByType("dmx.test.name", 0, 10).items.size());
+            } finally {
+                dmx.em.removeListener(CoreEvent.CHECK_TOPIC_READ_ACCESS, listener);
+            }
+            assertEquals(2, dmx.countTopicsByType("dmx.test.name"));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
     // ------------------------------------------------------------------------------------------------- Private Methods
 
+    private List<String> fireTestEvent() {
+        List<String> calls = new ArrayList();
+        dmx.em.fireEvent(TEST_EVENT, calls);
+        return calls;
+    }
+
     private void defineEventModel() {
         defineDateTimeModel();
         // Event
@@ -126,4 +242,10 @@ public class EventTest extends CoreServiceTestEnvironment {
             )
         ));
     }
+
+    // ------------------------------------------------------------------------------------------------- Private Classes
+
+    private interface TestListener extends EventListener {
+        void fired(List<String> calls);
+    }
 }
@@ -0,0 +1,124 @@
+package systems.dmx.core.impl;
+
+import org.eclipse.jetty.websocket.WebSocket.Connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import javax.servlet.http.HttpSession;
+
+import java.lang.reflect.Proxy;
+import static java.util.Arrays.asList;
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+public class MessageQueueTest extends CoreServiceTestEnvironment {
+
+    private static final int CAPACITY = 3;
+
+    // the queue's executor: runs the drain tasks in the test thread, once the test calls drain()
+    private List<Runnable> tasks = new ArrayList();
+
+    // the underlying (stub) Jetty connection
+    private List<String> delivered = new ArrayList();
+    private boolean closed = false;
+
+    @Test
+    public void dropOldest() {
+        MessageQueue queue = openConnection(MessageQueue.OverflowPolicy.DROP_OLDEST).getMessageQueue();
+        for (String message : asList("m1", "m2", "m3", "m4", "m5")) {
+            queue.add(message, null, "key");        // the coalescing key is ignored
+        }
+        drain();
+        assertEquals(asList("m3", "m4", "m5"), delivered);
+        assertEquals(2, queue.getMetrics().getDropped());
+        assertFalse(closed);
+    }
+
+    @Test
+    public void coalesce() {
+        MessageQueue queue = openConnection(MessageQueue.OverflowPolicy.COALESCE).getMessageQueue();
+        queue.add("a1", null, "a");
+        queue.add("b1", null, "b");
+        queue.add("c1", null, null);
+        // the queue is full: a queued message with the same key is replaced, at its position
+        queue.add("a2", null, "a");
+        queue.add("b2", null, "b");
+        // no message with the same key (resp. no key at all): the oldest message is dropped
+        queue.add("d1", null, null);
+        drain();
+        assertEquals(asList("b2", "c1", "d1"), delivered);
+        assertEquals(3, queue.getMetrics().getDropped());
+        // as long as there is room nothing is coalesced
+        delivered.clear();
+        queue.add("a3", null, "a");
+        queue.add("a4", null, "a");
+        drain();
+        assertEquals(asList("a3", "a4"), delivered);
+    }
+
+    @Test
+    public void disconnect() {
+        MessageQueue queue = openConnection(MessageQueue.OverflowPolicy.DISCONNECT).getMessageQueue();
+        for (String message : asList("m1", "m2", "m3")) {
+            queue.add(message, null, null);
+        }
+        assertFalse(closed);
+        // overflow closes the connection and discards the queued messages
+        queue.add("m4", null, null);
+        assertTrue(closed);
+        queue.add("m5", null, null);
+        drain();
+        assertEquals(asList(), delivered);
+    }
+
+    @Test
+    public void connectionFilterIsEvaluatedWhenSending() {
+        MessageQueue queue = openConnection(MessageQueue.OverflowPolicy.DROP_OLDEST).getMessageQueue();
+        List<String> accepted = new ArrayList();
+        queue.add("m1", conn -> accepted.add("m1") && false, null);
+        queue.add("m2", conn -> accepted.add("m2"), null);
+        assertEquals(asList(), accepted);
+        drain();
+        assertEquals(asList("m1", "m2"), accepted);
+        assertEquals(asList("m2"), delivered);
+    }
+
+    // ---
+
+    private WebSocketConnectionImpl openConnection(MessageQueue.OverflowPolicy overflowPolicy) {
+        WebSocketConnectionPool pool = new WebSocketConnectionPool(tasks::add, CAPACITY, overflowPolicy);
+        WebSocketConnectionImpl connection = new WebSocketConnectionImpl("dmx.test", "client-1", stub(HttpSession.class),
+            pool, dmx);
+        connection.onOpen(stub(Connection.class));
+        return connection;
+    }
+
+    private void drain() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    /**
+     * Returns an implementation of the given interface which records the messages sent resp. the connection being
+     * closed (Jetty connection). All the other methods do nothing but return false resp. null.
+     */
+    private <T> T stub(Class<T> iface) {
+        return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class[] {iface},
+            (proxy, method, args) -> {
+                if (iface == Connection.class && method.getName().equals("sendMessage")) {
+                    delivered.add((String) args[0]);
+                } else if (iface == Connection.class && method.getName().equals("close")) {
+                    closed = true;
+                }
+                return method.getReturnType() == boolean.class ? false : null;
+            }
+        ));
+    }
+}
@@ -0,0 +1,75 @@
+package systems.dmx.core.impl;
+
+import org.codehaus.jettison.json.JSONException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+
+
+public class MigrationFileReaderTest {
+
+    @Test
+    public void object() throws JSONException {
+        MigrationFileReader reader = reader(
+            "// Part of DMX\n" +
+            "# Runs ALWAYS\n" +
+            "{\n" +
+            "  \"topic_types\": [\n" +
+            "    {\"value\": \"A [1]\", \"uri\": \"test.a\"},   /* a comment */\n" +
+            "    {\"value\": \"B \\\"}\\\"\", \"uri\": \"test.b\", \"viewConfigTopics\": [{\"x\": [1, 2.5, true]}]}\n" +
+            "  ],\n" +
+            "  \"comment\": {\"topics\": [{}]},\n" +
+            "  \"topics\": []\n" +
+            "}\n");
+        assertEquals("topic_types", reader.nextSection());
+        assertEquals("A [1]", reader.nextEntity().getString("value"));
+        assertEquals("B \"}\"", reader.nextEntity().getString("value"));
+        assertNull(reader.nextEntity());
+        assertEquals("topics", reader.nextSection());       // "comment" is skipped
+        assertNull(reader.nextEntity());
+        assertNull(reader.nextSection());
+    }
+
+    @Test
+    public void arrayOfObjects() throws JSONException {
+        MigrationFileReader reader = reader(
+            "[{\"assoc_types\": [{\"uri\": \"test.x\"}, {\"uri\": \"test.y\"}]}, " +
+             "{\"topic_types\": [{\"uri\": \"test.a\"}], \"topics\": [{\"typeUri\": \"test.a\", \"value\": 1}]}]");
+        assertEquals("assoc_types", reader.nextSection());
+        assertEquals("test.x", reader.nextEntity().getString("uri"));
+        // the remaining entity is skipped
+        assertEquals("topic_types", reader.nextSection());
+        assertEquals("test.a", reader.nextEntity().getString("uri"));
+        assertEquals("topics", reader.nextSection());
+        assertEquals(1, reader.nextEntity().getInt("value"));
+        assertNull(reader.nextEntity());
+        assertNull(reader.nextSection());
+    }
+
+    @Test
+    public void syntaxError() throws JSONException {
+        MigrationFileReader reader = reader("{\"topics\": [{\"value\": 1} {\"value\": 2}]}");
+        assertEquals("topics", reader.nextSection());
+        reader.nextEntity();
+        try {
+            reader.nextEntity();
+            fail("JSONException not thrown");
+        } catch (JSONException e) {
+            assertTrue(e.getMessage().startsWith("Expected ','"));
+        }
+    }
+
+    // ---
+
+    private MigrationFileReader reader(String json) {
+        return new MigrationFileReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,107 @@
+package systems.dmx.core.impl;
+
+import static systems.dmx.core.Constants.*;
+import systems.dmx.core.Assoc;
+import systems.dmx.core.Topic;
+import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.service.accesscontrol.Operation;
+import systems.dmx.core.storage.spi.DMXTransaction;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+
+public class PermissionCacheTest extends CoreServiceTestEnvironment {
+
+    private static final String WORKSPACE    = "dmx.workspaces.workspace";
+    private static final String SHARING_MODE = "dmx.workspaces.sharing_mode";
+    private static final String USERNAME     = "dmx.accesscontrol.username";
+    private static final String MEMBERSHIP   = "dmx.accesscontrol.membership";
+    private static final String NOTE         = "dmx.test.note";
+
+    private static final String PROP_OWNER        = "dmx.accesscontrol.owner";
+    private static final String PROP_WORKSPACE_ID = "dmx.workspaces.workspace_id";
+
+    private Topic workspace, username, note;
+    private DMXTransaction tx;
+
+    @Before
+    public void setupModel() {
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            // the subset of the Workspaces/Access Control plugins' model which is needed for a permission check
+            dmx.createTopicType(mf.newTopicTypeModel(WORKSPACE, "Workspace", TEXT));
+            dmx.createTopicType(mf.newTopicTypeModel(SHARING_MODE, "Sharing Mode", TEXT));
+            dmx.createTopicType(mf.newTopicTypeModel(USERNAME, "Username", TEXT));
+            dmx.createTopicType(mf.newTopicTypeModel(NOTE, "Note", TEXT));
+            dmx.createAssocType(mf.newAssocTypeModel(MEMBERSHIP, "Membership", TEXT));
+            //
+            Topic confidential = dmx.createTopic(mf.newTopicModel("dmx.workspaces.confidential", SHARING_MODE,
+                new SimpleValue("Confidential")));
+            workspace = dmx.createTopic(mf.newTopicModel(WORKSPACE, new SimpleValue("Workspace")));
+            workspace.setProperty(PROP_OWNER, "alice", false);                          // addToIndex=false
+            dmx.createAssoc(mf.newAssocModel(COMPOSITION,
+                mf.newTopicPlayerModel(workspace.getId(), PARENT),
+                mf.newTopicPlayerModel(confidential.getId(), CHILD)
+            ));
+            dmx.createTopic(mf.newTopicModel(USERNAME, new SimpleValue("alice")));
+            username = dmx.createTopic(mf.newTopicModel(USERNAME, new SimpleValue("bob")));
+            note = dmx.createTopic(mf.newTopicModel(NOTE, new SimpleValue("Note")));
+            note.setProperty(PROP_WORKSPACE_ID, workspace.getId(), true);              // addToIndex=true
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        // the test runs in request scope, within a single transaction
+        PermissionCache.begin();
+        this.tx = dmx.beginTx();
+    }
+
+    @After
+    public void finishRequest() {
+        tx.finish();
+        PermissionCache.remove();
+    }
+
+    @Test
+    public void membershipChangeIsNotHiddenByCache() {
+        assertFalse(canRead("bob"));
+        Assoc membership = dmx.createAssoc(mf.newAssocModel(MEMBERSHIP,
+            mf.newTopicPlayerModel(username.getId(), DEFAULT),
+            mf.newTopicPlayerModel(workspace.getId(), DEFAULT)
+        ));
+        assertTrue(canRead("bob"));
+        membership.delete();
+        assertFalse(canRead("bob"));
+    }
+
+    @Test
+    public void ownerChangeIsNotHiddenByCache() {
+        assertTrue(canRead("alice"));
+        assertFalse(canRead("bob"));
+        workspace.setProperty(PROP_OWNER, "bob", false);        // addToIndex=false
+        assertFalse(canRead("alice"));
+        assertTrue(canRead("bob"));
+    }
+
+    @Test
+    public void changeBypassingTheHooksIsHiddenByCache() {
+        assertFalse(canRead("bob"));
+        // a direct storage access does not invalidate the cache
+        dmx.al.db.storeTopicProperty(workspace.getId(), PROP_OWNER, "bob", false);
+        assertFalse(canRead("bob"));
+        PermissionCache.invalidate(workspace.getId());
+        assertTrue(canRead("bob"));
+    }
+
+    // ---
+
+    private boolean canRead(String username) {
+        return dmx.getPrivilegedAccess().hasPermission(username, Operation.READ, note.getId());
+    }
+}
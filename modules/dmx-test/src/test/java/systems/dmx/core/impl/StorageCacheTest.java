@@ -0,0 +1,141 @@
+package systems.dmx.core.impl;
+
+import static systems.dmx.core.Constants.*;
+import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.service.CacheStats;
+import systems.dmx.core.storage.spi.DMXTransaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+
+
+public class StorageCacheTest extends CoreServiceTestEnvironment {
+
+    private StorageCache cache;
+
+    @Before
+    public void setupCache() {
+        cache = new StorageCache(dmx.al.db, 1000);
+    }
+
+    // ---
+
+    @Test
+    public void hits() {
+        long topicId = createTopic("A");
+        assertEquals("A", cache.fetchTopic(topicId).getSimpleValue().toString());     // miss
+        TopicModelImpl topic = cache.fetchTopic(topicId);                             // hit
+        assertEquals("A", topic.getSimpleValue().toString());
+        // the cached model is not handed out
+        topic.setSimpleValue("X");
+        assertEquals("A", cache.fetchObject(topicId).getSimpleValue().toString());    // hit
+        //
+        CacheStats stats = cache.getCacheStats().get(0);
+        assertEquals("objects", stats.getName());
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        //
+        cache.reset();
+        assertEquals(0, cache.getCacheStats().get(0).getHits());
+        assertEquals(1, cache.getCacheStats().get(0).getSize());
+    }
+
+    @Test
+    public void commit() {
+        long topicId = createTopic("A");
+        cache.fetchTopic(topicId);
+        DMXTransaction tx = cache.beginTx();
+        try {
+            cache.storeTopicValue(topicId, new SimpleValue("B"), TEXT, false);
+            // the writing thread sees its own write
+            assertEquals("B", cache.fetchTopic(topicId).getSimpleValue().toString());
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        assertEquals("B", cache.fetchTopic(topicId).getSimpleValue().toString());
+    }
+
+    @Test
+    public void rollback() {
+        long topicId = createTopic("A");
+        cache.fetchTopic(topicId);
+        DMXTransaction tx = cache.beginTx();
+        try {
+            cache.storeTopicValue(topicId, new SimpleValue("B"), TEXT, false);
+            assertEquals("B", cache.fetchTopic(topicId).getSimpleValue().toString());
+            tx.failure();
+        } finally {
+            tx.finish();
+        }
+        // the rolled back write is not cached
+        assertEquals("A", cache.fetchTopic(topicId).getSimpleValue().toString());
+    }
+
+    @Test
+    public void relatedTopics() {
+        long topicId1 = createTopic("A");
+        long topicId2 = createTopic("B");
+        long assocId = createAssoc(topicId1, topicId2);
+        //
+        List<RelatedTopicModelImpl> topics = cache.fetchTopicRelatedTopics(topicId1, ASSOCIATION, DEFAULT, DEFAULT,
+            TEXT);                                                                                  // miss
+        assertEquals(1, topics.size());
+        topics = cache.fetchTopicRelatedTopics(topicId1, ASSOCIATION, DEFAULT, DEFAULT, TEXT);     // hit
+        assertEquals(1, topics.size());
+        assertEquals(topicId2, topics.get(0).getId());
+        assertEquals("B", topics.get(0).getSimpleValue().toString());
+        assertEquals(assocId, topics.get(0).getRelatingAssoc().getId());
+        // a related topic is not returned as a plain topic
+        assertTrue(cache.fetchTopic(topicId2).getClass() == TopicModelImpl.class);
+        //
+        CacheStats stats = cache.getCacheStats().get(1);
+        assertEquals("relatedTopics", stats.getName());
+        assertEquals(1, stats.getHits());
+        // deleting the assoc invalidates the related topics of both players
+        DMXTransaction tx = cache.beginTx();
+        try {
+            cache.deleteAssoc(assocId);
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        assertEquals(0, cache.fetchTopicRelatedTopics(topicId1, ASSOCIATION, DEFAULT, DEFAULT, TEXT).size());
+        assertEquals(0, cache.fetchTopicRelatedTopics(topicId2, ASSOCIATION, DEFAULT, DEFAULT, TEXT).size());
+    }
+
+    // ---
+
+    private long createTopic(String value) {
+        DMXTransaction tx = cache.beginTx();
+        try {
+            TopicModelImpl topic = mf.newTopicModel(TEXT);
+            cache.storeTopic(topic);
+            cache.storeTopicValue(topic.getId(), new SimpleValue(value), TEXT, false);
+            tx.success();
+            return topic.getId();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    private long createAssoc(long topicId1, long topicId2) {
+        DMXTransaction tx = cache.beginTx();
+        try {
+            AssocModelImpl assoc = mf.newAssocModel(ASSOCIATION, mf.newTopicPlayerModel(topicId1, DEFAULT),
+                mf.newTopicPlayerModel(topicId2, DEFAULT));
+            cache.storeAssoc(assoc);
+            cache.storeAssocValue(assoc.getId(), new SimpleValue(""), ASSOCIATION, false);
+            tx.success();
+            return assoc.getId();
+        } finally {
+            tx.finish();
+        }
+    }
+}
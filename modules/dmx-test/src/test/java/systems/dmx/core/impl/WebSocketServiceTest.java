@@ -0,0 +1,151 @@
+package systems.dmx.core.impl;
+
+import systems.dmx.core.service.CoreService;
+import systems.dmx.core.service.accesscontrol.PrivilegedAccess;
+
+import org.eclipse.jetty.websocket.WebSocket.Connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpSession;
+
+import java.lang.reflect.Proxy;
+import static java.util.Arrays.asList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+
+public class WebSocketServiceTest {
+
+    private static final long OBJECT_ID = 1234;
+
+    // the queues' executor: runs the drain tasks in the test thread, once the test calls drain()
+    private List<Runnable> tasks = new ArrayList();
+
+    // the usernames hasPermission() is called with
+    private List<String> permissionChecks = new ArrayList();
+
+    // key: client ID
+    private Map<String, String> usernames = new HashMap();
+    private Map<String, List<String>> delivered = new HashMap();
+
+    private CoreService dmx;
+    private WebSocketConnectionPool pool;
+    private WebSocketServiceImpl wss;
+
+    @Before
+    public void setupService() {
+        dmx = stub(CoreService.class, null);
+        pool = new WebSocketConnectionPool(tasks::add, 10, MessageQueue.OverflowPolicy.DROP_OLDEST);
+        wss = new WebSocketServiceImpl(dmx, pool);
+        openConnection("alice-1", "alice");
+        openConnection("alice-2", "alice");
+        openConnection("bob-1", "bob");
+    }
+
+    @Test
+    public void permissionIsCheckedOncePerUsername() {
+        assertEquals(asList("alice", "bob"), sorted(pool.getConnectionsByUsername().keySet()));
+        //
+        wss._sendToReadAllowed("m1", OBJECT_ID);
+        drain();
+        assertEquals(asList("alice", "bob"), sorted(permissionChecks));
+        assertEquals(asList("m1"), delivered.get("alice-1"));
+        assertEquals(asList("m1"), delivered.get("alice-2"));
+        assertEquals(asList("m1"), delivered.get("bob-1"));
+    }
+
+    @Test
+    public void connectionIsRegroupedOnceItsUsernameChanged() {
+        usernames.put("alice-2", "carol");          // alice-2 logs out and carol logs in, same browser tab
+        wss._sendToReadAllowed("m1", OBJECT_ID);
+        drain();
+        // alice-2 is still grouped under "alice", but is checked for "carol"
+        assertEquals(asList("alice", "bob", "carol"), sorted(permissionChecks));
+        assertEquals(asList("alice", "bob", "carol"), sorted(pool.getConnectionsByUsername().keySet()));
+        assertEquals(asList("alice-2"), clientIds(pool.getConnectionsByUsername().get("carol")));
+        //
+        permissionChecks.clear();
+        wss._sendToReadAllowed("m2", OBJECT_ID);
+        drain();
+        assertEquals(asList("alice", "bob", "carol"), sorted(permissionChecks));
+        assertEquals(asList("m1", "m2"), delivered.get("alice-2"));
+    }
+
+    @Test
+    public void closedConnectionIsUngrouped() {
+        pool.getConnection("bob-1").onClose(1000, null);
+        assertNull(pool.getConnectionsByUsername().get("bob"));
+        pool.getConnection("alice-1").onClose(1000, null);
+        assertEquals(asList("alice-2"), clientIds(pool.getConnectionsByUsername().get("alice")));
+        //
+        wss._sendToReadAllowed("m1", OBJECT_ID);
+        drain();
+        assertEquals(asList("alice"), permissionChecks);
+    }
+
+    // ---
+
+    private void openConnection(String clientId, String username) {
+        usernames.put(clientId, username);
+        delivered.put(clientId, new ArrayList());
+        new WebSocketConnectionImpl("dmx.test", clientId, stub(HttpSession.class, clientId), pool, dmx)
+            .onOpen(stub(Connection.class, clientId));
+    }
+
+    private void drain() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private List<String> clientIds(List<WebSocketConnectionImpl> connections) {
+        List<String> clientIds = new ArrayList();
+        connections.forEach(conn -> clientIds.add(conn.getClientId()));
+        return sorted(clientIds);
+    }
+
+    private List<String> sorted(Iterable<String> values) {
+        List<String> list = new ArrayList();
+        values.forEach(list::add);
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Returns an implementation of the given interface. The session (resp. Jetty connection) of the given client
+     * reports the client's current username (resp. records the messages sent). The core service's privileged access
+     * records the permission checks, and grants them all. All the other methods do nothing but return false resp.
+     * null.
+     */
+    private <T> T stub(Class<T> iface, String clientId) {
+        return iface.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {iface},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "getPrivilegedAccess":
+                    return stub(PrivilegedAccess.class, null);
+                case "username":
+                    return ((HttpSession) args[0]).getAttribute("username");
+                case "hasPermission":
+                    permissionChecks.add((String) args[0]);
+                    return true;
+                case "getAttribute":
+                    return usernames.get(clientId);
+                case "sendMessage":
+                    delivered.get(clientId).add((String) args[0]);
+                    return null;
+                default:
+                    return method.getReturnType() == boolean.class ? false : null;
+                }
+            }
+        ));
+    }
+}
@@ -0,0 +1,118 @@
+package systems.dmx.topicmaps;
+
+import static systems.dmx.topicmaps.Constants.*;
+import static systems.dmx.core.Constants.*;
+import systems.dmx.core.Assoc;
+import systems.dmx.core.Topic;
+import systems.dmx.core.impl.CoreServiceTestEnvironment;
+import systems.dmx.core.model.SimpleValue;
+import systems.dmx.core.service.ModelFactory;
+import systems.dmx.core.storage.spi.DMXTransaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+
+public class TopicmapIndexTest extends CoreServiceTestEnvironment {
+
+    private static final String VIEW = "anonymous";
+
+    private TopicmapIndex index;
+    private ModelFactory mf;    // the impl classes are not accessible from this package
+
+    private Topic topicmap, topic1, topic2;
+    private Assoc mapcontext1;
+
+    @Before
+    public void setupModel() {
+        index = new TopicmapIndex(dmx);
+        mf = dmx.getModelFactory();
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            // the subset of the Topicmaps plugin's model which is needed to index topicmaps
+            dmx.createTopicType(mf.newTopicTypeModel(TOPICMAP, "Topicmap", TEXT));
+            dmx.createAssocType(mf.newAssocTypeModel(TOPICMAP_CONTEXT, "Topicmap Context", TEXT));
+            dmx.createRoleType(mf.newTopicModel(TOPICMAP_CONTENT, ROLE_TYPE, new SimpleValue("Topicmap Content")));
+            //
+            topicmap = dmx.createTopic(mf.newTopicModel(TOPICMAP, new SimpleValue("Topicmap")));
+            topic1 = dmx.createTopic(mf.newTopicModel(TOPICMAP, new SimpleValue("Topic 1")));
+            topic2 = dmx.createTopic(mf.newTopicModel(TOPICMAP, new SimpleValue("Topic 2")));
+            mapcontext1 = dmx.createAssoc(mf.newAssocModel(TOPICMAP_CONTEXT,
+                mf.newTopicPlayerModel(topicmap.getId(), DEFAULT),
+                mf.newTopicPlayerModel(topic1.getId(), TOPICMAP_CONTENT)
+            ));
+            mapcontext1.setProperty(VISIBILITY, true, false);     // addToIndex=false
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void writesOnlyChangeTheRequestsWorkingCopy() {
+        long mapId = topicmap.getId();
+        assertTrue(index.getMember(mapId, topic1.getId(), new TopicmapIndex.Scope(VIEW)).visibility);   // indexes
+        //
+        TopicmapIndex.Scope writer = new TopicmapIndex.Scope(VIEW);
+        index.setVisibility(mapId, topic1.getId(), false, writer);
+        index.putMember(mapId, topic2.getId(), 1234, true, writer);
+        // the writing request sees its writes
+        assertFalse(index.getMember(mapId, topic1.getId(), writer).visibility);
+        assertEquals(1234, index.getMember(mapId, topic2.getId(), writer).mapcontextId);
+        // other requests do not
+        TopicmapIndex.Scope reader = new TopicmapIndex.Scope(VIEW);
+        assertTrue(index.getMember(mapId, topic1.getId(), reader).visibility);
+        assertNull(index.getMember(mapId, topic2.getId(), reader));
+        // once the writing request is finished the topicmap is indexed from the DB again. Here the writes were not
+        // stored, as if the transaction was rolled back.
+        index.requestFinished(writer);
+        reader = new TopicmapIndex.Scope(VIEW);
+        assertTrue(index.getMember(mapId, topic1.getId(), reader).visibility);
+        assertNull(index.getMember(mapId, topic2.getId(), reader));
+    }
+
+    @Test
+    public void writeOutsideRequestScopeEvicts() {
+        long mapId = topicmap.getId();
+        assertTrue(index.getMember(mapId, topic1.getId(), new TopicmapIndex.Scope(VIEW)).visibility);   // indexes
+        //
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            mapcontext1.setProperty(VISIBILITY, false, false);    // addToIndex=false
+            index.setVisibility(mapId, topic1.getId(), false, null);
+            // outside request scope nothing is indexed
+            assertFalse(index.getMember(mapId, topic1.getId(), null).visibility);
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        assertFalse(index.getMember(mapId, topic1.getId(), new TopicmapIndex.Scope(VIEW)).visibility);
+    }
+
+    @Test
+    public void permissionChangeClearsIndex() {
+        long mapId = topicmap.getId();
+        TopicmapIndex.Scope scope = new TopicmapIndex.Scope(VIEW);
+        assertNotNull(index.getMember(mapId, topic1.getId(), scope));   // indexes
+        //
+        DMXTransaction tx = dmx.beginTx();
+        try {
+            mapcontext1.delete();   // e.g. the topic became unreadable
+            index.permissionsChanged(scope);
+            // the changing request no longer uses the index
+            assertNull(index.getMember(mapId, topic1.getId(), scope));
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        index.requestFinished(scope);
+        assertNull(index.getMember(mapId, topic1.getId(), new TopicmapIndex.Scope(VIEW)));
+    }
+}
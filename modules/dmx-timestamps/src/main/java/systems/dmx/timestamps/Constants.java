@@ -7,4 +7,9 @@ public class Constants {
     // Props (topic/assoc)
     public static final String CREATED  = "dmx.timestamps.created";
     public static final String MODIFIED = "dmx.timestamps.modified";
+
+    // Note: the Timestamps plugin does not depend on the Workspaces plugin
+    static final String WORKSPACE            = "dmx.workspaces.workspace";
+    static final String WORKSPACE_ASSIGNMENT = "dmx.workspaces.workspace_assignment";
+    static final String PROP_WORKSPACE_ID    = "dmx.workspaces.workspace_id";
 }
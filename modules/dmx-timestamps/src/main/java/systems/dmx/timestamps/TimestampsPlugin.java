@@ -1,6 +1,7 @@
 package systems.dmx.timestamps;
 
 import static systems.dmx.timestamps.Constants.*;
+import static systems.dmx.core.Constants.*;
 import systems.dmx.core.Assoc;
 import systems.dmx.core.DMXObject;
 import systems.dmx.core.Topic;
@@ -13,11 +14,19 @@ import systems.dmx.core.service.event.PostCreateAssoc;
 import systems.dmx.core.service.event.PostCreateTopic;
 import systems.dmx.core.service.event.PostUpdateAssoc;
 import systems.dmx.core.service.event.PostUpdateTopic;
+import systems.dmx.core.service.event.PreDeleteAssoc;
+import systems.dmx.core.service.event.PreDeleteTopic;
 import systems.dmx.core.service.event.PreSendAssoc;
+import systems.dmx.core.service.event.PreSendAssocs;
 import systems.dmx.core.service.event.PreSendTopic;
+import systems.dmx.core.service.event.PreSendTopics;
+import systems.dmx.core.service.event.PreUpdateAssoc;
+import systems.dmx.core.service.event.PreUpdateTopic;
+import systems.dmx.core.service.event.ServiceRequestFilter;
 import systems.dmx.core.service.event.ServiceResponseFilter;
 
 // ### TODO: hide Jersey internals. Upgrade to JAX-RS 2.0.
+import com.sun.jersey.spi.container.ContainerRequest;
 import com.sun.jersey.spi.container.ContainerResponse;
 
 import javax.ws.rs.GET;
@@ -29,9 +38,16 @@ import javax.ws.rs.core.MultivaluedMap;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 
@@ -45,6 +61,13 @@ public class TimestampsPlugin extends PluginActivator implements TimestampsServi
                                                                                     PostUpdateAssoc,
                                                                                     PreSendTopic,
                                                                                     PreSendAssoc,
+                                                                                    PreSendTopics,
+                                                                                    PreSendAssocs,
+                                                                                    PreUpdateTopic,
+                                                                                    PreUpdateAssoc,
+                                                                                    PreDeleteTopic,
+                                                                                    PreDeleteAssoc,
+                                                                                    ServiceRequestFilter,
                                                                                     ServiceResponseFilter {
 
     // ------------------------------------------------------------------------------------------------------- Constants
@@ -55,6 +78,18 @@ public class TimestampsPlugin extends PluginActivator implements TimestampsServi
 
     private DateFormat rfc2822;
 
+    // Modification counts
+    private long countsEpoch = System.currentTimeMillis();
+    private AtomicLong modificationCount = new AtomicLong();
+    private Map<String, AtomicLong> typeCounts = new ConcurrentHashMap();
+    private Map<Long, AtomicLong> workspaceCounts = new ConcurrentHashMap();
+
+    /**
+     * The count keys (type URIs and workspace IDs) modified by the current request. <code>null</code> outside
+     * requests.
+     */
+    private ThreadLocal<Set<Object>> pendingCounts = new ThreadLocal();
+
     private Logger logger = Logger.getLogger(getClass().getName());
 
     // -------------------------------------------------------------------------------------------------- Public Methods
@@ -99,6 +134,31 @@ public class TimestampsPlugin extends PluginActivator implements TimestampsServi
     @Override
     public void setModified(DMXObject object) {
         storeTimestamp(object);
+        countModification(object);
+    }
+
+
+
+    // === Modification Counts ===
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    @Override
+    public long getModificationCount(String typeUri) {
+        return count(typeCounts, typeUri);
+    }
+
+    @Override
+    public long getWorkspaceModificationCount(long workspaceId) {
+        return count(workspaceCounts, workspaceId);
+    }
+
+    @Override
+    public long getModificationCountsEpoch() {
+        return countsEpoch;
     }
 
 
@@ -161,21 +221,45 @@ public class TimestampsPlugin extends PluginActivator implements TimestampsServi
     @Override
     public void postCreateTopic(Topic topic) {
         storeTimestamps(topic);
+        countModification(topic);
     }
 
     @Override
     public void postCreateAssoc(Assoc assoc) {
         storeTimestamps(assoc);
+        countModification(assoc);
+    }
+
+    @Override
+    public void preUpdateTopic(Topic topic, TopicModel updateModel) {
+        countModification(topic);       // counts the former type
+    }
+
+    @Override
+    public void preUpdateAssoc(Assoc assoc, AssocModel updateModel) {
+        countModification(assoc);       // counts the former type and players
     }
 
     @Override
     public void postUpdateTopic(Topic topic, ChangeReport report, TopicModel updateModel) {
         storeTimestamp(topic);
+        countModification(topic);
     }
 
     @Override
     public void postUpdateAssoc(Assoc assoc, ChangeReport report, AssocModel updateModel) {
         storeTimestamp(assoc);
+        countModification(assoc);
+    }
+
+    @Override
+    public void preDeleteTopic(Topic topic) {
+        countModification(topic);
+    }
+
+    @Override
+    public void preDeleteAssoc(Assoc assoc) {
+        countModification(assoc);
     }
 
     // ---
@@ -190,14 +274,30 @@ public class TimestampsPlugin extends PluginActivator implements TimestampsServi
         enrichWithTimestamp(assoc);
     }
 
+    @Override
+    public void preSendTopics(List<Topic> topics) {
+        enrichWithTimestamps(topics);
+    }
+
+    @Override
+    public void preSendAssocs(List<Assoc> assocs) {
+        enrichWithTimestamps(assocs);
+    }
+
     // ---
 
+    @Override
+    public void serviceRequestFilter(ContainerRequest request) {
+        pendingCounts.set(new HashSet());
+    }
+
     @Override
     public void serviceResponseFilter(ContainerResponse response) {
         DMXObject object = responseObject(response);
         if (object != null) {
             setLastModifiedHeader(response, getModificationTime(object.getId()));
         }
+        countCommittedModifications();
     }
 
 
@@ -231,6 +331,70 @@ public class TimestampsPlugin extends PluginActivator implements TimestampsServi
         object.setProperty(propUri, time, true);    // addToIndex=true
     }
 
+    // === Modification Counts ===
+
+    /**
+     * Increases the counts affected by a modification of the given object: the overall count, the count of the
+     * object's type, and the count of the object's workspace. For a workspace assignment the counts of the assigned
+     * workspace and of the assigned object's type are increased as well.
+     * <p>
+     * Note: a workspace (re)assignment stores the object's workspace ID as a property, without firing an update event.
+     * So the assignment association is the only evidence that the set of objects readable in a type has changed.
+     * <p>
+     * Note: the modification is not yet committed. A reader who reads the increased count and then the uncommitted
+     * data would associate the count with outdated data. So within a request the counts are increased again once the
+     * transaction is committed (see {@link #countCommittedModifications}).
+     */
+    private void countModification(DMXObject object) {
+        try {
+            Set<Object> pending = pendingCounts.get();
+            countModification(typeCounts, object.getTypeUri(), pending);
+            if (object.hasProperty(PROP_WORKSPACE_ID)) {
+                countModification(workspaceCounts, (Long) object.getProperty(PROP_WORKSPACE_ID), pending);
+            }
+            if (object.getTypeUri().equals(WORKSPACE_ASSIGNMENT)) {
+                Assoc assoc = (Assoc) object;
+                DMXObject workspace = assoc.getDMXObjectByType(WORKSPACE);
+                if (workspace != null) {
+                    countModification(workspaceCounts, workspace.getId(), pending);
+                }
+                DMXObject assignedObject = assoc.getDMXObjectByRole(PARENT);
+                if (assignedObject != null) {
+                    countModification(typeCounts, assignedObject.getTypeUri(), pending);
+                }
+            }
+            modificationCount.incrementAndGet();
+        } catch (Exception e) {
+            throw new RuntimeException("Counting modification of object " + object.getId() + " failed", e);
+        }
+    }
+
+    private <K> void countModification(Map<K, AtomicLong> counts, K key, Set<Object> pending) {
+        counts.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        if (pending != null) {
+            pending.add(key);
+        }
+    }
+
+    /**
+     * Called once a request is processed, that is after its transaction is committed.
+     */
+    private void countCommittedModifications() {
+        Set<Object> pending = pendingCounts.get();
+        pendingCounts.remove();
+        if (pending != null && !pending.isEmpty()) {
+            for (Object key : pending) {
+                (key instanceof String ? typeCounts : workspaceCounts).get(key).incrementAndGet();
+            }
+            modificationCount.incrementAndGet();
+        }
+    }
+
+    private <K> long count(Map<K, AtomicLong> counts, K key) {
+        AtomicLong count = counts.get(key);
+        return count != null ? count.get() : 0;
+    }
+
     // ===
 
     // ### FIXME: copy in CachingPlugin
@@ -246,6 +410,27 @@ public class TimestampsPlugin extends PluginActivator implements TimestampsServi
             .set(MODIFIED, getModificationTime(objectId));
     }
 
+    /**
+     * Fetches the timestamps of all the given objects with one storage call (one node lookup per object).
+     */
+    private void enrichWithTimestamps(List<? extends DMXObject> objects) {
+        try {
+            List<Long> objectIds = new ArrayList();
+            for (DMXObject object : objects) {
+                objectIds.add(object.getId());
+            }
+            Map<Long, Map<String, Object>> timestamps = dmx.getProperties(objectIds, CREATED, MODIFIED);
+            for (DMXObject object : objects) {
+                Map<String, Object> props = timestamps.get(object.getId());
+                object.getChildTopics().getModel()
+                    .set(CREATED, (Long) props.getOrDefault(CREATED, 0L))
+                    .set(MODIFIED, (Long) props.getOrDefault(MODIFIED, 0L));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Enriching " + objects.size() + " objects with timestamps failed", e);
+        }
+    }
+
     // ---
 
     private void setLastModifiedHeader(ContainerResponse response, long time) {
@@ -20,6 +20,33 @@ public interface TimestampsService {
 
     void setModified(DMXObject object);
 
+    // === Modification Counts ===
+
+    // Note: the counts are held in memory. They start at 0 when the plugin is activated, so they are only
+    // comparable along with the epoch.
+
+    /**
+     * Returns a count which is increased whenever a topic or association is created, updated, or deleted.
+     */
+    long getModificationCount();
+
+    /**
+     * Returns a count which is increased whenever a topic or association of the given type is created, updated, or
+     * deleted.
+     */
+    long getModificationCount(String typeUri);
+
+    /**
+     * Returns a count which is increased whenever a topic or association assigned to the given workspace is created,
+     * updated, or deleted, and whenever an object is assigned to the given workspace.
+     */
+    long getWorkspaceModificationCount(long workspaceId);
+
+    /**
+     * Returns the time the modification counts were started.
+     */
+    long getModificationCountsEpoch();
+
     // === Retrieval ===
 
     Collection<Topic> getTopicsByCreationTime(long from, long to);
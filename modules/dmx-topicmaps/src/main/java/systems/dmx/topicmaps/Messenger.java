@@ -5,6 +5,7 @@ import systems.dmx.core.model.topicmaps.ViewAssoc;
 import systems.dmx.core.model.topicmaps.ViewTopic;
 import systems.dmx.core.service.websocket.WebSocketService;
 
+import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 
 import java.util.logging.Level;
@@ -80,13 +81,38 @@ class Messenger {
                         .put("x", x)
                         .put("y", y)
                     )
-                )
+                ), "setTopicPosition:" + topicmapId + ":" + topicId
             );
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error while sending a \"setTopicPosition\" message:", e);
         }
     }
 
+    /**
+     * Sends the positions of several topics in one message.
+     */
+    void setTopicPositions(long topicmapId, TopicCoords coords) {
+        try {
+            JSONArray topicCoords = new JSONArray();
+            for (TopicCoords.Entry entry : coords) {
+                topicCoords.put(new JSONObject()
+                    .put("topicId", entry.topicId)
+                    .put("x", entry.x)
+                    .put("y", entry.y)
+                );
+            }
+            sendToAllButOrigin(new JSONObject()
+                .put("type", "setTopicPositions")
+                .put("args", new JSONObject()
+                    .put("topicmapId", topicmapId)
+                    .put("topicCoords", topicCoords)
+                )
+            );
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error while sending a \"setTopicPositions\" message:", e);
+        }
+    }
+
     void setTopicVisibility(long topicmapId, long topicId, boolean visibility) {
         try {
             sendToAllButOrigin(new JSONObject()
@@ -95,7 +121,7 @@ class Messenger {
                     .put("topicmapId", topicmapId)
                     .put("topicId", topicId)
                     .put("visibility", visibility)
-                )
+                ), "setTopicVisibility:" + topicmapId + ":" + topicId
             );
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error while sending a \"setTopicVisibility\" message:", e);
@@ -110,7 +136,7 @@ class Messenger {
                     .put("topicmapId", topicmapId)
                     .put("assocId", assocId)
                     .put("visibility", visibility)
-                )
+                ), "setAssocVisibility:" + topicmapId + ":" + assocId
             );
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error while sending a \"setAssocVisibility\" message:", e);
@@ -123,6 +149,14 @@ class Messenger {
         wss.sendToAllButOrigin(message.toString());
     }
 
+    /**
+     * @param   coalescingKey   identifies the state carried by the message, see
+     *                          {@link WebSocketService#sendToAllButOrigin(String, String)}
+     */
+    private void sendToAllButOrigin(JSONObject message, String coalescingKey) {
+        wss.sendToAllButOrigin(message.toString(), coalescingKey);
+    }
+
     private void sendToReadAllowed(JSONObject message, long objectId) {
         wss.sendToReadAllowed(message.toString(), objectId);
     }
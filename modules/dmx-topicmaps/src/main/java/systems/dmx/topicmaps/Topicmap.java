@@ -6,6 +6,7 @@ import systems.dmx.core.model.topicmaps.ViewAssoc;
 import systems.dmx.core.model.topicmaps.ViewProps;
 import systems.dmx.core.model.topicmaps.ViewTopic;
 import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.util.JSONGenerator;
 
 import org.codehaus.jettison.json.JSONObject;
 
@@ -81,6 +82,14 @@ public class Topicmap implements JSONEnabled {
         }
     }
 
+    @Override
+    public void writeJSONFields(JSONGenerator out) {
+        out.field("topic", topicmapTopic)
+           .field("viewProps", viewProps)
+           .name("topics").array(topics.values())
+           .name("assocs").array(assocs.values());
+    }
+
     @Override
     public String toString() {
         return "topicmap " + getId();
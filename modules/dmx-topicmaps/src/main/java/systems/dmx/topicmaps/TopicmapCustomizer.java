@@ -3,9 +3,26 @@ package systems.dmx.topicmaps;
 import systems.dmx.core.RelatedTopic;
 import systems.dmx.core.model.topicmaps.ViewProps;
 
+import java.util.List;
+import java.util.Map;
+
 
 
 public interface TopicmapCustomizer {
 
     void customizeTopic(RelatedTopic topic, ViewProps viewProps);
+
+    /**
+     * Customizes all topics of a topicmap at once. Called when a topicmap is loaded.
+     * <p>
+     * The default implementation calls {@link #customizeTopic} for each topic. Customizers which load data per topic
+     * are supposed to override this and load the data for all topics at once.
+     *
+     * @param   viewProps   a map: topic ID -> view props
+     */
+    default void customizeTopics(List<RelatedTopic> topics, Map<Long, ViewProps> viewProps) {
+        for (RelatedTopic topic : topics) {
+            customizeTopic(topic, viewProps.get(topic.getId()));
+        }
+    }
 }
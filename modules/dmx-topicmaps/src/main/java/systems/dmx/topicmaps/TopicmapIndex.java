@@ -0,0 +1,290 @@
+package systems.dmx.topicmaps;
+
+import static systems.dmx.topicmaps.Constants.*;
+import static systems.dmx.core.Constants.*;
+import systems.dmx.core.RelatedObject;
+import systems.dmx.core.Topic;
+import systems.dmx.core.service.CoreService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+
+
+/**
+ * An in-memory index of topicmap memberships: per topicmap the IDs of the contained topics and assocs, along with
+ * their topicmap context ID and visibility. Lets auto-reveal/auto-hide find the topicmap contexts of an object's
+ * neighbors without a database query per neighbor.
+ * <p>
+ * A topicmap is indexed lazily, on first access. As the content of a topicmap is subject to access control it is
+ * indexed per "view" (a username, resp. anonymous). The least recently used topicmaps are evicted.
+ * <p>
+ * The index only ever contains committed data:
+ * <ul>
+ * <li>A request never changes the index. It applies its writes to a private working copy of the written topicmap
+ *     instead (see {@link Scope}). Once the request is finished, that is its transaction is committed resp. rolled
+ *     back, the written topicmaps are evicted.
+ * <li>A topicmap is indexed only by a request which has not written it (and has not changed any permissions).
+ * <li>Outside request scope (e.g. while system startup) nothing is indexed and a write evicts the topicmap right away.
+ *     Note: there is no way to learn when such a write is committed. So a request which indexes the topicmap
+ *     meanwhile indexes its former state.
+ * </ul>
+ * Access control relevant modifications (memberships, workspace assignments, sharing modes) clear the entire index.
+ */
+class TopicmapIndex {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    private static final int CAPACITY = 100;    // the maximum number of indexed topicmaps
+
+    // ---------------------------------------------------------------------------------------------- Instance Variables
+
+    private CoreService dmx;
+
+    /**
+     * Topicmap ID -> (view -> (object ID -> member)). Access ordered. Guarded by "this".
+     */
+    private Map<Long, Map<String, Map<Long, Member>>> topicmaps = new LinkedHashMap(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * Increased by every eviction. Guarded by "this".
+     */
+    private long modCount = 0;
+
+    private Logger logger = Logger.getLogger(getClass().getName());
+
+    // ---------------------------------------------------------------------------------------------------- Constructors
+
+    TopicmapIndex(CoreService dmx) {
+        this.dmx = dmx;
+    }
+
+    // ----------------------------------------------------------------------------------------- Package Private Methods
+
+    /**
+     * Returns the membership of the given topic/assoc in the given topicmap, or <code>null</code> if the topic/assoc
+     * is not contained in the topicmap. Indexes the topicmap if not done already.
+     *
+     * @param   scope   the current request's scope, or <code>null</code> if not in request scope.
+     */
+    Member getMember(long topicmapId, long objectId, Scope scope) {
+        if (scope == null) {
+            return fetchMembers(topicmapId).get(objectId);
+        }
+        Map<Long, Member> workingCopy = scope.workingCopies.get(topicmapId);
+        if (workingCopy != null) {
+            return workingCopy.get(objectId);
+        }
+        if (scope.permissionsChanged) {
+            return workingCopy(topicmapId, scope).get(objectId);
+        }
+        long _modCount;
+        synchronized (this) {
+            Map<Long, Member> members = indexedMembers(topicmapId, scope.view);
+            if (members != null) {
+                return members.get(objectId);
+            }
+            _modCount = modCount;
+        }
+        Map<Long, Member> members = fetchMembers(topicmapId);
+        synchronized (this) {
+            // Note: a topicmap evicted meanwhile is not indexed. A write might not be contained in what was fetched.
+            if (modCount == _modCount) {
+                topicmaps.computeIfAbsent(topicmapId, id -> new HashMap()).put(scope.view, members);
+            }
+        }
+        return members.get(objectId);
+    }
+
+    // ---
+
+    /**
+     * @param   scope   the current request's scope, or <code>null</code> if not in request scope.
+     */
+    void putMember(long topicmapId, long objectId, long mapcontextId, boolean visibility, Scope scope) {
+        Map<Long, Member> members = written(topicmapId, scope);
+        if (members != null) {
+            members.put(objectId, new Member(mapcontextId, visibility));
+        }
+    }
+
+    /**
+     * @param   scope   the current request's scope, or <code>null</code> if not in request scope.
+     */
+    void setVisibility(long topicmapId, long objectId, boolean visibility, Scope scope) {
+        Map<Long, Member> members = written(topicmapId, scope);
+        if (members != null) {
+            Member member = members.get(objectId);
+            if (member != null) {
+                members.put(objectId, new Member(member.mapcontextId, visibility));
+            }
+        }
+    }
+
+    /**
+     * @param   scope   the current request's scope, or <code>null</code> if not in request scope.
+     */
+    void removeMember(long topicmapId, long objectId, Scope scope) {
+        Map<Long, Member> members = written(topicmapId, scope);
+        if (members != null) {
+            members.remove(objectId);
+        }
+    }
+
+    /**
+     * To be called when a topicmap is deleted.
+     *
+     * @param   scope   the current request's scope, or <code>null</code> if not in request scope.
+     */
+    void removeTopicmap(long topicmapId, Scope scope) {
+        evict(topicmapId);
+        if (scope != null) {
+            scope.workingCopies.remove(topicmapId);
+            scope.writtenTopicmaps.add(topicmapId);
+        }
+    }
+
+    /**
+     * To be called when an access control relevant modification is made.
+     *
+     * @param   scope   the current request's scope, or <code>null</code> if not in request scope.
+     */
+    void permissionsChanged(Scope scope) {
+        clear();
+        if (scope != null) {
+            scope.permissionsChanged = true;
+        }
+    }
+
+    /**
+     * To be called once a request is finished, that is after its transaction is committed resp. rolled back.
+     * Evicts what the request has written. Readers might have indexed the former state meanwhile.
+     */
+    void requestFinished(Scope scope) {
+        if (scope.permissionsChanged) {
+            clear();
+        } else {
+            for (long topicmapId : scope.writtenTopicmaps) {
+                logger.fine("Evicting topicmap " + topicmapId + " from index (written)");
+                evict(topicmapId);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------- Private Methods
+
+    /**
+     * Registers a write to the given topicmap.
+     *
+     * @return  the request's working copy of the given topicmap, or <code>null</code> if not in request scope.
+     */
+    private Map<Long, Member> written(long topicmapId, Scope scope) {
+        if (scope == null) {
+            evict(topicmapId);
+            return null;
+        }
+        scope.writtenTopicmaps.add(topicmapId);
+        return workingCopy(topicmapId, scope);
+    }
+
+    private Map<Long, Member> workingCopy(long topicmapId, Scope scope) {
+        Map<Long, Member> workingCopy = scope.workingCopies.get(topicmapId);
+        if (workingCopy == null) {
+            Map<Long, Member> members = null;
+            if (!scope.permissionsChanged) {
+                synchronized (this) {
+                    members = indexedMembers(topicmapId, scope.view);
+                }
+            }
+            workingCopy = members != null ? new HashMap(members) : fetchMembers(topicmapId);
+            scope.workingCopies.put(topicmapId, workingCopy);
+        }
+        return workingCopy;
+    }
+
+    /**
+     * Guarded by "this".
+     */
+    private Map<Long, Member> indexedMembers(long topicmapId, String view) {
+        Map<String, Map<Long, Member>> views = topicmaps.get(topicmapId);
+        return views != null ? views.get(view) : null;
+    }
+
+    private synchronized void evict(long topicmapId) {
+        modCount++;
+        topicmaps.remove(topicmapId);
+    }
+
+    private synchronized void clear() {
+        modCount++;
+        topicmaps.clear();
+    }
+
+    private Map<Long, Member> fetchMembers(long topicmapId) {
+        Topic topicmapTopic = dmx.getTopic(topicmapId);
+        List<RelatedObject> objects = new ArrayList(topicmapTopic.getRelatedTopics(TOPICMAP_CONTEXT, DEFAULT,
+            TOPICMAP_CONTENT, null));
+        objects.addAll(topicmapTopic.getRelatedAssocs(TOPICMAP_CONTEXT, DEFAULT, TOPICMAP_CONTENT, null));
+        //
+        List<Long> mapcontextIds = new ArrayList();
+        for (RelatedObject object : objects) {
+            mapcontextIds.add(object.getRelatingAssoc().getId());
+        }
+        Map<Long, Map<String, Object>> props = dmx.getProperties(mapcontextIds, VISIBILITY);
+        //
+        Map<Long, Member> members = new HashMap();
+        for (RelatedObject object : objects) {
+            long mapcontextId = object.getRelatingAssoc().getId();
+            members.put(object.getId(), new Member(mapcontextId, (Boolean) props.get(mapcontextId).get(VISIBILITY)));
+        }
+        logger.fine("Indexing topicmap " + topicmapId + " (" + members.size() + " members)");
+        return members;
+    }
+
+    // ------------------------------------------------------------------------------------------------- Nested Classes
+
+    /**
+     * The topicmap index state of one request: the view the request accesses the index with, and the working copies
+     * of the topicmaps the request has written. Stored as a request attribute, so it is discarded along with the
+     * request.
+     */
+    static class Scope {
+
+        private final String view;
+        private final Map<Long, Map<Long, Member>> workingCopies = new HashMap();
+        private final Set<Long> writtenTopicmaps = new HashSet();
+        private boolean permissionsChanged = false;
+
+        /**
+         * @param   view    identifies the permissions the topicmaps are indexed with (see class comment)
+         */
+        Scope(String view) {
+            this.view = view;
+        }
+    }
+
+    /**
+     * The membership of a topic/assoc in a topicmap. Immutable.
+     */
+    static class Member {
+
+        final long mapcontextId;
+        final boolean visibility;
+
+        private Member(long mapcontextId, Boolean visibility) {
+            this.mapcontextId = mapcontextId;
+            this.visibility = visibility != null && visibility;
+        }
+    }
+}
@@ -9,15 +9,27 @@ import systems.dmx.core.RelatedObject;
 import systems.dmx.core.RelatedTopic;
 import systems.dmx.core.Topic;
 import systems.dmx.core.model.ChildTopicsModel;
+import systems.dmx.core.model.TopicModel;
 import systems.dmx.core.model.topicmaps.ViewAssoc;
 import systems.dmx.core.model.topicmaps.ViewTopic;
 import systems.dmx.core.model.topicmaps.ViewProps;
 import systems.dmx.core.osgi.PluginActivator;
 import systems.dmx.core.service.Transactional;
+import systems.dmx.core.service.ChangeReport;
+import systems.dmx.core.service.event.PostCreateAssoc;
+import systems.dmx.core.service.event.PostUpdateTopic;
+import systems.dmx.core.service.event.PreDeleteAssoc;
+import systems.dmx.core.service.event.PreDeleteTopic;
 import systems.dmx.core.service.event.PreSendTopic;
-import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.service.event.ServiceResponseFilter;
 import systems.dmx.core.util.IdList;
 
+// ### TODO: hide Jersey internals. Upgrade to JAX-RS 2.0.
+import com.sun.jersey.server.impl.ThreadLocalInvoker;
+import com.sun.jersey.spi.container.ContainerResponse;
+
+import javax.servlet.http.HttpServletRequest;
+
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.POST;
@@ -27,8 +39,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 
 import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -42,7 +57,21 @@ import java.util.logging.Logger;
 @Path("/topicmaps")
 @Consumes("application/json")
 @Produces("application/json")
-public class TopicmapsPlugin extends PluginActivator implements TopicmapsService, TopicmapCustomizer, PreSendTopic {
+public class TopicmapsPlugin extends PluginActivator implements TopicmapsService, TopicmapCustomizer, PreSendTopic,
+                                                                                        PostCreateAssoc,
+                                                                                        PostUpdateTopic,
+                                                                                        PreDeleteTopic,
+                                                                                        PreDeleteAssoc,
+                                                                                        ServiceResponseFilter {
+
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    private static final String INDEX_SCOPE = "systems.dmx.topicmaps.index_scope";     // request attribute
+
+    // Access control relevant types. Note: the Topicmaps plugin does not depend on the Workspaces plugin.
+    private static final String WORKSPACE            = "dmx.workspaces.workspace";
+    private static final String WORKSPACE_ASSIGNMENT = "dmx.workspaces.workspace_assignment";
+    private static final String MEMBERSHIP           = "dmx.accesscontrol.membership";
 
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
@@ -55,6 +84,11 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
 
     private Messenger me;
 
+    private TopicmapIndex index;
+
+    @Context
+    private HttpServletRequest request;
+
     private Logger logger = Logger.getLogger(getClass().getName());
 
     // -------------------------------------------------------------------------------------------------- Public Methods
@@ -261,8 +295,17 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
     @Transactional
     @Override
     public void setTopicPositions(@PathParam("id") long topicmapId, TopicCoords coords) {
-        for (TopicCoords.Entry entry : coords) {
-            setTopicPosition(topicmapId, entry.topicId, entry.x, entry.y);
+        try {
+            for (TopicCoords.Entry entry : coords) {
+                TopicmapIndex.Member member = getMember(topicmapId, entry.topicId);
+                if (member == null) {
+                    throw new RuntimeException("Topic " + entry.topicId + " not contained in topicmap " + topicmapId);
+                }
+                mf.newViewProps(entry.x, entry.y).store(dmx.getAssoc(member.mapcontextId));
+            }
+            me.setTopicPositions(topicmapId, coords);
+        } catch (Exception e) {
+            throw new RuntimeException("Setting topic positions in topicmap " + topicmapId + " failed", e);
         }
     }
 
@@ -415,6 +458,17 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
         }
     }
 
+    @Override
+    public void customizeTopics(List<RelatedTopic> topics, Map<Long, ViewProps> viewProps) {
+        List<RelatedTopic> topicmapTopics = new ArrayList();
+        for (RelatedTopic topic : topics) {
+            if (topic.getTypeUri().equals(TOPICMAP)) {
+                topicmapTopics.add(topic);
+            }
+        }
+        dmx.loadChildTopics(topicmapTopics);
+    }
+
 
 
     // *****************
@@ -434,6 +488,57 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
         }
     }
 
+    @Override
+    public void postCreateAssoc(Assoc assoc) {
+        if (isAccessControlRelevant(assoc)) {
+            index.permissionsChanged(indexScope());
+        }
+    }
+
+    /**
+     * A workspace's sharing mode is a child topic of the workspace.
+     */
+    @Override
+    public void postUpdateTopic(Topic topic, ChangeReport report, TopicModel updateModel) {
+        if (topic.getTypeUri().equals(WORKSPACE)) {
+            index.permissionsChanged(indexScope());
+        }
+    }
+
+    @Override
+    public void preDeleteTopic(Topic topic) {
+        if (topic.getTypeUri().equals(TOPICMAP)) {
+            index.removeTopicmap(topic.getId(), indexScope());
+        }
+    }
+
+    /**
+     * Keeps the topicmap index up-to-date when a topicmap context is deleted, either by this plugin or implicitly,
+     * e.g. when a topic contained in a topicmap is deleted.
+     */
+    @Override
+    public void preDeleteAssoc(Assoc assoc) {
+        if (assoc.getTypeUri().equals(TOPICMAP_CONTEXT)) {
+            long topicmapId = assoc.getPlayerByRole(DEFAULT).getId();
+            index.removeMember(topicmapId, assoc.getPlayerByRole(TOPICMAP_CONTENT).getId(), indexScope());
+        } else if (isAccessControlRelevant(assoc)) {
+            index.permissionsChanged(indexScope());
+        }
+    }
+
+    // ---
+
+    /**
+     * Note: called after the request's transaction is committed resp. rolled back.
+     */
+    @Override
+    public void serviceResponseFilter(ContainerResponse response) {
+        TopicmapIndex.Scope scope = (TopicmapIndex.Scope) request.getAttribute(INDEX_SCOPE);
+        if (scope != null) {
+            index.requestFinished(scope);
+        }
+    }
+
 
 
     // *************
@@ -450,6 +555,7 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
         registerTopicmapCustomizer(this);      // ### FIXME: unregister is missing
         //
         me = new Messenger(dmx.getWebSocketService());
+        index = new TopicmapIndex(dmx);
     }
 
 
@@ -458,51 +564,39 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
 
     // --- Fetch Topicmap ---
 
+    /**
+     * Fetches the topicmap's topics along with their view props. The view props of all topics are fetched at once.
+     */
     private Map<Long, ViewTopic> fetchTopics(Topic topicmapTopic, boolean includeChildren) {
         Map<Long, ViewTopic> topics = new HashMap();
         List<RelatedTopic> relTopics = topicmapTopic.getRelatedTopics(TOPICMAP_CONTEXT, DEFAULT, TOPICMAP_CONTENT,
                                                                       null);       // othersTopicTypeUri=null
         if (includeChildren) {
-            DMXUtils.loadChildTopics(relTopics);
+            dmx.loadChildTopics(relTopics);
         }
+        Map<Long, ViewProps> viewProps = fetchTopicViewProps(relTopics);
+        invokeTopicmapCustomizers(relTopics, viewProps);
         for (RelatedTopic topic : relTopics) {
-            topics.put(topic.getId(), buildViewTopic(topic));
+            topics.put(topic.getId(), mf.newViewTopic(topic.getModel(), viewProps.get(topic.getId())));
         }
         return topics;
     }
 
+    /**
+     * Fetches the topicmap's assocs along with their view props. The view props of all assocs are fetched at once.
+     */
     private Map<Long, ViewAssoc> fetchAssocs(Topic topicmapTopic) {
         Map<Long, ViewAssoc> assocs = new HashMap();
         List<RelatedAssoc> relAssocs = topicmapTopic.getRelatedAssocs(TOPICMAP_CONTEXT, DEFAULT, TOPICMAP_CONTENT,
                                                                       null);       // othersAsspcTypeUri=null
+        Map<Long, ViewProps> viewProps = fetchAssocViewProps(relAssocs);
+        // invokeTopicmapCustomizers(assocs, viewProps);    // TODO: assoc customizers?
         for (RelatedAssoc assoc : relAssocs) {
-            assocs.put(assoc.getId(), buildViewAssoc(assoc));
+            assocs.put(assoc.getId(), mf.newViewAssoc(assoc.getModel(), viewProps.get(assoc.getId())));
         }
         return assocs;
     }
 
-    // ---
-
-    private ViewTopic buildViewTopic(RelatedTopic topic) {
-        try {
-            ViewProps viewProps = fetchTopicViewProps(topic.getRelatingAssoc());
-            invokeTopicmapCustomizers(topic, viewProps);
-            return mf.newViewTopic(topic.getModel(), viewProps);
-        } catch (Exception e) {
-            throw new RuntimeException("Building ViewTopic " + topic.getId() + " failed", e);
-        }
-    }
-
-    private ViewAssoc buildViewAssoc(RelatedAssoc assoc) {
-        try {
-            ViewProps viewProps = fetchAssocViewProps(assoc.getRelatingAssoc());
-            // invokeTopicmapCustomizers(assoc, viewProps);    // TODO: assoc customizers?
-            return mf.newViewAssoc(assoc.getModel(), viewProps);
-        } catch (Exception e) {
-            throw new RuntimeException("Building ViewAssoc " + assoc.getId() + " failed", e);
-        }
-    }
-
     // --- Fetch View Properties ---
 
     private ViewProps fetchTopicmapViewProps(Topic topicmapTopic) {
@@ -512,28 +606,72 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
             .set(ZOOM,  topicmapTopic.getProperty(ZOOM));
     }
 
-    private ViewProps fetchTopicViewProps(Assoc topicmapContext) {
-        return mf.newViewProps(
-            (Integer) topicmapContext.getProperty(X),
-            (Integer) topicmapContext.getProperty(Y),
-            visibility(topicmapContext),
-            pinned(topicmapContext)
-        );
+    /**
+     * @return  a map: topic ID -> view props
+     */
+    private Map<Long, ViewProps> fetchTopicViewProps(List<RelatedTopic> topics) {
+        Map<Long, ViewProps> viewProps = new HashMap();
+        Map<Long, Map<String, Object>> props = fetchMapcontextProps(topics, X, Y, VISIBILITY, PINNED);
+        for (RelatedTopic topic : topics) {
+            Map<String, Object> p = props.get(topic.getRelatingAssoc().getId());
+            try {
+                viewProps.put(topic.getId(), mf.newViewProps(
+                    (Integer) viewProp(p, X),
+                    (Integer) viewProp(p, Y),
+                    (Boolean) viewProp(p, VISIBILITY),
+                    (Boolean) viewProp(p, PINNED)
+                ));
+            } catch (Exception e) {
+                throw new RuntimeException("Fetching view props of topic " + topic.getId() + " failed", e);
+            }
+        }
+        return viewProps;
+    }
+
+    /**
+     * @return  a map: assoc ID -> view props
+     */
+    private Map<Long, ViewProps> fetchAssocViewProps(List<RelatedAssoc> assocs) {
+        Map<Long, ViewProps> viewProps = new HashMap();
+        Map<Long, Map<String, Object>> props = fetchMapcontextProps(assocs, VISIBILITY, PINNED);
+        for (RelatedAssoc assoc : assocs) {
+            Map<String, Object> p = props.get(assoc.getRelatingAssoc().getId());
+            try {
+                viewProps.put(assoc.getId(), mf.newViewProps(
+                    (Boolean) viewProp(p, VISIBILITY),
+                    (Boolean) viewProp(p, PINNED)
+                ));
+            } catch (Exception e) {
+                throw new RuntimeException("Fetching view props of assoc " + assoc.getId() + " failed", e);
+            }
+        }
+        return viewProps;
     }
 
-    private ViewProps fetchAssocViewProps(Assoc topicmapContext) {
-        return mf.newViewProps(
-            visibility(topicmapContext),
-            pinned(topicmapContext)
-        );
+    /**
+     * Fetches the given properties of the topicmap contexts (the relating assocs) of the given objects in one go.
+     *
+     * @return  a map: topicmap context ID -> (property URI -> value)
+     */
+    private Map<Long, Map<String, Object>> fetchMapcontextProps(List<? extends RelatedObject> objects,
+                                                                String... propUris) {
+        List<Long> ids = new ArrayList();
+        for (RelatedObject object : objects) {
+            ids.add(object.getRelatingAssoc().getId());
+        }
+        return dmx.getProperties(ids, propUris);
     }
 
-    private boolean visibility(Assoc topicmapContext) {
-        return (Boolean) topicmapContext.getProperty(VISIBILITY);
+    private Object viewProp(Map<String, Object> props, String propUri) {
+        Object value = props.get(propUri);
+        if (value == null) {
+            throw new RuntimeException("Topicmap context has no \"" + propUri + "\" property");
+        }
+        return value;
     }
 
-    private boolean pinned(Assoc topicmapContext) {
-        return (Boolean) topicmapContext.getProperty(PINNED);
+    private boolean visibility(Assoc topicmapContext) {
+        return (Boolean) topicmapContext.getProperty(VISIBILITY);
     }
 
     // --- Update Visibility ---
@@ -549,6 +687,7 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
         }
         // update DB
         viewProps.store(topicmapContext);
+        index.setVisibility(topicmapId, topicId, visibility, indexScope());
         // send message
         me.setTopicVisibility(topicmapId, topicId, visibility);
     }
@@ -559,6 +698,7 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
         if (visibility) {
             autoRevealAssocs(assoc, topicmapId);
             mf.newViewProps(visibility).store(topicmapContext);
+            index.setVisibility(topicmapId, assocId, visibility, indexScope());
         } else {
             // Note: topicmap contexts of *explicitly* hidden assocs are removed
             deleteAllAssocMapcontexts(assoc, topicmapId);
@@ -568,22 +708,26 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
         me.setAssocVisibility(topicmapId, assocId, visibility);
     }
 
+    // Note: the topicmap contexts of an object's neighbors are looked up in the topicmap index
+
     private void autoRevealAssocs(DMXObject object, long topicmapId) {
         for (RelatedTopic topic : object.getRelatedTopics()) {
-            _autoRevealAssocs(topic, getTopicMapcontext(topicmapId, topic.getId()), topicmapId);
+            _autoRevealAssocs(topic, topicmapId);
         }
         for (RelatedAssoc assoc : object.getRelatedAssocs()) {
-            _autoRevealAssocs(assoc, getAssocMapcontext(topicmapId, assoc.getId()), topicmapId);
+            _autoRevealAssocs(assoc, topicmapId);
         }
     }
 
-    private void _autoRevealAssocs(RelatedObject object, Assoc topicmapContext, long topicmapId) {
-        if (topicmapContext != null && visibility(topicmapContext)) {
+    private void _autoRevealAssocs(RelatedObject object, long topicmapId) {
+        TopicmapIndex.Member member = getMember(topicmapId, object.getId());
+        if (member != null && member.visibility) {
             Assoc assoc = object.getRelatingAssoc();
-            Assoc assocMapcontext = getAssocMapcontext(topicmapId, assoc.getId());
-            if (assocMapcontext != null && !visibility(assocMapcontext)) {
+            TopicmapIndex.Member assocMember = getMember(topicmapId, assoc.getId());
+            if (assocMember != null && !assocMember.visibility) {
                 // update DB
-                mf.newViewProps(true).store(assocMapcontext);       // visibility=true
+                mf.newViewProps(true).store(dmx.getAssoc(assocMember.mapcontextId));      // visibility=true
+                index.setVisibility(topicmapId, assoc.getId(), true, indexScope());
                 // recursion
                 autoRevealAssocs(assoc, topicmapId);
             }
@@ -592,10 +736,11 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
 
     private void autoHideAssocs(DMXObject object, long topicmapId) {
         for (Assoc assoc : object.getAssocs()) {
-            Assoc topicmapContext = getAssocMapcontext(topicmapId, assoc.getId());
-            if (topicmapContext != null) {
+            TopicmapIndex.Member member = getMember(topicmapId, assoc.getId());
+            if (member != null) {
                 // update DB
-                mf.newViewProps(false, false).store(topicmapContext);       // visibility=false, pinned=false
+                mf.newViewProps(false, false).store(dmx.getAssoc(member.mapcontextId));  // visibility=false,
+                index.setVisibility(topicmapId, assoc.getId(), false, indexScope());     // pinned=false
                 // recursion
                 autoHideAssocs(assoc, topicmapId);
             }
@@ -604,9 +749,9 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
 
     private void deleteAllAssocMapcontexts(Assoc object, long topicmapId) {
         for (Assoc assoc : object.getAssocs()) {
-            Assoc assocMapcontext = getAssocMapcontext(topicmapId, assoc.getId());
-            if (assocMapcontext != null) {
-                deleteAssocMapcontext(assocMapcontext);
+            TopicmapIndex.Member member = getMember(topicmapId, assoc.getId());
+            if (member != null) {
+                deleteAssocMapcontext(dmx.getAssoc(member.mapcontextId));
                 deleteAllAssocMapcontexts(assoc, topicmapId);     // recursion
             }
         }
@@ -615,6 +760,7 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
     private void deleteAssocMapcontext(Assoc assocMapcontext) {
         // Note: a mapcontext association has no workspace assignment -- it belongs to the system.
         // Deleting a mapcontext association is a privileged operation.
+        // Note: the topicmap index is updated by the preDeleteAssoc() listener
         dmx.getPrivilegedAccess().deleteAssocMapcontext(assocMapcontext);
     }
 
@@ -626,6 +772,7 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
     private void storeTopicViewProps(long topicmapId, long topicId, ViewProps viewProps) {
         try {
             viewProps.store(fetchTopicMapcontext(topicmapId, topicId));
+            updateIndex(topicmapId, topicId, viewProps);
         } catch (Exception e) {
             throw new RuntimeException("Storing view props of topic " + topicId + " failed, viewProps=" + viewProps, e);
         }
@@ -637,6 +784,7 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
     private void storeAssocViewProps(long topicmapId, long assocId, ViewProps viewProps) {
         try {
             viewProps.store(fetchAssocMapcontext(topicmapId, assocId));
+            updateIndex(topicmapId, assocId, viewProps);
         } catch (Exception e) {
             throw new RuntimeException("Storing view props of assoc " + assocId + " failed, viewProps=" + viewProps, e);
         }
@@ -668,6 +816,7 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
             mf.newTopicPlayerModel(topicId,    TOPICMAP_CONTENT)
         ));
         viewProps.store(topicMapcontext);
+        index.putMember(topicmapId, topicId, topicMapcontext.getId(), visibility(viewProps), indexScope());
         //
         ViewTopic topic = mf.newViewTopic(dmx.getTopic(topicId).getModel(), viewProps);
         me.addTopicToTopicmap(topicmapId, topic);
@@ -679,24 +828,85 @@ public class TopicmapsPlugin extends PluginActivator implements TopicmapsService
             mf.newAssocPlayerModel(assocId,    TOPICMAP_CONTENT)
         ));
         viewProps.store(assocMapcontext);
+        index.putMember(topicmapId, assocId, assocMapcontext.getId(), visibility(viewProps), indexScope());
         //
         ViewAssoc assoc = mf.newViewAssoc(dmx.getAssoc(assocId).getModel(), viewProps);
         me.addAssocToTopicmap(topicmapId, assoc);
     }
 
+    // --- Topicmap Index ---
+
+    private TopicmapIndex.Member getMember(long topicmapId, long objectId) {
+        return index.getMember(topicmapId, objectId, indexScope());
+    }
+
+    private void updateIndex(long topicmapId, long objectId, ViewProps viewProps) {
+        if (viewProps.get(VISIBILITY) != null) {
+            index.setVisibility(topicmapId, objectId, visibility(viewProps), indexScope());
+        }
+    }
+
+    private boolean visibility(ViewProps viewProps) {
+        return Boolean.TRUE.equals(viewProps.get(VISIBILITY));
+    }
+
+    private boolean isAccessControlRelevant(Assoc assoc) {
+        String typeUri = assoc.getTypeUri();
+        return typeUri.equals(MEMBERSHIP) || typeUri.equals(WORKSPACE_ASSIGNMENT);
+    }
+
+    /**
+     * Returns the topicmap index scope of the current request, or <code>null</code> if the current thread is not in
+     * request scope. The scope is created on first access. Its "view" reflects the read permissions of the current
+     * user, as the content of a topicmap depends on them.
+     */
+    private TopicmapIndex.Scope indexScope() {
+        if (!inRequestScope()) {
+            return null;
+        }
+        TopicmapIndex.Scope scope = (TopicmapIndex.Scope) request.getAttribute(INDEX_SCOPE);
+        if (scope == null) {
+            String username = dmx.getPrivilegedAccess().getUsername(request);
+            scope = new TopicmapIndex.Scope(username != null ? "user:" + username : "anonymous");
+            request.setAttribute(INDEX_SCOPE, scope);
+        }
+        return scope;
+    }
+
+    /**
+     * Jersey injects a proxy which delegates to the request bound to the current thread. Outside request scope (e.g.
+     * while system startup) no request is bound. While system startup the proxy might not even be injected yet.
+     */
+    private boolean inRequestScope() {
+        if (request == null) {
+            return false;
+        }
+        if (Proxy.isProxyClass(request.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(request);
+            if (handler instanceof ThreadLocalInvoker) {
+                return ((ThreadLocalInvoker) handler).get() != null;
+            }
+        }
+        return true;
+    }
+
     // --- Topicmap Customizers ---
 
-    private void invokeTopicmapCustomizers(RelatedTopic topic, ViewProps viewProps) {
+    /**
+     * @param   viewProps   a map: topic ID -> view props
+     */
+    private void invokeTopicmapCustomizers(List<RelatedTopic> topics, Map<Long, ViewProps> viewProps) {
         for (TopicmapCustomizer customizer : topicmapCustomizers) {
-            invokeTopicmapCustomizer(customizer, topic, viewProps);
+            invokeTopicmapCustomizer(customizer, topics, viewProps);
         }
     }
 
-    private void invokeTopicmapCustomizer(TopicmapCustomizer customizer, RelatedTopic topic, ViewProps viewProps) {
+    private void invokeTopicmapCustomizer(TopicmapCustomizer customizer, List<RelatedTopic> topics,
+                                                                          Map<Long, ViewProps> viewProps) {
         try {
-            customizer.customizeTopic(topic, viewProps);
+            customizer.customizeTopics(topics, viewProps);
         } catch (Exception e) {
-            throw new RuntimeException("Invoking topicmap customizer for topic " + topic.getId() + " failed, " +
+            throw new RuntimeException("Invoking topicmap customizer for " + topics.size() + " topics failed, " +
                 "customizer=\"" + customizer.getClass().getName() + "\"", e);
         }
     }
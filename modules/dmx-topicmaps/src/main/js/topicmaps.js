@@ -480,6 +480,13 @@ const actions = {
     }
   },
 
+  // Note: the topicmap renderer handles single positions. A bulk position update is dispatched per topic.
+  _setTopicPositions ({dispatch}, {topicmapId, topicCoords}) {
+    topicCoords.forEach(({topicId, x, y}) => {
+      dispatch('_setTopicPosition', {topicmapId, topicId, pos: {x, y}})
+    })
+  },
+
   _setTopicVisibility ({getters, dispatch}, {topicmapId, topicId, visibility}) {
     // console.log('_setTopicVisibility (Topicmaps Module)', topicmapId, topicId, visibility)
     if (topicmapId === _topicmapId(getters)) {
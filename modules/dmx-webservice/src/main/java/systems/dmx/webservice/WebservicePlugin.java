@@ -16,11 +16,17 @@ import systems.dmx.core.model.SimpleValue;
 import systems.dmx.core.model.TopicModel;
 import systems.dmx.core.model.TopicTypeModel;
 import systems.dmx.core.osgi.PluginActivator;
+import systems.dmx.core.service.CacheStats;
 import systems.dmx.core.service.DirectivesResponse;
+import systems.dmx.core.service.ListenerMetrics;
 import systems.dmx.core.service.PluginInfo;
 import systems.dmx.core.service.QueryResult;
+import systems.dmx.core.service.ResultPage;
 import systems.dmx.core.service.TopicResult;
 import systems.dmx.core.service.Transactional;
+import systems.dmx.core.service.accesscontrol.AccessControlException;
+import systems.dmx.core.service.accesscontrol.PrivilegedAccess;
+import systems.dmx.core.service.websocket.ConnectionMetrics;
 import systems.dmx.core.util.IdList;
 
 import org.codehaus.jettison.json.JSONException;
@@ -31,13 +37,23 @@ import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 
+import javax.servlet.http.HttpServletRequest;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,8 +67,14 @@ import java.util.logging.Logger;
 @Produces("application/json")
 public class WebservicePlugin extends PluginActivator {
 
+    // ------------------------------------------------------------------------------------------------------- Constants
+
+    private static final String DEFAULT_PAGE_SIZE = "100";
+
     // ---------------------------------------------------------------------------------------------- Instance Variables
 
+    @Context private HttpServletRequest request;
+
     private Messenger me = new Messenger("systems.dmx.webclient");
 
     private Logger logger = Logger.getLogger(getClass().getName());
@@ -84,6 +106,26 @@ public class WebservicePlugin extends PluginActivator {
         return dmx.getTopicsByType(topicTypeUri);
     }
 
+    /**
+     * Pages through the topics of a type. If a cursor is given the offset is ignored.
+     */
+    // Note: the "children" query parameter is handled by core's JerseyResponseFilter
+    @GET
+    @Path("/topics/page/type/{uri}")
+    public ResultPage<Topic> getTopicsByType(@PathParam("uri") String topicTypeUri,
+                                             @QueryParam("offset") int offset,
+                                             @QueryParam("cursor") String cursor,
+                                             @QueryParam("limit") @DefaultValue(DEFAULT_PAGE_SIZE) int limit) {
+        return cursor != null ? dmx.getTopicsByType(topicTypeUri, cursor, limit) :
+                                dmx.getTopicsByType(topicTypeUri, offset, limit);
+    }
+
+    @GET
+    @Path("/topics/count/type/{uri}")
+    public int countTopicsByType(@PathParam("uri") String topicTypeUri) {
+        return dmx.countTopicsByType(topicTypeUri);
+    }
+
     // Note: the "children" query parameter is handled by core's JerseyResponseFilter
     @GET
     @Path("/topic/type/{uri}/{value}")
@@ -141,6 +183,22 @@ public class WebservicePlugin extends PluginActivator {
         return new DirectivesResponse();
     }
 
+    /**
+     * Bulk import. The request body is NDJSON: one topic model per line. The body is streamed, that is the topics
+     * are created while it is read.
+     * <p>
+     * Note: not @Transactional. The topics are committed in chunks, see {@link
+     * systems.dmx.core.service.CoreService#importTopics}.
+     *
+     * @return  the number of topics created.
+     */
+    @POST
+    @Path("/topics/import")
+    @Consumes("application/x-ndjson")
+    public int importTopics(InputStream in) {
+        return dmx.importTopics(new NDJSONTopicModels(in));
+    }
+
 
 
     // === Associations ===
@@ -152,6 +210,26 @@ public class WebservicePlugin extends PluginActivator {
         return dmx.getAssoc(assocId);
     }
 
+    /**
+     * Pages through the associations of a type. If a cursor is given the offset is ignored.
+     */
+    // Note: the "children" query parameter is handled by core's JerseyResponseFilter
+    @GET
+    @Path("/assocs/page/type/{uri}")
+    public ResultPage<Assoc> getAssocsByType(@PathParam("uri") String assocTypeUri,
+                                             @QueryParam("offset") int offset,
+                                             @QueryParam("cursor") String cursor,
+                                             @QueryParam("limit") @DefaultValue(DEFAULT_PAGE_SIZE) int limit) {
+        return cursor != null ? dmx.getAssocsByType(assocTypeUri, cursor, limit) :
+                                dmx.getAssocsByType(assocTypeUri, offset, limit);
+    }
+
+    @GET
+    @Path("/assocs/count/type/{uri}")
+    public int countAssocsByType(@PathParam("uri") String assocTypeUri) {
+        return dmx.countAssocsByType(assocTypeUri);
+    }
+
     // Note: the "children" query parameter is handled by core's JerseyResponseFilter
     @GET
     @Path("/assoc/type/{uri}/{value}")
@@ -342,6 +420,74 @@ public class WebservicePlugin extends PluginActivator {
 
 
 
+    // === Metrics ===
+
+    // Note: the metrics reveal usernames, listener internals, and let a caller reset the counters.
+    // So all metrics endpoints are restricted to users with WRITE access to the "Administration" workspace.
+
+    /**
+     * Returns the per-listener event timing, the most time consuming listener first. Empty unless enabled, see
+     * {@link systems.dmx.core.service.EventMetrics}.
+     */
+    @GET
+    @Path("/metrics/events")
+    public List<ListenerMetrics> getEventMetrics() {
+        checkAdmin();
+        return dmx.getEventMetrics().getListenerMetrics();
+    }
+
+    @PUT
+    @Path("/metrics/events/enabled/{enabled}")
+    public void setEventMetricsEnabled(@PathParam("enabled") boolean enabled) {
+        checkAdmin();
+        dmx.getEventMetrics().setEnabled(enabled);
+    }
+
+    @DELETE
+    @Path("/metrics/events")
+    public void resetEventMetrics() {
+        checkAdmin();
+        dmx.getEventMetrics().reset();
+    }
+
+    /**
+     * Returns the storage cache's hit/miss counts. Empty unless the storage cache is enabled, see
+     * {@link systems.dmx.core.service.StorageCacheMetrics}.
+     */
+    @GET
+    @Path("/metrics/storage-cache")
+    public List<CacheStats> getStorageCacheStats() {
+        checkAdmin();
+        return dmx.getStorageCacheMetrics().getCacheStats();
+    }
+
+    @DELETE
+    @Path("/metrics/storage-cache")
+    public void resetStorageCacheStats() {
+        checkAdmin();
+        dmx.getStorageCacheMetrics().reset();
+    }
+
+    /**
+     * Returns the outbound queue depth and send latency per WebSocket connection, see
+     * {@link systems.dmx.core.service.websocket.WebSocketMetrics}.
+     */
+    @GET
+    @Path("/metrics/websockets")
+    public List<ConnectionMetrics> getWebSocketMetrics() {
+        checkAdmin();
+        return dmx.getWebSocketMetrics().getConnectionMetrics();
+    }
+
+    @DELETE
+    @Path("/metrics/websockets")
+    public void resetWebSocketMetrics() {
+        checkAdmin();
+        dmx.getWebSocketMetrics().reset();
+    }
+
+
+
     // **********************
     // *** Topic REST API ***
     // **********************
@@ -564,6 +710,21 @@ public class WebservicePlugin extends PluginActivator {
 
     // ---
 
+    /**
+     * Throws an AccessControlException (mapped to 401) if the current user has no WRITE access to the
+     * "Administration" workspace.
+     */
+    private void checkAdmin() {
+        PrivilegedAccess pa = dmx.getPrivilegedAccess();
+        String username = pa.getUsername(request);
+        if (username == null || !pa.hasWritePermission(username, pa.getAdminWorkspaceId())) {
+            throw new AccessControlException("user " + (username != null ? "\"" + username + "\"" : "<anonymous>") +
+                " has no WRITE permission for the \"Administration\" workspace");
+        }
+    }
+
+    // ---
+
     // TODO: move this logic to dmx.deleteTopic() so that it can delete types as well? (types ARE topics after all)
     private void deleteAnyTopic(long id) {
         Topic t = dmx.getTopic(id);
@@ -579,6 +740,63 @@ public class WebservicePlugin extends PluginActivator {
 
     // ------------------------------------------------------------------------------------------------- Private Classes
 
+    /**
+     * Reads topic models from an NDJSON stream, one per line. Blank lines are skipped. Can be iterated only once.
+     */
+    private class NDJSONTopicModels implements Iterable<TopicModel> {
+
+        private BufferedReader reader;
+        private String nextLine;
+        private int lineNr = 0;
+
+        private NDJSONTopicModels(InputStream in) {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Iterator<TopicModel> iterator() {
+            return new Iterator<TopicModel>() {
+
+                @Override
+                public boolean hasNext() {
+                    return readLine() != null;
+                }
+
+                @Override
+                public TopicModel next() {
+                    String line = readLine();
+                    if (line == null) {
+                        throw new NoSuchElementException();
+                    }
+                    nextLine = null;
+                    try {
+                        return mf.newTopicModel(new JSONObject(line));
+                    } catch (Exception e) {
+                        throw new RuntimeException("Parsing topic model in line " + lineNr + " failed", e);
+                    }
+                }
+            };
+        }
+
+        private String readLine() {
+            try {
+                while (nextLine == null) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        return null;
+                    }
+                    lineNr++;
+                    if (!line.trim().isEmpty()) {
+                        nextLine = line;
+                    }
+                }
+                return nextLine;
+            } catch (IOException e) {
+                throw new RuntimeException("Reading line " + (lineNr + 1) + " of the import failed", e);
+            }
+        }
+    }
+
     private class Messenger {
 
         private String pluginUri;
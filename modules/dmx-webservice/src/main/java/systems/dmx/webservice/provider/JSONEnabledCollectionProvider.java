@@ -1,7 +1,7 @@
 package systems.dmx.webservice.provider;
 
 import systems.dmx.core.JSONEnabled;
-import systems.dmx.core.util.DMXUtils;
+import systems.dmx.core.util.JSONGenerator;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -60,8 +60,9 @@ public class JSONEnabledCollectionProvider implements MessageBodyWriter<Collecti
                         throws IOException, WebApplicationException {
         try {
             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(entityStream));
-            DMXUtils.toJSONArray(objects).write(writer);
-            writer.flush();
+            JSONGenerator out = new JSONGenerator(writer);
+            out.array(objects);
+            out.flush();
         } catch (Exception e) {
             throw new RuntimeException("Writing message body failed (" + objects.size() + " objects)", e);
         }
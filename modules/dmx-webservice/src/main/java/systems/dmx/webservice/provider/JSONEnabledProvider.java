@@ -1,6 +1,7 @@
 package systems.dmx.webservice.provider;
 
 import systems.dmx.core.JSONEnabled;
+import systems.dmx.core.util.JSONGenerator;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -47,8 +48,9 @@ public class JSONEnabledProvider implements MessageBodyWriter<JSONEnabled> {
                         throws IOException, WebApplicationException {
         try {
             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(entityStream));
-            jsonEnabled.toJSON().write(writer);
-            writer.flush();
+            JSONGenerator out = new JSONGenerator(writer);
+            out.value(jsonEnabled);
+            out.flush();
         } catch (Exception e) {
             throw new RuntimeException("Writing message body failed", e);
         }
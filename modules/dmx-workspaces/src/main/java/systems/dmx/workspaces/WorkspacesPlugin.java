@@ -40,7 +40,6 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
@@ -234,10 +233,7 @@ public class WorkspacesPlugin extends PluginActivator implements WorkspacesServi
     @Override
     public List<Topic> getAssignedTopics(@PathParam("id") long workspaceId,
                                          @PathParam("topicTypeUri") String topicTypeUri) {
-        // TODO: optimization. Use getRelatedTopics() by using "Workspace Assignment" type.
-        List<Topic> topics = dmx.getTopicsByType(topicTypeUri);
-        applyWorkspaceFilter(topics.iterator(), workspaceId);
-        return topics;
+        return dmx.getTopicsByPropertyAndType(PROP_WORKSPACE_ID, workspaceId, topicTypeUri);
     }
 
     // Note: the "children" query parameter is handled by core's JerseyResponseFilter
@@ -246,9 +242,7 @@ public class WorkspacesPlugin extends PluginActivator implements WorkspacesServi
     @Override
     public List<Assoc> getAssignedAssocs(@PathParam("id") long workspaceId,
                                          @PathParam("assocTypeUri") String assocTypeUri) {
-        List<Assoc> assocs = dmx.getAssocsByType(assocTypeUri);
-        applyWorkspaceFilter(assocs.iterator(), workspaceId);
-        return assocs;
+        return dmx.getAssocsByPropertyAndType(PROP_WORKSPACE_ID, workspaceId, assocTypeUri);
     }
 
 
@@ -556,15 +550,6 @@ public class WorkspacesPlugin extends PluginActivator implements WorkspacesServi
         return dmx.getPrivilegedAccess().getDMXWorkspaceId();
     }
 
-    private void applyWorkspaceFilter(Iterator<? extends DMXObject> objects, long workspaceId) {
-        while (objects.hasNext()) {
-            DMXObject object = objects.next();
-            if (getAssignedWorkspaceId(object.getId()) != workspaceId) {
-                objects.remove();
-            }
-        }
-    }
-
     // ---
 
     // ### FIXME: copied from Access Control